@@ -4,12 +4,12 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import net.ripe.db.whois.api.fulltextsearch.FullTextAnalyzer;
 import net.ripe.db.whois.api.fulltextsearch.FullTextIndex;
+import net.ripe.db.whois.api.fulltextsearch.IndexHitLoader;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -21,7 +21,6 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
@@ -31,7 +30,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Conditional;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
@@ -94,21 +92,8 @@ public class LuceneAutocompleteSearch implements AutocompleteSearch {
 
                 final TopFieldDocs topDocs = indexSearcher.search(query, MAX_SEARCH_RESULTS, SORT_BY_LOOKUP_KEY, true);
 
-                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                    final Document doc = indexSearcher.doc(scoreDoc.doc);
+                for (final RpslObject rpslObject : new IndexHitLoader(objectDao, indexSearcher, topDocs.scoreDocs).load(0, topDocs.scoreDocs.length).keySet()) {
                     final Map<String, Object> result = Maps.newLinkedHashMap();
-                    final RpslObject rpslObject;
-
-                    try {
-                        rpslObject =   objectDao.getByKey(
-                                            ObjectType.getByName(doc.get(FullTextIndex.OBJECT_TYPE_FIELD_NAME)),
-                                            doc.get(FullTextIndex.LOOKUP_KEY_FIELD_NAME)
-                                        );
-
-                    } catch (EmptyResultDataAccessException ex) {
-                        LOGGER.info("seems like object has been deleted from database");
-                        continue;
-                    }
 
                     result.put("key", rpslObject.getKey().toString());
                     result.put("type", rpslObject.getType().getName());
@@ -7,7 +7,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
 import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
-import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -35,6 +35,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -43,6 +44,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -50,7 +52,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -115,20 +119,29 @@ public class FullTextIndex extends RebuildableIndex {
         ATTRIBUTE_FIELD_TYPE.freeze();
     }
 
+    // number of changed objects applied to the index at once
+    private static final int UPDATE_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final String source;
     private final FacetsConfig facetsConfig;
+    private final int commitEvery;
+
+    // serial of the last change written to the index
+    private volatile int indexedSerial = -1;
 
     @Autowired
     FullTextIndex(
             @Qualifier("whoisSlaveDataSource") final DataSource dataSource,
             @Value("${whois.source}") final String source,
             @Value("${dir.fulltext.index:}") final String indexDir,
-            @Value("${fulltext.search.max.concurrent:10}") final int maxConcurrentSearches) {
+            @Value("${fulltext.search.max.concurrent:0}") final int maxConcurrentSearches,
+            @Value("${fulltext.index.update.commit.every:10000}") final int commitEvery) {
         super(LOGGER, indexDir, maxConcurrentSearches);
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.source = source;
         this.facetsConfig = new FacetsConfig();
+        this.commitEvery = commitEvery;
     }
 
     @PostConstruct
@@ -148,11 +161,14 @@ public class FullTextIndex extends RebuildableIndex {
                             return;
                         }
 
-                        if (getCommitData(indexWriter, "serial") == null) {
+                        final String committedSerial = getCommitData(indexWriter, "serial");
+                        if (committedSerial == null) {
                             LOGGER.warn("Index {} is missing serial, rebuild", indexDir);
                             rebuild(indexWriter, taxonomyWriter);
                             return;
                         }
+
+                        indexedSerial = Integer.parseInt(committedSerial);
                     }
                 }
         );
@@ -172,11 +188,7 @@ public class FullTextIndex extends RebuildableIndex {
         indexWriter.deleteAll();
         final int maxSerial = JdbcRpslObjectOperations.getSerials(jdbcTemplate).getEnd();
 
-        // sadly Executors don't offer a bounded/blocking submit() implementation
-        int numThreads = Runtime.getRuntime().availableProcessors();
-        final ArrayBlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(numThreads * 64);
-        final ExecutorService executorService = new ThreadPoolExecutor(numThreads, numThreads,
-                0L, TimeUnit.MILLISECONDS, workQueue, new ThreadPoolExecutor.CallerRunsPolicy());
+        final ExecutorService executorService = newIndexingExecutor();
 
         JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
                         "SELECT object_id, object " +
@@ -237,30 +249,149 @@ public class FullTextIndex extends RebuildableIndex {
             LOGGER.debug("Updating index {} from {} to {}", indexDir, last, end);
 
             final Stopwatch stopwatch = Stopwatch.createStarted();
-            for (int serial = last + 1; serial <= end; serial++) {
-                final SerialEntry serialEntry = JdbcRpslObjectOperations.getSerialEntry(jdbcTemplate, serial);
-                if (serialEntry == null) {
-                    // suboptimal;there could be big gaps in serial entries.
-                    continue;
-                }
+            final ExecutorService executorService = newIndexingExecutor();
+            try {
+                applyChanges(indexWriter, taxonomyWriter, executorService, last, end);
+            } finally {
+                executorService.shutdownNow();
+            }
+
+            LOGGER.debug("Updated index {} in {}", indexDir, stopwatch.stop());
+        }
+
+        updateMetadata(indexWriter, source, end);
+    }
 
-                final RpslObject rpslObject = serialEntry.getRpslObject();
+    /**
+     * Reads the changes after the last serial up to and including the end serial in one streaming query, and applies
+     * them in batches. Documents are built in parallel, and the index is committed every so many documents, so an
+     * update can continue from there if it fails.
+     * <p/>
+     * Only the latest version of an object is indexed, so only the last change to an object in a batch is applied.
+     */
+    private void applyChanges(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final ExecutorService executorService, final int last, final int end) throws IOException {
+        final Map<Integer, IndexChange> batch = Maps.newHashMapWithExpectedSize(UPDATE_BATCH_SIZE);
 
-                switch (serialEntry.getOperation()) {
-                    case UPDATE:
-                        deleteEntry(indexWriter, rpslObject);
-                        addEntry(indexWriter, taxonomyWriter, rpslObject);
-                        break;
-                    case DELETE:
-                        deleteEntry(indexWriter, rpslObject);
-                        break;
+        try {
+            JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                            "SELECT serials.serial_id, " +
+                            "       serials.operation, " +
+                            "       serials.object_id, " +
+                            "       IF(last.sequence_id, last.object, COALESCE(legacy_history.object, rdp_history.object)) " +
+                            "FROM   serials " +
+                            "       LEFT JOIN last " +
+                            "              ON last.object_id = serials.object_id " +
+                            "       LEFT JOIN history legacy_history " +
+                            "              ON legacy_history.object_id = serials.object_id " +
+                            "                 AND legacy_history.sequence_id = serials.sequence_id " +
+                            "       LEFT JOIN history rdp_history " +
+                            "              ON rdp_history.object_id = serials.object_id " +
+                            "                 AND rdp_history.sequence_id = serials.sequence_id - 1 " +
+                            "WHERE  serials.serial_id > ? " +
+                            "AND    serials.serial_id <= ? " +
+                            "ORDER BY serials.serial_id",
+                    ps -> {
+                        ps.setInt(1, last);
+                        ps.setInt(2, end);
+                    },
+                    new RowCallbackHandler() {
+                        private int uncommitted;
+
+                        @Override
+                        public void processRow(final ResultSet rs) throws SQLException {
+                            final IndexChange change = new IndexChange(rs.getInt(1), Operation.getByCode(rs.getInt(2)), rs.getInt(3), rs.getBytes(4));
+                            batch.put(change.objectId, change);
+
+                            if (batch.size() >= UPDATE_BATCH_SIZE) {
+                                uncommitted += applyBatch(indexWriter, taxonomyWriter, executorService, batch);
+                                if (uncommitted >= commitEvery) {
+                                    commit(indexWriter, taxonomyWriter, change.serialId);
+                                    uncommitted = 0;
+                                }
+                            }
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        applyBatch(indexWriter, taxonomyWriter, executorService, batch);
+    }
+
+    private int applyBatch(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final ExecutorService executorService, final Map<Integer, IndexChange> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // delete all previous versions before adding the new versions
+            indexWriter.deleteDocuments(IntPoint.newSetQuery(PRIMARY_KEY_FIELD_NAME, batch.keySet()));
+
+            final List<Future<?>> additions = Lists.newArrayListWithExpectedSize(batch.size());
+            for (final IndexChange change : batch.values()) {
+                if (change.operation == Operation.UPDATE && change.object != null) {
+                    additions.add(executorService.submit(new DatabaseObjectProcessor(change.objectId, change.object, indexWriter, taxonomyWriter)));
                 }
             }
 
-            LOGGER.debug("Updated index {} in {}", indexDir, stopwatch.stop());
+            // wait for the additions, as a later delete of the same object must not precede them
+            for (final Future<?> addition : additions) {
+                addition.get();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while updating index", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException && e.getCause().getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause().getCause());
+            }
+            throw new IllegalStateException("Updating index", e.getCause());
         }
 
-        updateMetadata(indexWriter, source, end);
+        final int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private void commit(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final int serial) {
+        updateMetadata(indexWriter, source, serial);
+
+        try {
+            taxonomyWriter.commit();
+            indexWriter.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        LOGGER.debug("Committed index {} at serial {}", indexDir, serial);
+    }
+
+    /**
+     * @return the serial of the last change written to the index, or -1 if unknown
+     */
+    public int getIndexedSerial() {
+        return indexedSerial;
+    }
+
+    /**
+     * @return the number of serials the index is behind the database, or -1 if unknown
+     */
+    public int getIndexLag() {
+        if (!isEnabled() || indexedSerial < 0) {
+            return -1;
+        }
+
+        return Math.max(0, JdbcRpslObjectOperations.getSerials(jdbcTemplate).getEnd() - indexedSerial);
+    }
+
+    // sadly Executors don't offer a bounded/blocking submit() implementation
+    private static ExecutorService newIndexingExecutor() {
+        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final ArrayBlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(numThreads * 64);
+        return new ThreadPoolExecutor(numThreads, numThreads,
+                0L, TimeUnit.MILLISECONDS, workQueue, new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     private void updateMetadata(final IndexWriter indexWriter, final String source, final int serial) {
@@ -268,6 +399,7 @@ public class FullTextIndex extends RebuildableIndex {
         metadata.put("serial", Integer.toString(serial));
         metadata.put("source", source);
         indexWriter.setLiveCommitData(new HashMap<>(metadata).entrySet(), true);
+        indexedSerial = serial;
     }
 
     private void addEntry(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final RpslObject rpslObject) throws IOException {
@@ -322,13 +454,6 @@ public class FullTextIndex extends RebuildableIndex {
         return CharMatcher.javaIsoControl().removeFrom(value);
     }
 
-    private void deleteEntry(final IndexWriter indexWriter, final RpslObject rpslObject) throws IOException {
-        indexWriter.deleteDocuments(
-                IntPoint.newExactQuery(
-                        PRIMARY_KEY_FIELD_NAME,
-                        rpslObject.getObjectId()));
-    }
-
     private String filterAttribute(final String value) {
         if (value.toLowerCase().startsWith("md5-pw")) {
             return "MD5-PW";
@@ -341,6 +466,20 @@ public class FullTextIndex extends RebuildableIndex {
         return value;
     }
 
+    private static final class IndexChange {
+        final int serialId;
+        final Operation operation;
+        final int objectId;
+        @Nullable final byte[] object;
+
+        private IndexChange(final int serialId, final Operation operation, final int objectId, @Nullable final byte[] object) {
+            this.serialId = serialId;
+            this.operation = operation;
+            this.objectId = objectId;
+            this.object = object;
+        }
+    }
+
     final class DatabaseObjectProcessor implements Runnable {
         final int objectId;
         final byte[] object;
@@ -0,0 +1,33 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "FullTextIndex", description = "Full text index")
+public class FullTextIndexJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FullTextIndexJmx.class);
+
+    private final FullTextIndex fullTextIndex;
+
+    @Autowired
+    public FullTextIndexJmx(final FullTextIndex fullTextIndex) {
+        super(LOGGER);
+        this.fullTextIndex = fullTextIndex;
+    }
+
+    @ManagedAttribute(description = "Serial of the last change written to the index, or -1 if unknown")
+    public int getIndexedSerial() {
+        return fullTextIndex.getIndexedSerial();
+    }
+
+    @ManagedAttribute(description = "Number of serials the index is behind the database, or -1 if unknown")
+    public int getIndexLag() {
+        return fullTextIndex.getIndexLag();
+    }
+}
@@ -0,0 +1,86 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.domain.Identifiable;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static net.ripe.db.whois.api.fulltextsearch.FullTextIndex.PRIMARY_KEY_FIELD_NAME;
+
+/**
+ * Loads the objects of search hits from the database in batches, instead of one query per hit.
+ * <p/>
+ * Hits of objects that were deleted from the database, but not yet from the index, are skipped, and replaced by the
+ * following hits.
+ */
+public class IndexHitLoader {
+    private final RpslObjectDao objectDao;
+    private final IndexSearcher indexSearcher;
+    private final ScoreDoc[] scoreDocs;
+
+    private int skipped;
+
+    public IndexHitLoader(final RpslObjectDao objectDao, final IndexSearcher indexSearcher, final ScoreDoc[] scoreDocs) {
+        this.objectDao = objectDao;
+        this.indexSearcher = indexSearcher;
+        this.scoreDocs = scoreDocs;
+    }
+
+    /**
+     * @param from  the index of the first hit
+     * @param count the maximum number of objects to load
+     * @return the loaded objects and their index documents, in the order of the hits
+     */
+    public Map<RpslObject, Document> load(final int from, final int count) throws IOException {
+        final Map<RpslObject, Document> result = Maps.newLinkedHashMap();
+
+        int next = Math.max(0, from);
+        while (result.size() < count && next < scoreDocs.length) {
+            final int end = Math.min(scoreDocs.length, next + count - result.size());
+
+            final Map<Integer, Document> documents = Maps.newHashMapWithExpectedSize(end - next);
+            final List<Identifiable> proxy = Lists.newArrayListWithExpectedSize(end - next);
+            for (int index = next; index < end; index++) {
+                final Document document = indexSearcher.doc(scoreDocs[index].doc);
+                final int objectId = getObjectId(document);
+                documents.put(objectId, document);
+                proxy.add(() -> objectId);
+            }
+
+            final List<RpslObject> objects = Lists.newArrayListWithExpectedSize(proxy.size());
+            objectDao.load(proxy, objects);
+            for (final RpslObject object : objects) {
+                result.put(object, documents.get(object.getObjectId()));
+            }
+
+            // object was deleted from the database but index was not updated yet
+            skipped += proxy.size() - objects.size();
+            next = end;
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the number of hits skipped so far, as their object was not found
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    private static int getObjectId(final Document document) {
+        final String primaryKey = document.get(PRIMARY_KEY_FIELD_NAME);
+        if (primaryKey == null) {
+            throw new IllegalStateException("lucene index should always have a primary key stored");
+        }
+        return Integer.parseInt(primaryKey);
+    }
+}
@@ -1,6 +1,5 @@
 package net.ripe.db.whois.api.fulltextsearch;
 
-import com.google.common.collect.Sets;
 import com.google.common.net.InetAddresses;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -10,19 +9,18 @@ import net.ripe.db.whois.query.acl.AccessControlListManager;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.domain.QueryException;
 import org.apache.commons.lang.StringUtils;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
-import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.ReaderManager;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.RAMDirectory;
@@ -34,11 +32,14 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.Semaphore;
 
 import static org.apache.lucene.util.IOUtils.closeWhileHandlingException;
 
+/**
+ * Searches share a long-lived index searcher and taxonomy reader, which are only reopened after changes to the index
+ * were committed.
+ */
 public class IndexTemplate implements Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexTemplate.class);
 
@@ -47,7 +48,8 @@ public class IndexTemplate implements Closeable {
     private final Semaphore updateLock = new Semaphore(1);
 
     private IndexWriter indexWriter;
-    private ReaderManager readerManager;
+    // replaced together with the writers, read without holding the update lock
+    private volatile SearcherTaxonomyManager searcherTaxonomyManager;
     private DirectoryTaxonomyWriter taxonomyWriter;
     private IndexWriterConfig config;
 
@@ -78,7 +80,7 @@ public class IndexTemplate implements Closeable {
         updateLock.acquireUninterruptibly();
 
         try {
-            closeWhileHandlingException(readerManager, indexWriter, taxonomyWriter, index, taxonomy);
+            closeWhileHandlingException(searcherTaxonomyManager, indexWriter, taxonomyWriter, index, taxonomy);
         } finally {
             updateLock.release();
         }
@@ -95,7 +97,7 @@ public class IndexTemplate implements Closeable {
             taxonomyWriter.commit();
             indexWriter.commit();
 
-            readerManager.maybeRefresh();
+            searcherTaxonomyManager.maybeRefreshBlocking();
         } catch (IOException | RuntimeException e) {
             LOGGER.error("Unexpected", e);
             rollback();
@@ -119,6 +121,7 @@ public class IndexTemplate implements Closeable {
     }
 
     private void createNewWriters() throws IOException {
+        // the writers hold the directory locks, but the previous manager keeps serving searches until it is replaced
         closeWhileHandlingException(taxonomyWriter, indexWriter);
         taxonomyWriter = new DirectoryTaxonomyWriter(taxonomy);
         addFacetCategories(taxonomyWriter);
@@ -129,7 +132,11 @@ public class IndexTemplate implements Closeable {
         taxonomyWriter.commit();
         indexWriter.commit();
 
-        readerManager = new ReaderManager(indexWriter, false, false);
+        final SearcherTaxonomyManager previousManager = searcherTaxonomyManager;
+        searcherTaxonomyManager = new SearcherTaxonomyManager(indexWriter, false, new SearcherFactory(), taxonomyWriter);
+
+        // searches still holding a searcher from the previous manager release it when done
+        closeWhileHandlingException(previousManager);
     }
 
     private static void addFacetCategories(final TaxonomyWriter taxonomyWriter) throws IOException {
@@ -140,25 +147,30 @@ public class IndexTemplate implements Closeable {
     }
 
     public <T> T read(final ReadCallback<T> readCallback) throws IOException {
-        DirectoryReader indexReader = null;
-        TaxonomyReader taxonomyReader = null;
+        return search((final IndexReader indexReader, final TaxonomyReader taxonomyReader, final IndexSearcher indexSearcher) ->
+                readCallback.read(indexReader, taxonomyReader));
+    }
 
+    public <T> T search(final SearchCallback<T> searchCallback) throws IOException {
+        final SearcherTaxonomyManager manager = searcherTaxonomyManager;
+        final SearcherAndTaxonomy searcherAndTaxonomy;
         try {
-            indexReader = readerManager.acquire();
-            taxonomyReader = new DirectoryTaxonomyReader(taxonomy);
+            searcherAndTaxonomy = manager.acquire();
+        } catch (AlreadyClosedException e) {
+            if (manager == searcherTaxonomyManager) {
+                throw e;
+            }
 
-            return readCallback.read(indexReader, taxonomyReader);
-        } finally {
-            closeWhileHandlingException(taxonomyReader);
-            readerManager.release(indexReader);
+            // writers were recreated after a failed write, use the new manager
+            return search(searchCallback);
         }
-    }
 
-    public <T> T search(final SearchCallback<T> searchCallback) throws IOException {
-        return read((final IndexReader indexReader, final TaxonomyReader taxonomyReader) -> {
-            final IndexSearcher indexSearcher = new IndexSearcher(indexReader);
-            return searchCallback.search(indexReader, taxonomyReader, indexSearcher);
-        });
+        try {
+            final IndexSearcher indexSearcher = searcherAndTaxonomy.searcher;
+            return searchCallback.search(indexSearcher.getIndexReader(), searcherAndTaxonomy.taxonomyReader, indexSearcher);
+        } finally {
+            manager.release(searcherAndTaxonomy);
+        }
     }
 
     @FunctionalInterface
@@ -177,8 +189,6 @@ public class IndexTemplate implements Closeable {
 
     public abstract static class AccountingSearchCallback<T> implements SearchCallback<T> {
 
-        private static final Set<String> SEARCH_INDEX_FIELDS_NOT_MAPPED_TO_RPSL_OBJECT = Sets.newHashSet("primary-key", "object-type", "lookup-key");
-
         private final AccessControlListManager accessControlListManager;
         private final InetAddress remoteAddress;
         private final Source source;
@@ -226,18 +236,6 @@ public class IndexTemplate implements Closeable {
                 }
             }
         }
-
-        protected int getObjectId(Document document) {
-            for (final IndexableField field : document.getFields()) {
-                if (SEARCH_INDEX_FIELDS_NOT_MAPPED_TO_RPSL_OBJECT.contains(field.name())) {
-                    if ("primary-key".equals(field.name())) {
-                        return  Integer.parseInt(field.stringValue());
-                    }
-                }
-            }
-
-           throw new IllegalStateException("luecene index should always have a primary key stored");
-        }
     }
 
 }
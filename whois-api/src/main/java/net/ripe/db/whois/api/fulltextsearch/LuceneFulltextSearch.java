@@ -2,7 +2,6 @@ package net.ripe.db.whois.api.fulltextsearch;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import net.ripe.db.whois.api.autocomplete.LuceneSearchCondition;
 import net.ripe.db.whois.common.ApplicationVersion;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
@@ -27,7 +26,6 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
@@ -42,7 +40,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Conditional;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -115,27 +112,14 @@ public class LuceneFulltextSearch extends FulltextSearch {
 
                         indexSearcher.search(query, MultiCollector.wrap(topFieldCollector, facetsCollector));
 
-                        final Map<RpslObject, Document> rpslObjectToDocument = Maps.newHashMap();
-
                         final TopDocs topDocs = topFieldCollector.topDocs();
                         final int start = Math.max(0, searchRequest.getStart());
-                        int resultSize = Math.min(maxResultSize, Long.valueOf(topDocs.totalHits.value).intValue());
-
-                        final int end = Math.min(start + searchRequest.getRows(), resultSize);
-                        for (int index = start; index < end; index++) {
-                            final ScoreDoc scoreDoc = topDocs.scoreDocs[index];
-                            final Document document = indexSearcher.doc(scoreDoc.doc);
-                            final RpslObject object;
-                            try {
-                                object = objectDao.getById(getObjectId(document));
-                            } catch (EmptyResultDataAccessException e) {
-                                // object was deleted from the database but index was not updated yet
-                                resultSize--;
-                                continue;
-                            }
-                            account(object);
-                            rpslObjectToDocument.put(object, document);
-                        }
+
+                        final IndexHitLoader indexHitLoader = new IndexHitLoader(objectDao, indexSearcher, topDocs.scoreDocs);
+                        final Map<RpslObject, Document> rpslObjectToDocument = indexHitLoader.load(start, searchRequest.getRows());
+                        rpslObjectToDocument.keySet().forEach(this::account);
+
+                        final int resultSize = Math.min(maxResultSize, Long.valueOf(topDocs.totalHits.value).intValue()) - indexHitLoader.getSkipped();
 
                         final List<SearchResponse.Lst> responseLstList = Lists.newArrayList();
                         responseLstList.add(getResponseHeader(searchRequest, stopwatch.elapsed(TimeUnit.MILLISECONDS)));
@@ -21,10 +21,14 @@ public abstract class RebuildableIndex {
     protected final String indexDir;
     protected IndexTemplate index;
 
+    /**
+     * @param maxConcurrentSearches the maximum number of searches running at the same time, or 0 (or less) for the
+     *                              number of available processors
+     */
     protected RebuildableIndex(final Logger logger, final String indexDir, final int maxConcurrentSearches) {
         this.logger = logger;
         this.indexDir = indexDir;
-        this.searchLock = new Semaphore(maxConcurrentSearches, true);
+        this.searchLock = new Semaphore(maxConcurrentSearches > 0 ? maxConcurrentSearches : Runtime.getRuntime().availableProcessors());
     }
 
     protected void init(final IndexWriterConfig config, final IndexTemplate.WriteCallback initializer) {
@@ -103,9 +107,13 @@ public abstract class RebuildableIndex {
 
         try {
             searchLock.acquire();
-            return index.search(searchCallback);
         } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
             throw new IllegalStateException(ie);
+        }
+
+        try {
+            return index.search(searchCallback);
         } finally {
             searchLock.release();
         }
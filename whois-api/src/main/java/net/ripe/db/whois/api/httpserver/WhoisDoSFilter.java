@@ -1,6 +1,9 @@
 package net.ripe.db.whois.api.httpserver;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.IpRangeIndex;
+import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.ip.Ipv6Resource;
 import org.eclipse.jetty.servlets.DoSFilter;
@@ -28,19 +31,33 @@ public class WhoisDoSFilter extends DoSFilter {
     private final List<Ipv4Resource> ipv4whitelist = new CopyOnWriteArrayList<>();
     private final List<Ipv6Resource> ipv6whitelist = new CopyOnWriteArrayList<>();
 
+    // lookup of the whitelist, replaced whenever the whitelist changes
+    private volatile IpRangeIndex<Boolean> whitelistIndex = IpRangeIndex.empty();
+
     @Override
     protected boolean checkWhitelist(final String candidate) {
-        if (candidate.contains(".")) {
-            final Ipv4Resource address = Ipv4Resource.parse(candidate);
+        final IpInterval<?> address = candidate.contains(".") ? Ipv4Resource.parse(candidate) : Ipv6Resource.parse(candidate);
+        return whitelistIndex.getValue(address) != null;
+    }
+
+    private synchronized void updateWhitelistIndex() {
+        final List<IpInterval<?>> whitelist = Lists.newArrayList();
+        whitelist.addAll(ipv4whitelist);
+        whitelist.addAll(ipv6whitelist);
+
+        whitelistIndex = IpRangeIndex.of(whitelist, range -> isWhitelisted(range) ? Boolean.TRUE : null);
+    }
+
+    private boolean isWhitelisted(final IpInterval<?> range) {
+        if (range instanceof Ipv4Resource) {
             for (Ipv4Resource entry : ipv4whitelist) {
-                if (entry.contains(address)) {
+                if (entry.contains((Ipv4Resource) range)) {
                     return true;
                 }
             }
         } else {
-            final Ipv6Resource address = Ipv6Resource.parse(candidate);
             for (Ipv6Resource entry : ipv6whitelist) {
-                if (entry.contains(address)) {
+                if (entry.contains((Ipv6Resource) range)) {
                     return true;
                 }
             }
@@ -83,6 +100,7 @@ public class WhoisDoSFilter extends DoSFilter {
         for (String address : StringUtil.csvSplit(commaSeparatedList)) {
             addWhitelistAddress(address, false);
         }
+        updateWhitelistIndex();
         LOGGER.info("DoSFilter IP whitelist: {}", getWhitelist());
     }
 
@@ -94,6 +112,7 @@ public class WhoisDoSFilter extends DoSFilter {
     public void clearWhitelist() {
         ipv4whitelist.clear();
         ipv6whitelist.clear();
+        updateWhitelistIndex();
         LOGGER.info("DoSFilter IP whitelist cleared");
     }
 
@@ -108,7 +127,9 @@ public class WhoisDoSFilter extends DoSFilter {
     @Override
     @ManagedOperation("adds an IP address that will not be rate limited")
     public boolean addWhitelistAddress(@Name("address") final String address) {
-        return addWhitelistAddress(address, true);
+        final boolean result = addWhitelistAddress(address, true);
+        updateWhitelistIndex();
+        return result;
     }
 
     private boolean addWhitelistAddress(final String address, final boolean log) {
@@ -140,6 +161,7 @@ public class WhoisDoSFilter extends DoSFilter {
         } else {
             result = ipv6whitelist.remove(Ipv6Resource.parse(address));
         }
+        updateWhitelistIndex();
         LOGGER.info("DoSFilter IP whitelist: {}", getWhitelist());
         return result;
     }
@@ -4,6 +4,7 @@ import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
 import net.ripe.db.whois.api.autocomplete.LuceneSearchCondition;
 import net.ripe.db.whois.api.fulltextsearch.FullTextIndex;
+import net.ripe.db.whois.api.fulltextsearch.IndexHitLoader;
 import net.ripe.db.whois.api.fulltextsearch.IndexTemplate;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -16,14 +17,12 @@ import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.core.WhitespaceTokenizer;
 import org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
@@ -33,7 +32,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Conditional;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.BadRequestException;
@@ -82,7 +80,6 @@ public class RdapLuceneFullTextSearchService implements RdapFullTextSearch {
                     protected List<RpslObject> doSearch(IndexReader indexReader, TaxonomyReader taxonomyReader, IndexSearcher indexSearcher) throws IOException {
                         final Stopwatch stopWatch = Stopwatch.createStarted();
 
-                        final List<RpslObject> results = Lists.newArrayList();
                         try {
                             final QueryParser queryParser = new MultiFieldQueryParser(fields, new RdapLuceneFullTextSearchService.RdapAnalyzer());
                             queryParser.setAllowLeadingWildcard(true);
@@ -93,19 +90,9 @@ public class RdapLuceneFullTextSearchService implements RdapFullTextSearch {
                             final org.apache.lucene.search.Query query = queryParser.parse(term.toLowerCase());
 
                             final TopDocs topDocs = indexSearcher.search(query, maxResultSize, SORT_BY_OBJECT_TYPE);
-                            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                                final Document document = indexSearcher.doc(scoreDoc.doc);
-
-                                final RpslObject rpslObject;
-                                try {
-                                    rpslObject = objectDao.getById(getObjectId(document));
-                                } catch (EmptyResultDataAccessException e) {
-                                    // object was deleted from the database but index was not updated yet
-                                    continue;
-                                }
-                                account(rpslObject);
-                                results.add(rpslObject);
-                            }
+                            final List<RpslObject> results = Lists.newArrayList(
+                                    new IndexHitLoader(objectDao, indexSearcher, topDocs.scoreDocs).load(0, topDocs.scoreDocs.length).keySet());
+                            results.forEach(this::account);
 
                             LOGGER.debug("Found {} objects in {}", results.size(), stopWatch.stop());
                             return results;
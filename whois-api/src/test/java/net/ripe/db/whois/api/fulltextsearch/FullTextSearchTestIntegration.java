@@ -114,6 +114,22 @@ public class FullTextSearchTestIntegration extends AbstractIntegrationTest {
         assertThat(solrDocument.getFirstValue("mntner"), is("DEV-MNT"));
     }
 
+    @Test
+    public void update_applies_latest_change_of_each_object() {
+        final RpslObject deleted = databaseHelper.addObject("mntner: DEL-MNT\nsource: RIPE");
+        databaseHelper.addObject("mntner: DEV-MNT\nremarks: first\nsource: RIPE");
+        databaseHelper.updateObject("mntner: DEV-MNT\nremarks: second\nsource: RIPE");
+        databaseHelper.updateObject("mntner: DEV-MNT\nremarks: third\nsource: RIPE");
+        databaseHelper.deleteObject(deleted);
+        fullTextIndex.update();
+
+        assertThat(query("q=DEV-MNT").getResults().getNumFound(), is(1L));
+        assertThat(query("q=third").getResults().getNumFound(), is(1L));
+        assertThat(query("q=second").getResults().getNumFound(), is(0L));
+        assertThat(query("q=DEL-MNT").getResults().getNumFound(), is(0L));
+        assertThat(fullTextIndex.getIndexLag(), is(0));
+    }
+
     @Test
     public void search_single_result_object_deleted_before_index_updated() {
         final RpslObject mntner = RpslObject.parse(
@@ -0,0 +1,125 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.domain.Identifiable;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class IndexHitLoaderTest {
+
+    @Mock RpslObjectDao objectDao;
+
+    private Directory directory;
+    private DirectoryReader indexReader;
+    private IndexSearcher indexSearcher;
+    private ScoreDoc[] scoreDocs;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+            for (int objectId = 1; objectId <= 10; objectId++) {
+                final Document document = new Document();
+                document.add(new StoredField(FullTextIndex.PRIMARY_KEY_FIELD_NAME, objectId));
+                indexWriter.addDocument(document);
+            }
+        }
+
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = new IndexSearcher(indexReader);
+        scoreDocs = indexSearcher.search(new MatchAllDocsQuery(), 10).scoreDocs;
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    @Test
+    public void load_page_in_order() throws IOException {
+        existingObjects(Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+
+        final IndexHitLoader subject = new IndexHitLoader(objectDao, indexSearcher, scoreDocs);
+        final Map<RpslObject, Document> result = subject.load(2, 3);
+
+        assertThat(objectIds(result), contains(3, 4, 5));
+        assertThat(result.values().iterator().next().get(FullTextIndex.PRIMARY_KEY_FIELD_NAME), is("3"));
+        assertThat(subject.getSkipped(), is(0));
+        verify(objectDao, times(1)).load(anyList(), anyList());
+    }
+
+    @Test
+    public void deleted_objects_replaced_by_following_hits() throws IOException {
+        existingObjects(Set.of(1, 4, 6, 7, 8));
+
+        final IndexHitLoader subject = new IndexHitLoader(objectDao, indexSearcher, scoreDocs);
+        final Map<RpslObject, Document> result = subject.load(0, 4);
+
+        assertThat(objectIds(result), contains(1, 4, 6, 7));
+        assertThat(subject.getSkipped(), is(3));
+    }
+
+    @Test
+    public void load_beyond_last_hit() throws IOException {
+        existingObjects(Set.of(9));
+
+        final IndexHitLoader subject = new IndexHitLoader(objectDao, indexSearcher, scoreDocs);
+
+        assertThat(objectIds(subject.load(8, 5)), contains(9));
+        assertThat(subject.load(10, 5).isEmpty(), is(true));
+        assertThat(subject.getSkipped(), is(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void existingObjects(final Set<Integer> objectIds) {
+        doAnswer(invocation -> {
+            final List<Identifiable> proxy = invocation.getArgument(0);
+            final List<RpslObject> result = invocation.getArgument(1);
+            for (final Identifiable identifiable : proxy) {
+                if (objectIds.contains(identifiable.getObjectId())) {
+                    result.add(RpslObject.parse(identifiable.getObjectId(), "mntner: OBJECT" + identifiable.getObjectId() + "-MNT\nsource: TEST"));
+                }
+            }
+            return null;
+        }).when(objectDao).load(any(List.class), any(List.class));
+    }
+
+    private static List<Integer> objectIds(final Map<RpslObject, Document> result) {
+        final List<Integer> objectIds = Lists.newArrayList();
+        result.keySet().forEach(rpslObject -> objectIds.add(rpslObject.getObjectId()));
+        return objectIds;
+    }
+}
@@ -2,6 +2,7 @@ package net.ripe.db.whois.api.httpserver;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JettyBootstrapTest {
@@ -13,6 +14,11 @@ public class JettyBootstrapTest {
 
         assertTrue(dosFilter.checkWhitelist("193.0.20.230"));
         assertTrue(dosFilter.checkWhitelist("2001:067c:02e8:0000:0000:0000:0000:0000"));
+        assertFalse(dosFilter.checkWhitelist("193.0.24.0"));
+        assertFalse(dosFilter.checkWhitelist("2001:67c:2e9::1"));
+
+        dosFilter.removeWhitelistAddress("193.0.0.0 - 193.0.23.255");
+        assertFalse(dosFilter.checkWhitelist("193.0.20.230"));
     }
 
     class TestDosFilter extends WhoisDoSFilter {
@@ -12,6 +12,7 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopScoreDocCollector;
@@ -26,10 +27,13 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class IndexTemplateTest {
@@ -215,6 +219,46 @@ public class IndexTemplateTest {
         }
     }
 
+    @Test
+    public void searcher_reopened_after_write() throws IOException {
+        final IndexSearcher before = subject.search((indexReader, taxonomyReader, indexSearcher) -> indexSearcher);
+
+        assertThat(subject.search((indexReader, taxonomyReader, indexSearcher) -> indexSearcher), is(sameInstance(before)));
+
+        subject.write((indexWriter, taxonomyWriter) -> addDoc(indexWriter, "title", "isbn"));
+
+        assertThat(subject.search((indexReader, taxonomyReader, indexSearcher) -> indexSearcher), is(not(sameInstance(before))));
+        assertThat(numDocs(), is(1));
+    }
+
+    @Test
+    public void search_while_writers_are_recreated() throws Exception {
+        subject.write((indexWriter, taxonomyWriter) -> addDoc(indexWriter, "title", "isbn"));
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Void> searches = executorService.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    assertThat(numDocs(), is(1));
+                }
+                return null;
+            });
+
+            while (!searches.isDone()) {
+                try {
+                    subject.write((indexWriter, taxonomyWriter) -> {
+                        throw new IOException();
+                    });
+                } catch (IOException ignored) {
+                }
+            }
+
+            searches.get();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     int numDocs() throws IOException {
         return subject.read((indexReader, taxonomyReader) -> indexReader.numDocs());
     }
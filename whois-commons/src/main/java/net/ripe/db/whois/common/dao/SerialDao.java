@@ -14,6 +14,11 @@ public interface SerialDao {
 
     SerialEntry getByIdForNrtm(int serialId);
 
+    /**
+     * Same as getByIdForNrtm, for all serials from begin up to and including end, in serial order.
+     */
+    List<SerialEntry> getSerialEntriesForNrtm(int begin, int end);
+
     List<SerialEntry> getSerialEntriesSince(int serialId);
 
     Integer getAgeOfExactOrNextExistingSerial(int serialId);
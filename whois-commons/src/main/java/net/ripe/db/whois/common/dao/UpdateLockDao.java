@@ -1,5 +1,13 @@
 package net.ripe.db.whois.common.dao;
 
+import java.util.Collection;
+
 public interface UpdateLockDao {
     void setUpdateLock();
+
+    /**
+     * Locks the given resources until the end of the transaction. Set these before validating an update, and set the
+     * global update lock only when writing it, so that updates on unrelated resources are validated concurrently.
+     */
+    void setResourceLocks(Collection<String> lockKeys);
 }
@@ -0,0 +1,40 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Queries are executed immediately, but updates are collected and only executed by {@link #executeBatches()}, as one
+ * JDBC batch per statement.
+ * <p/>
+ * Identical updates are executed once, so callers that check for existing rows before inserting still insert them
+ * once.
+ */
+class BatchUpdateJdbcTemplate extends JdbcTemplate {
+    private final Map<String, Set<List<Object>>> batches = Maps.newLinkedHashMap();
+
+    BatchUpdateJdbcTemplate(final DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public int update(final String sql, final Object... args) {
+        batches.computeIfAbsent(sql, key -> Sets.newLinkedHashSet()).add(Arrays.asList(args));
+        return 1;
+    }
+
+    public void executeBatches() {
+        for (final Map.Entry<String, Set<List<Object>>> batch : batches.entrySet()) {
+            batchUpdate(batch.getKey(), batch.getValue().stream().map(List::toArray).collect(Collectors.toList()));
+        }
+        batches.clear();
+    }
+}
@@ -2,6 +2,7 @@ package net.ripe.db.whois.common.dao.jdbc;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
@@ -20,26 +21,44 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.CheckForNull;
 import javax.sql.DataSource;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rebuilds the index tables from the objects in the last table.
+ * <p/>
+ * The last table is read in batches in object id order. The objects in a batch are parsed, sanitized and their index
+ * values collected on all cores, while the previous batch is written. Each batch is written in a single transaction
+ * holding the update lock, removing the existing index rows with one statement per index table, and inserting the new
+ * index rows with one JDBC batch per statement.
+ */
 @Component
 public class JdbcIndexDao implements IndexDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcIndexDao.class);
 
-    private final static int BATCH_SIZE = 100;
+    private final static int BATCH_SIZE = 1000;
     private final static int LOG_EVERY = 100_000;
 
+    private final DataSource dataSource;
     private final JdbcTemplate jdbcTemplate;
     private final UpdateLockDao updateLockDao;
     private final AttributeSanitizer attributeSanitizer;
@@ -48,6 +67,7 @@ public class JdbcIndexDao implements IndexDao {
 
     @Autowired
     JdbcIndexDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final UpdateLockDao updateLockDao, final AttributeSanitizer attributeSanitizer) {
+        this.dataSource = dataSource;
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.updateLockDao = updateLockDao;
         this.attributeSanitizer = attributeSanitizer;
@@ -58,9 +78,23 @@ public class JdbcIndexDao implements IndexDao {
     public void rebuild() {
         deleteIndexesForMissingObjects();
 
-        final List<Integer> objectIds = jdbcTemplate.queryForList("SELECT object_id FROM last WHERE sequence_id != 0", Integer.class);
-        rebuildForObjects(objectIds, Phase.KEYS);
-        rebuildForObjects(objectIds, Phase.OTHER);
+        final ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, String.format("JdbcIndexDao-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            rebuildForObjects(executorService, Phase.KEYS);
+            rebuildForObjects(executorService, Phase.OTHER);
+        } finally {
+            executorService.shutdownNow();
+        }
     }
 
     @Override
@@ -73,78 +107,127 @@ public class JdbcIndexDao implements IndexDao {
         state.set(true);
     }
 
-    private void rebuildForObjects(final List<Integer> objectIds, final Phase phase) {
-        final List<List<Integer>> objectIdBatches = Lists.partition(objectIds, BATCH_SIZE);
-
+    private void rebuildForObjects(final ExecutorService executorService, final Phase phase) {
         final Stopwatch stopwatch = Stopwatch.createStarted();
         state.set(true);
 
         int count = 0;
-        for (final List<Integer> objectIdBatch : objectIdBatches) {
+        int nextLog = LOG_EVERY;
+
+        List<ObjectRow> rows = findObjects(0);
+        List<Future<IndexedObject>> batch = prepare(executorService, rows, phase);
+
+        while (!batch.isEmpty()) {
             state.waitUntil(true);
 
-            rebuildIndexes(objectIdBatch, phase);
+            // prepare the next batch while the current one is written
+            final List<Future<IndexedObject>> currentBatch = batch;
+            rows = findObjects(rows.get(rows.size() - 1).objectId);
+            batch = prepare(executorService, rows, phase);
+
+            rebuildIndexes(getPrepared(currentBatch), phase);
 
-            count += objectIdBatch.size();
-            if (count % LOG_EVERY == 0) {
+            count += currentBatch.size();
+            if (count >= nextLog) {
                 LOGGER.info("Rebuilt {} indexes for {} objects in {}", phase, count, stopwatch);
+                nextLog += LOG_EVERY;
             }
         }
 
-        if (count % LOG_EVERY != 0) {
-            LOGGER.info("Rebuilt {} indexes for {} objects in {}", phase, count, stopwatch);
-        }
+        LOGGER.info("Rebuilt {} indexes for {} objects in {}", phase, count, stopwatch);
     }
 
     @Override
     public void rebuildForObject(final int objectId) {
-        final Set<Integer> objectIds = Collections.singleton(objectId);
-        rebuildIndexes(objectIds, Phase.KEYS);
-        rebuildIndexes(objectIds, Phase.OTHER);
+        for (final Phase phase : Phase.values()) {
+            final List<ObjectRow> rows = jdbcTemplate.query(
+                    "SELECT object_id, sequence_id, object, pkey FROM last WHERE object_id = ? AND sequence_id != 0",
+                    (rs, rowNum) -> new ObjectRow(rs.getInt(1), rs.getInt(2), rs.getBytes(3), rs.getString(4)),
+                    objectId);
+            if (rows.isEmpty()) {
+                LOGGER.debug("Missing: {}", objectId);
+                return;
+            }
+
+            final IndexedObject indexedObject = prepare(rows.get(0), phase);
+            if (indexedObject != null) {
+                rebuildIndexes(Collections.singletonList(indexedObject), phase);
+            }
+        }
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
-    private void rebuildIndexes(final Iterable<Integer> objectIds, final Phase phase) {
-        updateLockDao.setUpdateLock();
+    private List<ObjectRow> findObjects(final int afterObjectId) {
+        return jdbcTemplate.query(
+                "SELECT object_id, sequence_id, object, pkey FROM last " +
+                "WHERE object_id > ? " +
+                "AND sequence_id != 0 " +
+                "ORDER BY object_id " +
+                "LIMIT ?",
+                (rs, rowNum) -> new ObjectRow(rs.getInt(1), rs.getInt(2), rs.getBytes(3), rs.getString(4)),
+                afterObjectId,
+                BATCH_SIZE);
+    }
 
-        for (final Integer objectId : objectIds) {
+    private List<Future<IndexedObject>> prepare(final ExecutorService executorService, final List<ObjectRow> rows, final Phase phase) {
+        final List<Future<IndexedObject>> batch = Lists.newArrayListWithExpectedSize(rows.size());
+        for (final ObjectRow row : rows) {
+            batch.add(executorService.submit(() -> prepare(row, phase)));
+        }
+        return batch;
+    }
+
+    private List<IndexedObject> getPrepared(final List<Future<IndexedObject>> batch) {
+        final List<IndexedObject> indexedObjects = Lists.newArrayListWithExpectedSize(batch.size());
+        for (final Future<IndexedObject> future : batch) {
             try {
-                final Map<String, Object> map = jdbcTemplate.queryForMap(
-                        "SELECT object_id, object, pkey FROM last " +
-                        "WHERE object_id = ? " +
-                        "AND sequence_id != 0 ",
-                        objectId);
-                RpslObject rpslObject = RpslObject.parse(((Long)map.get("object_id")).intValue(), (byte[])map.get("object"));
-                final String pkey = (String)map.get("pkey");
-
-                if (phase == Phase.KEYS) {
-                    rpslObject = sanitizeObject(rpslObject, pkey);
+                final IndexedObject indexedObject = future.get();
+                if (indexedObject != null) {
+                    indexedObjects.add(indexedObject);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding indexes", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Rebuilding indexes", e.getCause());
+            }
+        }
+        return indexedObjects;
+    }
 
-                final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
-                final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
-                final Set<AttributeType> otherAttributes = getIndexedAttributes(objectTemplate);
-                otherAttributes.removeAll(keyAttributes);
+    // does not access the database, as it is called on the executor threads
+    @CheckForNull
+    private IndexedObject prepare(final ObjectRow row, final Phase phase) {
+        try {
+            RpslObject rpslObject = RpslObject.parse(row.objectId, row.object);
+            boolean sanitized = false;
 
-                final Set<AttributeType> updateAttributes = Phase.KEYS.equals(phase) ? keyAttributes : otherAttributes;
+            if (phase == Phase.KEYS) {
+                final RpslObject sanitizedObject = sanitizeObject(rpslObject, row.pkey);
+                sanitized = sanitizedObject != rpslObject;
+                rpslObject = sanitizedObject;
+            }
 
-                for (final AttributeType attributeType : updateAttributes) {
-                    updateAttributeIndex(rpslObject, attributeType);
-                }
+            final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
+            final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
+            final Set<AttributeType> otherAttributes = getIndexedAttributes(objectTemplate);
+            otherAttributes.removeAll(keyAttributes);
 
-            } catch (EmptyResultDataAccessException e) {
-                LOGGER.debug("Missing: {}", objectId);
-            } catch (RuntimeException e) {
-                LOGGER.error("Rebuilding indexes: {}", objectId, e);
+            final Set<AttributeType> updateAttributes = Phase.KEYS.equals(phase) ? keyAttributes : otherAttributes;
+
+            final Map<AttributeType, List<String>> indexValues = Maps.newEnumMap(AttributeType.class);
+            for (final AttributeType attributeType : updateAttributes) {
+                indexValues.put(attributeType, getIndexValues(rpslObject, attributeType));
             }
+
+            return new IndexedObject(rpslObject, row.sequenceId, sanitized, indexValues);
+        } catch (RuntimeException e) {
+            LOGGER.error("Rebuilding indexes: {}", row.objectId, e);
+            return null;
         }
     }
 
-    private void updateAttributeIndex(final RpslObject rpslObject, final AttributeType attributeType) {
-        final RpslObjectInfo rpslObjectInfo = new RpslObjectInfo(rpslObject.getObjectId(), rpslObject.getType(), rpslObject.getKey());
-        final IndexStrategy indexStrategy = IndexStrategies.get(attributeType);
-
-        indexStrategy.removeFromIndex(jdbcTemplate, rpslObjectInfo);
+    private List<String> getIndexValues(final RpslObject rpslObject, final AttributeType attributeType) {
+        final List<String> indexValues = Lists.newArrayList();
 
         final Set<CIString> uniqueValues = Sets.newHashSet();
         for (final RpslAttribute attribute : rpslObject.findAttributes(attributeType)) {
@@ -155,14 +238,97 @@ public class JdbcIndexDao implements IndexDao {
                         continue;
                     }
 
+                    indexValues.add(value.toString());
+                }
+            }
+        }
+
+        return indexValues;
+    }
+
+    private void rebuildIndexes(final List<IndexedObject> indexedObjects, final Phase phase) {
+        if (indexedObjects.isEmpty()) {
+            return;
+        }
+
+        try {
+            writeIndexes(indexedObjects);
+        } catch (RuntimeException e) {
+            if (indexedObjects.size() == 1) {
+                LOGGER.error("Rebuilding {} indexes: {}", phase, indexedObjects.get(0).rpslObject.getObjectId(), e);
+                return;
+            }
+
+            // find the failing object(s), without losing the rest of the batch
+            LOGGER.info("Rebuilding {} indexes per object, batch failed: {}", phase, e.getMessage());
+            for (final IndexedObject indexedObject : indexedObjects) {
+                rebuildIndexes(Collections.singletonList(indexedObject), phase);
+            }
+        }
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    private void writeIndexes(final List<IndexedObject> indexedObjects) {
+        updateLockDao.setUpdateLock();
+
+        // objects updated since they were read have been indexed by the update itself
+        final Map<Integer, Integer> sequenceIds = getSequenceIds(indexedObjects);
+
+        final List<IndexedObject> currentObjects = Lists.newArrayListWithExpectedSize(indexedObjects.size());
+        final Map<IndexStrategy, List<Integer>> objectIdsByIndex = Maps.newLinkedHashMap();
+        for (final IndexedObject indexedObject : indexedObjects) {
+            final int objectId = indexedObject.rpslObject.getObjectId();
+            if (!Integer.valueOf(indexedObject.sequenceId).equals(sequenceIds.get(objectId))) {
+                LOGGER.debug("Changed: {}", objectId);
+                continue;
+            }
+
+            currentObjects.add(indexedObject);
+
+            if (indexedObject.sanitized) {
+                updateSanitizedObject(indexedObject.rpslObject);
+            }
+
+            for (final AttributeType attributeType : indexedObject.indexValues.keySet()) {
+                objectIdsByIndex.computeIfAbsent(IndexStrategies.get(attributeType), indexStrategy -> Lists.newArrayList()).add(objectId);
+            }
+        }
+
+        for (final Map.Entry<IndexStrategy, List<Integer>> entry : objectIdsByIndex.entrySet()) {
+            entry.getKey().removeFromIndex(jdbcTemplate, entry.getValue());
+        }
+
+        final BatchUpdateJdbcTemplate batchUpdateJdbcTemplate = new BatchUpdateJdbcTemplate(dataSource);
+        for (final IndexedObject indexedObject : currentObjects) {
+            final RpslObject rpslObject = indexedObject.rpslObject;
+            final RpslObjectInfo rpslObjectInfo = new RpslObjectInfo(rpslObject.getObjectId(), rpslObject.getType(), rpslObject.getKey());
+
+            for (final Map.Entry<AttributeType, List<String>> entry : indexedObject.indexValues.entrySet()) {
+                final IndexStrategy indexStrategy = IndexStrategies.get(entry.getKey());
+                for (final String value : entry.getValue()) {
                     try {
-                        indexStrategy.addToIndex(jdbcTemplate, rpslObjectInfo, rpslObject, value.toString());
+                        indexStrategy.addToIndex(batchUpdateJdbcTemplate, rpslObjectInfo, rpslObject, value);
                     } catch (IllegalArgumentException e) {
                         LOGGER.info("Missing reference for {}: {}", rpslObjectInfo, value);
                     }
                 }
             }
         }
+        batchUpdateJdbcTemplate.executeBatches();
+    }
+
+    private Map<Integer, Integer> getSequenceIds(final List<IndexedObject> indexedObjects) {
+        final List<Integer> objectIds = Lists.newArrayListWithExpectedSize(indexedObjects.size());
+        for (final IndexedObject indexedObject : indexedObjects) {
+            objectIds.add(indexedObject.rpslObject.getObjectId());
+        }
+
+        final Map<Integer, Integer> sequenceIds = Maps.newHashMapWithExpectedSize(objectIds.size());
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                "SELECT object_id, sequence_id FROM last WHERE object_id IN (:objectIds)",
+                new MapSqlParameterSource("objectIds", objectIds),
+                (RowCallbackHandler) rs -> sequenceIds.put(rs.getInt(1), rs.getInt(2)));
+        return sequenceIds;
     }
 
     private RpslObject sanitizeObject(final RpslObject rpslObject, final String pkey) {
@@ -175,16 +341,17 @@ public class JdbcIndexDao implements IndexDao {
         }
 
         LOGGER.info("Updating {} object from {} to {}", rpslObject.getType(), rpslObject.getKey(), sanitizedPKey);
+        return sanitizedObject;
+    }
 
+    private void updateSanitizedObject(final RpslObject sanitizedObject) {
         final int rows = jdbcTemplate.update("UPDATE last SET pkey = ?, object = ? WHERE object_id = ?",
                 sanitizedObject.getKey(),
                 sanitizedObject.toByteArray(),
-                rpslObject.getObjectId());
+                sanitizedObject.getObjectId());
         if (rows != 1) {
-            throw new DataIntegrityViolationException("Unexpected rows:" + rows + " when updating object:" + rpslObject.getObjectId());
+            throw new DataIntegrityViolationException("Unexpected rows:" + rows + " when updating object:" + sanitizedObject.getObjectId());
         }
-
-        return sanitizedObject;
     }
 
     private void deleteIndexesForMissingObjects() {
@@ -223,4 +390,32 @@ public class JdbcIndexDao implements IndexDao {
 
         return indexedAttributes;
     }
+
+    private static final class ObjectRow {
+        private final int objectId;
+        private final int sequenceId;
+        private final byte[] object;
+        private final String pkey;
+
+        private ObjectRow(final int objectId, final int sequenceId, final byte[] object, final String pkey) {
+            this.objectId = objectId;
+            this.sequenceId = sequenceId;
+            this.object = object;
+            this.pkey = pkey;
+        }
+    }
+
+    private static final class IndexedObject {
+        private final RpslObject rpslObject;
+        private final int sequenceId;
+        private final boolean sanitized;
+        private final Map<AttributeType, List<String>> indexValues;
+
+        private IndexedObject(final RpslObject rpslObject, final int sequenceId, final boolean sanitized, final Map<AttributeType, List<String>> indexValues) {
+            this.rpslObject = rpslObject;
+            this.sequenceId = sequenceId;
+            this.sanitized = sanitized;
+            this.indexValues = indexValues;
+        }
+    }
 }
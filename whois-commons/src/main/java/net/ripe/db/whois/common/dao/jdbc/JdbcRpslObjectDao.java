@@ -1,6 +1,5 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -44,7 +43,6 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -60,11 +58,20 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final SourceContext sourceContext;
+    @Nullable private final RpslObjectCache rpslObjectCache;
+
+    /*
+     * Does not use the shared object cache, as the objects may not be read from the current source.
+     */
+    protected JdbcRpslObjectDao(final DataSource dataSource, final SourceContext sourceContext) {
+        this(dataSource, sourceContext, null);
+    }
 
     @Autowired
-    public JdbcRpslObjectDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final SourceContext sourceContext) {
+    public JdbcRpslObjectDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final SourceContext sourceContext, final RpslObjectCache rpslObjectCache) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.sourceContext = sourceContext;
+        this.rpslObjectCache = rpslObjectCache;
     }
 
     @Override
@@ -92,21 +99,29 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
             }
         }
 
-        final List<RpslObject> rpslObjects = Lists.newArrayList(loadedObjects.values());
-        Collections.sort(rpslObjects, new Comparator<RpslObject>() {
-            final List<Integer> requestedIds = Lists.newArrayList(Iterables.transform(proxy, input -> input.getObjectId()));
+        // TODO [AK] Return result rather than adding all to the collection
+        result.addAll(inRequestedOrder(proxy, loadedObjects));
+    }
 
-            @Override
-            public int compare(final RpslObject o1, final RpslObject o2) {
-                return requestedIds.indexOf(o1.getObjectId()) - requestedIds.indexOf(o2.getObjectId());
+    /*
+     * Takes the loaded objects out of the map in the order of their first occurrence in proxy, in linear time.
+     * Objects that were not found are left out.
+     */
+    static List<RpslObject> inRequestedOrder(final List<? extends Identifiable> proxy, final Map<Integer, RpslObject> loadedObjects) {
+        final List<RpslObject> rpslObjects = Lists.newArrayListWithExpectedSize(loadedObjects.size());
+        for (final Identifiable identifiable : proxy) {
+            final RpslObject rpslObject = loadedObjects.remove(identifiable.getObjectId());
+            if (rpslObject != null) {
+                rpslObjects.add(rpslObject);
             }
-        });
-
-        // TODO [AK] Return result rather than adding all to the collection
-        result.addAll(rpslObjects);
+        }
+        return rpslObjects;
     }
 
     private Set<Integer> loadObjects(final List<Identifiable> proxy, final Map<Integer, RpslObject> loadedObjects) {
+        final CIString source = sourceContext.getCurrentSource().getName();
+        final long cacheGeneration = rpslObjectCache == null ? -1 : rpslObjectCache.getGeneration(source);
+
         final StringBuilder queryBuilder = new StringBuilder();
         final List<Integer> objectIds = Lists.newArrayListWithExpectedSize(proxy.size());
         for (final Identifiable identifiable : proxy) {
@@ -115,8 +130,11 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
                 continue;
             }
 
+            final RpslObject cachedObject;
             if (identifiable instanceof RpslObject) {
                 loadedObjects.put(objectId, (RpslObject) identifiable);
+            } else if (cacheGeneration >= 0 && (cachedObject = rpslObjectCache.get(source, objectId)) != null) {
+                loadedObjects.put(objectId, cachedObject);
             } else {
                 if (queryBuilder.length() > 0) {
                     // UNION ALL is much faster than IN
@@ -133,20 +151,25 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
             }
         }
 
-        final List<RpslObject> rpslObjects = jdbcTemplate.query(
-                queryBuilder.toString(),
-                new PreparedStatementSetter() {
-                    @Override
-                    public void setValues(final PreparedStatement ps) throws SQLException {
-                        for (int i = 0; i < objectIds.size(); i++) {
-                            ps.setInt(i + 1, objectIds.get(i));
+        if (!objectIds.isEmpty()) {
+            final List<RpslObject> rpslObjects = jdbcTemplate.query(
+                    queryBuilder.toString(),
+                    new PreparedStatementSetter() {
+                        @Override
+                        public void setValues(final PreparedStatement ps) throws SQLException {
+                            for (int i = 0; i < objectIds.size(); i++) {
+                                ps.setInt(i + 1, objectIds.get(i));
+                            }
                         }
-                    }
-                },
-                new RpslObjectRowMapper());
+                    },
+                    new RpslObjectRowMapper());
 
-        for (final RpslObject rpslObject : rpslObjects) {
-            loadedObjects.put(rpslObject.getObjectId(), rpslObject);
+            for (final RpslObject rpslObject : rpslObjects) {
+                loadedObjects.put(rpslObject.getObjectId(), rpslObject);
+                if (cacheGeneration >= 0) {
+                    rpslObjectCache.put(source, cacheGeneration, rpslObject);
+                }
+            }
         }
 
         if (proxy.size() == loadedObjects.size()) {
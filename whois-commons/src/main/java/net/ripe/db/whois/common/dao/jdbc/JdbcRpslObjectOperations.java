@@ -427,6 +427,10 @@ public class JdbcRpslObjectOperations {
         }
     }
 
+    public static List<SerialEntry> getSerialEntriesForNrtm(final JdbcTemplate jdbcTemplate, final int begin, final int end) {
+        return getSerialEntriesWithBlobsForNrtm(jdbcTemplate, begin, end);
+    }
+
     @CheckForNull
     public static Integer getAgeOfExactOrNextExistingSerial(final DateTimeProvider dateTimeProvider, final JdbcTemplate jdbcTemplate, final int serialId) {
         try {
@@ -585,4 +589,37 @@ public class JdbcRpslObjectOperations {
             }
         }, serialId);
     }
+
+    // exact same, but for a range of serials in one query
+    private static List<SerialEntry> getSerialEntriesWithBlobsForNrtm(final JdbcTemplate jdbcTemplate, final int begin, final int end) {
+        return jdbcTemplate.query("" +
+                "SELECT serials.serial_id, " +
+                "       serials.operation, " +
+                "       serials.atlast, " +
+                "       serials.object_id, " +
+                "       IF(serials.operation = 2, " +
+                "                rdp_history.object, " +
+                "                COALESCE(legacy_history.object, last.object)) as object," +
+                "       COALESCE(last.pkey, rdp_history.pkey, legacy_history.pkey) " +
+                "FROM   serials " +
+                "       LEFT JOIN last " +
+                "              ON last.object_id = serials.object_id" +
+                "                 AND last.sequence_id = serials.sequence_id  " +
+                "       LEFT JOIN history legacy_history " +
+                "              ON legacy_history.object_id = serials.object_id " +
+                "                 AND legacy_history.sequence_id = serials.sequence_id " +
+                "       LEFT JOIN history rdp_history " +
+                "              ON rdp_history.object_id = serials.object_id " +
+                "                 AND rdp_history.sequence_id = serials.sequence_id - 1 " +
+                "WHERE  serials.serial_id BETWEEN ? AND ? " +
+                "ORDER BY serials.serial_id ASC", (rs, rowNum) -> {
+                    final int serialId = rs.getInt(1);
+                    try {
+                        return SerialEntry.createSerialEntryWithoutTimestamps
+                                (serialId, Operation.getByCode(rs.getInt(2)), rs.getBoolean(3), rs.getInt(4), rs.getBytes(5), rs.getString(6));
+                    } catch (RuntimeException e) {
+                        throw new IllegalStateException("Failed at serial_id " + serialId, e);
+                    }
+                }, begin, end);
+    }
 }
@@ -44,6 +44,11 @@ public class JdbcSerialDao implements SerialDao {
         return JdbcRpslObjectOperations.getSerialEntryForNrtm(jdbcTemplate, serialId);
     }
 
+    @Override
+    public List<SerialEntry> getSerialEntriesForNrtm(final int begin, final int end) {
+        return JdbcRpslObjectOperations.getSerialEntriesForNrtm(jdbcTemplate, begin, end);
+    }
+
     @Override
     @CheckForNull
     public List<SerialEntry> getSerialEntriesSince(final int serialId) {
@@ -1,5 +1,7 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -7,13 +9,26 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
 
 @Repository
 class JdbcUpdateLockDao implements UpdateLockDao {
+    // lock keys are hashed onto a fixed number of rows, a collision only costs some concurrency
+    static final int STRIPES = 1024;
+
     private final JdbcTemplate jdbcTemplate;
 
+    // bound to the transaction while it holds the global update lock
+    private final Object globalLockResource = new Object();
+
     @Autowired
     public JdbcUpdateLockDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
@@ -22,11 +37,63 @@ class JdbcUpdateLockDao implements UpdateLockDao {
     @Override
     @Transactional(propagation = Propagation.MANDATORY)
     public void setUpdateLock() {
+        checkIsolationLevel();
+
+        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 FOR UPDATE", Integer.class);
+
+        if (!TransactionSynchronizationManager.hasResource(globalLockResource)) {
+            TransactionSynchronizationManager.bindResource(globalLockResource, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(globalLockResource);
+                }
+            });
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void setResourceLocks(final Collection<String> lockKeys) {
+        if (lockKeys.isEmpty()) {
+            return;
+        }
+
+        // the global lock is always taken after the resource locks, so a transaction already holding it
+        // must not wait for a resource lock: the holder of that resource lock could be waiting for the global lock
+        if (TransactionSynchronizationManager.hasResource(globalLockResource)) {
+            return;
+        }
+
+        checkIsolationLevel();
+
+        // lock in ascending order, so concurrent transactions cannot deadlock on each other's stripes
+        final SortedSet<Integer> stripes = Sets.newTreeSet();
+        for (final String lockKey : lockKeys) {
+            stripes.add(getStripe(lockKey));
+        }
+
+        // the rows are created with the schema, and locked in the order of the primary key
+        final List<Integer> locked = jdbcTemplate.queryForList(
+                "SELECT stripe FROM update_lock_stripe WHERE stripe IN (" +
+                Joiner.on(',').join(Collections.nCopies(stripes.size(), "?")) +
+                ") ORDER BY stripe FOR UPDATE",
+                Integer.class,
+                stripes.toArray());
+
+        if (locked.size() != stripes.size()) {
+            throw new IllegalStateException("Missing update lock stripes, expected " + STRIPES + " rows in update_lock_stripe");
+        }
+    }
+
+    static int getStripe(final String lockKey) {
+        return Math.floorMod(lockKey.toLowerCase(Locale.ROOT).hashCode(), STRIPES);
+    }
+
+    private void checkIsolationLevel() {
         final String isolationLevel = jdbcTemplate.queryForObject("select @@tx_isolation", String.class);
         if (!isolationLevel.equals("READ-COMMITTED")) {
             throw new IllegalStateException("Invalid isolation level: " + isolationLevel);
         }
-
-        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 FOR UPDATE", Integer.class);
     }
 }
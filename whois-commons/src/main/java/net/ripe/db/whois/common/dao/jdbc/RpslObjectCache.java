@@ -0,0 +1,273 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceConfiguration;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared cache of parsed objects, keyed by source and object id, bounded by the estimated heap size of the objects.
+ * <p/>
+ * Cached objects are invalidated by following the serials of each source, in the same way as the IP trees are updated.
+ * A source is only cached once its serials are followed, and an object is only added if no serials were processed for
+ * its source since it was read from the database, so an object read just before an update cannot linger in the cache.
+ * Changes become visible after the next update, so the cache is disabled unless a maximum size is configured.
+ */
+@Component
+public class RpslObjectCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectCache.class);
+
+    private static final int ESTIMATED_OBJECT_BYTES = 128;
+    private static final int ESTIMATED_ATTRIBUTE_BYTES = 160;
+
+    // clear the source instead of invalidating objects one by one if it is this far behind
+    private static final int MAX_SERIALS_TO_INVALIDATE = 100_000;
+
+    private final SourceContext sourceContext;
+    private final Cache<Key, RpslObject> cache;
+    private final Map<CIString, SourceState> sources = Maps.newConcurrentMap();
+
+    @Autowired
+    public RpslObjectCache(
+            final SourceContext sourceContext,
+            @Value("${rpsl.object.cache.max.bytes:0}") final long maxBytes) {
+        this.sourceContext = sourceContext;
+        this.cache = maxBytes <= 0 ? null : CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, RpslObject rpslObject) -> estimateSize(rpslObject))
+                .recordStats()
+                .build();
+
+        if (isEnabled()) {
+            LOGGER.info("Caching objects up to {} bytes", maxBytes);
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return the generation of the source, to be passed to {@link #put(CIString, long, RpslObject)} for objects
+     * read from the database after this call, or -1 if objects of the source are not cached
+     */
+    public long getGeneration(final CIString source) {
+        if (cache == null) {
+            return -1;
+        }
+
+        final SourceState sourceState = sources.get(resolve(source));
+        return sourceState == null ? -1 : sourceState.generation;
+    }
+
+    @CheckForNull
+    public RpslObject get(final CIString source, final int objectId) {
+        if (cache == null) {
+            return null;
+        }
+
+        return cache.getIfPresent(new Key(resolve(source), objectId));
+    }
+
+    /**
+     * Adds the object, unless serials of the source were processed since <code>generation</code>.
+     */
+    public void put(final CIString source, final long generation, final RpslObject rpslObject) {
+        if (cache == null || generation < 0) {
+            return;
+        }
+
+        final CIString resolvedSource = resolve(source);
+        final SourceState sourceState = sources.get(resolvedSource);
+        if (sourceState == null) {
+            return;
+        }
+
+        sourceState.lock.readLock().lock();
+        try {
+            if (sourceState.generation == generation) {
+                cache.put(new Key(resolvedSource, rpslObject.getObjectId()), rpslObject);
+            }
+        } finally {
+            sourceState.lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rpsl.object.cache.update.interval.msecs:10000}")
+    public void update() {
+        if (cache == null) {
+            return;
+        }
+
+        for (final SourceConfiguration sourceConfiguration : getFollowedSourceConfigurations()) {
+            try {
+                update(sourceConfiguration.getSource().getName(), sourceConfiguration.getJdbcTemplate());
+            } catch (DataAccessException e) {
+                LOGGER.warn("Unable to update object cache for {} due to {}", sourceConfiguration, e.getMessage());
+            }
+        }
+    }
+
+    void update(final CIString source, final JdbcTemplate jdbcTemplate) {
+        final long toInclusive = jdbcTemplate.queryForObject("SELECT IFNULL(MAX(serial_id),0) FROM serials", Long.class);
+
+        final SourceState sourceState = sources.get(source);
+        if (sourceState == null) {
+            LOGGER.info("Caching objects for {} from serial {}", source, toInclusive);
+            sources.put(source, new SourceState(toInclusive));
+            return;
+        }
+
+        final long fromExclusive = sourceState.lastSerial;
+        if (fromExclusive == toInclusive) {
+            return;
+        }
+
+        if (fromExclusive > toInclusive || toInclusive - fromExclusive > MAX_SERIALS_TO_INVALIDATE) {
+            LOGGER.info("Clearing object cache for {}; serial in cache: {}; serial in DB: {}", source, fromExclusive, toInclusive);
+            invalidate(sourceState, () -> cache.asMap().keySet().removeIf(key -> key.source.equals(source)), toInclusive);
+            return;
+        }
+
+        final List<Integer> objectIds = jdbcTemplate.queryForList("" +
+                        "SELECT object_id " +
+                        "FROM serials " +
+                        "WHERE serial_id > ? " +
+                        "AND serial_id <= ?",
+                Integer.class,
+                fromExclusive, toInclusive);
+
+        final Set<Key> keys = Sets.newHashSetWithExpectedSize(objectIds.size());
+        for (final Integer objectId : objectIds) {
+            keys.add(new Key(source, objectId));
+        }
+
+        invalidate(sourceState, () -> cache.invalidateAll(keys), toInclusive);
+    }
+
+    private void invalidate(final SourceState sourceState, final Runnable invalidation, final long lastSerial) {
+        sourceState.lock.writeLock().lock();
+        try {
+            invalidation.run();
+            sourceState.lastSerial = lastSerial;
+            sourceState.generation++;
+        } finally {
+            sourceState.lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    Map<CIString, Long> getLastSerials() {
+        final Map<CIString, Long> lastSerials = Maps.newHashMap();
+        for (final Map.Entry<CIString, SourceState> entry : sources.entrySet()) {
+            lastSerials.put(entry.getKey(), entry.getValue().lastSerial);
+        }
+        return lastSerials;
+    }
+
+    private CIString resolve(final CIString source) {
+        final CIString alias = sourceContext.getAlias(source);
+        return alias != null ? alias : source;
+    }
+
+    /*
+     * One configuration per source name, preferring the slave, leaving out sources that are delegated to another source.
+     */
+    private Collection<SourceConfiguration> getFollowedSourceConfigurations() {
+        final Map<CIString, SourceConfiguration> sourceConfigurations = Maps.newLinkedHashMap();
+        for (final SourceConfiguration sourceConfiguration : sourceContext.getAllSourceConfigurations()) {
+            final CIString name = sourceConfiguration.getSource().getName();
+            if (sourceContext.getAlias(name) != null) {
+                continue;
+            }
+
+            if (!sourceConfigurations.containsKey(name) || sourceConfiguration.getSource().getType().equals(Source.Type.SLAVE)) {
+                sourceConfigurations.put(name, sourceConfiguration);
+            }
+        }
+        return sourceConfigurations.values();
+    }
+
+    static int estimateSize(final RpslObject rpslObject) {
+        int size = ESTIMATED_OBJECT_BYTES;
+        for (final RpslAttribute attribute : rpslObject.getAttributes()) {
+            // the value is kept as is, split into clean values and encoded for port 43 once used
+            size += ESTIMATED_ATTRIBUTE_BYTES + 2 * attribute.getKey().length() + 3 * attribute.getValue().length();
+        }
+        return size;
+    }
+
+    private static final class SourceState {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile long lastSerial;
+        private volatile long generation;
+
+        private SourceState(final long lastSerial) {
+            this.lastSerial = lastSerial;
+        }
+    }
+
+    private static final class Key {
+        private final CIString source;
+        private final int objectId;
+
+        private Key(final CIString source, final int objectId) {
+            this.source = source;
+            this.objectId = objectId;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return objectId == that.objectId && source.equals(that.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, objectId);
+        }
+    }
+}
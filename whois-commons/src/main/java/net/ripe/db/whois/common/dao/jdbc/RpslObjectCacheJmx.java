@@ -0,0 +1,68 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.cache.CacheStats;
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "RpslObjectCache", description = "Shared object cache")
+public class RpslObjectCacheJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectCacheJmx.class);
+
+    private final RpslObjectCache rpslObjectCache;
+
+    @Autowired
+    public RpslObjectCacheJmx(final RpslObjectCache rpslObjectCache) {
+        super(LOGGER);
+        this.rpslObjectCache = rpslObjectCache;
+    }
+
+    @ManagedAttribute(description = "Number of cached objects")
+    public long getSize() {
+        return rpslObjectCache.size();
+    }
+
+    @ManagedAttribute(description = "Number of objects found in the cache")
+    public long getHitCount() {
+        return rpslObjectCache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of objects not found in the cache")
+    public long getMissCount() {
+        return rpslObjectCache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Number of objects evicted to stay within the maximum size")
+    public long getEvictionCount() {
+        return rpslObjectCache.stats().evictionCount();
+    }
+
+    @ManagedOperation(description = "Get cache status")
+    public String status() {
+        return invokeOperation("Get object cache status", "", () -> {
+            final CacheStats stats = rpslObjectCache.stats();
+            return String.format("Object cache is %s: Size %d Hits %d Hit Ratio %.3f Misses %d Evicted %d Serials %s",
+                    rpslObjectCache.isEnabled() ? "enabled" : "disabled",
+                    rpslObjectCache.size(),
+                    stats.hitCount(),
+                    stats.hitRate(),
+                    stats.missCount(),
+                    stats.evictionCount(),
+                    rpslObjectCache.getLastSerials());
+        });
+    }
+
+    @ManagedOperation(description = "Clear contents of cache")
+    public String clear() {
+        return invokeOperation("Clear object cache", "", () -> {
+            rpslObjectCache.clear();
+            return "Object cache cleared";
+        });
+    }
+}
@@ -7,6 +7,7 @@ import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface IndexStrategy {
@@ -24,6 +25,7 @@ public interface IndexStrategy {
     List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo value, final ObjectType type);
 
     void removeFromIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo);
+    void removeFromIndex(JdbcTemplate jdbcTemplate, Collection<Integer> objectIds);
 
     String getLookupTableName();
 
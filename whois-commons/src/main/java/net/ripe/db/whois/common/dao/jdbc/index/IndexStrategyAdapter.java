@@ -8,6 +8,7 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.apache.commons.lang.Validate;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -68,6 +69,10 @@ abstract class IndexStrategyAdapter implements IndexStrategy {
     public void removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
     }
 
+    @Override
+    public void removeFromIndex(final JdbcTemplate jdbcTemplate, final Collection<Integer> objectIds) {
+    }
+
     @Override
     public String getLookupTableName() {
         return null;
@@ -0,0 +1,234 @@
+package net.ripe.db.whois.common.domain;
+
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Immutable lookup of a value by address, stored as sorted, non-overlapping address ranges in primitive arrays.
+ * <p/>
+ * The ranges are derived from a collection of (possibly nested) intervals: the address space covered by the intervals
+ * is split wherever any interval begins or ends, so each range is covered by the same intervals throughout, and the
+ * value of each range is computed once when the index is built. A lookup is a binary search.
+ */
+@Immutable
+public final class IpRangeIndex<V> {
+    private static final IpRangeIndex<?> EMPTY = new IpRangeIndex<>(new long[0], new long[0], new Object[0], new long[0], new long[0], new long[0], new long[0], new Object[0]);
+
+    private final long[] ipv4Begin;
+    private final long[] ipv4End;
+    private final Object[] ipv4Values;
+
+    private final long[] ipv6BeginMsb;
+    private final long[] ipv6BeginLsb;
+    private final long[] ipv6EndMsb;
+    private final long[] ipv6EndLsb;
+    private final Object[] ipv6Values;
+
+    private IpRangeIndex(final long[] ipv4Begin, final long[] ipv4End, final Object[] ipv4Values,
+                         final long[] ipv6BeginMsb, final long[] ipv6BeginLsb, final long[] ipv6EndMsb, final long[] ipv6EndLsb, final Object[] ipv6Values) {
+        this.ipv4Begin = ipv4Begin;
+        this.ipv4End = ipv4End;
+        this.ipv4Values = ipv4Values;
+        this.ipv6BeginMsb = ipv6BeginMsb;
+        this.ipv6BeginLsb = ipv6BeginLsb;
+        this.ipv6EndMsb = ipv6EndMsb;
+        this.ipv6EndLsb = ipv6EndLsb;
+        this.ipv6Values = ipv6Values;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> IpRangeIndex<V> empty() {
+        return (IpRangeIndex<V>) EMPTY;
+    }
+
+    /**
+     * @param intervals the intervals to split the address space by
+     * @param valueOf   the value of a range, which is contained in, or disjoint from, each of the intervals. Ranges
+     *                  without a value (null) are left out. Adjacent ranges with equal values are merged.
+     */
+    public static <V> IpRangeIndex<V> of(final Collection<? extends IpInterval<?>> intervals, final Function<IpInterval<?>, V> valueOf) {
+        final NavigableSet<BigInteger> ipv4Boundaries = Sets.newTreeSet();
+        final NavigableSet<BigInteger> ipv6Boundaries = Sets.newTreeSet();
+
+        for (final IpInterval<?> interval : intervals) {
+            if (interval instanceof Ipv4Resource) {
+                final Ipv4Resource ipv4Resource = (Ipv4Resource) interval;
+                ipv4Boundaries.add(BigInteger.valueOf(ipv4Resource.begin()));
+                ipv4Boundaries.add(BigInteger.valueOf(ipv4Resource.end() + 1));
+            } else {
+                final Ipv6Resource ipv6Resource = (Ipv6Resource) interval;
+                ipv6Boundaries.add(ipv6Resource.begin());
+                ipv6Boundaries.add(ipv6Resource.end().add(BigInteger.ONE));
+            }
+        }
+
+        final Ranges ipv4Ranges = new Ranges();
+        forEachRange(ipv4Boundaries, (begin, end) -> ipv4Ranges.add(begin, end, valueOf.apply(new Ipv4Resource(begin.longValue(), end.longValue()))));
+
+        final Ranges ipv6Ranges = new Ranges();
+        forEachRange(ipv6Boundaries, (begin, end) -> ipv6Ranges.add(begin, end, valueOf.apply(new Ipv6Resource(begin, end))));
+
+        final int ipv6Size = ipv6Ranges.values.size();
+        final long[] ipv6BeginMsb = new long[ipv6Size];
+        final long[] ipv6BeginLsb = new long[ipv6Size];
+        final long[] ipv6EndMsb = new long[ipv6Size];
+        final long[] ipv6EndLsb = new long[ipv6Size];
+        for (int i = 0; i < ipv6Size; i++) {
+            ipv6BeginMsb[i] = Ipv6Resource.msb(ipv6Ranges.begins.get(i));
+            ipv6BeginLsb[i] = Ipv6Resource.lsb(ipv6Ranges.begins.get(i));
+            ipv6EndMsb[i] = Ipv6Resource.msb(ipv6Ranges.ends.get(i));
+            ipv6EndLsb[i] = Ipv6Resource.lsb(ipv6Ranges.ends.get(i));
+        }
+
+        return new IpRangeIndex<>(
+                ipv4Ranges.begins.stream().mapToLong(BigInteger::longValue).toArray(),
+                ipv4Ranges.ends.stream().mapToLong(BigInteger::longValue).toArray(),
+                ipv4Ranges.values.toArray(),
+                ipv6BeginMsb, ipv6BeginLsb, ipv6EndMsb, ipv6EndLsb,
+                ipv6Ranges.values.toArray());
+    }
+
+    private static void forEachRange(final NavigableSet<BigInteger> boundaries, final RangeConsumer consumer) {
+        final Iterator<BigInteger> iterator = boundaries.iterator();
+        if (!iterator.hasNext()) {
+            return;
+        }
+
+        BigInteger begin = iterator.next();
+        while (iterator.hasNext()) {
+            final BigInteger next = iterator.next();
+            consumer.accept(begin, next.subtract(BigInteger.ONE));
+            begin = next;
+        }
+    }
+
+    /**
+     * @return the value of the range containing the address, or null if none
+     */
+    @CheckForNull
+    public V getValue(final InetAddress address) {
+        final byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return getIpv4Value(toLong(bytes, 0, 4), toLong(bytes, 0, 4));
+        }
+
+        final long msb = toLong(bytes, 0, 8);
+        final long lsb = toLong(bytes, 8, 8);
+        return getIpv6Value(msb, lsb, msb, lsb);
+    }
+
+    /**
+     * @return the value of the range containing the whole interval, or null if none
+     */
+    @CheckForNull
+    public V getValue(final IpInterval<?> interval) {
+        if (interval instanceof Ipv4Resource) {
+            final Ipv4Resource ipv4Resource = (Ipv4Resource) interval;
+            return getIpv4Value(ipv4Resource.begin(), ipv4Resource.end());
+        }
+
+        final Ipv6Resource ipv6Resource = (Ipv6Resource) interval;
+        return getIpv6Value(ipv6Resource.beginMsb(), ipv6Resource.beginLsb(), ipv6Resource.endMsb(), ipv6Resource.endLsb());
+    }
+
+    public int size() {
+        return ipv4Values.length + ipv6Values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @CheckForNull
+    private V getIpv4Value(final long begin, final long end) {
+        // index of the last range beginning at or before the address
+        int low = 0;
+        int high = ipv4Begin.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (ipv4Begin[mid] <= begin) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (high < 0 || ipv4End[high] < end) {
+            return null;
+        }
+
+        return (V) ipv4Values[high];
+    }
+
+    @SuppressWarnings("unchecked")
+    @CheckForNull
+    private V getIpv6Value(final long beginMsb, final long beginLsb, final long endMsb, final long endLsb) {
+        int low = 0;
+        int high = ipv6Values.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (Ipv6Resource.compare(ipv6BeginMsb[mid], ipv6BeginLsb[mid], beginMsb, beginLsb) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (high < 0 || Ipv6Resource.compare(ipv6EndMsb[high], ipv6EndLsb[high], endMsb, endLsb) < 0) {
+            return null;
+        }
+
+        return (V) ipv6Values[high];
+    }
+
+    private static long toLong(final byte[] bytes, final int offset, final int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = (result << 8) | (bytes[i] & 0xFF);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IpRangeIndex{ipv4: %d ranges, ipv6: %d ranges}", ipv4Values.length, ipv6Values.length);
+    }
+
+    @FunctionalInterface
+    private interface RangeConsumer {
+        void accept(BigInteger begin, BigInteger end);
+    }
+
+    private static final class Ranges {
+        private final List<BigInteger> begins = new ArrayList<>();
+        private final List<BigInteger> ends = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        private void add(final BigInteger begin, final BigInteger end, @CheckForNull final Object value) {
+            if (value == null) {
+                return;
+            }
+
+            final int last = values.size() - 1;
+            if (last >= 0 && ends.get(last).add(BigInteger.ONE).equals(begin) && Objects.equals(values.get(last), value)) {
+                ends.set(last, end);
+                return;
+            }
+
+            begins.add(begin);
+            ends.add(end);
+            values.add(value);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package net.ripe.db.whois.common.domain;
 
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.common.etree.IntervalMap;
 import net.ripe.db.whois.common.etree.NestedIntervalMap;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class IpResourceTree<V> {
     private final IntervalMap<IpInterval<?>, V> ipv4Tree;
@@ -17,6 +22,45 @@ public class IpResourceTree<V> {
         this.ipv6Tree = new NestedIntervalMap();
     }
 
+    private IpResourceTree(final IntervalMap<IpInterval<?>, V> ipv4Tree, final IntervalMap<IpInterval<?>, V> ipv6Tree) {
+        this.ipv4Tree = ipv4Tree;
+        this.ipv6Tree = ipv6Tree;
+    }
+
+    /**
+     * Builds a tree from all entries at once. The entries are sorted per address family first, so each interval
+     * can be appended to its parent instead of being looked up from the root. As with {@link #add(IpInterval, Object)},
+     * the last value for the same interval wins.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <V> IpResourceTree<V> of(final List<IpResourceEntry<V>> entries) {
+        final List<Map.Entry<IpInterval<?>, V>> ipv4Entries = new ArrayList<>();
+        final List<Map.Entry<IpInterval<?>, V>> ipv6Entries = new ArrayList<>();
+
+        for (final IpResourceEntry<V> entry : entries) {
+            final IpInterval<?> ipInterval = entry.getIpInterval();
+            switch (ipInterval.getAttributeType()) {
+                case INETNUM:
+                    ipv4Entries.add(Maps.immutableEntry(ipInterval, entry.getValue()));
+                    break;
+                case INET6NUM:
+                    ipv6Entries.add(Maps.immutableEntry(ipInterval, entry.getValue()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported IP interval object type: " + ipInterval.getAttributeType());
+            }
+        }
+
+        // stable sort, so the last value for the same interval is still added last
+        final Comparator<Map.Entry<IpInterval<?>, V>> order = (left, right) -> ((Comparable) left.getKey()).compareTo(right.getKey());
+        ipv4Entries.sort(order);
+        ipv6Entries.sort(order);
+
+        return new IpResourceTree<V>(
+                NestedIntervalMap.bulkLoad((Iterator) ipv4Entries.iterator()),
+                NestedIntervalMap.bulkLoad((Iterator) ipv6Entries.iterator()));
+    }
+
     public void add(IpInterval<?> ipInterval, V value) {
         getTree(ipInterval).put(ipInterval, value);
     }
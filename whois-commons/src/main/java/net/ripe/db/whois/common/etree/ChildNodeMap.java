@@ -16,6 +16,17 @@ interface ChildNodeMap<K extends Interval<K>, V> {
 
     void addChild(InternalNode<K, V> nodeToAdd);
 
+    /**
+     * Adds a node after all existing children, without looking for intersecting or contained children.
+     * The node must not intersect any existing child, and must sort after all of them.
+     */
+    void appendChild(InternalNode<K, V> nodeToAdd);
+
+    /**
+     * @return the child with the highest upper-bound, or <code>null</code> if there are no children.
+     */
+    InternalNode<K, V> lastChild();
+
     void removeChild(K interval);
 
     void findExactAndAllLessSpecific(List<InternalNode<K, V>> list, K interval);
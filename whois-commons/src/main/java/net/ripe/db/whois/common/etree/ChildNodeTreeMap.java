@@ -80,6 +80,17 @@ class ChildNodeTreeMap<K extends Interval<K>, V> extends TreeMap<K, InternalNode
         this.put(range, nodeToAdd);
     }
 
+    @Override
+    public void appendChild(InternalNode<K, V> nodeToAdd) {
+        this.put(nodeToAdd.getInterval(), nodeToAdd);
+    }
+
+    @Override
+    public InternalNode<K, V> lastChild() {
+        Entry<K, InternalNode<K, V>> entry = this.lastEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
     private void transferChildNodes(InternalNode<K, V> nodeToAdd) {
         K range = nodeToAdd.getInterval();
         for (Iterator<InternalNode<K, V>> it = this.tailMap(range.singletonIntervalAtLowerBound()).values().iterator(); it.hasNext(); ) {
@@ -191,6 +202,16 @@ class ChildNodeTreeMap<K extends Interval<K>, V> extends TreeMap<K, InternalNode
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public void appendChild(InternalNode childToAdd) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InternalNode lastChild() {
+            return null;
+        }
+
         @Override
         public void removeChild(Interval interval) {
             throw new UnsupportedOperationException();
@@ -0,0 +1,18 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Interval;
+
+/**
+ * An {@link IntervalMap} that cannot be modified. The modifying methods of {@link IntervalMap} throw
+ * {@link UnsupportedOperationException}, changes are made through a builder derived from the map instead.
+ *
+ * @param <K> the type of the interval (must implement {@link Interval}).
+ * @param <V> the type of the values to store.
+ */
+public interface ImmutableIntervalMap<K extends Interval<K>, V> extends IntervalMap<K, V> {
+
+    /**
+     * @return a builder for a new map, starting from the (key, values) in this map.
+     */
+    IntervalMapBuilder<K, V> toBuilder();
+}
@@ -0,0 +1,157 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.collect.CollectionHelper;
+import net.ripe.db.whois.common.ip.Interval;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An immutable {@link IntervalMap} with the same semantics as {@link MultiValueIntervalMap}.
+ *
+ * @see ImmutableNestedIntervalMap
+ */
+public final class ImmutableMultiValueIntervalMap<K extends Interval<K>, V> implements ImmutableIntervalMap<K, V> {
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final ImmutableMultiValueIntervalMap EMPTY = new ImmutableMultiValueIntervalMap(ImmutableNestedIntervalMap.of());
+
+    private final ImmutableNestedIntervalMap<K, SortedSet<V>> wrapped;
+
+    private ImmutableMultiValueIntervalMap(final ImmutableNestedIntervalMap<K, SortedSet<V>> wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    /**
+     * @return the empty {@link ImmutableMultiValueIntervalMap}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Interval<K>, V> ImmutableMultiValueIntervalMap<K, V> of() {
+        return (ImmutableMultiValueIntervalMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @return a builder for a new map, starting from the empty map.
+     */
+    public static <K extends Interval<K>, V> Builder<K, V> builder() {
+        return ImmutableMultiValueIntervalMap.<K, V>of().toBuilder();
+    }
+
+    @Override
+    public Builder<K, V> toBuilder() {
+        return new Builder<>(wrapped.toBuilder());
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<V> findFirstLessSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findFirstLessSpecific(key));
+    }
+
+    @Override
+    public List<V> findExact(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findExact(key));
+    }
+
+    @Override
+    public List<V> findExactOrFirstLessSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findExactOrFirstLessSpecific(key));
+    }
+
+    @Override
+    public List<V> findAllLessSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findAllLessSpecific(key));
+    }
+
+    @Override
+    public List<V> findExactAndAllLessSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findExactAndAllLessSpecific(key));
+    }
+
+    @Override
+    public List<V> findFirstMoreSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findFirstMoreSpecific(key));
+    }
+
+    @Override
+    public List<V> findAllMoreSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findAllMoreSpecific(key));
+    }
+
+    @Override
+    public List<V> findExactAndAllMoreSpecific(final K key) {
+        return MultiValueIntervalMap.unroll(wrapped.findExactAndAllMoreSpecific(key));
+    }
+
+    @Override
+    public String toString() {
+        return wrapped.toString();
+    }
+
+    /**
+     * Derives a new {@link ImmutableMultiValueIntervalMap} from an existing one. The value sets are
+     * never modified once stored, a changed set is replaced by a copy.
+     */
+    public static final class Builder<K extends Interval<K>, V> implements IntervalMapBuilder<K, V> {
+        private final ImmutableNestedIntervalMap.Builder<K, SortedSet<V>> wrapped;
+
+        private Builder(final ImmutableNestedIntervalMap.Builder<K, SortedSet<V>> wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public Builder<K, V> put(final K key, final V value) {
+            final SortedSet<V> existing = CollectionHelper.uniqueResult(wrapped.findExact(key));
+            final SortedSet<V> set = existing == null ? new TreeSet<V>() : new TreeSet<>(existing);
+            if (set.add(value)) {
+                wrapped.put(key, Collections.unmodifiableSortedSet(set));
+            }
+
+            return this;
+        }
+
+        @Override
+        public Builder<K, V> remove(final K key, final V value) {
+            final SortedSet<V> existing = CollectionHelper.uniqueResult(wrapped.findExact(key));
+            if (existing == null || !existing.contains(value)) {
+                return this;
+            }
+
+            if (existing.size() == 1) {
+                wrapped.remove(key);
+            } else {
+                final SortedSet<V> set = new TreeSet<>(existing);
+                set.remove(value);
+                wrapped.put(key, Collections.unmodifiableSortedSet(set));
+            }
+
+            return this;
+        }
+
+        @Override
+        public ImmutableMultiValueIntervalMap<K, V> build() {
+            return new ImmutableMultiValueIntervalMap<>(wrapped.build());
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Interval;
+import org.apache.commons.lang.Validate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable {@link IntervalMap} with the same semantics as {@link NestedIntervalMap}.
+ * <p/>
+ * Instances can be queried by any number of threads without synchronization, provided they are
+ * published safely (e.g. through a <code>volatile</code> field). New versions are derived using a
+ * {@link Builder}, which only copies the nodes on the path to a changed interval and shares all
+ * other nodes with the map it was created from. The previous version stays valid for readers that
+ * are still using it.
+ * <p/>
+ * Copying a node copies its map of children, so a change costs time proportional to the total number
+ * of children of the nodes on its path, e.g. O(k) for a flat map with k top-level intervals. A node
+ * is copied at most once per builder, so changes that share a path share that cost.
+ *
+ * @param <K> the type of the interval (must implement {@link Interval}).
+ * @param <V> the type of the values to store.
+ */
+public final class ImmutableNestedIntervalMap<K extends Interval<K>, V> implements ImmutableIntervalMap<K, V> {
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final ImmutableNestedIntervalMap EMPTY = new ImmutableNestedIntervalMap(new Node(null, null, Node.EMPTY, null));
+
+    private final Node<K, V> root;
+
+    private ImmutableNestedIntervalMap(final Node<K, V> root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the empty {@link ImmutableNestedIntervalMap}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Interval<K>, V> ImmutableNestedIntervalMap<K, V> of() {
+        return (ImmutableNestedIntervalMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @return a builder for a new map, starting from the empty map.
+     */
+    public static <K extends Interval<K>, V> Builder<K, V> builder() {
+        return ImmutableNestedIntervalMap.<K, V>of().toBuilder();
+    }
+
+    @Override
+    public Builder<K, V> toBuilder() {
+        return new Builder<>(root);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<V> findFirstLessSpecific(final K key) {
+        Validate.notNull(key);
+        final List<Node<K, V>> nodes = findAllLessSpecificNodes(root, key);
+        return nodes.isEmpty() ? Collections.<V>emptyList() : Collections.singletonList(nodes.get(nodes.size() - 1).value);
+    }
+
+    @Override
+    public List<V> findExact(final K key) {
+        Validate.notNull(key);
+        final Node<K, V> node = findExactNode(root, key);
+        return node == null ? Collections.<V>emptyList() : Collections.singletonList(node.value);
+    }
+
+    @Override
+    public List<V> findExactOrFirstLessSpecific(final K key) {
+        Validate.notNull(key);
+        final Node<K, V> node = findExactOrFirstLessSpecificNode(root, key);
+        return node == null ? Collections.<V>emptyList() : Collections.singletonList(node.value);
+    }
+
+    @Override
+    public List<V> findAllLessSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(findAllLessSpecificNodes(root, key));
+    }
+
+    @Override
+    public List<V> findExactAndAllLessSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(findExactAndAllLessSpecificNodes(root, key));
+    }
+
+    @Override
+    public List<V> findFirstMoreSpecific(final K key) {
+        Validate.notNull(key);
+        final List<Node<K, V>> result = new ArrayList<>();
+        final Node<K, V> container = findExactOrFirstLessSpecificNode(root, key);
+        (container == null ? root : container).findFirstMoreSpecific(result, key);
+        return mapToValues(result);
+    }
+
+    @Override
+    public List<V> findAllMoreSpecific(final K key) {
+        Validate.notNull(key);
+        final List<Node<K, V>> result = findExactAndAllMoreSpecificNodes(key);
+        if (!result.isEmpty() && result.get(0).interval.equals(key)) {
+            return mapToValues(result.subList(1, result.size()));
+        }
+        return mapToValues(result);
+    }
+
+    @Override
+    public List<V> findExactAndAllMoreSpecific(final K key) {
+        Validate.notNull(key);
+        return mapToValues(findExactAndAllMoreSpecificNodes(key));
+    }
+
+    @Override
+    public String toString() {
+        return root.children.values().toString();
+    }
+
+    private List<Node<K, V>> findExactAndAllMoreSpecificNodes(final K key) {
+        final List<Node<K, V>> result = new ArrayList<>();
+        final Node<K, V> containing = findExactOrFirstLessSpecificNode(root, key);
+        if (containing == null) {
+            root.findExactAndAllMoreSpecific(result, key);
+        } else {
+            if (containing.interval.equals(key)) {
+                result.add(containing);
+            }
+            containing.findExactAndAllMoreSpecific(result, key);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> findExactAndAllLessSpecificNodes(final Node<K, V> root, final K key) {
+        final List<Node<K, V>> result = new ArrayList<>();
+        for (Node<K, V> node = root.getChildContaining(key); node != null; node = node.getChildContaining(key)) {
+            result.add(node);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> List<Node<K, V>> findAllLessSpecificNodes(final Node<K, V> root, final K key) {
+        final List<Node<K, V>> result = findExactAndAllLessSpecificNodes(root, key);
+        if (!result.isEmpty() && result.get(result.size() - 1).interval.equals(key)) {
+            return result.subList(0, result.size() - 1);
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> Node<K, V> findExactOrFirstLessSpecificNode(final Node<K, V> root, final K key) {
+        Node<K, V> result = null;
+        for (Node<K, V> node = root.getChildContaining(key); node != null; node = node.getChildContaining(key)) {
+            result = node;
+        }
+        return result;
+    }
+
+    private static <K extends Interval<K>, V> Node<K, V> findExactNode(final Node<K, V> root, final K key) {
+        final Node<K, V> node = findExactOrFirstLessSpecificNode(root, key);
+        return node != null && node.interval.equals(key) ? node : null;
+    }
+
+    private static <K extends Interval<K>, V> List<V> mapToValues(final List<Node<K, V>> nodes) {
+        final List<V> result = new ArrayList<>(nodes.size());
+        for (final Node<K, V> node : nodes) {
+            result.add(node.value);
+        }
+        return result;
+    }
+
+    /**
+     * Derives a new {@link ImmutableNestedIntervalMap} from an existing one.
+     * <p/>
+     * Nodes copied by this builder are owned by it and are modified in place until {@link #build()}
+     * is called, so a batch of changes to the same part of the tree only copies that part once.
+     */
+    public static final class Builder<K extends Interval<K>, V> implements IntervalMapBuilder<K, V> {
+        private Object owner = new Object();
+        private Node<K, V> root;
+
+        /*
+         * Nodes on the path from the root to the last interval appended, all owned by this builder. Intervals put
+         * in sorted order (lower-bound ascending, upper-bound descending) are appended to a node on this path.
+         */
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        private Builder(final Node<K, V> root) {
+            this.root = root;
+        }
+
+        @Override
+        public Builder<K, V> put(final K key, final V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+
+            root = editable(root);
+            if (putAfterPrevious(key, value)) {
+                return this;
+            }
+
+            path.clear();
+            Node<K, V> parent = root;
+            for (Node<K, V> child = parent.getChildContaining(key); child != null; child = parent.getChildContaining(key)) {
+                final Node<K, V> editableChild = editable(child);
+                if (editableChild != child) {
+                    parent.children.put(editableChild.interval, editableChild);
+                }
+
+                if (editableChild.interval.equals(key)) {
+                    editableChild.value = value;
+                    return this;
+                }
+
+                parent = editableChild;
+            }
+
+            parent.addChild(new Node<>(key, value, Node.<K, V>emptyChildren(), owner));
+            return this;
+        }
+
+        /*
+         * Appends the interval to the closest enclosing node on the path of the previous put, if it comes after all
+         * its children. This saves looking up the parent from the root when intervals are put in sorted order.
+         *
+         * @return false if the interval has to be added in the regular way
+         */
+        private boolean putAfterPrevious(final K key, final V value) {
+            while (!path.isEmpty() && !path.peekLast().interval.contains(key)) {
+                path.removeLast();
+            }
+
+            Node<K, V> parent = path.isEmpty() ? root : path.peekLast();
+            for (Node<K, V> last = parent.lastChild(); last != null && last.interval.contains(key); last = parent.lastChild()) {
+                if (last.owner != owner) {
+                    return false;
+                }
+                path.addLast(last);
+                parent = last;
+            }
+
+            if (parent != root && parent.interval.equals(key)) {
+                parent.value = value;
+                return true;
+            }
+
+            final Node<K, V> last = parent.lastChild();
+            if (last != null && last.interval.compareUpperBound(key.singletonIntervalAtLowerBound()) >= 0) {
+                return false;
+            }
+
+            final Node<K, V> node = new Node<>(key, value, Node.<K, V>emptyChildren(), owner);
+            parent.appendChild(node);
+            path.addLast(node);
+            return true;
+        }
+
+        /**
+         * @see IntervalMap#remove(Interval)
+         */
+        public Builder<K, V> remove(final K key) {
+            Validate.notNull(key);
+            path.clear();
+
+            if (findExactNode(root, key) == null) {
+                return this;
+            }
+
+            root = editable(root);
+            Node<K, V> parent = root;
+            while (true) {
+                final Node<K, V> child = parent.getChildContaining(key);
+
+                if (child.interval.equals(key)) {
+                    parent.children.remove(child.interval);
+                    parent.children.putAll(child.children);
+                    return this;
+                }
+
+                final Node<K, V> editableChild = editable(child);
+                if (editableChild != child) {
+                    parent.children.put(editableChild.interval, editableChild);
+                }
+
+                parent = editableChild;
+            }
+        }
+
+        @Override
+        public Builder<K, V> remove(final K key, final V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+
+            final Node<K, V> node = findExactNode(root, key);
+            if (node != null && value.equals(node.value)) {
+                remove(key);
+            }
+
+            return this;
+        }
+
+        /**
+         * @see IntervalMap#findExact(Interval)
+         */
+        public List<V> findExact(final K key) {
+            Validate.notNull(key);
+            final Node<K, V> node = findExactNode(root, key);
+            return node == null ? Collections.<V>emptyList() : Collections.singletonList(node.value);
+        }
+
+        @Override
+        public ImmutableNestedIntervalMap<K, V> build() {
+            // nodes owned by this builder are now shared with the built map, and must be copied on the next change
+            owner = new Object();
+            path.clear();
+            return new ImmutableNestedIntervalMap<>(root);
+        }
+
+        private Node<K, V> editable(final Node<K, V> node) {
+            if (node.owner == owner) {
+                return node;
+            }
+
+            return new Node<>(node.interval, node.value, node.children == Node.EMPTY ? node.children : new TreeMap<K, Node<K, V>>(node.children), owner);
+        }
+    }
+
+    /*
+     * Child nodes are ordered by the upper-bound of their interval, in the same way as ChildNodeTreeMap.
+     * A node is only ever modified by the builder that owns it, and never after it has been built into a map.
+     */
+    private static final class Node<K extends Interval<K>, V> {
+        @SuppressWarnings("rawtypes")
+        private static final Comparator<Interval> UPPER_BOUND_COMPARATOR = new Comparator<Interval>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public int compare(final Interval o1, final Interval o2) {
+                return o1.compareUpperBound(o2);
+            }
+        };
+
+        /*
+         * Shared, never modified, instance for nodes without children.
+         */
+        @SuppressWarnings("rawtypes")
+        private static final TreeMap EMPTY = new TreeMap<>(UPPER_BOUND_COMPARATOR);
+
+        private final K interval;
+        private V value;
+        private TreeMap<K, Node<K, V>> children;
+        private final Object owner;
+
+        private Node(final K interval, final V value, final TreeMap<K, Node<K, V>> children, final Object owner) {
+            this.interval = interval;
+            this.value = value;
+            this.children = children;
+            this.owner = owner;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K extends Interval<K>, V> TreeMap<K, Node<K, V>> emptyChildren() {
+            return (TreeMap<K, Node<K, V>>) EMPTY;
+        }
+
+        private Node<K, V> getChildContaining(final K range) {
+            final Map.Entry<K, Node<K, V>> entry = children.ceilingEntry(range.singletonIntervalAtLowerBound());
+            if (entry != null && entry.getKey().contains(range)) {
+                return entry.getValue();
+            }
+            return null;
+        }
+
+        private Node<K, V> lastChild() {
+            return children.isEmpty() ? null : children.lastEntry().getValue();
+        }
+
+        /*
+         * Adds a node that comes after all children, and does not intersect any of them.
+         */
+        private void appendChild(final Node<K, V> nodeToAdd) {
+            if (children == EMPTY) {
+                children = new TreeMap<>(UPPER_BOUND_COMPARATOR);
+            }
+            children.put(nodeToAdd.interval, nodeToAdd);
+        }
+
+        private void addChild(final Node<K, V> nodeToAdd) {
+            final K range = nodeToAdd.interval;
+
+            List<K> intersections = Collections.emptyList();
+            final K lowerCandidate = children.ceilingKey(range.singletonIntervalAtLowerBound());
+            if (lowerCandidate != null && intersectsButNotContained(range, lowerCandidate)) {
+                intersections = new ArrayList<>(intersections);
+                intersections.add(lowerCandidate);
+            }
+            final K upperCandidate = children.ceilingKey(range);
+            if (upperCandidate != null && intersectsButNotContained(range, upperCandidate)) {
+                intersections = new ArrayList<>(intersections);
+                intersections.add(upperCandidate);
+            }
+            if (!intersections.isEmpty()) {
+                throw new IntersectingIntervalException(range, intersections);
+            }
+
+            if (children == EMPTY) {
+                children = new TreeMap<>(UPPER_BOUND_COMPARATOR);
+            }
+
+            for (final Iterator<Node<K, V>> it = children.tailMap(range.singletonIntervalAtLowerBound()).values().iterator(); it.hasNext(); ) {
+                final Node<K, V> child = it.next();
+                if (!range.contains(child.interval)) {
+                    break;
+                }
+
+                if (nodeToAdd.children == EMPTY) {
+                    nodeToAdd.children = new TreeMap<>(UPPER_BOUND_COMPARATOR);
+                }
+                nodeToAdd.children.put(child.interval, child);
+                it.remove();
+            }
+
+            children.put(range, nodeToAdd);
+        }
+
+        private void findExactAndAllMoreSpecific(final List<Node<K, V>> result, final K range) {
+            for (final Node<K, V> child : children.tailMap(range.singletonIntervalAtLowerBound()).values()) {
+                if (range.contains(child.interval)) {
+                    result.add(child);
+                    child.addAllChildrenToList(result);
+                } else if (range.intersects(child.interval)) {
+                    child.findExactAndAllMoreSpecific(result, range);
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private void findFirstMoreSpecific(final List<Node<K, V>> result, final K range) {
+            for (final Node<K, V> child : children.tailMap(range.singletonIntervalAtLowerBound()).values()) {
+                if (range.contains(child.interval)) {
+                    result.add(child);
+                } else if (range.intersects(child.interval)) {
+                    child.findFirstMoreSpecific(result, range);
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private void addAllChildrenToList(final List<Node<K, V>> result) {
+            for (final Node<K, V> child : children.values()) {
+                result.add(child);
+                child.addAllChildrenToList(result);
+            }
+        }
+
+        private static <K extends Interval<K>> boolean intersectsButNotContained(final K left, final K right) {
+            return left.intersects(right) && !left.contains(right) && !right.contains(left);
+        }
+
+        @Override
+        public String toString() {
+            return "Node(" + interval + ", " + value + ", " + children.values() + ")";
+        }
+    }
+}
@@ -71,6 +71,13 @@ final class InternalNode<K extends Interval<K>, V> {
         }
     }
 
+    void appendChild(InternalNode<K, V> nodeToAdd) {
+        if (children == ChildNodeTreeMap.EMPTY) {
+            children = new ChildNodeTreeMap<>();
+        }
+        children.appendChild(nodeToAdd);
+    }
+
     public void removeChild(K range) {
         if (!interval.contains(range) || interval.equals(range)) {
             throw new IllegalArgumentException(range + " not properly contained in " + interval);
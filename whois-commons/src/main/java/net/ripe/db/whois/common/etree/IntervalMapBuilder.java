@@ -0,0 +1,30 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Interval;
+
+/**
+ * Collects changes for an {@link ImmutableIntervalMap} and produces a new version of that map.
+ * <p/>
+ * A builder is not thread safe, but the maps it builds are. Changes made after {@link #build()}
+ * never affect maps that have already been built.
+ *
+ * @param <K> the type of the interval (must implement {@link Interval}).
+ * @param <V> the type of the values to store.
+ */
+public interface IntervalMapBuilder<K extends Interval<K>, V> {
+
+    /**
+     * @see IntervalMap#put(Interval, Object)
+     */
+    IntervalMapBuilder<K, V> put(K key, V value);
+
+    /**
+     * @see IntervalMap#remove(Interval, Object)
+     */
+    IntervalMapBuilder<K, V> remove(K key, V value);
+
+    /**
+     * @return an immutable map containing all changes made so far
+     */
+    ImmutableIntervalMap<K, V> build();
+}
@@ -50,7 +50,7 @@ public final class MultiValueIntervalMap<K extends Interval<K>, V> implements In
         wrapped.clear();
     }
 
-    private static <V> List<V> unroll(final List<SortedSet<V>> sets) {
+    static <V> List<V> unroll(final List<SortedSet<V>> sets) {
         int size = 0;
         for (final SortedSet<V> set : sets) {
             size += set.size();
@@ -5,10 +5,14 @@ import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.ip.Interval;
 import org.apache.commons.lang.Validate;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -47,6 +51,23 @@ public final class NestedIntervalMap<K extends Interval<K>, V> implements Interv
         this.children = new ChildNodeTreeMap<>(source.children);
     }
 
+    /**
+     * Construct a new {@link NestedIntervalMap} from entries sorted on lower-bound ascending and upper-bound
+     * descending, so every interval comes before the intervals nested in it.
+     *
+     * @param entries the entries to add.
+     * @throws IntersectingIntervalException if an interval intersects an interval added before it.
+     * @see SortedBuilder
+     */
+    public static <K extends Interval<K>, V> NestedIntervalMap<K, V> bulkLoad(Iterator<? extends Map.Entry<K, V>> entries) {
+        SortedBuilder<K, V> builder = new SortedBuilder<>();
+        while (entries.hasNext()) {
+            Map.Entry<K, V> entry = entries.next();
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
     @Override
     public void put(K key, V value) {
         Validate.notNull(key);
@@ -249,6 +270,69 @@ public final class NestedIntervalMap<K extends Interval<K>, V> implements Interv
         return result;
     }
 
+    /**
+     * Builds a {@link NestedIntervalMap} from entries sorted on lower-bound ascending and upper-bound descending.
+     * <p/>
+     * The builder keeps the path to the last interval added. An interval that comes after the previous one is
+     * appended to the children of its closest enclosing interval on that path, without descending the tree from
+     * the root or checking for intersections. Intervals out of order are added like {@link #put(Interval, Object)}
+     * does, so the result is the same for any input order, only slower.
+     */
+    public static final class SortedBuilder<K extends Interval<K>, V> {
+        private final NestedIntervalMap<K, V> map = new NestedIntervalMap<>();
+        private final Deque<InternalNode<K, V>> path = new ArrayDeque<>();
+
+        /**
+         * @throws IntersectingIntervalException if the interval intersects an interval already added; the builder
+         *                                       can still be used.
+         */
+        public SortedBuilder<K, V> put(K key, V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+
+            while (!path.isEmpty() && !path.peekLast().getInterval().contains(key)) {
+                path.removeLast();
+            }
+
+            InternalNode<K, V> last = lastChild();
+            while (last != null && last.getInterval().contains(key)) {
+                path.addLast(last);
+                last = lastChild();
+            }
+
+            InternalNode<K, V> node = new InternalNode<>(key, value);
+            InternalNode<K, V> parent = path.peekLast();
+            if (parent != null && parent.getInterval().equals(key)) {
+                parent.addChild(node);
+            } else if (last == null || last.getInterval().compareUpperBound(key.singletonIntervalAtLowerBound()) < 0) {
+                if (parent == null) {
+                    map.children.appendChild(node);
+                } else {
+                    parent.appendChild(node);
+                }
+                path.addLast(node);
+            } else if (parent == null) {
+                map.children.addChild(node);
+            } else {
+                parent.addChild(node);
+            }
+
+            return this;
+        }
+
+        /**
+         * @return the map; the builder must not be used afterwards.
+         */
+        public NestedIntervalMap<K, V> build() {
+            path.clear();
+            return map;
+        }
+
+        private InternalNode<K, V> lastChild() {
+            return path.isEmpty() ? map.children.lastChild() : path.peekLast().getChildren().lastChild();
+        }
+    }
+
     public abstract static class Key<K extends Interval<K>> {
         private final K key;
 
@@ -0,0 +1,384 @@
+package net.ripe.db.whois.common.etree;
+
+import com.google.common.primitives.ImmutableIntArray;
+import org.apache.commons.lang.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Compact, immutable index of nested intervals with primitive bounds and an <code>int</code> value per interval.
+ * <p/>
+ * Intervals are kept in flat arrays, ordered on lower-bound ascending and upper-bound descending, so every
+ * interval is directly followed by the intervals nested inside it. For each interval the position of its closest
+ * enclosing interval and the end of its nested range are stored as well. This is enough to answer the same
+ * questions as {@link NestedIntervalMap}, without any objects per interval.
+ * <p/>
+ * Bounds are unsigned and made up of <code>width</code> longs each, most significant first (e.g. one long for IPv4,
+ * two for IPv6). Bounds passed to the query methods must be arrays of exactly <code>width</code> longs.
+ * Query methods return positions in the index, use {@link #value(int)}, {@link #begin(int, int)} and
+ * {@link #end(int, int)} to get the value and bounds at a position.
+ */
+public final class PrimitiveIntervalIndex {
+    private final int width;
+    private final int size;
+    private final long[] begins;
+    private final long[] ends;
+    private final int[] values;
+    private final int[] parents;
+    private final int[] nestedEnds;
+
+    private PrimitiveIntervalIndex(final int width, final int size, final long[] begins, final long[] ends, final int[] values, final int[] parents, final int[] nestedEnds) {
+        this.width = width;
+        this.size = size;
+        this.begins = begins;
+        this.ends = ends;
+        this.values = values;
+        this.parents = parents;
+        this.nestedEnds = nestedEnds;
+    }
+
+    public static PrimitiveIntervalIndex empty(final int width) {
+        return new PrimitiveIntervalIndex(width, 0, new long[0], new long[0], new int[0], new int[0], new int[0]);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int value(final int position) {
+        return values[position];
+    }
+
+    public long begin(final int position, final int part) {
+        return begins[position * width + part];
+    }
+
+    public long end(final int position, final int part) {
+        return ends[position * width + part];
+    }
+
+    /**
+     * @return position of the closest interval enclosing the interval at <code>position</code>, or -1 if there is none
+     */
+    public int parent(final int position) {
+        return parents[position];
+    }
+
+    /**
+     * @return the order of the interval at <code>position</code> relative to the given interval, negative if it sorts before
+     */
+    public int compareTo(final int position, final long[] begin, final long[] end) {
+        return compareOrder(position, begin, end);
+    }
+
+    public boolean isExact(final int position, final long[] begin, final long[] end) {
+        return compare(begins, position, begin) == 0 && compare(ends, position, end) == 0;
+    }
+
+    /**
+     * @return position of the given interval, or of the closest interval containing it, or -1 if there is none
+     */
+    public int findExactOrFirstLessSpecific(final long[] begin, final long[] end) {
+        int position = lastNotAfter(begin, end);
+        while (position >= 0 && !contains(position, begin, end)) {
+            position = parents[position];
+        }
+        return position;
+    }
+
+    /**
+     * @return positions of the given interval and all intervals nested inside it, ordered from least specific to most specific
+     */
+    public ImmutableIntArray findExactAndAllMoreSpecific(final long[] begin, final long[] end) {
+        final ImmutableIntArray.Builder result = ImmutableIntArray.builder();
+        for (int position = firstNotBefore(begin, end); position < size && compare(begins, position, end) <= 0; position++) {
+            if (compare(ends, position, end) <= 0) {
+                result.add(position);
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * @return positions of the intervals nested inside the given interval, but not nested in any of the other results
+     */
+    public ImmutableIntArray findFirstMoreSpecific(final long[] begin, final long[] end) {
+        final ImmutableIntArray.Builder result = ImmutableIntArray.builder();
+
+        int position = firstNotBefore(begin, end);
+        if (position < size && isExact(position, begin, end)) {
+            position++;
+        }
+
+        while (position < size && compare(begins, position, end) <= 0) {
+            if (compare(ends, position, end) <= 0) {
+                result.add(position);
+                position = nestedEnds[position];
+            } else {
+                position++;
+            }
+        }
+
+        return result.build();
+    }
+
+    private boolean contains(final int position, final long[] begin, final long[] end) {
+        return compare(begins, position, begin) <= 0 && compare(ends, position, end) >= 0;
+    }
+
+    /*
+     * @return last position that sorts before or equal to the given interval, -1 if there is none
+     */
+    private int lastNotAfter(final long[] begin, final long[] end) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (compareOrder(mid, begin, end) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private int firstNotBefore(final long[] begin, final long[] end) {
+        final int position = lastNotAfter(begin, end);
+        return position >= 0 && isExact(position, begin, end) ? position : position + 1;
+    }
+
+    private int compareOrder(final int position, final long[] begin, final long[] end) {
+        final int result = compare(begins, position, begin);
+        return result != 0 ? result : -compare(ends, position, end);
+    }
+
+    private int compare(final long[] bounds, final int position, final long[] bound) {
+        final int offset = position * width;
+        for (int part = 0; part < width; part++) {
+            final int result = Long.compareUnsigned(bounds[offset + part], bound[part]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Notified of intervals left out of the index because they intersect another interval without being nested in it.
+     */
+    public interface IntersectionHandler {
+        /**
+         * @param position         position (in the order added to the builder) of the interval that was left out
+         * @param existingPosition position (in the order added to the builder) of the interval it intersects with
+         */
+        void intersecting(int position, int existingPosition);
+    }
+
+    /**
+     * Collects intervals for a new {@link PrimitiveIntervalIndex}.
+     * <p/>
+     * Intervals can be added in any order, but adding them ordered on lower-bound ascending and upper-bound
+     * descending avoids sorting them when the index is built. If the same interval is added more than once,
+     * the last value added wins.
+     */
+    public static final class Builder {
+        private final int width;
+        private int size;
+        private long[] begins;
+        private long[] ends;
+        private int[] values;
+        private boolean sorted = true;
+
+        public Builder(final int width) {
+            this(width, 16);
+        }
+
+        public Builder(final int width, final int expectedSize) {
+            Validate.isTrue(width > 0, "width must be positive");
+            this.width = width;
+            this.begins = new long[Math.max(expectedSize, 1) * width];
+            this.ends = new long[Math.max(expectedSize, 1) * width];
+            this.values = new int[Math.max(expectedSize, 1)];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long begin(final int position, final int part) {
+            return begins[position * width + part];
+        }
+
+        public long end(final int position, final int part) {
+            return ends[position * width + part];
+        }
+
+        public Builder add(final long[] begin, final long[] end, final int value) {
+            Validate.isTrue(begin.length == width && end.length == width, "bounds must have width ", width);
+
+            ensureCapacity();
+            System.arraycopy(begin, 0, begins, size * width, width);
+            System.arraycopy(end, 0, ends, size * width, width);
+            values[size] = value;
+
+            return added();
+        }
+
+        /**
+         * Adds the interval and value at <code>position</code> in <code>index</code>.
+         */
+        public Builder add(final PrimitiveIntervalIndex index, final int position) {
+            Validate.isTrue(index.width == width, "index must have width ", width);
+
+            ensureCapacity();
+            System.arraycopy(index.begins, position * width, begins, size * width, width);
+            System.arraycopy(index.ends, position * width, ends, size * width, width);
+            values[size] = index.values[position];
+
+            return added();
+        }
+
+        private void ensureCapacity() {
+            if (size == values.length) {
+                final int capacity = size + (size >> 1) + 1;
+                begins = Arrays.copyOf(begins, capacity * width);
+                ends = Arrays.copyOf(ends, capacity * width);
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        private Builder added() {
+            Validate.isTrue(compareBounds(begins, size, ends, size) <= 0, "begin must not be after end");
+            if (sorted && size > 0 && compareOrder(size - 1, size) > 0) {
+                sorted = false;
+            }
+
+            size++;
+            return this;
+        }
+
+        public PrimitiveIntervalIndex build() {
+            return build((position, existingPosition) -> {});
+        }
+
+        /**
+         * Builds the index, leaving out intervals that intersect an interval before them in sort order without being
+         * nested in it. The builder can no longer be used afterwards.
+         */
+        public PrimitiveIntervalIndex build(final IntersectionHandler intersectionHandler) {
+            final int[] order = sortedOrder();
+
+            final long[] resultBegins = new long[size * width];
+            final long[] resultEnds = new long[size * width];
+            final int[] resultValues = new int[size];
+            final int[] resultParents = new int[size];
+            final int[] resultNestedEnds = new int[size];
+            final int[] resultOrigins = new int[size];
+
+            final int[] stack = new int[size];
+            int depth = 0;
+            int count = 0;
+
+            for (final int position : order) {
+                while (depth > 0 && compareBounds(resultEnds, stack[depth - 1], begins, position) < 0) {
+                    resultNestedEnds[stack[--depth]] = count;
+                }
+
+                int parent = -1;
+                if (depth > 0) {
+                    parent = stack[depth - 1];
+                    if (compareBounds(resultBegins, parent, begins, position) == 0 && compareBounds(resultEnds, parent, ends, position) == 0) {
+                        resultValues[parent] = values[position];
+                        continue;
+                    }
+                    if (compareBounds(resultEnds, parent, ends, position) < 0) {
+                        intersectionHandler.intersecting(position, resultOrigins[parent]);
+                        continue;
+                    }
+                }
+
+                System.arraycopy(begins, position * width, resultBegins, count * width, width);
+                System.arraycopy(ends, position * width, resultEnds, count * width, width);
+                resultValues[count] = values[position];
+                resultParents[count] = parent;
+                resultOrigins[count] = position;
+                stack[depth++] = count;
+                count++;
+            }
+
+            while (depth > 0) {
+                resultNestedEnds[stack[--depth]] = count;
+            }
+
+            if (count == size) {
+                return new PrimitiveIntervalIndex(width, count, resultBegins, resultEnds, resultValues, resultParents, resultNestedEnds);
+            }
+
+            return new PrimitiveIntervalIndex(width, count,
+                    Arrays.copyOf(resultBegins, count * width),
+                    Arrays.copyOf(resultEnds, count * width),
+                    Arrays.copyOf(resultValues, count),
+                    Arrays.copyOf(resultParents, count),
+                    Arrays.copyOf(resultNestedEnds, count));
+        }
+
+        private int[] sortedOrder() {
+            final int[] order = new int[size];
+            for (int position = 0; position < size; position++) {
+                order[position] = position;
+            }
+
+            if (!sorted) {
+                mergeSort(order, new int[size], 0, size);
+            }
+
+            return order;
+        }
+
+        // stable, so the last value added for the same interval ends up last
+        private void mergeSort(final int[] order, final int[] buffer, final int from, final int to) {
+            if (to - from < 2) {
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            mergeSort(order, buffer, from, middle);
+            mergeSort(order, buffer, middle, to);
+
+            if (compareOrder(order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int index = from; index < to; index++) {
+                if (right >= to || (left < middle && compareOrder(buffer[left], buffer[right]) <= 0)) {
+                    order[index] = buffer[left++];
+                } else {
+                    order[index] = buffer[right++];
+                }
+            }
+        }
+
+        private int compareOrder(final int left, final int right) {
+            final int result = compareBounds(begins, left, begins, right);
+            return result != 0 ? result : compareBounds(ends, right, ends, left);
+        }
+
+        private int compareBounds(final long[] left, final int leftPosition, final long[] right, final int rightPosition) {
+            for (int part = 0; part < width; part++) {
+                final int result = Long.compareUnsigned(left[leftPosition * width + part], right[rightPosition * width + part]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+    }
+}
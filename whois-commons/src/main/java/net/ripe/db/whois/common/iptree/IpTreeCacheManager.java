@@ -1,15 +1,18 @@
 package net.ripe.db.whois.common.iptree;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.etree.IntersectingIntervalException;
+import net.ripe.db.whois.common.etree.ImmutableIntervalMap;
+import net.ripe.db.whois.common.etree.ImmutableMultiValueIntervalMap;
+import net.ripe.db.whois.common.etree.ImmutableNestedIntervalMap;
 import net.ripe.db.whois.common.etree.IntervalMap;
-import net.ripe.db.whois.common.etree.MultiValueIntervalMap;
-import net.ripe.db.whois.common.etree.NestedIntervalMap;
-import net.ripe.db.whois.common.etree.SynchronizedIntervalMap;
+import net.ripe.db.whois.common.etree.IntervalMapBuilder;
 import net.ripe.db.whois.common.ip.Interval;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.ip.Ipv6Resource;
@@ -21,8 +24,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
@@ -31,6 +36,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 
 import static net.ripe.db.whois.common.domain.serials.Operation.UPDATE;
@@ -44,14 +54,24 @@ import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE6;
 @Component
 public class IpTreeCacheManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(IpTreeCacheManager.class);
+    private static final Splitter COMMA_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
+    private static final int REBUILD_THREADS = 5;
 
     private final JdbcTemplate jdbcTemplate;
     private final SourceContext sourceContext;
+    private final Set<CIString> primitiveSources;
+    private final IpTreeSnapshots ipTreeSnapshots;
 
     @Autowired
-    public IpTreeCacheManager(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final SourceContext sourceContext) {
+    public IpTreeCacheManager(
+            @Qualifier("sourceAwareDataSource") final DataSource dataSource,
+            final SourceContext sourceContext,
+            @Value("${iptree.primitive.sources:}") final String primitiveSources,
+            final IpTreeSnapshots ipTreeSnapshots) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.sourceContext = sourceContext;
+        this.primitiveSources = CIString.ciSet(COMMA_SPLITTER.split(primitiveSources));
+        this.ipTreeSnapshots = ipTreeSnapshots;
     }
 
     private static final class IpTreeUpdate {
@@ -76,27 +96,76 @@ public class IpTreeCacheManager {
     private static final class CacheEntry {
         final SourceConfiguration sourceConfiguration;
         final Semaphore updateLock = new Semaphore(1);
-        NestedIntervalMaps nestedIntervalMaps = new NestedIntervalMaps();
+        final NestedIntervalMaps empty;
+        volatile NestedIntervalMaps nestedIntervalMaps;
+        long snapshotSerial = Long.MIN_VALUE;
 
-        private CacheEntry(final SourceConfiguration sourceConfiguration) {
+        private CacheEntry(final SourceConfiguration sourceConfiguration, final boolean primitive) {
             this.sourceConfiguration = sourceConfiguration;
+            this.empty = primitive ? NestedIntervalMaps.EMPTY_PRIMITIVE : NestedIntervalMaps.EMPTY;
+            this.nestedIntervalMaps = empty;
         }
     }
 
-    static class NestedIntervalMaps {
-        final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4TreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>());
-        final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6TreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv6Resource, Ipv6Entry>());
-        final IntervalMap<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache = SynchronizedIntervalMap.synchronizedMap(new MultiValueIntervalMap<Ipv4Resource, Ipv4RouteEntry>());
-        final IntervalMap<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache = SynchronizedIntervalMap.synchronizedMap(new MultiValueIntervalMap<Ipv6Resource, Ipv6RouteEntry>());
-        final IntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv4Resource, Ipv4Entry>());
-        final IntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache = SynchronizedIntervalMap.synchronizedMap(new NestedIntervalMap<Ipv6Resource, Ipv6Entry>());
+    /**
+     * Immutable snapshot of the trees for a single source. Readers use a snapshot without locking,
+     * updates derive the next snapshot (sharing unchanged trees, and all unchanged nodes of changed trees) and publish
+     * it in the {@link CacheEntry}.
+     * <p/>
+     * For sources listed in <code>iptree.primitive.sources</code> the inetnum, inet6num and domain trees are
+     * {@link PrimitiveIntervalMap}s, which take far less memory but copy the whole tree on every update.
+     */
+    static final class NestedIntervalMaps {
+        static final NestedIntervalMaps EMPTY = new NestedIntervalMaps(
+                ImmutableNestedIntervalMap.<Ipv4Resource, Ipv4Entry>of(),
+                ImmutableNestedIntervalMap.<Ipv6Resource, Ipv6Entry>of(),
+                ImmutableMultiValueIntervalMap.<Ipv4Resource, Ipv4RouteEntry>of(),
+                ImmutableMultiValueIntervalMap.<Ipv6Resource, Ipv6RouteEntry>of(),
+                ImmutableNestedIntervalMap.<Ipv4Resource, Ipv4Entry>of(),
+                ImmutableNestedIntervalMap.<Ipv6Resource, Ipv6Entry>of(),
+                Long.MIN_VALUE);
+
+        static final NestedIntervalMaps EMPTY_PRIMITIVE = new NestedIntervalMaps(
+                PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV4),
+                PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV6),
+                ImmutableMultiValueIntervalMap.<Ipv4Resource, Ipv4RouteEntry>of(),
+                ImmutableMultiValueIntervalMap.<Ipv6Resource, Ipv6RouteEntry>of(),
+                PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV4),
+                PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV6),
+                Long.MIN_VALUE);
+
+        final ImmutableIntervalMap<Ipv4Resource, Ipv4Entry> ipv4TreeCache;
+        final ImmutableIntervalMap<Ipv6Resource, Ipv6Entry> ipv6TreeCache;
+        final ImmutableMultiValueIntervalMap<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache;
+        final ImmutableMultiValueIntervalMap<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache;
+        final ImmutableIntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache;
+        final ImmutableIntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache;
+
+        final long lastSerial;
+
+        private NestedIntervalMaps(
+                final ImmutableIntervalMap<Ipv4Resource, Ipv4Entry> ipv4TreeCache,
+                final ImmutableIntervalMap<Ipv6Resource, Ipv6Entry> ipv6TreeCache,
+                final ImmutableMultiValueIntervalMap<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache,
+                final ImmutableMultiValueIntervalMap<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache,
+                final ImmutableIntervalMap<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache,
+                final ImmutableIntervalMap<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache,
+                final long lastSerial) {
+            this.ipv4TreeCache = ipv4TreeCache;
+            this.ipv6TreeCache = ipv6TreeCache;
+            this.ipv4RouteTreeCache = ipv4RouteTreeCache;
+            this.ipv6RouteTreeCache = ipv6RouteTreeCache;
+            this.ipv4DomainTreeCache = ipv4DomainTreeCache;
+            this.ipv6DomainTreeCache = ipv6DomainTreeCache;
+            this.lastSerial = lastSerial;
+        }
 
-        volatile long lastSerial = Long.MIN_VALUE;
+        NestedIntervalMaps update(final Iterable<IpTreeUpdate> updates, final long lastSerial, final CacheEntry cacheEntry) {
+            final Builder builder = new Builder(this);
 
-        void update(final Iterable<IpTreeUpdate> updates, final long lastSerial, final CacheEntry cacheEntry) {
             for (final IpTreeUpdate ipTreeUpdate : updates) {
                 try {
-                    update(ipTreeUpdate);
+                    builder.update(ipTreeUpdate);
                 } catch (IntersectingIntervalException e) {
                     LOGGER.info("Skipping intersecting entry in {}: {}", cacheEntry.sourceConfiguration.getSource(), e.getMessage());
                 } catch (RuntimeException e) {
@@ -104,52 +173,7 @@ public class IpTreeCacheManager {
                 }
             }
 
-            this.lastSerial = lastSerial;
-        }
-
-        private void update(final IpTreeUpdate ipTreeUpdate) {
-            switch (ipTreeUpdate.objectType) {
-                case INETNUM:
-                    update(ipv4TreeCache, new Ipv4Entry(Ipv4Resource.parse(ipTreeUpdate.pkey), ipTreeUpdate.objectId), ipTreeUpdate.operation);
-                    break;
-                case INET6NUM:
-                    update(ipv6TreeCache, new Ipv6Entry(Ipv6Resource.parse(ipTreeUpdate.pkey), ipTreeUpdate.objectId), ipTreeUpdate.operation);
-                    break;
-                case ROUTE:
-                    update(ipv4RouteTreeCache, Ipv4RouteEntry.parse(ipTreeUpdate.pkey, ipTreeUpdate.objectId), ipTreeUpdate.operation);
-                    break;
-                case ROUTE6:
-                    update(ipv6RouteTreeCache, Ipv6RouteEntry.parse(ipTreeUpdate.pkey, ipTreeUpdate.objectId), ipTreeUpdate.operation);
-                    break;
-                case DOMAIN:
-                    final Domain domain = Domain.parse(ipTreeUpdate.pkey);
-                    switch (domain.getType()) {
-                        case INADDR:
-                            update(ipv4DomainTreeCache, new Ipv4Entry((Ipv4Resource) domain.getReverseIp(), ipTreeUpdate.objectId), ipTreeUpdate.operation);
-                            break;
-                        case IP6:
-                            update(ipv6DomainTreeCache, new Ipv6Entry((Ipv6Resource) domain.getReverseIp(), ipTreeUpdate.objectId), ipTreeUpdate.operation);
-                            break;
-                        default:
-                            LOGGER.debug("Ignoring domain: {}", domain.getValue());
-                            break;
-                    }
-
-                    break;
-                default:
-                    throw new IllegalArgumentException(String.format("Unexpected object type: %s", ipTreeUpdate.objectType));
-            }
-        }
-
-        <K extends Interval<K>, V extends IpEntry<K>> void update(final IntervalMap<K, V> intervalMap, final V ipEntry, final Operation operation) {
-            switch (operation) {
-                case UPDATE:
-                    intervalMap.put(ipEntry.getKey(), ipEntry);
-                    break;
-
-                case DELETE:
-                    intervalMap.remove(ipEntry.getKey(), ipEntry);
-            }
+            return builder.build(lastSerial);
         }
 
         IntervalMap<Ipv4Resource, Ipv4Entry> getIpv4TreeCache() {
@@ -175,20 +199,185 @@ public class IpTreeCacheManager {
         IntervalMap<Ipv6Resource, Ipv6Entry> getIpv6DomainTreeCache() {
             return ipv6DomainTreeCache;
         }
+
+        /**
+         * Derives the next snapshot. Only the trees that are changed get a builder, the other trees are shared as is.
+         * Each tree is only accessed by one thread at a time.
+         */
+        static final class Builder {
+            private final NestedIntervalMaps base;
+            private IntervalMapBuilder<Ipv4Resource, Ipv4Entry> ipv4TreeCache;
+            private IntervalMapBuilder<Ipv6Resource, Ipv6Entry> ipv6TreeCache;
+            private ImmutableMultiValueIntervalMap.Builder<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache;
+            private ImmutableMultiValueIntervalMap.Builder<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache;
+            private IntervalMapBuilder<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache;
+            private IntervalMapBuilder<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache;
+
+            Builder(final NestedIntervalMaps nestedIntervalMaps) {
+                this.base = nestedIntervalMaps;
+            }
+
+            IntervalMapBuilder<Ipv4Resource, Ipv4Entry> ipv4TreeCache() {
+                if (ipv4TreeCache == null) {
+                    ipv4TreeCache = base.ipv4TreeCache.toBuilder();
+                }
+                return ipv4TreeCache;
+            }
+
+            IntervalMapBuilder<Ipv6Resource, Ipv6Entry> ipv6TreeCache() {
+                if (ipv6TreeCache == null) {
+                    ipv6TreeCache = base.ipv6TreeCache.toBuilder();
+                }
+                return ipv6TreeCache;
+            }
+
+            ImmutableMultiValueIntervalMap.Builder<Ipv4Resource, Ipv4RouteEntry> ipv4RouteTreeCache() {
+                if (ipv4RouteTreeCache == null) {
+                    ipv4RouteTreeCache = base.ipv4RouteTreeCache.toBuilder();
+                }
+                return ipv4RouteTreeCache;
+            }
+
+            ImmutableMultiValueIntervalMap.Builder<Ipv6Resource, Ipv6RouteEntry> ipv6RouteTreeCache() {
+                if (ipv6RouteTreeCache == null) {
+                    ipv6RouteTreeCache = base.ipv6RouteTreeCache.toBuilder();
+                }
+                return ipv6RouteTreeCache;
+            }
+
+            IntervalMapBuilder<Ipv4Resource, Ipv4Entry> ipv4DomainTreeCache() {
+                if (ipv4DomainTreeCache == null) {
+                    ipv4DomainTreeCache = base.ipv4DomainTreeCache.toBuilder();
+                }
+                return ipv4DomainTreeCache;
+            }
+
+            IntervalMapBuilder<Ipv6Resource, Ipv6Entry> ipv6DomainTreeCache() {
+                if (ipv6DomainTreeCache == null) {
+                    ipv6DomainTreeCache = base.ipv6DomainTreeCache.toBuilder();
+                }
+                return ipv6DomainTreeCache;
+            }
+
+            private void update(final IpTreeUpdate ipTreeUpdate) {
+                switch (ipTreeUpdate.objectType) {
+                    case INETNUM:
+                        update(ipv4TreeCache(), new Ipv4Entry(Ipv4Resource.parse(ipTreeUpdate.pkey), ipTreeUpdate.objectId), ipTreeUpdate.operation);
+                        break;
+                    case INET6NUM:
+                        update(ipv6TreeCache(), new Ipv6Entry(Ipv6Resource.parse(ipTreeUpdate.pkey), ipTreeUpdate.objectId), ipTreeUpdate.operation);
+                        break;
+                    case ROUTE:
+                        update(ipv4RouteTreeCache(), Ipv4RouteEntry.parse(ipTreeUpdate.pkey, ipTreeUpdate.objectId), ipTreeUpdate.operation);
+                        break;
+                    case ROUTE6:
+                        update(ipv6RouteTreeCache(), Ipv6RouteEntry.parse(ipTreeUpdate.pkey, ipTreeUpdate.objectId), ipTreeUpdate.operation);
+                        break;
+                    case DOMAIN:
+                        updateDomain(ipTreeUpdate.pkey, ipTreeUpdate.objectId, ipTreeUpdate.operation);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unexpected object type: %s", ipTreeUpdate.objectType));
+                }
+            }
+
+            void updateDomain(final String pkey, final int objectId, final Operation operation) {
+                final Domain domain = Domain.parse(pkey);
+                switch (domain.getType()) {
+                    case INADDR:
+                        update(ipv4DomainTreeCache(), new Ipv4Entry((Ipv4Resource) domain.getReverseIp(), objectId), operation);
+                        break;
+                    case IP6:
+                        update(ipv6DomainTreeCache(), new Ipv6Entry((Ipv6Resource) domain.getReverseIp(), objectId), operation);
+                        break;
+                    default:
+                        LOGGER.debug("Ignoring domain: {}", domain.getValue());
+                        break;
+                }
+            }
+
+            <K extends Interval<K>, V extends IpEntry<K>> void update(final IntervalMapBuilder<K, V> intervalMap, final V ipEntry, final Operation operation) {
+                switch (operation) {
+                    case UPDATE:
+                        intervalMap.put(ipEntry.getKey(), ipEntry);
+                        break;
+
+                    case DELETE:
+                        intervalMap.remove(ipEntry.getKey(), ipEntry);
+                }
+            }
+
+            NestedIntervalMaps build(final long lastSerial) {
+                return new NestedIntervalMaps(
+                        ipv4TreeCache == null ? base.ipv4TreeCache : ipv4TreeCache.build(),
+                        ipv6TreeCache == null ? base.ipv6TreeCache : ipv6TreeCache.build(),
+                        ipv4RouteTreeCache == null ? base.ipv4RouteTreeCache : ipv4RouteTreeCache.build(),
+                        ipv6RouteTreeCache == null ? base.ipv6RouteTreeCache : ipv6RouteTreeCache.build(),
+                        ipv4DomainTreeCache == null ? base.ipv4DomainTreeCache : ipv4DomainTreeCache.build(),
+                        ipv6DomainTreeCache == null ? base.ipv6DomainTreeCache : ipv6DomainTreeCache.build(),
+                        lastSerial);
+            }
+        }
     }
 
-    private final Map<CIString, CacheEntry> cache = Maps.newHashMap();
+    private final Map<CIString, CacheEntry> cache = Maps.newConcurrentMap();
 
     void rebuild(final SourceConfiguration sourceConfiguration) {
+        final CacheEntry cacheEntry = createCacheEntry(sourceConfiguration);
+        rebuild(sourceConfiguration.getJdbcTemplate(), cacheEntry);
+        cache.put(sourceConfiguration.getSource().getName(), cacheEntry);
+    }
+
+    /**
+     * Loads the trees from the latest snapshot and applies the serials after it, or rebuilds the trees if there is
+     * no snapshot that matches the database.
+     */
+    void load(final SourceConfiguration sourceConfiguration) {
+        final CIString source = sourceConfiguration.getSource().getName();
+        final CacheEntry cacheEntry = createCacheEntry(sourceConfiguration);
+        final JdbcTemplate jdbcTemplate = sourceConfiguration.getJdbcTemplate();
+
+        final NestedIntervalMaps snapshot = ipTreeSnapshots.read(source, cacheEntry.empty);
+        if (snapshot == null) {
+            rebuild(jdbcTemplate, cacheEntry);
+        } else if (!isSerialInDatabase(jdbcTemplate, snapshot.lastSerial)) {
+            LOGGER.info("IP tree snapshot for {} at serial {} does not match database, rebuild", source, snapshot.lastSerial);
+            rebuild(jdbcTemplate, cacheEntry);
+        } else {
+            cacheEntry.nestedIntervalMaps = snapshot;
+            cacheEntry.snapshotSerial = snapshot.lastSerial;
+            update(jdbcTemplate, cacheEntry);
+        }
+
+        cache.put(source, cacheEntry);
+    }
+
+    private CacheEntry createCacheEntry(final SourceConfiguration sourceConfiguration) {
         final CIString source = sourceConfiguration.getSource().getName();
         final CacheEntry existingEntry = cache.get(source);
         if (existingEntry != null && !sourceConfiguration.equals(existingEntry.sourceConfiguration)) {
             throw new IllegalArgumentException(String.format("Cannot rebuild %s using different source configuration: %s", existingEntry.sourceConfiguration, sourceConfiguration));
         }
 
-        final CacheEntry cacheEntry = new CacheEntry(sourceConfiguration);
-        rebuild(sourceConfiguration.getJdbcTemplate(), cacheEntry);
-        cache.put(source, cacheEntry);
+        return new CacheEntry(sourceConfiguration, primitiveSources.contains(source));
+    }
+
+    /**
+     * Writes a snapshot of the trees of every source that changed since its last snapshot.
+     * Trees are immutable, so this does not hold up updates. A failed write is retried on the next call.
+     */
+    synchronized void writeSnapshots() {
+        if (!ipTreeSnapshots.isEnabled()) {
+            return;
+        }
+
+        for (final CacheEntry cacheEntry : cache.values()) {
+            final NestedIntervalMaps nestedIntervalMaps = cacheEntry.nestedIntervalMaps;
+            if (nestedIntervalMaps.lastSerial != cacheEntry.snapshotSerial
+                    && ipTreeSnapshots.write(cacheEntry.sourceConfiguration.getSource().getName(), nestedIntervalMaps)) {
+                cacheEntry.snapshotSerial = nestedIntervalMaps.lastSerial;
+            }
+        }
     }
 
     public boolean check(final SourceContext sourceContext) {
@@ -203,12 +392,24 @@ public class IpTreeCacheManager {
         update(sourceConfiguration, this.jdbcTemplate);
     }
 
-    private void update(final SourceConfiguration sourceConfiguration, final JdbcTemplate jdbcTemplate) {
-        final CIString source = sourceConfiguration.getSource().getName();
-        final CacheEntry cacheEntry = cache.get(source);
-        if (cacheEntry == null) {
-            throw new IllegalArgumentException(String.format("No cached ipTree for source: %s", source));
+    /**
+     * Brings the trees up to date with the current transaction. Unlike {@link #updateTransactional}, this waits for an
+     * update in progress on another thread, which can be reading an older serial, and fails if the trees cannot be
+     * updated.
+     */
+    public void updateTransactionalAndWait(final SourceConfiguration sourceConfiguration) {
+        final CacheEntry cacheEntry = getCacheEntry(sourceConfiguration);
+
+        cacheEntry.updateLock.acquireUninterruptibly();
+        try {
+            update(this.jdbcTemplate, cacheEntry);
+        } finally {
+            cacheEntry.updateLock.release();
         }
+    }
+
+    private void update(final SourceConfiguration sourceConfiguration, final JdbcTemplate jdbcTemplate) {
+        final CacheEntry cacheEntry = getCacheEntry(sourceConfiguration);
 
         // don't wait here if other thread is already busy updating the tree
         if (cacheEntry.updateLock.tryAcquire()) {
@@ -222,6 +423,15 @@ public class IpTreeCacheManager {
         }
     }
 
+    private CacheEntry getCacheEntry(final SourceConfiguration sourceConfiguration) {
+        final CIString source = sourceConfiguration.getSource().getName();
+        final CacheEntry cacheEntry = cache.get(source);
+        if (cacheEntry == null) {
+            throw new IllegalArgumentException(String.format("No cached ipTree for source: %s", source));
+        }
+        return cacheEntry;
+    }
+
     private void update(final JdbcTemplate jdbcTemplate, final CacheEntry cacheEntry) {
         final long fromExclusive = cacheEntry.nestedIntervalMaps.lastSerial;
         final long toInclusive = getLastSerial(jdbcTemplate);
@@ -277,7 +487,7 @@ public class IpTreeCacheManager {
                     ObjectTypeIds.getId(DOMAIN)
             );
 
-            cacheEntry.nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
+            cacheEntry.nestedIntervalMaps = cacheEntry.nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
         }
     }
 
@@ -285,12 +495,7 @@ public class IpTreeCacheManager {
         final Map<SourceConfiguration, Long> lastSerials = Maps.newHashMap();
 
         for (final CacheEntry cacheEntry : cache.values()) {
-            cacheEntry.updateLock.acquireUninterruptibly();
-            try {
-                lastSerials.put(cacheEntry.sourceConfiguration, cacheEntry.nestedIntervalMaps.lastSerial);
-            } finally {
-                cacheEntry.updateLock.release();
-            }
+            lastSerials.put(cacheEntry.sourceConfiguration, cacheEntry.nestedIntervalMaps.lastSerial);
         }
 
         return lastSerials;
@@ -308,88 +513,92 @@ public class IpTreeCacheManager {
         return cacheEntry.nestedIntervalMaps;
     }
 
+    /*
+     * Streams the five tables in parallel, each straight into its own tree(s) from the numeric columns.
+     * Rows are sorted on lower-bound ascending and upper-bound descending, so the tree builders can append
+     * every interval to its parent directly. The msb/lsb columns hold signed longs, so the ipv6 tables are read in
+     * order of their unsigned copies, which are indexed together with the prefix length.
+     */
     private void rebuild(final JdbcTemplate jdbcTemplate, final CacheEntry cacheEntry) {
-        final NestedIntervalMaps nestedIntervalMaps = new NestedIntervalMaps();
-
         final long toInclusive = getLastSerial(jdbcTemplate);
+        final NestedIntervalMaps.Builder builder = new NestedIntervalMaps.Builder(cacheEntry.empty);
+        final CIString source = cacheEntry.sourceConfiguration.getSource().getName();
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(REBUILD_THREADS);
+        try {
+            CompletableFuture.allOf(
+                    CompletableFuture.runAsync(() -> JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                                    "SELECT begin_in, end_in, object_id " +
+                                    "FROM inetnum " +
+                                    "ORDER BY begin_in ASC, end_in DESC",
+                            (RowCallbackHandler) rs -> put(source, builder.ipv4TreeCache(), new Ipv4Entry(new Ipv4Resource(rs.getLong(1), rs.getLong(2)), rs.getInt(3)))
+                    ), executorService),
+
+                    CompletableFuture.runAsync(() -> JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                                    "SELECT i6_msb_unsigned, i6_lsb_unsigned, prefix_length, object_id " +
+                                    "FROM inet6num " +
+                                    "ORDER BY i6_msb_unsigned ASC, i6_lsb_unsigned ASC, prefix_length ASC",
+                            (RowCallbackHandler) rs -> put(source, builder.ipv6TreeCache(), new Ipv6Entry(Ipv6Resource.parseFromLongs(getUnsignedLong(rs, 1), getUnsignedLong(rs, 2), rs.getInt(3)), rs.getInt(4)))
+                    ), executorService),
+
+                    CompletableFuture.runAsync(() -> JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                                    "SELECT prefix, prefix_length, origin, object_id " +
+                                    "FROM route " +
+                                    "ORDER BY prefix ASC, prefix_length ASC",
+                            (RowCallbackHandler) rs -> put(source, builder.ipv4RouteTreeCache(), new Ipv4RouteEntry(Ipv4Resource.parsePrefixWithLength(rs.getLong(1), rs.getInt(2)), rs.getInt(4), rs.getString(3).toUpperCase()))
+                    ), executorService),
+
+                    CompletableFuture.runAsync(() -> JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                                    "SELECT r6_msb_unsigned, r6_lsb_unsigned, prefix_length, object_id, origin " +
+                                    "FROM route6 " +
+                                    "ORDER BY r6_msb_unsigned ASC, r6_lsb_unsigned ASC, prefix_length ASC",
+                            (RowCallbackHandler) rs -> put(source, builder.ipv6RouteTreeCache(), new Ipv6RouteEntry(Ipv6Resource.parseFromLongs(getUnsignedLong(rs, 1), getUnsignedLong(rs, 2), rs.getInt(3)), rs.getInt(4), rs.getString(5).toUpperCase()))
+                    ), executorService),
+
+                    CompletableFuture.runAsync(() -> JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                                    "SELECT domain, object_id " +
+                                    "FROM domain ",
+                            (RowCallbackHandler) rs -> {
+                                try {
+                                    builder.updateDomain(rs.getString(1), rs.getInt(2), UPDATE);
+                                } catch (IntersectingIntervalException e) {
+                                    LOGGER.info("Skipping intersecting entry in {}: {}", source, e.getMessage());
+                                } catch (RuntimeException e) {
+                                    LOGGER.info("Unable to add domain {}: {}", rs.getString(1), e.getMessage());
+                                }
+                            }
+                    ), executorService)
+            ).join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        } finally {
+            executorService.shutdown();
+        }
 
-        final List<IpTreeUpdate> ipTreeUpdates = Lists.newArrayList();
-        ipTreeUpdates.addAll(jdbcTemplate.query("" +
-                        "SELECT begin_in, end_in, object_id " +
-                        "FROM inetnum ",
-                new RowMapper<IpTreeUpdate>() {
-                    @Override
-                    public IpTreeUpdate mapRow(ResultSet rs, int rowNum) throws SQLException {
-                        return new IpTreeUpdate(INETNUM,
-                                new Ipv4Entry(new Ipv4Resource(rs.getLong(1), rs.getLong(2)), rs.getInt(3)).getKey().toRangeString(),
-                                rs.getInt(3),
-                                UPDATE);
-                    }
-                }
-        ));
-
-        ipTreeUpdates.addAll(jdbcTemplate.query("" +
-                        "SELECT i6_msb, i6_lsb, prefix_length, object_id " +
-                        "FROM inet6num ",
-                new RowMapper<IpTreeUpdate>() {
-                    @Override
-                    public IpTreeUpdate mapRow(ResultSet rs, int rowNum) throws SQLException {
-                        return new IpTreeUpdate(INET6NUM,
-                                new Ipv6Entry(Ipv6Resource.parseFromStrings(rs.getString(1), rs.getString(2), rs.getInt(3)), rs.getInt(4)).getKey().toString(),
-                                rs.getInt(4),
-                                UPDATE);
-                    }
-                }
-        ));
-
-        ipTreeUpdates.addAll(jdbcTemplate.query("" +
-                        "SELECT prefix, prefix_length, origin, object_id " +
-                        "FROM route ",
-                new RowMapper<IpTreeUpdate>() {
-                    @Override
-                    public IpTreeUpdate mapRow(ResultSet rs, int rowNum) throws SQLException {
-                        return new IpTreeUpdate(ROUTE,
-                                Ipv4Resource.parsePrefixWithLength(rs.getLong(1), rs.getInt(2)).toString() + rs.getString(3),
-                                rs.getInt(4),
-                                UPDATE);
-                    }
-                }
-        ));
-
-        ipTreeUpdates.addAll(jdbcTemplate.query("" +
-                        "SELECT r6_msb, r6_lsb, prefix_length, object_id, origin " +
-                        "FROM route6 ",
-                new RowMapper<IpTreeUpdate>() {
-                    @Override
-                    public IpTreeUpdate mapRow(final ResultSet rs, final int rowNum) throws SQLException {
-                        return new IpTreeUpdate(ROUTE6,
-                                new Ipv6Entry(Ipv6Resource.parseFromStrings(rs.getString(1), rs.getString(2), rs.getInt(3)), rs.getInt(4)).getKey() + rs.getString(5),
-                                rs.getInt(4),
-                                UPDATE);
-                    }
-                }
-        ));
-
-        ipTreeUpdates.addAll(jdbcTemplate.query("" +
-                        "SELECT domain, object_id " +
-                        "FROM domain ",
-                new RowMapper<IpTreeUpdate>() {
-                    @Override
-                    public IpTreeUpdate mapRow(final ResultSet rs, final int rowNum) throws SQLException {
-                        return new IpTreeUpdate(DOMAIN,
-                                rs.getString(1),
-                                rs.getInt(2),
-                                UPDATE);
-                    }
-                }
-        ));
+        cacheEntry.nestedIntervalMaps = builder.build(toInclusive);
+    }
 
-        nestedIntervalMaps.update(ipTreeUpdates, toInclusive, cacheEntry);
+    // unsigned bigint values above Long.MAX_VALUE are returned as BigInteger, keep the same 64 bits
+    private static long getUnsignedLong(final ResultSet rs, final int columnIndex) throws SQLException {
+        return ((Number) rs.getObject(columnIndex)).longValue();
+    }
 
-        cacheEntry.nestedIntervalMaps = nestedIntervalMaps;
+    private static <K extends Interval<K>, V extends IpEntry<K>> void put(final CIString source, final IntervalMapBuilder<K, V> intervalMap, final V ipEntry) {
+        try {
+            intervalMap.put(ipEntry.getKey(), ipEntry);
+        } catch (IntersectingIntervalException e) {
+            LOGGER.info("Skipping intersecting entry in {}: {}", source, e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.info("Unable to add {}: {}", ipEntry.getKey(), e.getMessage());
+        }
     }
 
     private long getLastSerial(final JdbcTemplate jdbcTemplate) {
         return jdbcTemplate.queryForObject("SELECT IFNULL(MAX(serial_id),0) FROM serials", Long.class);
     }
+
+    private boolean isSerialInDatabase(final JdbcTemplate jdbcTemplate, final long serial) {
+        return serial == 0 || jdbcTemplate.queryForObject("SELECT COUNT(*) FROM serials WHERE serial_id = ?", Integer.class, serial) > 0;
+    }
 }
@@ -0,0 +1,256 @@
+package net.ripe.db.whois.common.iptree;
+
+import com.google.common.base.Stopwatch;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.etree.IntervalMap;
+import net.ripe.db.whois.common.etree.IntervalMapBuilder;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Stores the IP trees of a source on disk, so a restarted node can load them instead of rebuilding from the database.
+ * <p/>
+ * A snapshot is tagged with the last serial included in the trees. After loading a snapshot the trees are brought
+ * up to date using the serials after that, in the same way as a regular update.
+ * <p/>
+ * Snapshots are written to a temporary file and then moved into place, and are read through a memory-mapped buffer.
+ * A snapshot with another format version is ignored.
+ */
+@Component
+class IpTreeSnapshots {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IpTreeSnapshots.class);
+
+    private static final int MAGIC = 0x57495054;    // "WIPT"
+    static final int VERSION = 1;
+
+    private final String snapshotDir;
+
+    @Autowired
+    IpTreeSnapshots(@Value("${dir.iptree.snapshot:}") final String snapshotDir) {
+        this.snapshotDir = snapshotDir;
+    }
+
+    boolean isEnabled() {
+        return !StringUtils.isBlank(snapshotDir);
+    }
+
+    /**
+     * @return true if the snapshot was written, false if snapshots are disabled or writing failed
+     */
+    boolean write(final CIString source, final IpTreeCacheManager.NestedIntervalMaps nestedIntervalMaps) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final Path snapshot = getSnapshot(source);
+        final Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(snapshot.getParent());
+
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(nestedIntervalMaps.lastSerial);
+
+                writeEntries(out, nestedIntervalMaps.getIpv4TreeCache(), Ipv4Resource.MAX_RANGE, PrimitiveIntervalMap.IPV4);
+                writeEntries(out, nestedIntervalMaps.getIpv6TreeCache(), Ipv6Resource.MAX_RANGE, PrimitiveIntervalMap.IPV6);
+                writeRouteEntries(out, nestedIntervalMaps.getIpv4RouteTreeCache(), Ipv4Resource.MAX_RANGE, PrimitiveIntervalMap.IPV4);
+                writeRouteEntries(out, nestedIntervalMaps.getIpv6RouteTreeCache(), Ipv6Resource.MAX_RANGE, PrimitiveIntervalMap.IPV6);
+                writeEntries(out, nestedIntervalMaps.getIpv4DomainTreeCache(), Ipv4Resource.MAX_RANGE, PrimitiveIntervalMap.IPV4);
+                writeEntries(out, nestedIntervalMaps.getIpv6DomainTreeCache(), Ipv6Resource.MAX_RANGE, PrimitiveIntervalMap.IPV6);
+
+                out.writeInt(MAGIC);
+            }
+
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Wrote IP tree snapshot {} at serial {} in {}", snapshot, nestedIntervalMaps.lastSerial, stopwatch);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to write IP tree snapshot {} due to {}: {}", snapshot, e.getClass().getName(), e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                LOGGER.debug("Unable to delete {}", tmp);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return the trees in the snapshot for the source, added to <code>empty</code>, or null if there is no usable snapshot
+     */
+    @CheckForNull
+    IpTreeCacheManager.NestedIntervalMaps read(final CIString source, final IpTreeCacheManager.NestedIntervalMaps empty) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final Path snapshot = getSnapshot(source);
+        if (!Files.isRegularFile(snapshot)) {
+            LOGGER.info("No IP tree snapshot found for {} in {}", source, snapshotDir);
+            return null;
+        }
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        try (final FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            final ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (in.getInt() != MAGIC) {
+                LOGGER.warn("Ignoring IP tree snapshot {}: not a snapshot", snapshot);
+                return null;
+            }
+
+            final int version = in.getInt();
+            if (version != VERSION) {
+                LOGGER.info("Ignoring IP tree snapshot {}: version {} instead of {}", snapshot, version, VERSION);
+                return null;
+            }
+
+            final long lastSerial = in.getLong();
+            final IpTreeCacheManager.NestedIntervalMaps.Builder builder = new IpTreeCacheManager.NestedIntervalMaps.Builder(empty);
+
+            readEntries(in, builder.ipv4TreeCache(), PrimitiveIntervalMap.IPV4);
+            readEntries(in, builder.ipv6TreeCache(), PrimitiveIntervalMap.IPV6);
+            readIpv4RouteEntries(in, builder.ipv4RouteTreeCache());
+            readIpv6RouteEntries(in, builder.ipv6RouteTreeCache());
+            readEntries(in, builder.ipv4DomainTreeCache(), PrimitiveIntervalMap.IPV4);
+            readEntries(in, builder.ipv6DomainTreeCache(), PrimitiveIntervalMap.IPV6);
+
+            if (in.getInt() != MAGIC || in.hasRemaining()) {
+                LOGGER.warn("Ignoring IP tree snapshot {}: unexpected end of snapshot", snapshot);
+                return null;
+            }
+
+            final IpTreeCacheManager.NestedIntervalMaps nestedIntervalMaps = builder.build(lastSerial);
+            LOGGER.info("Read IP tree snapshot {} at serial {} in {}", snapshot, lastSerial, stopwatch);
+            return nestedIntervalMaps;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOGGER.warn("Ignoring IP tree snapshot {} due to {}: {}", snapshot, e.getClass().getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Path getSnapshot(final CIString source) {
+        return Paths.get(snapshotDir, source.toLowerCase() + ".iptree");
+    }
+
+    private static <K extends IpInterval<K>, V extends IpEntry<K>> void writeEntries(
+            final DataOutputStream out,
+            final IntervalMap<K, V> intervalMap,
+            final K maxRange,
+            final PrimitiveIntervalMap.Codec<K, ?> codec) throws IOException {
+        final List<V> entries = intervalMap.findExactAndAllMoreSpecific(maxRange);
+        out.writeInt(entries.size());
+
+        final long[] begin = new long[codec.width()];
+        final long[] end = new long[codec.width()];
+        for (final V entry : entries) {
+            writeBounds(out, codec, entry.getKey(), begin, end);
+            out.writeInt(entry.getObjectId());
+        }
+    }
+
+    private static <K extends IpInterval<K>, V extends RouteEntry<K>> void writeRouteEntries(
+            final DataOutputStream out,
+            final IntervalMap<K, V> intervalMap,
+            final K maxRange,
+            final PrimitiveIntervalMap.Codec<K, ?> codec) throws IOException {
+        final List<V> entries = intervalMap.findExactAndAllMoreSpecific(maxRange);
+        out.writeInt(entries.size());
+
+        final long[] begin = new long[codec.width()];
+        final long[] end = new long[codec.width()];
+        for (final V entry : entries) {
+            writeBounds(out, codec, entry.getKey(), begin, end);
+            out.writeInt(entry.getObjectId());
+
+            final byte[] origin = entry.getOrigin().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(origin.length);
+            out.write(origin);
+        }
+    }
+
+    private static <K extends IpInterval<K>> void writeBounds(
+            final DataOutputStream out,
+            final PrimitiveIntervalMap.Codec<K, ?> codec,
+            final K key,
+            final long[] begin,
+            final long[] end) throws IOException {
+        codec.bounds(key, begin, end);
+        for (int part = 0; part < codec.width(); part++) {
+            out.writeLong(begin[part]);
+        }
+        for (int part = 0; part < codec.width(); part++) {
+            out.writeLong(end[part]);
+        }
+    }
+
+    private static <K extends IpInterval<K>, V extends IpEntry<K>> void readEntries(
+            final ByteBuffer in,
+            final IntervalMapBuilder<K, V> builder,
+            final PrimitiveIntervalMap.Codec<K, V> codec) {
+        final int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            final K key = readKey(in, codec);
+            builder.put(key, codec.entry(key, in.getInt()));
+        }
+    }
+
+    private static void readIpv4RouteEntries(final ByteBuffer in, final IntervalMapBuilder<Ipv4Resource, Ipv4RouteEntry> builder) {
+        final int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            final Ipv4Resource key = readKey(in, PrimitiveIntervalMap.IPV4);
+            builder.put(key, new Ipv4RouteEntry(key, in.getInt(), readOrigin(in)));
+        }
+    }
+
+    private static void readIpv6RouteEntries(final ByteBuffer in, final IntervalMapBuilder<Ipv6Resource, Ipv6RouteEntry> builder) {
+        final int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            final Ipv6Resource key = readKey(in, PrimitiveIntervalMap.IPV6);
+            builder.put(key, new Ipv6RouteEntry(key, in.getInt(), readOrigin(in)));
+        }
+    }
+
+    private static <K extends IpInterval<K>> K readKey(final ByteBuffer in, final PrimitiveIntervalMap.Codec<K, ?> codec) {
+        final long[] begin = new long[codec.width()];
+        final long[] end = new long[codec.width()];
+        for (int part = 0; part < codec.width(); part++) {
+            begin[part] = in.getLong();
+        }
+        for (int part = 0; part < codec.width(); part++) {
+            end[part] = in.getLong();
+        }
+        return codec.key(begin, end);
+    }
+
+    private static String readOrigin(final ByteBuffer in) {
+        final byte[] origin = new byte[in.getShort() & 0xffff];
+        in.get(origin);
+        return new String(origin, StandardCharsets.UTF_8);
+    }
+}
@@ -85,7 +85,7 @@ public class IpTreeUpdater {
             }
         });
 
-        rebuild();
+        load();
     }
 
     @PreDestroy
@@ -107,6 +107,23 @@ public class IpTreeUpdater {
         LOGGER.info("Finished building IP trees in {}", stopwatch);
     }
 
+    /**
+     * Loads the IP trees from snapshots where possible, and rebuilds the others.
+     */
+    public void load() {
+        LOGGER.info("Loading IP trees");
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        invokeAll(sourceConfigurationForSlave, new OperationCallback() {
+            @Override
+            public void execute(final SourceConfiguration sourceConfiguration) {
+                ipTreeCacheManager.load(sourceConfiguration);
+            }
+        });
+
+        LOGGER.info("Finished loading IP trees in {}", stopwatch);
+    }
+
     public void rebuild(final String source) {
         for (SourceConfiguration sourceConfiguration : Iterables.filter(sourceConfigurationForSlave, input -> input.getSource().getName().contains(source))) {
             LOGGER.info("Rebuilding IP trees for {}", sourceConfiguration);
@@ -126,10 +143,22 @@ public class IpTreeUpdater {
         });
     }
 
+    @Scheduled(fixedDelayString = "${iptree.snapshot.interval.msecs:3600000}")
+    public void writeSnapshots() {
+        ipTreeCacheManager.writeSnapshots();
+    }
+
     public void updateTransactional() {
         ipTreeCacheManager.updateTransactional(sourceContext.getCurrentSourceConfiguration());
     }
 
+    /**
+     * Brings the trees up to date with the current transaction, waiting for a concurrent update to finish.
+     */
+    public void updateTransactionalAndWait() {
+        ipTreeCacheManager.updateTransactionalAndWait(sourceContext.getCurrentSourceConfiguration());
+    }
+
     private void invokeAll(final Set<SourceConfiguration> sourceConfigurations, final OperationCallback operationCallback) {
         final List<Future<?>> futures = Lists.newArrayList();
         for (final SourceConfiguration sourceConfiguration : sourceConfigurations) {
@@ -0,0 +1,418 @@
+package net.ripe.db.whois.common.iptree;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.ImmutableIntArray;
+import net.ripe.db.whois.common.etree.ImmutableIntervalMap;
+import net.ripe.db.whois.common.etree.IntersectingIntervalException;
+import net.ripe.db.whois.common.etree.IntervalMapBuilder;
+import net.ripe.db.whois.common.etree.NestedIntervalMap;
+import net.ripe.db.whois.common.etree.PrimitiveIntervalIndex;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable interval map of {@link IpEntry}s backed by a {@link PrimitiveIntervalIndex}, which only stores the
+ * bounds and object id of every entry. Keys and entries are created when they are returned from a lookup.
+ * <p/>
+ * This uses a fraction of the memory of an {@link net.ripe.db.whois.common.etree.ImmutableNestedIntervalMap},
+ * but every {@link #build()} copies the whole index. It suits large sources that are updated in batches.
+ */
+public final class PrimitiveIntervalMap<K extends IpInterval<K> & Comparable<K>, V extends IpEntry<K>> implements ImmutableIntervalMap<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrimitiveIntervalMap.class);
+
+    public static final Codec<Ipv4Resource, Ipv4Entry> IPV4 = new Codec<Ipv4Resource, Ipv4Entry>() {
+        @Override
+        public int width() {
+            return 1;
+        }
+
+        @Override
+        public void bounds(final Ipv4Resource key, final long[] begin, final long[] end) {
+            begin[0] = key.begin();
+            end[0] = key.end();
+        }
+
+        @Override
+        public Ipv4Resource key(final long[] begin, final long[] end) {
+            return new Ipv4Resource(begin[0], end[0]);
+        }
+
+        @Override
+        public Ipv4Entry entry(final Ipv4Resource key, final int objectId) {
+            return new Ipv4Entry(key, objectId);
+        }
+    };
+
+    public static final Codec<Ipv6Resource, Ipv6Entry> IPV6 = new Codec<Ipv6Resource, Ipv6Entry>() {
+        @Override
+        public int width() {
+            return 2;
+        }
+
+        @Override
+        public void bounds(final Ipv6Resource key, final long[] begin, final long[] end) {
+            begin[0] = key.beginMsb();
+            begin[1] = key.beginLsb();
+            end[0] = key.endMsb();
+            end[1] = key.endLsb();
+        }
+
+        @Override
+        public Ipv6Resource key(final long[] begin, final long[] end) {
+            return new Ipv6Resource(begin[0], begin[1], end[0], end[1]);
+        }
+
+        @Override
+        public Ipv6Entry entry(final Ipv6Resource key, final int objectId) {
+            return new Ipv6Entry(key, objectId);
+        }
+    };
+
+    private final Codec<K, V> codec;
+    private final PrimitiveIntervalIndex index;
+
+    private PrimitiveIntervalMap(final Codec<K, V> codec, final PrimitiveIntervalIndex index) {
+        this.codec = codec;
+        this.index = index;
+    }
+
+    public static <K extends IpInterval<K> & Comparable<K>, V extends IpEntry<K>> PrimitiveIntervalMap<K, V> empty(final Codec<K, V> codec) {
+        return new PrimitiveIntervalMap<>(codec, PrimitiveIntervalIndex.empty(codec.width()));
+    }
+
+    @Override
+    public Builder<K, V> toBuilder() {
+        return new Builder<>(this);
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(final K key, final V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<V> findFirstLessSpecific(final K key) {
+        final Lookup lookup = new Lookup(key);
+        final int position = lookup.exact() ? index.parent(lookup.position) : lookup.position;
+        return position < 0 ? Collections.<V>emptyList() : Collections.singletonList(entry(position));
+    }
+
+    @Override
+    public List<V> findExact(final K key) {
+        final Lookup lookup = new Lookup(key);
+        return lookup.exact() ? Collections.singletonList(entry(lookup.position)) : Collections.<V>emptyList();
+    }
+
+    @Override
+    public List<V> findExactOrFirstLessSpecific(final K key) {
+        final Lookup lookup = new Lookup(key);
+        return lookup.position < 0 ? Collections.<V>emptyList() : Collections.singletonList(entry(lookup.position));
+    }
+
+    @Override
+    public List<V> findAllLessSpecific(final K key) {
+        final Lookup lookup = new Lookup(key);
+        return lessSpecific(lookup.exact() ? index.parent(lookup.position) : lookup.position);
+    }
+
+    @Override
+    public List<V> findExactAndAllLessSpecific(final K key) {
+        return lessSpecific(new Lookup(key).position);
+    }
+
+    @Override
+    public List<V> findFirstMoreSpecific(final K key) {
+        final Lookup lookup = new Lookup(key);
+        return entries(index.findFirstMoreSpecific(lookup.begin, lookup.end));
+    }
+
+    @Override
+    public List<V> findAllMoreSpecific(final K key) {
+        final Lookup lookup = new Lookup(key);
+        final ImmutableIntArray positions = index.findExactAndAllMoreSpecific(lookup.begin, lookup.end);
+        if (!positions.isEmpty() && index.isExact(positions.get(0), lookup.begin, lookup.end)) {
+            return entries(positions.subArray(1, positions.length()));
+        }
+        return entries(positions);
+    }
+
+    @Override
+    public List<V> findExactAndAllMoreSpecific(final K key) {
+        final Lookup lookup = new Lookup(key);
+        return entries(index.findExactAndAllMoreSpecific(lookup.begin, lookup.end));
+    }
+
+    private List<V> lessSpecific(final int mostSpecific) {
+        final List<V> result = Lists.newArrayList();
+        for (int position = mostSpecific; position >= 0; position = index.parent(position)) {
+            result.add(entry(position));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private List<V> entries(final ImmutableIntArray positions) {
+        final List<V> result = Lists.newArrayListWithExpectedSize(positions.length());
+        for (int i = 0; i < positions.length(); i++) {
+            result.add(entry(positions.get(i)));
+        }
+        return result;
+    }
+
+    private V entry(final int position) {
+        return codec.entry(keyAt(codec, index, position), index.value(position));
+    }
+
+    private static <K extends IpInterval<K>> K keyAt(final Codec<K, ?> codec, final PrimitiveIntervalIndex index, final int position) {
+        final long[] begin = new long[codec.width()];
+        final long[] end = new long[codec.width()];
+        for (int part = 0; part < codec.width(); part++) {
+            begin[part] = index.begin(position, part);
+            end[part] = index.end(position, part);
+        }
+        return codec.key(begin, end);
+    }
+
+    private final class Lookup {
+        private final long[] begin = new long[codec.width()];
+        private final long[] end = new long[codec.width()];
+        private final int position;
+
+        private Lookup(final K key) {
+            Validate.notNull(key);
+            codec.bounds(key, begin, end);
+            this.position = index.findExactOrFirstLessSpecific(begin, end);
+        }
+
+        private boolean exact() {
+            return position >= 0 && index.isExact(position, begin, end);
+        }
+    }
+
+    /**
+     * Converts between keys and entries and their primitive representation in the index.
+     */
+    public interface Codec<K extends IpInterval<K>, V extends IpEntry<K>> {
+        /**
+         * @return number of longs per bound
+         */
+        int width();
+
+        void bounds(K key, long[] begin, long[] end);
+
+        K key(long[] begin, long[] end);
+
+        V entry(K key, int objectId);
+    }
+
+    /**
+     * Derives a new {@link PrimitiveIntervalMap}.
+     * <p/>
+     * Changes are kept aside (added entries in a tree, removed entries as a bitmap over the index) and merged into
+     * a new index on {@link #build()}. Adding entries to an empty map skips this: they are collected and sorted
+     * once, and intersecting entries are logged and left out when building.
+     */
+    public static final class Builder<K extends IpInterval<K> & Comparable<K>, V extends IpEntry<K>> implements IntervalMapBuilder<K, V> {
+        private final Codec<K, V> codec;
+        private PrimitiveIntervalMap<K, V> base;
+        private PrimitiveIntervalIndex.Builder bulk;
+
+        private final BitSet removed = new BitSet();
+        private final TreeMap<K, V> added = Maps.newTreeMap();
+        private final NestedIntervalMap<K, K> addedTree = new NestedIntervalMap<>();
+
+        private Builder(final PrimitiveIntervalMap<K, V> base) {
+            this.codec = base.codec;
+            this.base = base;
+            if (base.index.size() == 0) {
+                bulk = new PrimitiveIntervalIndex.Builder(codec.width());
+            }
+        }
+
+        @Override
+        public Builder<K, V> put(final K key, final V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+
+            final long[] begin = new long[codec.width()];
+            final long[] end = new long[codec.width()];
+            codec.bounds(key, begin, end);
+
+            if (bulk != null) {
+                bulk.add(begin, end, value.getObjectId());
+                return this;
+            }
+
+            final PrimitiveIntervalIndex index = base.index;
+            final List<K> intersections = Lists.newArrayList();
+            addIntersecting(intersections, index.findExactOrFirstLessSpecific(begin, begin), key);
+            addIntersecting(intersections, index.findExactOrFirstLessSpecific(end, end), key);
+            if (!intersections.isEmpty()) {
+                throw new IntersectingIntervalException(key, intersections);
+            }
+
+            addedTree.put(key, key);
+            added.put(key, value);
+
+            final int position = index.findExactOrFirstLessSpecific(begin, end);
+            if (position >= 0 && index.isExact(position, begin, end)) {
+                removed.set(position);
+            }
+
+            return this;
+        }
+
+        /*
+         * Walks up from the most specific interval containing one of the bounds of key, and adds the first interval
+         * that intersects key without nesting. Intervals enclosing key end the walk, as all their parents do as well.
+         */
+        private void addIntersecting(final List<K> intersections, final int point, final K key) {
+            final PrimitiveIntervalIndex index = base.index;
+            for (int position = point; position >= 0; position = index.parent(position)) {
+                if (removed.get(position)) {
+                    continue;
+                }
+
+                final K candidate = keyAt(codec, index, position);
+                if (candidate.intersects(key) && !candidate.contains(key) && !key.contains(candidate)) {
+                    intersections.add(candidate);
+                    return;
+                }
+
+                if (candidate.contains(key)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public Builder<K, V> remove(final K key, final V value) {
+            Validate.notNull(key);
+            Validate.notNull(value);
+
+            if (bulk != null) {
+                flushBulk();
+            }
+
+            final V addedValue = added.get(key);
+            if (addedValue != null) {
+                if (value.equals(addedValue)) {
+                    added.remove(key);
+                    addedTree.remove(key);
+                }
+                return this;
+            }
+
+            final List<V> existing = base.findExact(key);
+            if (!existing.isEmpty() && value.equals(existing.get(0))) {
+                final long[] begin = new long[codec.width()];
+                final long[] end = new long[codec.width()];
+                codec.bounds(key, begin, end);
+                removed.set(base.index.findExactOrFirstLessSpecific(begin, end));
+            }
+
+            return this;
+        }
+
+        @Override
+        public PrimitiveIntervalMap<K, V> build() {
+            if (bulk != null) {
+                flushBulk();
+                return base;
+            }
+
+            if (added.isEmpty() && removed.isEmpty()) {
+                return base;
+            }
+
+            final PrimitiveIntervalIndex index = base.index;
+            final PrimitiveIntervalIndex.Builder builder = new PrimitiveIntervalIndex.Builder(codec.width(), index.size() + added.size());
+            final long[] begin = new long[codec.width()];
+            final long[] end = new long[codec.width()];
+
+            final Iterator<Map.Entry<K, V>> addedIterator = added.entrySet().iterator();
+            Map.Entry<K, V> next = null;
+            if (addedIterator.hasNext()) {
+                next = addedIterator.next();
+                codec.bounds(next.getKey(), begin, end);
+            }
+
+            for (int position = 0; position < index.size(); position++) {
+                if (removed.get(position)) {
+                    continue;
+                }
+
+                while (next != null && index.compareTo(position, begin, end) > 0) {
+                    builder.add(begin, end, next.getValue().getObjectId());
+                    next = null;
+                    if (addedIterator.hasNext()) {
+                        next = addedIterator.next();
+                        codec.bounds(next.getKey(), begin, end);
+                    }
+                }
+
+                builder.add(index, position);
+            }
+
+            while (next != null) {
+                builder.add(begin, end, next.getValue().getObjectId());
+                next = null;
+                if (addedIterator.hasNext()) {
+                    next = addedIterator.next();
+                    codec.bounds(next.getKey(), begin, end);
+                }
+            }
+
+            base = new PrimitiveIntervalMap<>(codec, builder.build());
+            added.clear();
+            addedTree.clear();
+            removed.clear();
+            return base;
+        }
+
+        private void flushBulk() {
+            final PrimitiveIntervalIndex.Builder builder = bulk;
+            bulk = null;
+
+            base = new PrimitiveIntervalMap<>(codec, builder.build((position, existingPosition) ->
+                    LOGGER.info("Skipping intersecting entry {}: intersects {}", key(builder, position), key(builder, existingPosition))));
+        }
+
+        private K key(final PrimitiveIntervalIndex.Builder builder, final int position) {
+            final long[] begin = new long[codec.width()];
+            final long[] end = new long[codec.width()];
+            for (int part = 0; part < codec.width(); part++) {
+                begin[part] = builder.begin(position, part);
+                end[part] = builder.end(position, part);
+            }
+            return codec.key(begin, end);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- ipv6 address columns as unsigned numbers, so the ip trees can be rebuilt in address order from an index
+
+ALTER TABLE `inet6num`
+  ADD COLUMN `i6_msb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`i6_msb` AS SIGNED) AS UNSIGNED)) STORED,
+  ADD COLUMN `i6_lsb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`i6_lsb` AS SIGNED) AS UNSIGNED)) STORED,
+  ADD KEY `i6_unsigned` (`i6_msb_unsigned`,`i6_lsb_unsigned`,`prefix_length`);
+
+ALTER TABLE `route6`
+  ADD COLUMN `r6_msb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`r6_msb` AS SIGNED) AS UNSIGNED)) STORED,
+  ADD COLUMN `r6_lsb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`r6_lsb` AS SIGNED) AS UNSIGNED)) STORED,
+  ADD KEY `r6_unsigned` (`r6_msb_unsigned`,`r6_lsb_unsigned`,`prefix_length`,`origin`);
+
+TRUNCATE version;
+INSERT INTO version VALUES ('whois-1.104-2');
@@ -315,10 +315,13 @@ CREATE TABLE `inet6num` (
   `i6_lsb` varchar(20) NOT NULL DEFAULT '',
   `prefix_length` tinyint(3) unsigned NOT NULL DEFAULT '0',
   `netname` varchar(80) NOT NULL DEFAULT '',
+  `i6_msb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`i6_msb` AS SIGNED) AS UNSIGNED)) STORED,
+  `i6_lsb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`i6_lsb` AS SIGNED) AS UNSIGNED)) STORED,
   PRIMARY KEY (`object_id`),
   KEY `netname` (`netname`),
   KEY `i6_msb` (`i6_msb`),
-  KEY `i6_lsb` (`i6_lsb`)
+  KEY `i6_lsb` (`i6_lsb`),
+  KEY `i6_unsigned` (`i6_msb_unsigned`,`i6_lsb_unsigned`,`prefix_length`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -859,10 +862,13 @@ CREATE TABLE `route6` (
   `r6_lsb` varchar(20) NOT NULL DEFAULT '',
   `prefix_length` tinyint(3) unsigned NOT NULL DEFAULT '0',
   `origin` varchar(13) NOT NULL DEFAULT '',
+  `r6_msb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`r6_msb` AS SIGNED) AS UNSIGNED)) STORED,
+  `r6_lsb_unsigned` bigint(20) unsigned GENERATED ALWAYS AS (CAST(CAST(`r6_lsb` AS SIGNED) AS UNSIGNED)) STORED,
   PRIMARY KEY (`object_id`),
   KEY `origin` (`origin`,`r6_msb`,`r6_lsb`,`prefix_length`),
   KEY `r6_msb` (`r6_msb`),
-  KEY `r6_lsb` (`r6_lsb`)
+  KEY `r6_lsb` (`r6_lsb`),
+  KEY `r6_unsigned` (`r6_msb_unsigned`,`r6_lsb_unsigned`,`prefix_length`,`origin`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -975,6 +981,15 @@ CREATE TABLE `update_lock` (
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+DROP TABLE IF EXISTS `update_lock_stripe`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `update_lock_stripe` (
+  `stripe` int(11) NOT NULL,
+  PRIMARY KEY (`stripe`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 DROP TABLE IF EXISTS `transfer_update_lock`;
 /*!40101 SET @saved_cs_client     = @@character_set_client */;
 /*!40101 SET character_set_client = utf8 */;
@@ -0,0 +1,81 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@Tag("IntegrationTest")
+public class JdbcIndexDaoIntegrationTest extends AbstractDaoIntegrationTest {
+    @Autowired IndexDao subject;
+
+    private int routeObjectId;
+
+    @BeforeEach
+    public void setup() {
+        rpslObjectUpdateDao.createObject(RpslObject.parse("" +
+                "mntner:     TEST-MNT\n" +
+                "mnt-by:     TEST-MNT\n" +
+                "source:     TEST"));
+        rpslObjectUpdateDao.createObject(RpslObject.parse("" +
+                "person:     Test Person\n" +
+                "nic-hdl:    TP1-TEST\n" +
+                "mnt-by:     TEST-MNT\n" +
+                "source:     TEST"));
+        routeObjectId = rpslObjectUpdateDao.createObject(RpslObject.parse("" +
+                "route:      10.0.0.0/8\n" +
+                "origin:     AS3333\n" +
+                "mnt-routes: TEST-MNT {10.0.0.0/16}\n" +
+                "mnt-routes: TEST-MNT ANY\n" +
+                "mnt-by:     TEST-MNT\n" +
+                "source:     TEST")).getObjectId();
+    }
+
+    @Test
+    public void rebuild_missing_indexes() {
+        for (final String table : new String[]{"mntner", "person_role", "names", "route", "mnt_by", "mnt_routes"}) {
+            whoisTemplate.update("DELETE FROM " + table);
+        }
+
+        subject.rebuild();
+
+        assertIndexes();
+    }
+
+    @Test
+    public void rebuild_replaces_existing_indexes() {
+        subject.rebuild();
+
+        assertIndexes();
+    }
+
+    @Test
+    public void rebuild_for_object() {
+        whoisTemplate.update("DELETE FROM route");
+        whoisTemplate.update("DELETE FROM mnt_routes");
+
+        subject.rebuildForObject(routeObjectId);
+
+        assertThat(count("route"), is(1));
+        assertThat(count("mnt_routes"), is(1));
+        assertThat(count("mnt_by"), is(3));
+    }
+
+    private void assertIndexes() {
+        assertThat(count("mntner"), is(1));
+        assertThat(count("person_role"), is(1));
+        assertThat(count("names"), is(2));
+        assertThat(count("route"), is(1));
+        assertThat(count("mnt_by"), is(3));
+        assertThat(count("mnt_routes"), is(1));
+    }
+
+    private int count(final String table) {
+        return whoisTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+}
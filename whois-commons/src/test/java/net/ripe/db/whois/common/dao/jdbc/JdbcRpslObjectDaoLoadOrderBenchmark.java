@@ -0,0 +1,76 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.domain.Identifiable;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares restoring the requested order of a batch loaded by {@link JdbcRpslObjectDao#load(List, List)} against
+ * the previous sort on the index of each object id in the batch.
+ */
+@Tag("ManualTest")
+public class JdbcRpslObjectDaoLoadOrderBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcRpslObjectDaoLoadOrderBenchmark.class);
+
+    private static final int[] BATCH_SIZES = {1, 10, 100, 500, 1000};
+    private static final int OBJECTS_PER_ROUND = 1_000_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void load_order() {
+        final Random random = new Random(0);
+
+        for (final int batchSize : BATCH_SIZES) {
+            final List<Identifiable> proxy = Lists.newArrayListWithExpectedSize(batchSize);
+            final Map<Integer, RpslObject> loadedObjects = Maps.newHashMapWithExpectedSize(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                final int objectId = random.nextInt(Integer.MAX_VALUE);
+                proxy.add(new RpslObjectInfo(objectId, ObjectType.MNTNER, "MNT" + i));
+                loadedObjects.put(objectId, RpslObject.parse(objectId, "mntner: MNT" + i));
+            }
+            Collections.shuffle(proxy, random);
+
+            assertEquals(sortOnIndex(proxy, loadedObjects), JdbcRpslObjectDao.inRequestedOrder(proxy, Maps.newHashMap(loadedObjects)));
+
+            final int batches = Math.max(1, OBJECTS_PER_ROUND / batchSize / (batchSize >= 500 ? 10 : 1));
+            for (int round = 0; round < ROUNDS; round++) {
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                for (int batch = 0; batch < batches; batch++) {
+                    sortOnIndex(proxy, loadedObjects);
+                }
+                final long sortNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS) / batches;
+
+                stopwatch = Stopwatch.createStarted();
+                for (int batch = 0; batch < batches; batch++) {
+                    JdbcRpslObjectDao.inRequestedOrder(proxy, Maps.newHashMap(loadedObjects));
+                }
+                final long mapNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS) / batches;
+
+                LOGGER.info("Batch size {} round {}: sort on index {} ns/batch, in requested order {} ns/batch", batchSize, round, sortNanos, mapNanos);
+            }
+        }
+    }
+
+    private static List<RpslObject> sortOnIndex(final List<Identifiable> proxy, final Map<Integer, RpslObject> loadedObjects) {
+        final List<Integer> requestedIds = Lists.newArrayList(Lists.transform(proxy, Identifiable::getObjectId));
+        final List<RpslObject> rpslObjects = Lists.newArrayList(loadedObjects.values());
+        rpslObjects.sort((o1, o2) -> requestedIds.indexOf(o1.getObjectId()) - requestedIds.indexOf(o2.getObjectId()));
+        return rpslObjects;
+    }
+}
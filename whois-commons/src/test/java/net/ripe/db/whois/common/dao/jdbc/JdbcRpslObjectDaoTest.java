@@ -0,0 +1,51 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.domain.Identifiable;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+public class JdbcRpslObjectDaoTest {
+
+    private final RpslObject mntner = RpslObject.parse(1, "mntner: DEV-MNT");
+    private final RpslObject person = RpslObject.parse(2, "person: Test Person\nnic-hdl: TP1-TEST");
+    private final RpslObject role = RpslObject.parse(3, "role: Test Role\nnic-hdl: TR1-TEST");
+
+    @Test
+    public void in_requested_order() {
+        final List<Identifiable> proxy = Arrays.asList(
+                new RpslObjectInfo(3, ObjectType.ROLE, "TR1-TEST"),
+                new RpslObjectInfo(4, ObjectType.MNTNER, "UNKNOWN-MNT"),
+                mntner,
+                new RpslObjectInfo(3, ObjectType.ROLE, "TR1-TEST"),
+                new RpslObjectInfo(2, ObjectType.PERSON, "TP1-TEST"));
+
+        assertThat(JdbcRpslObjectDao.inRequestedOrder(proxy, loaded(person, mntner, role)), contains(role, mntner, person));
+    }
+
+    @Test
+    public void in_requested_order_nothing_loaded() {
+        final List<Identifiable> proxy = Collections.singletonList(new RpslObjectInfo(1, ObjectType.MNTNER, "DEV-MNT"));
+
+        assertThat(JdbcRpslObjectDao.inRequestedOrder(proxy, loaded()), empty());
+    }
+
+    private static Map<Integer, RpslObject> loaded(final RpslObject... rpslObjects) {
+        final Map<Integer, RpslObject> result = Maps.newHashMap();
+        for (final RpslObject rpslObject : rpslObjects) {
+            result.put(rpslObject.getObjectId(), rpslObject);
+        }
+        return result;
+    }
+}
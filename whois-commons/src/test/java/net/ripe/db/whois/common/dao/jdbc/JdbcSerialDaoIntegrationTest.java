@@ -18,8 +18,10 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.Temporal;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 
@@ -148,6 +150,25 @@ public class JdbcSerialDaoIntegrationTest extends AbstractDaoIntegrationTest {
         assertThat(subject.getByIdForNrtm(3).getRpslObject(), is(object3));
     }
 
+    @Test
+    public void getSerialEntriesForNrtm_range() {
+        final RpslObject object1 = databaseHelper.addObject("aut-num: AS1\ndescr: first");
+        final RpslObject object2 = databaseHelper.updateObject("aut-num: AS1\ndescr: second");
+        databaseHelper.deleteObject(object2);
+        databaseHelper.addObject("aut-num: AS2\ndescr: other");
+
+        final List<SerialEntry> serialEntries = subject.getSerialEntriesForNrtm(1, 3);
+
+        assertThat(serialEntries, hasSize(3));
+        assertThat(serialEntries.get(0).getSerialId(), is(1));
+        assertThat(serialEntries.get(0).getRpslObject(), is(object1));
+        assertThat(serialEntries.get(1).getRpslObject(), is(object2));
+        assertThat(serialEntries.get(2).getOperation(), is(Operation.DELETE));
+        assertThat(serialEntries.get(2).getRpslObject(), is(object2));
+
+        assertThat(subject.getSerialEntriesForNrtm(5, 10), hasSize(0));
+    }
+
     @Test
     public void getAgeOfExactOrNextExistingSerial_create_and_multiple_updates() {
         final LocalDateTime createTimestamp = LocalDateTime.parse("2001-02-04T17:00:00");
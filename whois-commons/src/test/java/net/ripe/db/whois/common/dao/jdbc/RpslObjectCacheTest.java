@@ -0,0 +1,133 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RpslObjectCacheTest {
+    private static final CIString SOURCE = ciString("TEST");
+
+    @Mock SourceContext sourceContext;
+    @Mock JdbcTemplate jdbcTemplate;
+
+    private final RpslObject mntner = RpslObject.parse(1, "mntner: DEV-MNT\nsource: TEST");
+    private final RpslObject person = RpslObject.parse(2, "person: Test Person\nnic-hdl: TP1-TEST\nsource: TEST");
+
+    private RpslObjectCache subject;
+
+    @BeforeEach
+    public void setup() {
+        subject = new RpslObjectCache(sourceContext, 1_000_000);
+    }
+
+    @Test
+    public void disabled() {
+        subject = new RpslObjectCache(sourceContext, 0);
+
+        subject.put(SOURCE, 0, mntner);
+
+        assertThat(subject.isEnabled(), is(false));
+        assertThat(subject.getGeneration(SOURCE), is(-1L));
+        assertThat(subject.get(SOURCE, 1), nullValue());
+    }
+
+    @Test
+    public void source_not_cached_before_following_serials() {
+        assertThat(subject.getGeneration(SOURCE), is(-1L));
+
+        subject.put(SOURCE, -1, mntner);
+
+        assertThat(subject.get(SOURCE, 1), nullValue());
+    }
+
+    @Test
+    public void put_and_get() {
+        followSerialsFrom(10);
+
+        subject.put(SOURCE, subject.getGeneration(SOURCE), mntner);
+
+        assertThat(subject.get(SOURCE, 1), is(mntner));
+        assertThat(subject.get(SOURCE, 2), nullValue());
+        assertThat(subject.get(ciString("OTHER"), 1), nullValue());
+        assertThat(subject.stats().hitCount(), is(1L));
+    }
+
+    @Test
+    public void invalidated_by_serials() {
+        followSerialsFrom(10);
+        final long generation = subject.getGeneration(SOURCE);
+        subject.put(SOURCE, generation, mntner);
+        subject.put(SOURCE, generation, person);
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(12L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(10L), eq(12L))).thenReturn(Collections.singletonList(1));
+        subject.update(SOURCE, jdbcTemplate);
+
+        assertThat(subject.get(SOURCE, 1), nullValue());
+        assertThat(subject.get(SOURCE, 2), is(person));
+        assertThat(subject.getLastSerials().get(SOURCE), is(12L));
+    }
+
+    @Test
+    public void object_read_before_invalidation_not_added() {
+        followSerialsFrom(10);
+        final long generation = subject.getGeneration(SOURCE);
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(11L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(10L), eq(11L))).thenReturn(Collections.singletonList(1));
+        subject.update(SOURCE, jdbcTemplate);
+        subject.put(SOURCE, generation, mntner);
+
+        assertThat(subject.get(SOURCE, 1), nullValue());
+    }
+
+    @Test
+    public void cleared_when_database_is_behind() {
+        followSerialsFrom(10);
+        subject.put(SOURCE, subject.getGeneration(SOURCE), mntner);
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(5L);
+        subject.update(SOURCE, jdbcTemplate);
+
+        assertThat(subject.get(SOURCE, 1), nullValue());
+        assertThat(subject.getLastSerials().get(SOURCE), is(5L));
+    }
+
+    @Test
+    public void alias_uses_cache_of_delegated_source() {
+        followSerialsFrom(10);
+        when(sourceContext.getAlias(ciString("TEST-GRS"))).thenReturn(SOURCE);
+        when(sourceContext.getAlias(SOURCE)).thenReturn(null);
+
+        subject.put(ciString("TEST-GRS"), subject.getGeneration(ciString("TEST-GRS")), mntner);
+
+        assertThat(subject.get(SOURCE, 1), is(mntner));
+    }
+
+    @Test
+    public void estimate_size() {
+        assertThat(RpslObjectCache.estimateSize(mntner) > RpslObjectCache.estimateSize(RpslObject.parse("mntner: DEV-MNT")), is(true));
+    }
+
+    private void followSerialsFrom(final long serial) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(serial);
+        subject.update(SOURCE, jdbcTemplate);
+    }
+}
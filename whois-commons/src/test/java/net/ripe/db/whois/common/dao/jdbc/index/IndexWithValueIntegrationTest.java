@@ -8,9 +8,11 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.core.Is.is;
 
 @Tag("IntegrationTest")
@@ -46,4 +48,19 @@ public class IndexWithValueIntegrationTest extends IndexIntegrationTestBase {
         assertThat(added, is(1));
     }
 
+    @Test
+    public void remove_from_index_for_objects() {
+        final RpslObjectInfo role1 = new RpslObjectInfo(1, ObjectType.ROLE, "NIC1-TEST");
+        final RpslObjectInfo role2 = new RpslObjectInfo(2, ObjectType.ROLE, "NIC2-TEST");
+        final RpslObjectInfo role3 = new RpslObjectInfo(3, ObjectType.ROLE, "NIC3-TEST");
+        subject = new IndexWithValue(AttributeType.NIC_HDL, "person_role", "nic_hdl");
+        subject.addToIndex(whoisTemplate, role1, null, "NIC1-TEST");
+        subject.addToIndex(whoisTemplate, role2, null, "NIC2-TEST");
+        subject.addToIndex(whoisTemplate, role3, null, "NIC3-TEST");
+
+        subject.removeFromIndex(whoisTemplate, Arrays.asList(1, 3));
+
+        assertThat(whoisTemplate.queryForList("SELECT nic_hdl FROM person_role", String.class), contains("NIC2-TEST"));
+    }
+
 }
@@ -0,0 +1,101 @@
+package net.ripe.db.whois.common.domain;
+
+import com.google.common.collect.Lists;
+import com.google.common.net.InetAddresses;
+import net.ripe.db.whois.common.ip.IpInterval;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class IpRangeIndexTest {
+
+    @Test
+    public void empty() {
+        final IpRangeIndex<String> subject = IpRangeIndex.of(Collections.emptyList(), range -> "value");
+
+        assertThat(subject.size(), is(0));
+        assertThat(subject.getValue(InetAddresses.forString("10.0.0.1")), is(nullValue()));
+        assertThat(subject.getValue(InetAddresses.forString("2001::1")), is(nullValue()));
+        assertThat(IpRangeIndex.<String>empty().getValue(IpInterval.parse("10.0.0.0/8")), is(nullValue()));
+    }
+
+    @Test
+    public void most_specific_interval() {
+        final IpResourceTree<String> tree = new IpResourceTree<>();
+        final List<IpInterval<?>> intervals = Lists.newArrayList();
+        add(tree, intervals, "10.0.0.0/8", "outer");
+        add(tree, intervals, "10.1.0.0/16", "inner");
+        add(tree, intervals, "10.1.1.1/32", "address");
+        add(tree, intervals, "2001::/16", "ipv6 outer");
+        add(tree, intervals, "2001:1::/32", "ipv6 inner");
+
+        final IpRangeIndex<String> subject = IpRangeIndex.of(intervals, tree::getValue);
+
+        assertThat(subject.getValue(InetAddresses.forString("9.255.255.255")), is(nullValue()));
+        assertThat(subject.getValue(InetAddresses.forString("10.0.0.0")), is("outer"));
+        assertThat(subject.getValue(InetAddresses.forString("10.1.0.0")), is("inner"));
+        assertThat(subject.getValue(InetAddresses.forString("10.1.1.0")), is("inner"));
+        assertThat(subject.getValue(InetAddresses.forString("10.1.1.1")), is("address"));
+        assertThat(subject.getValue(InetAddresses.forString("10.1.1.2")), is("inner"));
+        assertThat(subject.getValue(InetAddresses.forString("10.2.0.0")), is("outer"));
+        assertThat(subject.getValue(InetAddresses.forString("10.255.255.255")), is("outer"));
+        assertThat(subject.getValue(InetAddresses.forString("11.0.0.0")), is(nullValue()));
+
+        assertThat(subject.getValue(InetAddresses.forString("2000:ffff::")), is(nullValue()));
+        assertThat(subject.getValue(InetAddresses.forString("2001::1")), is("ipv6 outer"));
+        assertThat(subject.getValue(InetAddresses.forString("2001:1::1")), is("ipv6 inner"));
+        assertThat(subject.getValue(InetAddresses.forString("2001:2::1")), is("ipv6 outer"));
+        assertThat(subject.getValue(InetAddresses.forString("2002::")), is(nullValue()));
+    }
+
+    @Test
+    public void interval_lookup() {
+        final IpResourceTree<String> tree = new IpResourceTree<>();
+        final List<IpInterval<?>> intervals = Lists.newArrayList();
+        add(tree, intervals, "10.0.0.0/8", "outer");
+        add(tree, intervals, "10.1.0.0/16", "inner");
+
+        final IpRangeIndex<String> subject = IpRangeIndex.of(intervals, tree::getValue);
+
+        assertThat(subject.getValue(IpInterval.parse("10.1.2.0/24")), is("inner"));
+        assertThat(subject.getValue(IpInterval.parse("10.2.0.0/16")), is("outer"));
+        assertThat(subject.getValue(IpInterval.parse("10.0.0.0/8")), is(nullValue()));
+    }
+
+    @Test
+    public void adjacent_ranges_with_equal_values_merged() {
+        final List<IpInterval<?>> intervals = Lists.newArrayList(
+                IpInterval.parse("10.0.0.0/8"),
+                IpInterval.parse("10.1.0.0/16"),
+                IpInterval.parse("11.0.0.0/8"));
+
+        final IpRangeIndex<Boolean> subject = IpRangeIndex.of(intervals, range -> Boolean.TRUE);
+
+        assertThat(subject.size(), is(1));
+        assertThat(subject.getValue(IpInterval.parse("10.0.0.0 - 11.255.255.255")), is(true));
+    }
+
+    @Test
+    public void full_address_space() {
+        final List<IpInterval<?>> intervals = Lists.newArrayList(IpInterval.parse("0/0"), IpInterval.parse("::/0"));
+
+        final IpRangeIndex<Boolean> subject = IpRangeIndex.of(intervals, range -> Boolean.TRUE);
+
+        assertThat(subject.getValue(InetAddresses.forString("0.0.0.0")), is(true));
+        assertThat(subject.getValue(InetAddresses.forString("255.255.255.255")), is(true));
+        assertThat(subject.getValue(InetAddresses.forString("::")), is(true));
+        assertThat(subject.getValue(InetAddresses.forString("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")), is(true));
+        assertThat(subject.getValue(InetAddresses.forString("8000::")), is(true));
+    }
+
+    private static void add(final IpResourceTree<String> tree, final List<IpInterval<?>> intervals, final String prefix, final String value) {
+        final IpInterval<?> interval = IpInterval.parse(prefix);
+        tree.add(interval, value);
+        intervals.add(interval);
+    }
+}
@@ -4,6 +4,7 @@ import net.ripe.db.whois.common.ip.IpInterval;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -30,6 +31,21 @@ public class IpResourceTreeTest {
         subject.add(ipv6Resource, 61);
     }
 
+    @Test
+    public void test_of() {
+        final IpResourceTree<Integer> tree = IpResourceTree.of(asList(
+                new IpResourceEntry<>(ipv4ResourceMoreSpecific, 42),
+                new IpResourceEntry<>(ipv6Resource, 61),
+                new IpResourceEntry<>(ipv4Resource, 40),
+                new IpResourceEntry<>(ipv4Resource, 41)));
+
+        assertThat(tree.getValue(ipv4Resource), is(41));
+        assertThat(tree.getValue(ipv4ResourceMoreSpecific), is(42));
+        assertThat(tree.getValue(IpInterval.parse("128.0.0.2")), is(41));
+        assertThat(tree.getValue(ipv4ResourceUnknown), is(nullValue()));
+        assertThat(tree.getValue(ipv6ResourceMoreSpecific), is(61));
+    }
+
     @Test
     public void test_getValue_ipv4_exact() {
         assertThat(subject.getValue(ipv4Resource), is(41));
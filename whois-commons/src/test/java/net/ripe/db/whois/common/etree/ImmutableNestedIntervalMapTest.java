@@ -0,0 +1,203 @@
+package net.ripe.db.whois.common.etree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ImmutableNestedIntervalMapTest {
+
+    private final Ipv4Resource N1_12 = new Ipv4Resource(1, 12);
+    private final Ipv4Resource N1_4 = new Ipv4Resource(1, 4);
+    private final Ipv4Resource N5_10 = new Ipv4Resource(5, 10);
+    private final Ipv4Resource N3_3 = new Ipv4Resource(3, 3);
+    private final Ipv4Resource N3_4 = new Ipv4Resource(3, 4);
+    private final Ipv4Resource N5_8 = new Ipv4Resource(5, 8);
+    private final Ipv4Resource N9_10 = new Ipv4Resource(9, 10);
+    private final Ipv4Resource N11_12 = new Ipv4Resource(11, 12);
+
+    private ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> subject;
+
+    @BeforeEach
+    public void setup() {
+        subject = ImmutableNestedIntervalMap.<Ipv4Resource, Ipv4Resource>builder()
+                .put(N3_3, N3_3)
+                .put(N1_12, N1_12)
+                .put(N5_8, N5_8)
+                .put(N1_4, N1_4)
+                .put(N5_10, N5_10)
+                .put(N3_4, N3_4)
+                .put(N9_10, N9_10)
+                .put(N11_12, N11_12)
+                .build();
+    }
+
+    @Test
+    public void empty_map() {
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> empty = ImmutableNestedIntervalMap.of();
+
+        assertThat(empty.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), empty());
+        assertThat(empty.findExactOrFirstLessSpecific(N1_12), empty());
+    }
+
+    @Test
+    public void find_exact_and_less_specific() {
+        assertThat(subject.findExact(N3_4), contains(N3_4));
+        assertThat(subject.findExact(new Ipv4Resource(2, 2)), empty());
+        assertThat(subject.findFirstLessSpecific(N3_3), contains(N3_4));
+        assertThat(subject.findAllLessSpecific(N3_3), contains(N1_12, N1_4, N3_4));
+        assertThat(subject.findExactAndAllLessSpecific(N3_3), contains(N1_12, N1_4, N3_4, N3_3));
+        assertThat(subject.findExactOrFirstLessSpecific(new Ipv4Resource(6, 6)), contains(N5_8));
+    }
+
+    @Test
+    public void find_more_specific() {
+        assertThat(subject.findFirstMoreSpecific(N1_12), contains(N1_4, N5_10, N11_12));
+        assertThat(subject.findAllMoreSpecific(N5_10), contains(N5_8, N9_10));
+        assertThat(subject.findExactAndAllMoreSpecific(N1_4), contains(N1_4, N3_4, N3_3));
+        assertThat(subject.findAllMoreSpecific(new Ipv4Resource(4, 9)), contains(N5_8));
+    }
+
+    @Test
+    public void builder_does_not_modify_existing_map() {
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> updated = subject.toBuilder()
+                .remove(N5_10)
+                .put(N3_3, N1_4)
+                .put(new Ipv4Resource(7, 7), N1_12)
+                .build();
+
+        assertThat(subject.findFirstMoreSpecific(N1_12), contains(N1_4, N5_10, N11_12));
+        assertThat(subject.findExact(N3_3), contains(N3_3));
+        assertThat(subject.findExact(new Ipv4Resource(7, 7)), empty());
+
+        assertThat(updated.findFirstMoreSpecific(N1_12), contains(N1_4, N5_8, N9_10, N11_12));
+        assertThat(updated.findExact(N3_3), contains(N1_4));
+        assertThat(updated.findExactAndAllLessSpecific(new Ipv4Resource(7, 7)), contains(N1_12, N5_8, N1_12));
+    }
+
+    @Test
+    public void builder_can_be_reused_after_build() {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = subject.toBuilder().remove(N3_4);
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> first = builder.build();
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> second = builder.remove(N3_3).build();
+
+        assertThat(first.findFirstMoreSpecific(N1_4), contains(N3_3));
+        assertThat(second.findFirstMoreSpecific(N1_4), empty());
+    }
+
+    @Test
+    public void remove_with_value() {
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> updated = subject.toBuilder()
+                .remove(N1_4, N1_12)
+                .remove(N9_10, N9_10)
+                .build();
+
+        assertThat(updated.findExact(N1_4), contains(N1_4));
+        assertThat(updated.findExact(N9_10), empty());
+    }
+
+    @Test
+    public void intersecting_interval() {
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = subject.toBuilder();
+
+        assertThrows(IntersectingIntervalException.class, () -> builder.put(new Ipv4Resource(4, 5), N1_12));
+        assertEquals(subject.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), builder.build().findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE));
+    }
+
+    @Test
+    public void not_modifiable() {
+        assertThrows(UnsupportedOperationException.class, () -> subject.put(N1_12, N1_12));
+        assertThrows(UnsupportedOperationException.class, () -> subject.remove(N1_12));
+        assertThrows(UnsupportedOperationException.class, () -> subject.clear());
+    }
+
+    @Test
+    public void same_results_as_nested_interval_map() {
+        final long seed = System.currentTimeMillis();
+        final Random random = new Random(seed);
+
+        final NestedIntervalMap<Ipv4Resource, Ipv4Resource> expected = new NestedIntervalMap<>();
+        final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = ImmutableNestedIntervalMap.builder();
+
+        for (int i = 0; i < 2000; i++) {
+            final Ipv4Resource range = randomIpv4Interval(random);
+            if (random.nextInt(4) == 0) {
+                expected.remove(range);
+                builder.remove(range);
+            } else {
+                try {
+                    expected.put(range, range);
+                } catch (IntersectingIntervalException e) {
+                    assertThrows(IntersectingIntervalException.class, () -> builder.put(range, range), "failed with seed: " + seed);
+                    continue;
+                }
+                builder.put(range, range);
+            }
+        }
+
+        final ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> actual = builder.build();
+        for (int i = 0; i < 200; i++) {
+            final Ipv4Resource range = randomIpv4Interval(random);
+            assertEquals(expected.findExactAndAllLessSpecific(range), actual.findExactAndAllLessSpecific(range), "failed with seed: " + seed);
+            assertEquals(expected.findFirstMoreSpecific(range), actual.findFirstMoreSpecific(range), "failed with seed: " + seed);
+            assertEquals(expected.findExactAndAllMoreSpecific(range), actual.findExactAndAllMoreSpecific(range), "failed with seed: " + seed);
+        }
+
+        final List<Ipv4Resource> all = expected.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE);
+        assertEquals(all, actual.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), "failed with seed: " + seed);
+
+        Collections.reverse(all);
+        for (final Ipv4Resource range : all) {
+            builder.remove(range);
+        }
+        assertThat(builder.build().findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), empty());
+        assertThat(actual.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), hasSize(all.size()));
+    }
+
+    @Test
+    public void sorted_put_same_results_as_nested_interval_map() {
+        final long seed = System.currentTimeMillis();
+        final Random random = new Random(seed);
+
+        final NestedIntervalMap<Ipv4Resource, Ipv4Resource> expected = new NestedIntervalMap<>();
+        ImmutableNestedIntervalMap<Ipv4Resource, Ipv4Resource> actual = ImmutableNestedIntervalMap.of();
+
+        for (int round = 0; round < 3; round++) {
+            final List<Ipv4Resource> ranges = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                ranges.add(randomIpv4Interval(random));
+            }
+            Collections.sort(ranges);
+
+            final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Ipv4Resource> builder = actual.toBuilder();
+            for (final Ipv4Resource range : ranges) {
+                try {
+                    expected.put(range, range);
+                } catch (IntersectingIntervalException e) {
+                    assertThrows(IntersectingIntervalException.class, () -> builder.put(range, range), "failed with seed: " + seed);
+                    continue;
+                }
+                builder.put(range, range);
+            }
+            actual = builder.build();
+
+            assertEquals(expected.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), actual.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), "failed with seed: " + seed);
+        }
+    }
+
+    private Ipv4Resource randomIpv4Interval(final Random random) {
+        final long begin = random.nextInt(1000);
+        return new Ipv4Resource(begin, begin + random.nextInt(random.nextBoolean() ? 10 : 200));
+    }
+}
@@ -0,0 +1,94 @@
+package net.ripe.db.whois.common.etree;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares loading sorted intervals with {@link NestedIntervalMap#bulkLoad(java.util.Iterator)} against adding them
+ * one by one, similar to rebuilding the IP trees of a large database.
+ */
+@Tag("ManualTest")
+public class NestedIntervalMapBulkLoadBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NestedIntervalMapBulkLoadBenchmark.class);
+
+    private static final int INTERVALS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void bulk_load_versus_put() {
+        final List<Map.Entry<Ipv4Resource, Integer>> entries = generateSortedIntervals(new Random(0));
+        LOGGER.info("Generated {} intervals", entries.size());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            final NestedIntervalMap<Ipv4Resource, Integer> put = new NestedIntervalMap<>();
+            for (final Map.Entry<Ipv4Resource, Integer> entry : entries) {
+                put.put(entry.getKey(), entry.getValue());
+            }
+            final long putMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+            stopwatch = Stopwatch.createStarted();
+            final NestedIntervalMap<Ipv4Resource, Integer> bulkLoaded = NestedIntervalMap.bulkLoad(entries.iterator());
+            final long bulkLoadMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+            stopwatch = Stopwatch.createStarted();
+            final ImmutableNestedIntervalMap.Builder<Ipv4Resource, Integer> builder = ImmutableNestedIntervalMap.builder();
+            for (final Map.Entry<Ipv4Resource, Integer> entry : entries) {
+                builder.put(entry.getKey(), entry.getValue());
+            }
+            builder.build();
+            final long immutableMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+            LOGGER.info("Round {}: put {} ms, bulkLoad {} ms, immutable builder {} ms", round, putMillis, bulkLoadMillis, immutableMillis);
+            assertEquals(put, bulkLoaded);
+        }
+    }
+
+    /*
+     * Top-level ranges split into allocations and assignments, up to four levels deep.
+     */
+    private static List<Map.Entry<Ipv4Resource, Integer>> generateSortedIntervals(final Random random) {
+        final List<Map.Entry<Ipv4Resource, Integer>> result = new ArrayList<>(INTERVALS);
+        long begin = 0;
+        while (result.size() < INTERVALS && begin < (1L << 32)) {
+            final long size = 1L << (16 + random.nextInt(8));
+            addNested(result, random, begin, begin + size - 1, 0);
+            begin += size;
+        }
+        Collections.sort(result, (left, right) -> left.getKey().compareTo(right.getKey()));
+        return result;
+    }
+
+    private static void addNested(final List<Map.Entry<Ipv4Resource, Integer>> result, final Random random, final long begin, final long end, final int depth) {
+        if (result.size() >= INTERVALS) {
+            return;
+        }
+        result.add(Maps.immutableEntry(new Ipv4Resource(begin, end), result.size()));
+
+        final long size = end - begin + 1;
+        if (depth == 4 || size < 16) {
+            return;
+        }
+
+        final long childSize = size / (2 + random.nextInt(14));
+        for (long childBegin = begin; childBegin + childSize - 1 <= end; childBegin += childSize) {
+            if (random.nextInt(3) > 0) {
+                addNested(result, random, childBegin, childBegin + childSize - 1, depth + 1);
+            }
+        }
+    }
+}
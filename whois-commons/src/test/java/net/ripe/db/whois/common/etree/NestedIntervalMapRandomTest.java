@@ -1,5 +1,6 @@
 package net.ripe.db.whois.common.etree;
 
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import org.junit.jupiter.api.BeforeEach;
@@ -90,6 +91,29 @@ public class NestedIntervalMapRandomTest {
         assertEquals(everything, subject.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), "failed with seed: " + seed);
     }
 
+    @Test
+    public void should_bulk_load_sorted_intervals() {
+        List<Map.Entry<Ipv4Resource, Ipv4Resource>> entries = new ArrayList<>();
+        for (Ipv4Resource interval : everything) {
+            entries.add(Maps.immutableEntry(interval, interval));
+        }
+
+        assertEquals(subject, NestedIntervalMap.bulkLoad(entries.iterator()), "failed with seed: " + seed);
+    }
+
+    @Test
+    public void sorted_builder_should_accept_unsorted_intervals() {
+        List<Ipv4Resource> shuffled = new ArrayList<>(everything);
+        Collections.shuffle(shuffled, random);
+
+        NestedIntervalMap.SortedBuilder<Ipv4Resource, Ipv4Resource> builder = new NestedIntervalMap.SortedBuilder<>();
+        for (Ipv4Resource interval : shuffled) {
+            builder.put(interval, interval);
+        }
+
+        assertEquals(subject, builder.build(), "failed with seed: " + seed);
+    }
+
     @Test
     public void should_find_every_interval_individually() {
         for (Ipv4Resource interval : everything) {
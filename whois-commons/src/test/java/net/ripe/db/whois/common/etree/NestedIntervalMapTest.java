@@ -14,6 +14,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -90,6 +91,25 @@ public class NestedIntervalMapTest {
         }
     }
 
+    @Test
+    public void sorted_builder() {
+        final NestedIntervalMap.SortedBuilder<Ipv4Resource, Ipv4Resource> builder = new NestedIntervalMap.SortedBuilder<Ipv4Resource, Ipv4Resource>()
+                .put(N1_12, N1_12)
+                .put(N1_4, N1_4)
+                .put(N3_4, N3_4);
+
+        assertThrows(IntersectingIntervalException.class, () -> builder.put(new Ipv4Resource(4, 5), N4_4));
+
+        final NestedIntervalMap<Ipv4Resource, Ipv4Resource> map = builder
+                .put(N3_4, N3_3)
+                .put(N5_10, N5_10)
+                .put(N2_2, N2_2)
+                .build();
+
+        assertThat(map.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), contains(N1_12, N1_4, N2_2, N3_3, N5_10));
+        assertThat(map.findFirstMoreSpecific(N1_4), contains(N2_2, N3_3));
+    }
+
     @Test
     public void test_remove_n1_10() {
         subject.remove(N1_12);
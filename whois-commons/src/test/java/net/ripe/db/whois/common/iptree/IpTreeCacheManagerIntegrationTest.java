@@ -0,0 +1,91 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.etree.IntervalMap;
+import net.ripe.db.whois.common.ip.Interval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+@Tag("IntegrationTest")
+public class IpTreeCacheManagerIntegrationTest extends AbstractDaoIntegrationTest {
+    @Autowired IpTreeCacheManager subject;
+    @Value("${whois.source}") String source;
+
+    private CIString sourceName;
+
+    @BeforeEach
+    public void setup() {
+        sourceName = ciString(source);
+    }
+
+    @Test
+    public void rebuild_matches_incremental_update() {
+        databaseHelper.addObject("inetnum: 0.0.0.0 - 255.255.255.255\nsource: TEST");
+        databaseHelper.addObject("inetnum: 10.0.0.0 - 10.255.255.255\nsource: TEST");
+        databaseHelper.addObject("inetnum: 193.0.0.0 - 193.0.7.255\nsource: TEST");
+
+        // the upper half of the address space has negative msb or lsb columns
+        databaseHelper.addObject("inet6num: ::/0\nsource: TEST");
+        databaseHelper.addObject("inet6num: 2001:db8::/32\nsource: TEST");
+        databaseHelper.addObject("inet6num: 2001:db8::/64\nsource: TEST");
+        databaseHelper.addObject("inet6num: 2001:db8:0:0:8000::/65\nsource: TEST");
+        databaseHelper.addObject("inet6num: 2001:db8:0:0:8000::/80\nsource: TEST");
+        databaseHelper.addObject("inet6num: 8000::/1\nsource: TEST");
+        databaseHelper.addObject("inet6num: fe80::/10\nsource: TEST");
+        databaseHelper.addObject("inet6num: ffff::/16\nsource: TEST");
+
+        databaseHelper.addObject("route: 10.0.0.0/8\norigin: AS3333\nsource: TEST");
+        databaseHelper.addObject("route6: 2001:db8::/32\norigin: AS3333\nsource: TEST");
+        databaseHelper.addObject("route6: 2001:db8:0:0:8000::/65\norigin: AS3333\nsource: TEST");
+        databaseHelper.addObject("route6: 8000::/1\norigin: AS3333\nsource: TEST");
+        databaseHelper.addObject("route6: ffff::/16\norigin: AS3333\nsource: TEST");
+        databaseHelper.addObject("route6: ffff::/16\norigin: AS3334\nsource: TEST");
+
+        ipTreeUpdater.update();
+        final IpTreeCacheManager.NestedIntervalMaps incremental = subject.get(sourceName);
+
+        ipTreeUpdater.rebuild();
+        final IpTreeCacheManager.NestedIntervalMaps rebuilt = subject.get(sourceName);
+
+        assertThat(rebuilt.lastSerial, is(incremental.lastSerial));
+        assertThat(getEntries(rebuilt.getIpv6TreeCache(), Ipv6Resource.MAX_RANGE), hasSize(8));
+        assertThat(getEntries(rebuilt.getIpv6RouteTreeCache(), Ipv6Resource.MAX_RANGE), hasSize(5));
+
+        assertSameTree(rebuilt.getIpv4TreeCache(), incremental.getIpv4TreeCache(), Ipv4Resource.MAX_RANGE);
+        assertSameTree(rebuilt.getIpv6TreeCache(), incremental.getIpv6TreeCache(), Ipv6Resource.MAX_RANGE);
+        assertSameTree(rebuilt.getIpv4RouteTreeCache(), incremental.getIpv4RouteTreeCache(), Ipv4Resource.MAX_RANGE);
+        assertSameTree(rebuilt.getIpv6RouteTreeCache(), incremental.getIpv6RouteTreeCache(), Ipv6Resource.MAX_RANGE);
+    }
+
+    private static <K extends Interval<K>, V extends IpEntry<K>> void assertSameTree(final IntervalMap<K, V> rebuilt, final IntervalMap<K, V> incremental, final K maxRange) {
+        assertThat(getEntries(rebuilt, maxRange), is(getEntries(incremental, maxRange)));
+
+        for (final V entry : rebuilt.findExactAndAllMoreSpecific(maxRange)) {
+            assertThat(toString(rebuilt.findFirstLessSpecific(entry.getKey())), is(toString(incremental.findFirstLessSpecific(entry.getKey()))));
+        }
+    }
+
+    private static <K extends Interval<K>, V extends IpEntry<K>> List<String> getEntries(final IntervalMap<K, V> tree, final K maxRange) {
+        return toString(tree.findExactAndAllMoreSpecific(maxRange));
+    }
+
+    private static <K extends Interval<K>, V extends IpEntry<K>> List<String> toString(final List<V> entries) {
+        return entries.stream()
+                .map(entry -> entry.getKey() + " " + entry.getObjectId() + (entry instanceof RouteEntry ? " " + ((RouteEntry<?>) entry).getOrigin() : ""))
+                .collect(Collectors.toList());
+    }
+}
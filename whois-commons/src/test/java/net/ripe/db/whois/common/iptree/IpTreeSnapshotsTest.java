@@ -0,0 +1,113 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class IpTreeSnapshotsTest {
+    private static final CIString SOURCE = ciString("TEST");
+
+    @TempDir
+    public File folder;
+
+    private IpTreeSnapshots subject;
+    private IpTreeCacheManager.NestedIntervalMaps nestedIntervalMaps;
+
+    private final Ipv4Entry inetnum = new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 1);
+    private final Ipv4Entry inetnumChild = new Ipv4Entry(Ipv4Resource.parse("10.1.0.0/16"), 2);
+    private final Ipv6Entry inet6num = new Ipv6Entry(Ipv6Resource.parse("2001:db8::/32"), 3);
+    private final Ipv4RouteEntry route = new Ipv4RouteEntry(Ipv4Resource.parse("10.1.0.0/16"), 4, "AS123");
+    private final Ipv4RouteEntry routeOtherOrigin = new Ipv4RouteEntry(Ipv4Resource.parse("10.1.0.0/16"), 5, "AS456");
+    private final Ipv6RouteEntry route6 = new Ipv6RouteEntry(Ipv6Resource.parse("2001:db8::/48"), 6, "AS123");
+    private final Ipv4Entry domain = new Ipv4Entry(Ipv4Resource.parse("193.0.0.0/24"), 7);
+    private final Ipv6Entry domain6 = new Ipv6Entry(Ipv6Resource.parse("2001:db8::/48"), 8);
+
+    @BeforeEach
+    public void setup() {
+        subject = new IpTreeSnapshots(folder.getAbsolutePath());
+
+        final IpTreeCacheManager.NestedIntervalMaps.Builder builder = new IpTreeCacheManager.NestedIntervalMaps.Builder(IpTreeCacheManager.NestedIntervalMaps.EMPTY);
+        builder.ipv4TreeCache().put(inetnumChild.getKey(), inetnumChild);
+        builder.ipv4TreeCache().put(inetnum.getKey(), inetnum);
+        builder.ipv6TreeCache().put(inet6num.getKey(), inet6num);
+        builder.ipv4RouteTreeCache().put(route.getKey(), route);
+        builder.ipv4RouteTreeCache().put(routeOtherOrigin.getKey(), routeOtherOrigin);
+        builder.ipv6RouteTreeCache().put(route6.getKey(), route6);
+        builder.ipv4DomainTreeCache().put(domain.getKey(), domain);
+        builder.ipv6DomainTreeCache().put(domain6.getKey(), domain6);
+        nestedIntervalMaps = builder.build(1234);
+    }
+
+    @Test
+    public void write_and_read() {
+        assertThat(subject.write(SOURCE, nestedIntervalMaps), is(true));
+
+        final IpTreeCacheManager.NestedIntervalMaps read = subject.read(SOURCE, IpTreeCacheManager.NestedIntervalMaps.EMPTY);
+
+        assertThat(read.lastSerial, is(1234L));
+        assertThat(read.getIpv4TreeCache().findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), contains(inetnum, inetnumChild));
+        assertThat(read.getIpv4TreeCache().findExact(inetnumChild.getKey()).get(0).getObjectId(), is(2));
+        assertThat(read.getIpv6TreeCache().findExactAndAllMoreSpecific(Ipv6Resource.MAX_RANGE), contains(inet6num));
+        assertThat(read.getIpv4RouteTreeCache().findExact(route.getKey()), contains(route, routeOtherOrigin));
+        assertThat(read.getIpv6RouteTreeCache().findExactAndAllMoreSpecific(Ipv6Resource.MAX_RANGE), contains(route6));
+        assertThat(read.getIpv4DomainTreeCache().findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), contains(domain));
+        assertThat(read.getIpv6DomainTreeCache().findExactAndAllMoreSpecific(Ipv6Resource.MAX_RANGE), contains(domain6));
+    }
+
+    @Test
+    public void read_into_primitive_trees() {
+        subject.write(SOURCE, nestedIntervalMaps);
+
+        final IpTreeCacheManager.NestedIntervalMaps read = subject.read(SOURCE, IpTreeCacheManager.NestedIntervalMaps.EMPTY_PRIMITIVE);
+
+        assertThat(read.getIpv4TreeCache().findExactAndAllLessSpecific(inetnumChild.getKey()), contains(inetnum, inetnumChild));
+        assertThat(read.getIpv6DomainTreeCache().findExactOrFirstLessSpecific(Ipv6Resource.parse("2001:db8::1/128")), contains(domain6));
+    }
+
+    @Test
+    public void read_missing_snapshot() {
+        assertThat(subject.read(SOURCE, IpTreeCacheManager.NestedIntervalMaps.EMPTY), nullValue());
+    }
+
+    @Test
+    public void read_truncated_snapshot() throws IOException {
+        subject.write(SOURCE, nestedIntervalMaps);
+
+        final File snapshot = new File(folder, "test.iptree");
+        final byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        Files.write(snapshot.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertThat(subject.read(SOURCE, IpTreeCacheManager.NestedIntervalMaps.EMPTY), nullValue());
+    }
+
+    @Test
+    public void write_failure() throws IOException {
+        final File notADirectory = new File(folder, "file");
+        Files.write(notADirectory.toPath(), new byte[0]);
+
+        assertThat(new IpTreeSnapshots(notADirectory.getAbsolutePath()).write(SOURCE, nestedIntervalMaps), is(false));
+    }
+
+    @Test
+    public void disabled() {
+        final IpTreeSnapshots disabled = new IpTreeSnapshots("");
+        assertThat(disabled.write(SOURCE, nestedIntervalMaps), is(false));
+
+        assertThat(disabled.read(SOURCE, IpTreeCacheManager.NestedIntervalMaps.EMPTY), nullValue());
+        assertThat(folder.list().length, is(0));
+    }
+}
@@ -0,0 +1,41 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class NestedIntervalMapsTest {
+
+    private final Ipv4Entry inetnum = new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 1);
+    private final Ipv4Entry inetnumChild = new Ipv4Entry(Ipv4Resource.parse("10.1.0.0/16"), 2);
+    private final Ipv6Entry inet6num = new Ipv6Entry(Ipv6Resource.parse("2001:db8::/32"), 3);
+
+    @Test
+    public void unchanged_trees_are_shared() {
+        final IpTreeCacheManager.NestedIntervalMaps.Builder builder = new IpTreeCacheManager.NestedIntervalMaps.Builder(IpTreeCacheManager.NestedIntervalMaps.EMPTY);
+        builder.ipv4TreeCache().put(inetnum.getKey(), inetnum);
+        builder.ipv6TreeCache().put(inet6num.getKey(), inet6num);
+        final IpTreeCacheManager.NestedIntervalMaps previous = builder.build(1);
+
+        final IpTreeCacheManager.NestedIntervalMaps.Builder next = new IpTreeCacheManager.NestedIntervalMaps.Builder(previous);
+        next.ipv4TreeCache().put(inetnumChild.getKey(), inetnumChild);
+        final IpTreeCacheManager.NestedIntervalMaps nestedIntervalMaps = next.build(2);
+
+        assertThat(nestedIntervalMaps.getIpv4TreeCache(), is(not(sameInstance(previous.getIpv4TreeCache()))));
+        assertThat(nestedIntervalMaps.getIpv6TreeCache(), is(sameInstance(previous.getIpv6TreeCache())));
+        assertThat(nestedIntervalMaps.getIpv4RouteTreeCache(), is(sameInstance(previous.getIpv4RouteTreeCache())));
+        assertThat(nestedIntervalMaps.getIpv6RouteTreeCache(), is(sameInstance(previous.getIpv6RouteTreeCache())));
+        assertThat(nestedIntervalMaps.getIpv4DomainTreeCache(), is(sameInstance(previous.getIpv4DomainTreeCache())));
+        assertThat(nestedIntervalMaps.getIpv6DomainTreeCache(), is(sameInstance(previous.getIpv6DomainTreeCache())));
+
+        assertThat(nestedIntervalMaps.getIpv4TreeCache().findExactOrFirstLessSpecific(inetnumChild.getKey()), contains(inetnumChild));
+        assertThat(previous.getIpv4TreeCache().findExactAndAllMoreSpecific(inetnumChild.getKey()), is(empty()));
+    }
+}
@@ -0,0 +1,195 @@
+package net.ripe.db.whois.common.iptree;
+
+import net.ripe.db.whois.common.etree.IntersectingIntervalException;
+import net.ripe.db.whois.common.etree.NestedIntervalMap;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PrimitiveIntervalMapTest {
+
+    private final Ipv4Entry N1_12 = new Ipv4Entry(new Ipv4Resource(1, 12), 1);
+    private final Ipv4Entry N1_4 = new Ipv4Entry(new Ipv4Resource(1, 4), 2);
+    private final Ipv4Entry N5_10 = new Ipv4Entry(new Ipv4Resource(5, 10), 3);
+    private final Ipv4Entry N3_3 = new Ipv4Entry(new Ipv4Resource(3, 3), 4);
+    private final Ipv4Entry N3_4 = new Ipv4Entry(new Ipv4Resource(3, 4), 5);
+    private final Ipv4Entry N5_8 = new Ipv4Entry(new Ipv4Resource(5, 8), 6);
+    private final Ipv4Entry N9_10 = new Ipv4Entry(new Ipv4Resource(9, 10), 7);
+    private final Ipv4Entry N11_12 = new Ipv4Entry(new Ipv4Resource(11, 12), 8);
+
+    private PrimitiveIntervalMap<Ipv4Resource, Ipv4Entry> subject;
+
+    @BeforeEach
+    public void setup() {
+        subject = PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV4).toBuilder()
+                .put(N3_3.getKey(), N3_3)
+                .put(N1_12.getKey(), N1_12)
+                .put(N5_8.getKey(), N5_8)
+                .put(N1_4.getKey(), N1_4)
+                .put(N5_10.getKey(), N5_10)
+                .put(N3_4.getKey(), N3_4)
+                .put(N9_10.getKey(), N9_10)
+                .put(N11_12.getKey(), N11_12)
+                .build();
+    }
+
+    @Test
+    public void empty_map() {
+        final PrimitiveIntervalMap<Ipv6Resource, Ipv6Entry> empty = PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV6);
+
+        assertThat(empty.findExactAndAllMoreSpecific(Ipv6Resource.parse("::/0")), empty());
+        assertThat(empty.findExactOrFirstLessSpecific(Ipv6Resource.parse("2001::/16")), empty());
+    }
+
+    @Test
+    public void find_exact_and_less_specific() {
+        assertThat(subject.findExact(N3_4.getKey()), contains(N3_4));
+        assertThat(subject.findExact(new Ipv4Resource(2, 2)), empty());
+        assertThat(subject.findFirstLessSpecific(N3_3.getKey()), contains(N3_4));
+        assertThat(subject.findAllLessSpecific(N3_3.getKey()), contains(N1_12, N1_4, N3_4));
+        assertThat(subject.findExactAndAllLessSpecific(N3_3.getKey()), contains(N1_12, N1_4, N3_4, N3_3));
+        assertThat(subject.findExactOrFirstLessSpecific(new Ipv4Resource(6, 6)), contains(N5_8));
+        assertThat(subject.findExactOrFirstLessSpecific(new Ipv4Resource(6, 6)).get(0).getObjectId(), is(6));
+    }
+
+    @Test
+    public void find_more_specific() {
+        assertThat(subject.findFirstMoreSpecific(N1_12.getKey()), contains(N1_4, N5_10, N11_12));
+        assertThat(subject.findAllMoreSpecific(N5_10.getKey()), contains(N5_8, N9_10));
+        assertThat(subject.findExactAndAllMoreSpecific(N1_4.getKey()), contains(N1_4, N3_4, N3_3));
+        assertThat(subject.findAllMoreSpecific(new Ipv4Resource(4, 9)), contains(N5_8));
+    }
+
+    @Test
+    public void builder_does_not_modify_existing_map() {
+        final Ipv4Entry N7_7 = new Ipv4Entry(new Ipv4Resource(7, 7), 9);
+
+        final PrimitiveIntervalMap<Ipv4Resource, Ipv4Entry> updated = subject.toBuilder()
+                .remove(N5_10.getKey(), N5_10)
+                .put(N3_3.getKey(), new Ipv4Entry(N3_3.getKey(), 10))
+                .put(N7_7.getKey(), N7_7)
+                .build();
+
+        assertThat(subject.findFirstMoreSpecific(N1_12.getKey()), contains(N1_4, N5_10, N11_12));
+        assertThat(subject.findExact(N3_3.getKey()).get(0).getObjectId(), is(4));
+        assertThat(subject.findExact(N7_7.getKey()), empty());
+
+        assertThat(updated.findFirstMoreSpecific(N1_12.getKey()), contains(N1_4, N5_8, N9_10, N11_12));
+        assertThat(updated.findExact(N3_3.getKey()).get(0).getObjectId(), is(10));
+        assertThat(updated.findExactAndAllLessSpecific(N7_7.getKey()), contains(N1_12, N5_8, N7_7));
+    }
+
+    @Test
+    public void build_without_changes() {
+        assertThat(subject.toBuilder().build(), sameInstance(subject));
+    }
+
+    @Test
+    public void intersecting_interval() {
+        final PrimitiveIntervalMap.Builder<Ipv4Resource, Ipv4Entry> builder = subject.toBuilder();
+
+        assertThrows(IntersectingIntervalException.class, () -> builder.put(new Ipv4Resource(4, 5), N1_12));
+        assertThrows(IntersectingIntervalException.class, () -> builder.put(new Ipv4Resource(2, 3), N1_12));
+        assertEquals(subject.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), builder.build().findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE));
+    }
+
+    @Test
+    public void intersecting_interval_skipped_when_building_from_empty() {
+        final PrimitiveIntervalMap<Ipv4Resource, Ipv4Entry> map = PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV4).toBuilder()
+                .put(N1_4.getKey(), N1_4)
+                .put(new Ipv4Resource(4, 5), N1_12)
+                .build();
+
+        assertThat(map.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), contains(N1_4));
+    }
+
+    @Test
+    public void not_modifiable() {
+        assertThrows(UnsupportedOperationException.class, () -> subject.put(N1_12.getKey(), N1_12));
+        assertThrows(UnsupportedOperationException.class, () -> subject.remove(N1_12.getKey()));
+        assertThrows(UnsupportedOperationException.class, () -> subject.clear());
+    }
+
+    @Test
+    public void ipv6() {
+        final Ipv6Entry parent = new Ipv6Entry(Ipv6Resource.parse("2001:db8::/32"), 1);
+        final Ipv6Entry child = new Ipv6Entry(Ipv6Resource.parse("2001:db8:ffff::/48"), 2);
+        final Ipv6Entry high = new Ipv6Entry(Ipv6Resource.parse("ff00::/8"), 3);
+
+        final PrimitiveIntervalMap<Ipv6Resource, Ipv6Entry> map = PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV6).toBuilder()
+                .put(high.getKey(), high)
+                .put(child.getKey(), child)
+                .put(parent.getKey(), parent)
+                .build();
+
+        assertThat(map.findExactAndAllMoreSpecific(Ipv6Resource.parse("::/0")), contains(parent, child, high));
+        assertThat(map.findAllLessSpecific(Ipv6Resource.parse("2001:db8:ffff:1::/64")), contains(parent, child));
+        assertThat(map.findExactOrFirstLessSpecific(Ipv6Resource.parse("ffff::1/128")), contains(high));
+        assertThat(map.findExact(child.getKey()).get(0).getKey(), is(child.getKey()));
+    }
+
+    @Test
+    public void same_results_as_nested_interval_map() {
+        final long seed = System.currentTimeMillis();
+        final Random random = new Random(seed);
+
+        final NestedIntervalMap<Ipv4Resource, Ipv4Entry> expected = new NestedIntervalMap<>();
+        PrimitiveIntervalMap<Ipv4Resource, Ipv4Entry> actual = PrimitiveIntervalMap.empty(PrimitiveIntervalMap.IPV4);
+
+        for (int round = 0; round < 10; round++) {
+            final PrimitiveIntervalMap.Builder<Ipv4Resource, Ipv4Entry> builder = actual.toBuilder();
+            for (int i = 0; i < 200; i++) {
+                final Ipv4Entry entry = new Ipv4Entry(randomIpv4Interval(random), random.nextInt(1000));
+                if (round > 0 && random.nextInt(4) == 0) {
+                    final List<Ipv4Entry> existing = expected.findExact(entry.getKey());
+                    final Ipv4Entry removed = existing.isEmpty() ? entry : existing.get(0);
+                    expected.remove(removed.getKey(), removed);
+                    builder.remove(removed.getKey(), removed);
+                } else {
+                    try {
+                        expected.put(entry.getKey(), entry);
+                    } catch (IntersectingIntervalException e) {
+                        if (round > 0) {
+                            assertThrows(IntersectingIntervalException.class, () -> builder.put(entry.getKey(), entry), "failed with seed: " + seed);
+                        }
+                        continue;
+                    }
+                    builder.put(entry.getKey(), entry);
+                }
+            }
+            actual = builder.build();
+
+            for (int i = 0; i < 100; i++) {
+                final Ipv4Resource range = randomIpv4Interval(random);
+                assertEquals(objectIds(expected.findExactAndAllLessSpecific(range)), objectIds(actual.findExactAndAllLessSpecific(range)), "failed with seed: " + seed);
+                assertEquals(objectIds(expected.findFirstLessSpecific(range)), objectIds(actual.findFirstLessSpecific(range)), "failed with seed: " + seed);
+                assertEquals(objectIds(expected.findFirstMoreSpecific(range)), objectIds(actual.findFirstMoreSpecific(range)), "failed with seed: " + seed);
+                assertEquals(objectIds(expected.findAllMoreSpecific(range)), objectIds(actual.findAllMoreSpecific(range)), "failed with seed: " + seed);
+            }
+
+            assertEquals(expected.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), actual.findExactAndAllMoreSpecific(Ipv4Resource.MAX_RANGE), "failed with seed: " + seed);
+        }
+    }
+
+    private static List<Integer> objectIds(final List<Ipv4Entry> entries) {
+        return entries.stream().map(Ipv4Entry::getObjectId).collect(Collectors.toList());
+    }
+
+    private Ipv4Resource randomIpv4Interval(final Random random) {
+        final long begin = random.nextInt(1000);
+        return new Ipv4Resource(begin, begin + random.nextInt(random.nextBoolean() ? 10 : 200));
+    }
+}
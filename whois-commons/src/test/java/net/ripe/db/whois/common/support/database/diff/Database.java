@@ -47,6 +47,7 @@ public class Database {
                         // [EB]: We do *NOT* care for the lock table
                         if (tableName.equalsIgnoreCase("update_lock") ||
                             tableName.equalsIgnoreCase("transfer_update_lock") ||
+                            tableName.equalsIgnoreCase("update_lock_stripe") ||
                             tableName.equalsIgnoreCase("x509")) {
                             continue;
                         }
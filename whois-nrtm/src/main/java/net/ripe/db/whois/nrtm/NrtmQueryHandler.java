@@ -1,9 +1,9 @@
 package net.ripe.db.whois.nrtm;
 
-import com.google.common.util.concurrent.Uninterruptibles;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -23,13 +23,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.task.TaskRejectedException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
-import org.springframework.scheduling.TaskScheduler;
 
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import java.util.List;
 
 public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
 
@@ -40,37 +37,37 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
     static final int SECONDS_PER_DAY = 60 * 60 * 24;
     static final int HISTORY_AGE_LIMIT = 14 * SECONDS_PER_DAY;
 
+    // number of serials read in one query, and written with one flush
+    static final int SERIAL_BLOCK_SIZE = 1000;
+
     private final SerialDao serialDao;
     private final Dummifier dummifier;
-    private final TaskScheduler clientSynchronisationScheduler;
+    private final NrtmSerialTailer serialTailer;
 
     private final NrtmLog nrtmLog;
     private final ApplicationVersion applicationVersion;
     private final String source;
     private final String nonAuthSource;
-    private final long updateInterval;
     private final boolean keepaliveEndOfStream;
 
-    private volatile ScheduledFuture<?> scheduledFuture;
+    private volatile NrtmSerialTailer.Subscription subscription;
 
     public NrtmQueryHandler(
             @Qualifier("jdbcSlaveSerialDao") final SerialDao serialDao,
             @Qualifier("dummifierNrtm") final Dummifier dummifier,
-            @Qualifier("clientSynchronisationScheduler") final TaskScheduler clientSynchronisationScheduler,
+            final NrtmSerialTailer serialTailer,
             final NrtmLog nrtmLog,
             final ApplicationVersion applicationVersion,
             @Value("${whois.source}") final String source,
             @Value("${whois.nonauth.source}") final String nonAuthSource,
-            @Value("${nrtm.update.interval:60}") final long updateInterval,
             @Value("${nrtm.keepalive.end.of.stream:false}") final boolean keepaliveEndOfStream) {
         this.serialDao = serialDao;
         this.dummifier = dummifier;
-        this.clientSynchronisationScheduler = clientSynchronisationScheduler;
+        this.serialTailer = serialTailer;
         this.nrtmLog = nrtmLog;
         this.applicationVersion = applicationVersion;
         this.source = source;
         this.nonAuthSource = nonAuthSource;
-        this.updateInterval = updateInterval;
         this.keepaliveEndOfStream = keepaliveEndOfStream;
     }
 
@@ -138,7 +135,7 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
     }
 
     private boolean isKeepAlive() {
-        return scheduledFuture != null;
+        return subscription != null;
     }
 
     private Query parseQueryString(final String queryString) {
@@ -149,39 +146,14 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    // catch up on this channel, then let the shared tailer write new serials
     void handleMirrorQueryWithKeepalive(final Query query, final Channel channel) {
-        final Runnable instance = new Runnable() {
-            private int serial = query.getSerialBegin();
-
-            @Override
-            public void run() {
-                try {
-                    final SerialRange range = serialDao.getSerials();
-                    serial = writeSerials(serial, range.getEnd(), query, channel);
-                } catch (ChannelException e) {
-                    LOGGER.debug("writeSerials: closed channel");
-                } catch (Exception e) {
-                    // [EB]: no rethrowing else the repeating scheduler unschedules us
-                    LOGGER.info("Exception in scheduled task:", e);
-                }
-            }
-        };
-
-        try {
-            scheduledFuture = clientSynchronisationScheduler.scheduleAtFixedRate(instance, updateInterval * 1000);
-        } catch (TaskRejectedException e) {
-            LOGGER.warn("Unable to schedule keepalive instance ({})", e.getMessage());
-            throw e;
-        }
+        final int nextSerial = writeSerials(query.getSerialBegin(), query.getSerialEnd(), query, channel);
+        subscription = serialTailer.subscribe(channel, query, nextSerial);
     }
 
     private void handleMirrorQuery(final Query query, final Channel channel) {
-        for (int serial = query.getSerialBegin(); serial <= query.getSerialEnd(); ) {
-            serial = writeSerials(serial, query.getSerialEnd(), query, channel);
-            if (serial <= query.getSerialEnd()) {
-                Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
-            }
-        }
+        writeSerials(query.getSerialBegin(), query.getSerialEnd(), query, channel);
 
         writeMessage(channel, NrtmMessages.end(query.getSource()));
     }
@@ -192,31 +164,35 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
         boolean written = false;
 
         while (serial <= end) {
+            final int blockEnd = (int) Math.min(end, (long) serial + SERIAL_BLOCK_SIZE - 1);
+            ChannelFuture lastWrite = null;
 
-            if (PendingWrites.isPending(channel)) {
-                Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
-                continue;
-            }
+            for (final SerialEntry serialEntry : readSerials(serial, blockEnd)) {
+                final RpslObject rpslObject = serialEntry.getRpslObject();
+                if (rpslObject == null || !isSerialEntryQueriedSourceType(query.getSource(), rpslObject) || !dummifier.isAllowed(version, rpslObject)) {
+                    continue;
+                }
+
+                awaitWritable(channel, lastWrite);
 
-            final SerialEntry serialEntry = readSerial(serial);
-
-            if (serialEntry != null && isSerialEntryQueriedSourceType(query.getSource(), serialEntry.getRpslObject())) {
-                if (dummifier.isAllowed(version, serialEntry.getRpslObject())) {
-                    final String operation = serialEntry.getOperation().toString();
-                    final String message;
-                    if (version == NrtmServer.NRTM_VERSION) {
-                        message = operation + " " + serial;
-                    } else {
-                        message = operation;
-                    }
-
-                    writeMessage(channel, message);
-                    writeMessage(channel, dummifier.dummify(version, serialEntry.getRpslObject()).toString().trim());
-                    written = true;
+                final String operation = serialEntry.getOperation().toString();
+                final String message;
+                if (version == NrtmServer.NRTM_VERSION) {
+                    message = operation + " " + serialEntry.getSerialId();
+                } else {
+                    message = operation;
                 }
+
+                write(channel, message);
+                lastWrite = write(channel, dummifier.dummify(version, rpslObject).toString().trim());
+                written = true;
+            }
+
+            if (lastWrite != null) {
+                channel.flush();
             }
 
-            serial++;
+            serial = blockEnd + 1;
         }
 
         if (written && query.isKeepalive() && keepaliveEndOfStream) {
@@ -227,8 +203,24 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
     }
 
     @RetryFor(attempts = 10, value = CannotGetJdbcConnectionException.class)
-    private SerialEntry readSerial(final int serial) {
-        return serialDao.getByIdForNrtm(serial);
+    private List<SerialEntry> readSerials(final int begin, final int end) {
+        return serialDao.getSerialEntriesForNrtm(begin, end);
+    }
+
+    // once the outbound buffer is above its high water mark, flush and wait until the client has read it
+    private void awaitWritable(final Channel channel, @Nullable final ChannelFuture lastWrite) {
+        if (lastWrite == null || channel.isWritable()) {
+            return;
+        }
+
+        channel.flush();
+
+        try {
+            lastWrite.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChannelException("Interrupted while waiting for channel to become writable", e);
+        }
     }
 
     private boolean isRequestedSerialInRange(final Query query, final SerialRange range) {
@@ -236,7 +228,7 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
                 query.getSerialEnd() >= range.getBegin() && query.getSerialEnd() <= range.getEnd();
     }
 
-    private boolean isSerialEntryQueriedSourceType(final String queriedSource, final RpslObject rpslObject) {
+    static boolean isSerialEntryQueriedSourceType(final String queriedSource, final RpslObject rpslObject) {
         if (queriedSource != null && rpslObject.containsAttribute(AttributeType.SOURCE)) {
             return queriedSource.equals(rpslObject.getValueForAttribute(AttributeType.SOURCE).toString());
         }
@@ -263,8 +255,6 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelActive(final ChannelHandlerContext ctx) throws Exception {
         if (!ctx.channel().hasAttr(TERMS_CONDITIONS)) {
-            PendingWrites.add(ctx.channel());
-
             writeMessage(ctx.channel(),  NrtmMessages.termsAndConditions());
 
             ctx.channel().attr(TERMS_CONDITIONS).set(true);
@@ -275,11 +265,10 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        if (scheduledFuture != null) {
-            scheduledFuture.cancel(true);
+        if (subscription != null) {
+            serialTailer.unsubscribe(subscription);
         }
 
-        PendingWrites.remove(ctx.channel());
         ctx.fireChannelInactive();
     }
 
@@ -288,49 +277,14 @@ public class NrtmQueryHandler extends ChannelInboundHandlerAdapter {
             throw new ChannelException();
         }
 
-        PendingWrites.increment(channel);
-
-        channel.writeAndFlush(message + "\n\n").addListener(LISTENER);
+        channel.writeAndFlush(message + "\n\n");
     }
 
-    private static final ChannelFutureListener LISTENER = future -> PendingWrites.decrement(future.channel());
-
-    static final class PendingWrites {
-
-        private static final AttributeKey<AtomicInteger> PENDING_WRITE_KEY = AttributeKey.newInstance("pending_write_key");
-
-        private static final int MAX_PENDING_WRITES = 16;
-
-        static void add(final Channel channel) {
-            channel.attr(PENDING_WRITE_KEY).set(new AtomicInteger());
-        }
-
-        static void remove(final Channel channel) {
-            channel.attr(PENDING_WRITE_KEY).set(null);
-        }
-
-
-        static void increment(final Channel channel) {
-            final AtomicInteger pending = channel.attr(PENDING_WRITE_KEY).get();
-            if (pending != null) {
-                pending.incrementAndGet();
-            }
-        }
-
-        static void decrement(final Channel channel) {
-            final AtomicInteger pending = channel.attr(PENDING_WRITE_KEY).get();
-            if (pending != null) {
-                pending.decrementAndGet();
-            }
+    private ChannelFuture write(final Channel channel, final Object message) {
+        if (!channel.isOpen()) {
+            throw new ChannelException();
         }
 
-        static boolean isPending(final Channel channel) {
-            final AtomicInteger pending = channel.attr(PENDING_WRITE_KEY).get();
-            if (pending == null) {
-                throw new ChannelException("channel removed");
-            }
-
-            return (pending.get() > MAX_PENDING_WRITES);
-        }
+        return channel.write(message + "\n\n");
     }
 }
@@ -6,7 +6,6 @@ import net.ripe.db.whois.common.rpsl.Dummifier;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -14,12 +13,11 @@ public class NrtmQueryHandlerFactory {
 
     private final SerialDao serialDao;
     private final Dummifier dummifier;
-    private final TaskScheduler clientSynchronisationScheduler;
+    private final NrtmSerialTailer serialTailer;
     private final NrtmLog nrtmLog;
     final ApplicationVersion applicationVersion;
     private final String source;
     private final String nonAuthSource;
-    private final long updateInterval;
     private final boolean keepaliveEndOfStream;
 
     @Autowired
@@ -27,20 +25,18 @@ public class NrtmQueryHandlerFactory {
             @Qualifier("jdbcSlaveSerialDao") final SerialDao serialDao,
             final NrtmLog nrtmLog,
             @Qualifier("dummifierNrtm") final Dummifier dummifier,
-            @Qualifier("clientSynchronisationScheduler") final TaskScheduler clientSynchronisationScheduler,
+            final NrtmSerialTailer serialTailer,
             final ApplicationVersion applicationVersion,
             @Value("${whois.source}") final String source,
             @Value("${whois.nonauth.source}") final String nonAuthSource,
-            @Value("${nrtm.update.interval:60}") final long updateInterval,
             @Value("${nrtm.keepalive.end.of.stream:false}") final boolean keepaliveEndOfStream) {
         this.serialDao = serialDao;
         this.dummifier = dummifier;
-        this.clientSynchronisationScheduler = clientSynchronisationScheduler;
+        this.serialTailer = serialTailer;
         this.nrtmLog = nrtmLog;
         this.applicationVersion = applicationVersion;
         this.source = source;
         this.nonAuthSource = nonAuthSource;
-        this.updateInterval = updateInterval;
         this.keepaliveEndOfStream = keepaliveEndOfStream;
     }
 
@@ -48,12 +44,11 @@ public class NrtmQueryHandlerFactory {
         return new NrtmQueryHandler(
             serialDao,
             dummifier,
-            clientSynchronisationScheduler,
+            serialTailer,
             nrtmLog,
             applicationVersion,
             source,
             nonAuthSource,
-            updateInterval,
             keepaliveEndOfStream);
     }
 
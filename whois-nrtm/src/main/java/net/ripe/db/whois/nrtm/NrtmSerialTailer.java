@@ -0,0 +1,227 @@
+package net.ripe.db.whois.nrtm;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import net.ripe.db.whois.common.dao.SerialDao;
+import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.rpsl.Dummifier;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Follows the serials table for all NRTM keepalive connections.
+ * <p/>
+ * Every update interval, the new serials are read once, dummified and encoded once for each queried source and NRTM
+ * version, and the encoded messages are written to every subscribed channel. Channels that are not writable are
+ * skipped, and get the serials they missed on a later run.
+ */
+@Component
+public class NrtmSerialTailer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NrtmSerialTailer.class);
+
+    private final SerialDao serialDao;
+    private final Dummifier dummifier;
+    private final TaskScheduler clientSynchronisationScheduler;
+    private final long updateInterval;
+    private final boolean keepaliveEndOfStream;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private ScheduledFuture<?> scheduledFuture;
+
+    @Autowired
+    public NrtmSerialTailer(
+            @Qualifier("jdbcSlaveSerialDao") final SerialDao serialDao,
+            @Qualifier("dummifierNrtm") final Dummifier dummifier,
+            @Qualifier("clientSynchronisationScheduler") final TaskScheduler clientSynchronisationScheduler,
+            @Value("${nrtm.update.interval:60}") final long updateInterval,
+            @Value("${nrtm.keepalive.end.of.stream:false}") final boolean keepaliveEndOfStream) {
+        this.serialDao = serialDao;
+        this.dummifier = dummifier;
+        this.clientSynchronisationScheduler = clientSynchronisationScheduler;
+        this.updateInterval = updateInterval;
+        this.keepaliveEndOfStream = keepaliveEndOfStream;
+    }
+
+    /**
+     * Writes all serials from nextSerial onwards to the channel, until unsubscribed.
+     */
+    public Subscription subscribe(final Channel channel, final Query query, final int nextSerial) {
+        final Subscription subscription = new Subscription(channel, query.getSource(), query.getVersion(), nextSerial);
+        subscriptions.add(subscription);
+        start();
+        return subscription;
+    }
+
+    public void unsubscribe(final Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    private synchronized void start() {
+        if (scheduledFuture == null) {
+            scheduledFuture = clientSynchronisationScheduler.scheduleAtFixedRate(this::run, updateInterval * 1000);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(true);
+            scheduledFuture = null;
+        }
+    }
+
+    private void run() {
+        try {
+            tail();
+        } catch (Exception e) {
+            // [EB]: no rethrowing else the repeating scheduler unschedules us
+            LOGGER.info("Exception in scheduled task:", e);
+        }
+    }
+
+    void tail() {
+        final List<Subscription> active = Lists.newArrayList();
+        for (final Subscription subscription : subscriptions) {
+            if (subscription.channel.isOpen()) {
+                active.add(subscription);
+            } else {
+                subscriptions.remove(subscription);
+            }
+        }
+
+        if (active.isEmpty()) {
+            return;
+        }
+
+        final int end = serialDao.getSerials().getEnd();
+
+        int begin = Integer.MAX_VALUE;
+        for (final Subscription subscription : active) {
+            subscription.begin = subscription.nextSerial;
+            subscription.written = false;
+            subscription.skipped = false;
+            begin = Math.min(begin, subscription.nextSerial);
+        }
+
+        for (int serial = begin; serial <= end; ) {
+            final int blockEnd = (int) Math.min(end, (long) serial + NrtmQueryHandler.SERIAL_BLOCK_SIZE - 1);
+            final List<SerialEntry> serialEntries = serialDao.getSerialEntriesForNrtm(serial, blockEnd);
+
+            // dummify and encode each serial once per source and version
+            final Map<String, List<EncodedSerial>> encodedSerials = Maps.newHashMap();
+
+            for (final Subscription subscription : active) {
+                if (subscription.skipped || subscription.nextSerial > blockEnd) {
+                    continue;
+                }
+
+                if (!subscription.channel.isWritable()) {
+                    subscription.skipped = true;
+                    continue;
+                }
+
+                final List<EncodedSerial> encoded = encodedSerials.computeIfAbsent(subscription.source + ":" + subscription.version,
+                        key -> encode(serialEntries, subscription.source, subscription.version));
+
+                boolean written = false;
+                for (final EncodedSerial encodedSerial : encoded) {
+                    if (encodedSerial.serialId >= subscription.nextSerial) {
+                        subscription.channel.write(Unpooled.wrappedBuffer(encodedSerial.bytes));
+                        written = true;
+                    }
+                }
+
+                if (written) {
+                    subscription.channel.flush();
+                    subscription.written = true;
+                }
+
+                subscription.nextSerial = blockEnd + 1;
+            }
+
+            serial = blockEnd + 1;
+        }
+
+        if (keepaliveEndOfStream) {
+            for (final Subscription subscription : active) {
+                if (subscription.written) {
+                    subscription.channel.writeAndFlush(NrtmMessages.end(subscription.begin, subscription.nextSerial - 1) + "\n\n");
+                }
+            }
+        }
+    }
+
+    private List<EncodedSerial> encode(final List<SerialEntry> serialEntries, final String source, final int version) {
+        final List<EncodedSerial> encoded = Lists.newArrayListWithExpectedSize(serialEntries.size());
+
+        for (final SerialEntry serialEntry : serialEntries) {
+            final RpslObject rpslObject = serialEntry.getRpslObject();
+            if (rpslObject == null || !NrtmQueryHandler.isSerialEntryQueriedSourceType(source, rpslObject) || !dummifier.isAllowed(version, rpslObject)) {
+                continue;
+            }
+
+            final String operation = serialEntry.getOperation().toString();
+            final String message;
+            if (version == NrtmServer.NRTM_VERSION) {
+                message = operation + " " + serialEntry.getSerialId();
+            } else {
+                message = operation;
+            }
+
+            final String text = message + "\n\n" + dummifier.dummify(version, rpslObject).toString().trim() + "\n\n";
+            encoded.add(new EncodedSerial(serialEntry.getSerialId(), text.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return encoded;
+    }
+
+    private static final class EncodedSerial {
+        private final int serialId;
+        private final byte[] bytes;
+
+        private EncodedSerial(final int serialId, final byte[] bytes) {
+            this.serialId = serialId;
+            this.bytes = bytes;
+        }
+    }
+
+    public static final class Subscription {
+        private final Channel channel;
+        private final String source;
+        private final int version;
+
+        private volatile int nextSerial;
+
+        // state of the current run, only used by the tailer
+        private int begin;
+        private boolean written;
+        private boolean skipped;
+
+        private Subscription(final Channel channel, final String source, final int version, final int nextSerial) {
+            this.channel = channel;
+            this.source = source;
+            this.version = version;
+            this.nextSerial = nextSerial;
+        }
+
+        public int getNextSerial() {
+            return nextSerial;
+        }
+    }
+}
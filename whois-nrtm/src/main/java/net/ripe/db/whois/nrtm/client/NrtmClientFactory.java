@@ -1,24 +1,25 @@
 package net.ripe.db.whois.nrtm.client;
 
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Uninterruptibles;
 import net.ripe.db.whois.common.MaintenanceMode;
 import net.ripe.db.whois.common.aspects.RetryFor;
-import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
-import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.dao.SerialDao;
 import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import net.ripe.db.whois.nrtm.dao.NrtmClientDao;
+import net.ripe.db.whois.nrtm.dao.NrtmClientOperation;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -26,6 +27,7 @@ import java.net.UnknownHostException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -37,21 +39,24 @@ class NrtmClientFactory {
 
     private final SourceContext sourceContext;
     private final SerialDao serialDao;
-    private final RpslObjectUpdateDao rpslObjectUpdateDao;
     private final NrtmClientDao nrtmClientDao;
     private final MaintenanceMode maintenanceMode;
+    private final int batchSize;
+    private final long batchWindowMs;
 
     @Autowired
     public NrtmClientFactory(final SourceContext sourceContext,
                              final SerialDao serialDao,
-                             final RpslObjectUpdateDao rpslObjectUpdateDao,
                              final NrtmClientDao nrtmClientDao,
-                             final MaintenanceMode maintenanceMode) {
+                             final MaintenanceMode maintenanceMode,
+                             @Value("${nrtm.import.batch.size:1000}") final int batchSize,
+                             @Value("${nrtm.import.batch.window.ms:1000}") final long batchWindowMs) {
         this.sourceContext = sourceContext;
         this.serialDao = serialDao;
-        this.rpslObjectUpdateDao = rpslObjectUpdateDao;
         this.nrtmClientDao = nrtmClientDao;
         this.maintenanceMode = maintenanceMode;
+        this.batchSize = batchSize;
+        this.batchWindowMs = batchWindowMs;
     }
 
     public NrtmClient createNrtmClient(final NrtmSource nrtmSource) {
@@ -174,51 +179,38 @@ class NrtmClientFactory {
             writer.writeLine(line);
         }
 
+        // operations are applied in batches, when the batch is full, when the batch window has passed, or when the
+        // server has nothing more to send for now
         private void readUpdates() throws IOException {
+            final List<NrtmClientOperation> operations = Lists.newArrayListWithExpectedSize(batchSize);
+            final Stopwatch stopwatch = Stopwatch.createUnstarted();
+
             while (true) {
                 if (maintenanceMode.allowUpdate()) {
                     final OperationSerial operationSerial = readOperationAndSerial();
                     final RpslObject object = readObject();
-                    update(operationSerial.getOperation(), operationSerial.getSerial(), object);
+
+                    if (operations.isEmpty()) {
+                        stopwatch.reset().start();
+                    }
+                    operations.add(new NrtmClientOperation(operationSerial.getOperation(), operationSerial.getSerial(), object));
+
+                    if (operations.size() >= batchSize || stopwatch.elapsed(TimeUnit.MILLISECONDS) >= batchWindowMs || !reader.isReady()) {
+                        update(operations);
+                        operations.clear();
+                    }
                 } else {
                     Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
                 }
             }
         }
 
-        public void update(final Operation operation, final int serialId, final RpslObject rpslObject) {
+        private void update(final List<NrtmClientOperation> operations) {
             try {
-                switch (operation) {
-                    case UPDATE:
-                        try {
-                            final RpslObjectUpdateInfo updateInfo = rpslObjectUpdateDao.lookupObject(rpslObject.getType(), rpslObject.getKey().toString());
-
-                            if (!nrtmClientDao.objectExistsWithSerial(serialId, updateInfo.getObjectId())) {
-                                nrtmClientDao.updateObject(rpslObject, updateInfo, serialId);
-                            } else {
-                                LOGGER.warn("Already applied serial {}", serialId);
-                            }
-                        } catch (EmptyResultDataAccessException e) {
-                            nrtmClientDao.createObject(rpslObject, serialId);
-                        }
-                        break;
-
-                    case DELETE:
-                        try {
-                            final RpslObjectUpdateInfo updateInfo = rpslObjectUpdateDao.lookupObject(rpslObject.getType(), rpslObject.getKey().toString());
-                            if (!nrtmClientDao.objectExistsWithSerial(serialId, updateInfo.getObjectId())) {
-                                nrtmClientDao.deleteObject(updateInfo, serialId);
-                            } else {
-                                LOGGER.warn("Already applied serial {}", serialId);
-                            }
-                        } catch (EmptyResultDataAccessException e) {
-                            throw new IllegalStateException("DELETE serial:" + serialId + " but object:" + rpslObject.getKey().toString() + " doesn't exist");
-                        }
-                        break;
-                }
+                nrtmClientDao.applyOperations(operations);
             } catch (DataAccessException e) {
                 LOGGER.error(e.getMessage(), e);
-                throw new IllegalStateException("Unexpected error on " + operation + " " + serialId, e);
+                throw new IllegalStateException("Unexpected error on " + operations.get(0) + " to " + operations.get(operations.size() - 1), e);
             }
         }
 
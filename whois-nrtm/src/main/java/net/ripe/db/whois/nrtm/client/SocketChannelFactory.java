@@ -30,7 +30,8 @@ public class SocketChannelFactory {
 
     public static class Reader {
         private final SocketChannel socketChannel;
-        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        // kept in read mode: the bytes between position and limit have not been consumed yet
+        final ByteBuffer buffer = ByteBuffer.allocate(1024).flip();
 
         public Reader(final SocketChannel socketChannel) {
             this.socketChannel = socketChannel;
@@ -39,50 +40,48 @@ public class SocketChannelFactory {
         public String readLine() throws IOException {
             final StringBuilder builder = new StringBuilder();
 
-            if (buffer.position() > 0) {
-                if (readLineFromBuffer(builder)) {
-                    return builder.toString();
-                }
-            }
-
             for (;;) {
-                final int length = socketChannel.read(buffer);
-                if (length == 0) {
-                    continue;
-                }
+                while (buffer.hasRemaining()) {
+                    final byte next = buffer.get();
+                    if (next == '\n') {
+                        return builder.toString();
+                    }
 
-                if (length == -1) {
-                    throw new IOException("End of stream");
+                    builder.append((char)next);
                 }
 
-                buffer.flip();
-
-
-                if (readLineFromBuffer(builder)) {
-                    return builder.toString();
-                }
+                fill();
             }
         }
 
-        private boolean readLineFromBuffer(final StringBuilder builder) {
-            while (buffer.hasRemaining()) {
-                byte next = buffer.get();
-                if (next == '\n') {
-                    if (buffer.position() == buffer.limit()) {
-                        // no more bytes in buffer
-                        buffer.clear();
-                    }
-                    return true;
-                }
+        /**
+         * Returns true if there is input to read without waiting for the other side.
+         */
+        public boolean isReady() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
 
-                builder.append((char)next);
+            socketChannel.configureBlocking(false);
+            try {
+                return fill() > 0;
+            } finally {
+                socketChannel.configureBlocking(true);
             }
+        }
 
-            // no more bytes in buffer
+        private int fill() throws IOException {
             buffer.clear();
-            return false;
+            try {
+                final int length = socketChannel.read(buffer);
+                if (length == -1) {
+                    throw new IOException("End of stream");
+                }
+                return length;
+            } finally {
+                buffer.flip();
+            }
         }
-
     }
 
     public static class Writer {
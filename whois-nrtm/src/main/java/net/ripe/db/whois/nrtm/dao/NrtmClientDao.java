@@ -3,6 +3,8 @@ package net.ripe.db.whois.nrtm.dao;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 
+import java.util.List;
+
 public interface NrtmClientDao {
 
     RpslObjectUpdateInfo createObject(RpslObject object, int serialId);
@@ -12,4 +14,10 @@ public interface NrtmClientDao {
     void deleteObject(RpslObjectUpdateInfo info, int serialId);
 
     boolean objectExistsWithSerial(int serialId, int objectId);
+
+    /**
+     * Applies the operations in serial order, in a single transaction. Operations with a serial that was already
+     * applied are skipped.
+     */
+    void applyOperations(List<NrtmClientOperation> operations);
 }
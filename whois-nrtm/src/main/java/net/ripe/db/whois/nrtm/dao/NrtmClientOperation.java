@@ -0,0 +1,33 @@
+package net.ripe.db.whois.nrtm.dao;
+
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+public class NrtmClientOperation {
+    private final Operation operation;
+    private final int serialId;
+    private final RpslObject rpslObject;
+
+    public NrtmClientOperation(final Operation operation, final int serialId, final RpslObject rpslObject) {
+        this.operation = operation;
+        this.serialId = serialId;
+        this.rpslObject = rpslObject;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public int getSerialId() {
+        return serialId;
+    }
+
+    public RpslObject getRpslObject() {
+        return rpslObject;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + serialId;
+    }
+}
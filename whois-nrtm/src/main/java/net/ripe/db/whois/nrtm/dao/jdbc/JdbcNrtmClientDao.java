@@ -1,16 +1,31 @@
 package net.ripe.db.whois.nrtm.dao.jdbc;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.nrtm.dao.NrtmClientDao;
+import net.ripe.db.whois.nrtm.dao.NrtmClientOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.copyToHistoryAndUpdateSerials;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.deleteFromLastAndSetSerials;
@@ -18,10 +33,12 @@ import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.deleteF
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoLastAndSetSerials;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoTables;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.updateLastAndSetSerials;
+import static net.ripe.db.whois.common.domain.CIString.ciString;
 
 @Repository
 @Transactional
 public class JdbcNrtmClientDao implements NrtmClientDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcNrtmClientDao.class);
 
     private final JdbcTemplate jdbcTemplate;
     private final DateTimeProvider dateTimeProvider;
@@ -64,4 +81,85 @@ public class JdbcNrtmClientDao implements NrtmClientDao {
                 serialId, objectId);
         return found > 0;
     }
+
+    @Override
+    public void applyOperations(final List<NrtmClientOperation> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        final Table<ObjectType, CIString, RpslObjectUpdateInfo> objectInfos = lookupObjects(operations);
+        final Map<Integer, Integer> appliedSerials = lookupSerials(operations);
+
+        for (final NrtmClientOperation operation : operations) {
+            final RpslObject object = operation.getRpslObject();
+            final CIString key = object.getKey();
+            final int serialId = operation.getSerialId();
+            final RpslObjectUpdateInfo updateInfo = objectInfos.get(object.getType(), key);
+
+            if (updateInfo != null && Integer.valueOf(updateInfo.getObjectId()).equals(appliedSerials.get(serialId))) {
+                LOGGER.warn("Already applied serial {}", serialId);
+                continue;
+            }
+
+            switch (operation.getOperation()) {
+                case UPDATE:
+                    if (updateInfo == null) {
+                        objectInfos.put(object.getType(), key, createObject(object, serialId));
+                    } else {
+                        objectInfos.put(object.getType(), key, updateObject(object, updateInfo, serialId));
+                    }
+                    break;
+
+                case DELETE:
+                    if (updateInfo == null) {
+                        throw new IllegalStateException("DELETE serial:" + serialId + " but object:" + key + " doesn't exist");
+                    }
+                    deleteObject(updateInfo, serialId);
+                    objectInfos.remove(object.getType(), key);
+                    break;
+            }
+        }
+    }
+
+    // look up all objects in the batch in one query, instead of one query per operation
+    private Table<ObjectType, CIString, RpslObjectUpdateInfo> lookupObjects(final List<NrtmClientOperation> operations) {
+        final Set<String> pkeys = Sets.newHashSet();
+        for (final NrtmClientOperation operation : operations) {
+            pkeys.add(operation.getRpslObject().getKey().toString());
+        }
+
+        final Table<ObjectType, CIString, RpslObjectUpdateInfo> objectInfos = HashBasedTable.create();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query("" +
+                        "SELECT object_id, sequence_id, object_type, pkey " +
+                        "FROM last " +
+                        "WHERE pkey IN (:pkeys) AND sequence_id > 0",
+                Collections.singletonMap("pkeys", pkeys),
+                rs -> {
+                    final ObjectType objectType = ObjectTypeIds.getType(rs.getInt(3));
+                    final String pkey = rs.getString(4);
+                    objectInfos.put(objectType, ciString(pkey), new RpslObjectUpdateInfo(rs.getInt(1), rs.getInt(2), objectType, pkey));
+                });
+
+        return objectInfos;
+    }
+
+    private Map<Integer, Integer> lookupSerials(final List<NrtmClientOperation> operations) {
+        final Set<Integer> serialIds = Sets.newHashSet();
+        for (final NrtmClientOperation operation : operations) {
+            serialIds.add(operation.getSerialId());
+        }
+
+        final Map<Integer, Integer> serials = Maps.newHashMap();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query("" +
+                        "SELECT serial_id, object_id " +
+                        "FROM serials " +
+                        "WHERE serial_id IN (:serialIds)",
+                Collections.singletonMap("serialIds", serialIds),
+                rs -> {
+                    serials.put(rs.getInt(1), rs.getInt(2));
+                });
+
+        return serials;
+    }
 }
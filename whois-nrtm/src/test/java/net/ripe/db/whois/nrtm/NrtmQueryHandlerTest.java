@@ -1,6 +1,5 @@
 package net.ripe.db.whois.nrtm;
 
-import com.google.common.util.concurrent.Uninterruptibles;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelFuture;
@@ -22,21 +21,20 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
-import org.springframework.scheduling.TaskScheduler;
 
 import java.net.InetSocketAddress;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static net.ripe.db.whois.nrtm.NrtmQueryHandlerTest.StringMatcher.instanceofString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
-import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
@@ -50,7 +48,7 @@ public class NrtmQueryHandlerTest {
 
     @Mock private SerialDao serialDaoMock;
     @Mock private DummifierNrtm dummifierMock;
-    @Mock private TaskScheduler mySchedulerMock;
+    @Mock private NrtmSerialTailer serialTailerMock;
     @Mock private ChannelHandlerContext contextMock;
     @Mock(answer = Answers.RETURNS_DEEP_STUBS) private Channel channelMock;
     @Mock private ChannelFuture channelFutureMock;
@@ -58,7 +56,6 @@ public class NrtmQueryHandlerTest {
     @Mock private NrtmLog nrtmLogMock;
     @Mock private ApplicationVersion applicationVersion;
 
-    private static final long UPDATE_INTERVAL = 1;
     private static final boolean KEEPALIVE_END_OF_STREAM = false;
     private static final String SOURCE = "RIPE";
     private static final String NONAUTH_SOURCE = "";
@@ -74,30 +71,32 @@ public class NrtmQueryHandlerTest {
         lenient().when(contextMock.channel()).thenReturn(channelMock);
         lenient().when(channelMock.remoteAddress()).thenReturn(new InetSocketAddress(0));
         lenient().when(channelMock.isOpen()).thenReturn(true);
+        lenient().when(channelMock.isWritable()).thenReturn(true);
         lenient().when(channelMock.writeAndFlush(any())).thenReturn(channelFutureMock);
+        lenient().when(channelMock.write(any())).thenReturn(channelFutureMock);
         lenient().when(channelMock.attr(any())).thenReturn(attributeMock);
         lenient().doNothing().when(attributeMock).set(any());
         lenient().when(serialDaoMock.getSerials()).thenReturn(new SerialRange(1, 2));
-        lenient().when(serialDaoMock.getByIdForNrtm(1)).thenReturn(new SerialEntry(1, Operation.UPDATE, true, 1, 1000, 1000, inetnum.toByteArray(), "one"));
+        final List<SerialEntry> serialEntries = List.of(
+                new SerialEntry(1, Operation.UPDATE, true, 1, 1000, 1000, inetnum.toByteArray(), "one"),
+                new SerialEntry(2, Operation.UPDATE, true, 2, 1000, 1000, person.toByteArray(), "two"));
+        lenient().when(serialDaoMock.getSerialEntriesForNrtm(anyInt(), anyInt())).thenAnswer(invocation -> {
+            final int begin = invocation.getArgument(0);
+            final int end = invocation.getArgument(1);
+            return serialEntries.stream()
+                    .filter(serialEntry -> serialEntry.getSerialId() >= begin && serialEntry.getSerialId() <= end)
+                    .collect(Collectors.toList());
+        });
         lenient().when(dummifierMock.isAllowed(NrtmServer.NRTM_VERSION, inetnum)).thenReturn(true);
         lenient().when(dummifierMock.dummify(NrtmServer.NRTM_VERSION, inetnum)).thenReturn(inetnum);
-        lenient().when(serialDaoMock.getByIdForNrtm(2)).thenReturn(new SerialEntry(2, Operation.UPDATE, true, 2, 1000, 1000, person.toByteArray(), "two"));
         lenient().when(dummifierMock.isAllowed(NrtmServer.NRTM_VERSION, person)).thenReturn(false);
         lenient().when(applicationVersion.getVersion()).thenReturn("1.0-SNAPSHOT");
 
-        lenient().when(mySchedulerMock.scheduleAtFixedRate(any(Runnable.class), anyLong())).thenAnswer(invocation -> {
-            Object[] args = invocation.getArguments();
-            ((Runnable) args[0]).run();
-            return null;
-        });
-
-        subject = new NrtmQueryHandler(serialDaoMock, dummifierMock, mySchedulerMock, nrtmLogMock, applicationVersion, SOURCE, NONAUTH_SOURCE, UPDATE_INTERVAL, KEEPALIVE_END_OF_STREAM);
-        NrtmQueryHandler.PendingWrites.add(channelMock);
+        subject = new NrtmQueryHandler(serialDaoMock, dummifierMock, serialTailerMock, nrtmLogMock, applicationVersion, SOURCE, NONAUTH_SOURCE, KEEPALIVE_END_OF_STREAM);
     }
 
     @Test
     public void gFlagWithVersion2Works() {
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
         when(dummifierMock.isAllowed(2, person)).thenReturn(true);
         when(dummifierMock.isAllowed(2, inetnum)).thenReturn(true);
         when(dummifierMock.dummify(2, inetnum)).thenReturn(inetnum);
@@ -108,13 +107,15 @@ public class NrtmQueryHandlerTest {
 
         InOrder orderedChannelMock = inOrder(channelMock);
 
-        verify(channelMock, times(7)).writeAndFlush(argThat(instanceofString()));
+        verify(channelMock, times(3)).writeAndFlush(argThat(instanceofString()));
+        verify(channelMock, times(4)).write(argThat(instanceofString()));
         orderedChannelMock.verify(channelMock).writeAndFlush("%START Version: 2 RIPE 1-2\n\n");
         orderedChannelMock.verify(channelMock).writeAndFlush("%WARNING: NRTM version 2 is deprecated, please consider migrating to version 3!\n\n");
-        orderedChannelMock.verify(channelMock).writeAndFlush("ADD\n\n");
-        orderedChannelMock.verify(channelMock).writeAndFlush(inetnum + "\n");
-        orderedChannelMock.verify(channelMock).writeAndFlush("ADD\n\n");
-        orderedChannelMock.verify(channelMock).writeAndFlush(DummifierNrtm.getPlaceholderPersonObject() + "\n");
+        orderedChannelMock.verify(channelMock).write("ADD\n\n");
+        orderedChannelMock.verify(channelMock).write(inetnum + "\n");
+        orderedChannelMock.verify(channelMock).write("ADD\n\n");
+        orderedChannelMock.verify(channelMock).write(DummifierNrtm.getPlaceholderPersonObject() + "\n");
+        orderedChannelMock.verify(channelMock).flush();
         orderedChannelMock.verify(channelMock).writeAndFlush("%END RIPE\n\n");
     }
 
@@ -141,60 +142,58 @@ public class NrtmQueryHandlerTest {
     @Test
     public void gFlagValidRange() {
         String msg = "-g RIPE:3:1-2";
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
         subject.channelRead(contextMock, msg);
 
-        verify(channelMock, times(4)).writeAndFlush(argThat(instanceofString()));
+        verify(channelMock, times(2)).writeAndFlush(argThat(instanceofString()));
         verify(channelMock).writeAndFlush("%START Version: 3 RIPE 1-2\n\n");
-        verify(channelMock).writeAndFlush("ADD 1\n\n");
-        verify(channelMock).writeAndFlush(inetnum.toString() + "\n");
-        verify(channelMock, never()).writeAndFlush("ADD 2\n\n");
-        verify(channelMock, never()).writeAndFlush(person.toString() + "\n");
+        verify(channelMock).write("ADD 1\n\n");
+        verify(channelMock).write(inetnum.toString() + "\n");
+        verify(channelMock, never()).write("ADD 2\n\n");
+        verify(channelMock, never()).write(person.toString() + "\n");
+        verify(channelMock).flush();
         verify(channelMock).writeAndFlush("%END RIPE\n\n");
     }
 
     @Test
     public void keepalive() {
         String msg = "-g RIPE:3:1-LAST -k";
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
 
         subject.channelRead(contextMock, msg);
 
-        verify(channelMock, times(3)).writeAndFlush(argThat(instanceofString()));
+        verify(channelMock, times(1)).writeAndFlush(argThat(instanceofString()));
         verify(channelMock).writeAndFlush("%START Version: 3 RIPE 1-2\n\n");
-        verify(mySchedulerMock).scheduleAtFixedRate(any(Runnable.class), anyLong());
-        verify(channelMock).writeAndFlush("ADD 1\n\n");
-        verify(channelMock).writeAndFlush(inetnum.toString() + "\n");
+        verify(serialTailerMock).subscribe(eq(channelMock), any(Query.class), eq(3));
+        verify(channelMock).write("ADD 1\n\n");
+        verify(channelMock).write(inetnum.toString() + "\n");
+        verify(channelMock).flush();
     }
 
     @Test
     public void keepaliveEndOfStreamIndicator() {
         String msg = "-g RIPE:3:1-LAST -k";
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
 
-        subject = new NrtmQueryHandler(serialDaoMock, dummifierMock, mySchedulerMock, nrtmLogMock, applicationVersion, SOURCE, NONAUTH_SOURCE, UPDATE_INTERVAL, true);
+        subject = new NrtmQueryHandler(serialDaoMock, dummifierMock, serialTailerMock, nrtmLogMock, applicationVersion, SOURCE, NONAUTH_SOURCE, true);
 
         subject.channelRead(contextMock, msg);
 
-        verify(channelMock, times(4)).writeAndFlush(argThat(instanceofString()));
+        verify(channelMock, times(2)).writeAndFlush(argThat(instanceofString()));
         verify(channelMock).writeAndFlush("%START Version: 3 RIPE 1-2\n\n");
-        verify(mySchedulerMock).scheduleAtFixedRate(any(Runnable.class), anyLong());
-        verify(channelMock).writeAndFlush("ADD 1\n\n");
-        verify(channelMock).writeAndFlush(inetnum.toString() + "\n");
+        verify(serialTailerMock).subscribe(eq(channelMock), any(Query.class), eq(3));
+        verify(channelMock).write("ADD 1\n\n");
+        verify(channelMock).write(inetnum.toString() + "\n");
         verify(channelMock).writeAndFlush("%END 1 - 2\n\n");
     }
 
     @Test
     public void gFlagValidRangeToLast() {
         String msg = "-g RIPE:3:1-LAST";
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
 
         subject.channelRead(contextMock, msg);
 
-        verify(channelMock, times(4)).writeAndFlush(argThat(instanceofString()));
+        verify(channelMock, times(2)).writeAndFlush(argThat(instanceofString()));
         verify(channelMock).writeAndFlush("%START Version: 3 RIPE 1-2\n\n");
-        verify(channelMock).writeAndFlush("ADD 1\n\n");
-        verify(channelMock).writeAndFlush(inetnum.toString() + "\n");
+        verify(channelMock).write("ADD 1\n\n");
+        verify(channelMock).write(inetnum.toString() + "\n");
         verify(channelMock).writeAndFlush("%END RIPE\n\n");
     }
 
@@ -241,7 +240,6 @@ public class NrtmQueryHandlerTest {
     @Test
     public void gFlagDeprecatedVersion() {
         String msg = "-g RIPE:2:1-1";
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
         subject.channelRead(contextMock, msg);
 
         verify(channelMock, times(3)).writeAndFlush(argThat(instanceofString()));
@@ -258,55 +256,52 @@ public class NrtmQueryHandlerTest {
     }
 
     @Test
-    public void throttleChannelKeepaliveQuery() {
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
-        setPending(channelMock);
-        String msg = "-g RIPE:3:1-LAST -k";
+    public void waitForWritesWhenChannelNotWritable() throws Exception {
+        when(channelMock.isWritable()).thenReturn(false);
+        when(dummifierMock.isAllowed(NrtmServer.NRTM_VERSION, person)).thenReturn(true);
+        when(dummifierMock.dummify(NrtmServer.NRTM_VERSION, person)).thenReturn(person);
+        String msg = "-g RIPE:3:1-2";
 
-        messageReceived(msg);
-        unsetPending(channelMock);
+        subject.channelRead(contextMock, msg);
 
-        verify(channelMock).writeAndFlush("%START Version: 3 RIPE 1-2\n\n");
-        verify(channelMock, atMost(1)).writeAndFlush(any(String.class));
-        verify(mySchedulerMock).scheduleAtFixedRate(any(Runnable.class), anyLong());
+        final InOrder orderedChannelMock = inOrder(channelMock, channelFutureMock);
+        orderedChannelMock.verify(channelMock).write(inetnum.toString() + "\n");
+        orderedChannelMock.verify(channelMock).flush();
+        orderedChannelMock.verify(channelFutureMock).await();
+        orderedChannelMock.verify(channelMock).write("ADD 2\n\n");
+        orderedChannelMock.verify(channelMock).write(person.toString() + "\n");
+        orderedChannelMock.verify(channelMock).flush();
+        orderedChannelMock.verify(channelMock).writeAndFlush("%END RIPE\n\n");
+    }
+
+    @Test
+    public void serialsReadInBlocks() {
+        when(serialDaoMock.getSerials()).thenReturn(new SerialRange(1, NrtmQueryHandler.SERIAL_BLOCK_SIZE + 2));
+        String msg = "-g RIPE:3:1-LAST";
+
+        subject.channelRead(contextMock, msg);
+
+        verify(serialDaoMock).getSerialEntriesForNrtm(1, NrtmQueryHandler.SERIAL_BLOCK_SIZE);
+        verify(serialDaoMock).getSerialEntriesForNrtm(NrtmQueryHandler.SERIAL_BLOCK_SIZE + 1, NrtmQueryHandler.SERIAL_BLOCK_SIZE + 2);
+        verify(channelMock).write("ADD 1\n\n");
+        verify(channelMock).flush();
+        verify(channelMock).writeAndFlush("%END RIPE\n\n");
     }
 
     // TODO: [ES] slow unit test (takes ~10s)
     @Test
     public void retryForAnnotation() {
-        when(serialDaoMock.getByIdForNrtm(any(Integer.class))).thenThrow(CannotGetJdbcConnectionException.class);
-        when(channelMock.attr(any()).get()).thenReturn(new AtomicInteger());
+        when(serialDaoMock.getSerialEntriesForNrtm(anyInt(), anyInt())).thenThrow(CannotGetJdbcConnectionException.class);
         String msg = "-g RIPE:3:1-LAST";
 
         try {
             subject.channelRead(contextMock, msg);
             fail();
         } catch (CannotGetJdbcConnectionException e) {
-            verify(serialDaoMock, times(10)).getByIdForNrtm(1);
-        }
-    }
-
-    private void setPending(final Channel channelMock) {
-        NrtmQueryHandler.PendingWrites.add(channelMock);
-        while (!NrtmQueryHandler.PendingWrites.isPending(channelMock)) {
-            NrtmQueryHandler.PendingWrites.increment(channelMock);
+            verify(serialDaoMock, times(10)).getSerialEntriesForNrtm(1, 2);
         }
     }
 
-    private void unsetPending(final Channel channelMock) {
-        Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
-        NrtmQueryHandler.PendingWrites.decrement(channelMock);
-    }
-
-    private void messageReceived(String message) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                subject.channelRead(contextMock, message);
-            }
-        }).start();
-    }
-
     /**
      * Check that an argument is an instanceof String.
      * any(String.class) is also matched by Object.class, if the method accepts Object.
@@ -0,0 +1,120 @@
+package net.ripe.db.whois.nrtm;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import net.ripe.db.whois.common.dao.SerialDao;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.domain.serials.SerialRange;
+import net.ripe.db.whois.common.rpsl.DummifierNrtm;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class NrtmSerialTailerTest {
+
+    @Mock private SerialDao serialDaoMock;
+    @Mock private DummifierNrtm dummifierMock;
+    @Mock private TaskScheduler schedulerMock;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS) private Channel channelMock1;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS) private Channel channelMock2;
+
+    private static final String SOURCE = "RIPE";
+    private static final RpslObject inetnum = RpslObject.parse("inetnum:10.0.0.1\nsource:RIPE");
+
+    private NrtmSerialTailer subject;
+    private Query query;
+
+    @BeforeEach
+    public void setup() {
+        lenient().when(channelMock1.isOpen()).thenReturn(true);
+        lenient().when(channelMock1.isWritable()).thenReturn(true);
+        lenient().when(channelMock2.isOpen()).thenReturn(true);
+        lenient().when(channelMock2.isWritable()).thenReturn(true);
+        lenient().when(serialDaoMock.getSerials()).thenReturn(new SerialRange(1, 1));
+        lenient().when(serialDaoMock.getSerialEntriesForNrtm(1, 1)).thenReturn(List.of(new SerialEntry(1, Operation.UPDATE, true, 1, 1000, 1000, inetnum.toByteArray(), "one")));
+        lenient().when(dummifierMock.isAllowed(NrtmServer.NRTM_VERSION, inetnum)).thenReturn(true);
+        lenient().when(dummifierMock.dummify(NrtmServer.NRTM_VERSION, inetnum)).thenReturn(inetnum);
+
+        subject = new NrtmSerialTailer(serialDaoMock, dummifierMock, schedulerMock, 60, false);
+        query = new Query(SOURCE, "", "-g RIPE:3:1-LAST -k");
+    }
+
+    @Test
+    public void serial_read_and_dummified_once_for_all_channels() {
+        subject.subscribe(channelMock1, query, 1);
+        subject.subscribe(channelMock2, query, 1);
+
+        subject.tail();
+
+        verify(serialDaoMock).getSerialEntriesForNrtm(1, 1);
+        verify(dummifierMock, times(1)).dummify(NrtmServer.NRTM_VERSION, inetnum);
+        verify(channelMock1).write(expected());
+        verify(channelMock1).flush();
+        verify(channelMock2).write(expected());
+        verify(channelMock2).flush();
+        verify(schedulerMock).scheduleAtFixedRate(any(Runnable.class), any(Long.class));
+    }
+
+    @Test
+    public void channel_up_to_date() {
+        final NrtmSerialTailer.Subscription subscription = subject.subscribe(channelMock1, query, 2);
+
+        subject.tail();
+
+        verify(serialDaoMock, never()).getSerialEntriesForNrtm(1, 1);
+        verify(channelMock1, never()).write(any());
+        assertThat(subscription.getNextSerial(), is(2));
+    }
+
+    @Test
+    public void channel_not_writable_catches_up_later() {
+        when(channelMock1.isWritable()).thenReturn(false);
+        final NrtmSerialTailer.Subscription subscription = subject.subscribe(channelMock1, query, 1);
+
+        subject.tail();
+
+        verify(channelMock1, never()).write(any());
+        assertThat(subscription.getNextSerial(), is(1));
+
+        when(channelMock1.isWritable()).thenReturn(true);
+
+        subject.tail();
+
+        verify(channelMock1).write(expected());
+        assertThat(subscription.getNextSerial(), is(2));
+    }
+
+    @Test
+    public void unsubscribed_channel() {
+        final NrtmSerialTailer.Subscription subscription = subject.subscribe(channelMock1, query, 1);
+        subject.unsubscribe(subscription);
+
+        subject.tail();
+
+        verify(serialDaoMock, never()).getSerials();
+        verify(channelMock1, never()).write(any());
+    }
+
+    private static Object expected() {
+        return Unpooled.wrappedBuffer(("ADD 1\n\n" + inetnum.toString().trim() + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -51,6 +51,17 @@ public class SocketChannelFactoryTest {
         assertThat(reader.readLine(), is("ccc"));
     }
 
+    @Test
+    public void ready_when_input_buffered() throws Exception {
+        mockRead("aaa\nbbb\n");
+
+        SocketChannelFactory.Reader reader = SocketChannelFactory.createReader(socketChannel);
+
+        assertThat(reader.readLine(), is("aaa"));
+        assertThat(reader.isReady(), is(true));
+        assertThat(reader.readLine(), is("bbb"));
+    }
+
     @Test
     public void write_line() throws Exception {
         mockWrite("aaa\n");
@@ -7,16 +7,19 @@ import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
 import net.ripe.db.whois.nrtm.dao.NrtmClientDao;
+import net.ripe.db.whois.nrtm.dao.NrtmClientOperation;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @Tag("IntegrationTest")
 @ContextConfiguration(locations = {"classpath:applicationContext-nrtm-test.xml"})
@@ -79,4 +82,41 @@ public class JdbcNrtmClientDaoIntegrationTest extends AbstractDaoIntegrationTest
                 is(2563245));
         //TODO more assertions
     }
+
+    @Test
+    public void applyOperations() {
+        final RpslObject person = databaseHelper.addObject(RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST"));
+        final RpslObject mntner = RpslObject.parse("mntner: TEST-MNT\nmnt-by: TEST-MNT");
+        final RpslObject updatedMntner = RpslObject.parse("mntner: TEST-MNT\ndescr: updated\nmnt-by: TEST-MNT");
+
+        final List<NrtmClientOperation> operations = List.of(
+                new NrtmClientOperation(Operation.UPDATE, 100, mntner),
+                new NrtmClientOperation(Operation.UPDATE, 101, updatedMntner),
+                new NrtmClientOperation(Operation.DELETE, 102, person));
+
+        subject.applyOperations(operations);
+
+        final int mntnerObjectId = databaseHelper.getWhoisTemplate().queryForObject("SELECT object_id FROM mntner WHERE mntner = 'TEST-MNT'", Integer.class);
+        assertThat(databaseHelper.getWhoisTemplate().queryForObject("SELECT sequence_id FROM last WHERE object_id = ?", Integer.class, mntnerObjectId), is(2));
+        assertThat(databaseHelper.getWhoisTemplate().queryForObject("SELECT object_id FROM serials WHERE serial_id = 101", Integer.class), is(mntnerObjectId));
+        assertThat(databaseHelper.getWhoisTemplate().queryForObject("SELECT sequence_id FROM last WHERE object_id = ?", Integer.class, person.getObjectId()), is(0));
+        assertThat(databaseHelper.getWhoisTemplate().queryForObject("SELECT object_id FROM serials WHERE serial_id = 102", Integer.class), is(person.getObjectId()));
+
+        // already applied serials are skipped
+        subject.applyOperations(operations.subList(1, 2));
+
+        assertThat(databaseHelper.getWhoisTemplate().queryForObject("SELECT sequence_id FROM last WHERE object_id = ?", Integer.class, mntnerObjectId), is(2));
+    }
+
+    @Test
+    public void applyOperations_delete_missing_object() {
+        final List<NrtmClientOperation> operations = List.of(
+                new NrtmClientOperation(Operation.UPDATE, 200, RpslObject.parse("mntner: TEST-MNT\nmnt-by: TEST-MNT")),
+                new NrtmClientOperation(Operation.DELETE, 201, RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST")));
+
+        assertThrows(IllegalStateException.class, () -> subject.applyOperations(operations));
+
+        // the whole batch is rolled back
+        assertThat(databaseHelper.getWhoisTemplate().queryForObject("SELECT count(*) FROM serials WHERE serial_id = 200", Integer.class), is(0));
+    }
 }
@@ -1,24 +1,43 @@
 package net.ripe.db.nrtm4;
 
+import com.google.common.io.BaseEncoding;
 import net.ripe.db.nrtm4.persist.NrtmDocumentType;
 import net.ripe.db.nrtm4.persist.NrtmSource;
 import net.ripe.db.nrtm4.persist.NrtmVersionInfoRepository;
 import net.ripe.db.nrtm4.persist.NrtmVersionInfo;
+import net.ripe.db.nrtm4.persist.SnapshotFileModelRepository;
 import net.ripe.db.nrtm4.publish.PublishableSnapshotFile;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
+import java.io.IOException;
+import java.security.SecureRandom;
 import java.util.Optional;
 
 
 @Service
 public class NotificationFileGenerationService {
 
+    private static final int FILE_NAME_RANDOM_BYTES = 20;
+
+    private final SecureRandom random = new SecureRandom();
     private final NrtmVersionInfoRepository nrtmVersionInfoRepository;
+    private final SnapshotFileModelRepository snapshotFileModelRepository;
+    private final SnapshotFileGenerator snapshotFileGenerator;
+    private final String snapshotDir;
 
     public NotificationFileGenerationService(
-        final NrtmVersionInfoRepository nrtmVersionInfoRepository
+        final NrtmVersionInfoRepository nrtmVersionInfoRepository,
+        final SnapshotFileModelRepository snapshotFileModelRepository,
+        final SnapshotFileGenerator snapshotFileGenerator,
+        @Value("${nrtm.snapshot.dir:}") final String snapshotDir
     ) {
         this.nrtmVersionInfoRepository = nrtmVersionInfoRepository;
+        this.snapshotFileModelRepository = snapshotFileModelRepository;
+        this.snapshotFileGenerator = snapshotFileGenerator;
+        this.snapshotDir = snapshotDir;
     }
 
     // TODO: Add a global lock to ensure that no other instance can run until this method exits
@@ -26,15 +45,24 @@ public class NotificationFileGenerationService {
 
         // Get last version from database.
         final Optional<NrtmVersionInfo> lastVersion = nrtmVersionInfoRepository.findLastVersion(source);
-        NrtmVersionInfo version;
+        final NrtmVersionInfo version;
         if (lastVersion.isEmpty()) {
-            version = nrtmVersionInfoRepository.createInitialSnapshot(source, 0);
-        } else {
-            version = lastVersion.get();
+            // the last serial is read in the transaction of the snapshot, so the snapshot matches the version
+            version = snapshotFileGenerator.withLastSerial(lastSerialId -> {
+                final NrtmVersionInfo initialVersion = nrtmVersionInfoRepository.createInitialSnapshot(source, lastSerialId);
+                writeSnapshotFile(initialVersion);
+                return initialVersion;
+            });
+        } else if (lastVersion.get().getType() == NrtmDocumentType.DELTA) {
             // TODO: don't increment -- just skip it -- no new snapshots if has it not changed
             //       since the last snapshot (see RFC)
-            if (version.getType() == NrtmDocumentType.DELTA) {
-                version = nrtmVersionInfoRepository.copyAsSnapshotVersion(version);
+            version = nrtmVersionInfoRepository.copyAsSnapshotVersion(lastVersion.get());
+            writeSnapshotFile(version);
+        } else {
+            version = lastVersion.get();
+            // the file of the snapshot version is written again if it failed before
+            if (snapshotFileModelRepository.findByVersionId(version.getId()).isEmpty()) {
+                writeSnapshotFile(version);
             }
         }
         final PublishableSnapshotFile publishableSnapshotFile = new PublishableSnapshotFile(version);
@@ -42,4 +70,24 @@ public class NotificationFileGenerationService {
         return publishableSnapshotFile;
     }
 
+    private void writeSnapshotFile(final NrtmVersionInfo version) {
+        if (StringUtils.isBlank(snapshotDir)) {
+            return;
+        }
+        // the file name contains a random part, so it cannot be guessed (see RFC)
+        final String name = String.format("nrtm-snapshot.%d.%s.%s.json.gz", version.getVersion(), version.getSessionID(), randomHex());
+        try {
+            final String hash = snapshotFileGenerator.writeSnapshotFile(version, new File(snapshotDir, name));
+            snapshotFileModelRepository.save(version.getId(), name, hash);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Writing snapshot " + name, e);
+        }
+    }
+
+    private String randomHex() {
+        final byte[] bytes = new byte[FILE_NAME_RANDOM_BYTES];
+        random.nextBytes(bytes);
+        return BaseEncoding.base16().lowerCase().encode(bytes);
+    }
+
 }
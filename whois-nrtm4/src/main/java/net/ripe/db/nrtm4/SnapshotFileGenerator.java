@@ -0,0 +1,281 @@
+package net.ripe.db.nrtm4;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import net.ripe.db.nrtm4.persist.NrtmSource;
+import net.ripe.db.nrtm4.persist.NrtmVersionInfo;
+import net.ripe.db.nrtm4.publish.PublishableSnapshotFile;
+import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.io.ParallelGzipOutputStream;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.Dummifier;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static net.ripe.db.nrtm4.NrtmConstants.NRTM_VERSION;
+
+
+/**
+ * Writes a snapshot of all objects of a source, as they were at the last serial of a version, to a gzipped JSON file.
+ * <p/>
+ * The last table is streamed, and the objects are parsed and dummified in chunks on all cores. The chunks are written
+ * in order, with a bounded number of chunks in progress, so memory use does not depend on the size of the database.
+ * Objects changed after the last serial of the version are read from the serials and history tables instead, all in
+ * one consistent read transaction. A new version should take its last serial from {@link #withLastSerial}, so it is
+ * read from the same database as the objects.
+ */
+@Service
+public class SnapshotFileGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFileGenerator.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Dummifier dummifierNrtm;
+    private final ObjectMapper objectMapper;
+
+    public SnapshotFileGenerator(
+        @Qualifier("whoisSlaveDataSource") final DataSource dataSource,
+        final Dummifier dummifierNrtm
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.dummifierNrtm = dummifierNrtm;
+        this.objectMapper = JsonMapper.builder().build();
+        final SimpleModule module = new SimpleModule("RpslObjectSerializer", new Version(1, 0, 0, null, null, null));
+        module.addSerializer(RpslObject.class, new RpslObjectSerializer());
+        objectMapper.registerModule(module);
+    }
+
+    /**
+     * Runs the callback in a consistent read transaction, with the last serial in the database.
+     * <p/>
+     * Snapshots written by the callback join the transaction, so a version created from the last serial contains
+     * exactly the objects in its snapshot.
+     *
+     * @param callback Called with the last serial
+     * @return The result of the callback
+     */
+    public <T> T withLastSerial(final IntFunction<T> callback) {
+        return transactionTemplate.execute(status -> callback.apply(getLastSerialId()));
+    }
+
+    /**
+     * Writes the snapshot to the file.
+     * <p/>
+     * The snapshot is written to a temporary file first, and moved into place once complete. If the database does not
+     * contain the last serial of the version yet, an IllegalStateException is thrown.
+     *
+     * @param version The snapshot version
+     * @param file Write the snapshot to this file
+     * @return Hex encoded SHA-256 hash of the file
+     */
+    public String writeSnapshotFile(final NrtmVersionInfo version, final File file) throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final PublishableSnapshotFile snapshotFile = new PublishableSnapshotFile(version);
+        final int threads = Runtime.getRuntime().availableProcessors();
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, String.format("SnapshotFileGenerator-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        final Path tmp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            final HashingOutputStream hashingOutputStream = new HashingOutputStream(Hashing.sha256(), new BufferedOutputStream(Files.newOutputStream(tmp)));
+
+            try (OutputStream outputStream = new ParallelGzipOutputStream(hashingOutputStream, executorService);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+
+                generator.writeStartObject();
+                generator.writeNumberField("nrtm_version", snapshotFile.getNrtmVersion());
+                generator.writeStringField("type", snapshotFile.getType().toString());
+                generator.writeStringField("source", snapshotFile.getSource().name());
+                generator.writeStringField("session_id", snapshotFile.getSessionID());
+                generator.writeNumberField("version", snapshotFile.getVersion());
+                generator.writeArrayFieldStart("objects");
+
+                final SnapshotObjectWriter snapshotObjectWriter = new SnapshotObjectWriter(version.getSource(), generator, executorService, 2 * threads);
+                transactionTemplate.executeWithoutResult(status -> {
+                    final int lastSerialId = getLastSerialId();
+                    if (lastSerialId < version.getLastSerialId()) {
+                        throw new IllegalStateException("Last serial " + lastSerialId + " is before last serial of version " + version.getLastSerialId());
+                    }
+                    readObjects(snapshotObjectWriter, version.getLastSerialId());
+                });
+                snapshotObjectWriter.finish();
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            final String hash = hashingOutputStream.hash().toString();
+            LOGGER.info("Snapshot {} written in {}", file, stopwatch.stop());
+            return hash;
+        } finally {
+            executorService.shutdownNow();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private int getLastSerialId() {
+        return jdbcTemplate.queryForObject("SELECT IFNULL(MAX(serial_id), 0) FROM serials", Integer.class);
+    }
+
+    private void readObjects(final SnapshotObjectWriter snapshotObjectWriter, final int lastSerialId) {
+        // objects changed after the last serial are read as they were at the last serial
+        final Set<Integer> changedObjectIds = Sets.newHashSet(jdbcTemplate.queryForList(
+                "SELECT DISTINCT object_id FROM serials WHERE serial_id > ?",
+                Integer.class,
+                lastSerialId));
+
+        JdbcStreamingHelper.executeStreaming(jdbcTemplate, "SELECT object_id, object FROM last WHERE sequence_id > 0", null, (RowCallbackHandler) rs -> {
+            if (!changedObjectIds.contains(rs.getInt(1))) {
+                snapshotObjectWriter.add(rs.getBytes(2));
+            }
+        });
+
+        for (final Integer objectId : changedObjectIds) {
+            jdbcTemplate.query("" +
+                    "SELECT s.operation, COALESCE(l.object, h.object) " +
+                    "FROM serials s " +
+                    "LEFT JOIN last l ON l.object_id = s.object_id AND l.sequence_id = s.sequence_id " +
+                    "LEFT JOIN history h ON h.object_id = s.object_id AND h.sequence_id = s.sequence_id " +
+                    "WHERE s.object_id = ? AND s.serial_id <= ? " +
+                    "ORDER BY s.serial_id DESC " +
+                    "LIMIT 1",
+                    (RowCallbackHandler) rs -> {
+                        if (Operation.getByCode(rs.getInt(1)) == Operation.UPDATE) {
+                            snapshotObjectWriter.add(rs.getBytes(2));
+                        }
+                    },
+                    objectId, lastSerialId);
+        }
+    }
+
+    private List<RpslObject> dummify(final NrtmSource source, final List<byte[]> chunk) {
+        final List<RpslObject> objects = Lists.newArrayListWithExpectedSize(chunk.size());
+        for (final byte[] bytes : chunk) {
+            final RpslObject rpslObject = RpslObject.parse(bytes);
+            if (isSource(source, rpslObject) && dummifierNrtm.isAllowed(NRTM_VERSION, rpslObject)) {
+                objects.add(dummifierNrtm.dummify(NRTM_VERSION, rpslObject));
+            }
+        }
+        return objects;
+    }
+
+    // the last table holds the objects of all sources, e.g. the authoritative and non-authoritative source
+    private static boolean isSource(final NrtmSource source, final RpslObject rpslObject) {
+        return rpslObject.containsAttribute(AttributeType.SOURCE) && rpslObject.getValueForAttribute(AttributeType.SOURCE).equals(source.name());
+    }
+
+    private final class SnapshotObjectWriter {
+        private final NrtmSource source;
+        private final JsonGenerator generator;
+        private final ExecutorService executorService;
+        private final int maxPendingChunks;
+
+        // chunks being dummified, in the order they were read
+        private final Deque<Future<List<RpslObject>>> pending = new ArrayDeque<>();
+        private List<byte[]> chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+
+        private SnapshotObjectWriter(final NrtmSource source, final JsonGenerator generator, final ExecutorService executorService, final int maxPendingChunks) {
+            this.source = source;
+            this.generator = generator;
+            this.executorService = executorService;
+            this.maxPendingChunks = maxPendingChunks;
+        }
+
+        private void add(final byte[] object) {
+            chunk.add(object);
+            if (chunk.size() == CHUNK_SIZE) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() {
+            final List<byte[]> submitted = chunk;
+            chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+            pending.add(executorService.submit(() -> dummify(source, submitted)));
+
+            while (pending.size() > maxPendingChunks) {
+                writeChunk(pending.remove());
+            }
+        }
+
+        private void finish() {
+            if (!chunk.isEmpty()) {
+                submitChunk();
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending.remove());
+            }
+        }
+
+        private void writeChunk(final Future<List<RpslObject>> future) {
+            try {
+                for (final RpslObject rpslObject : future.get()) {
+                    generator.writeObject(rpslObject);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing snapshot", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Dummifying snapshot objects", e.getCause());
+            } catch (IOException e) {
+                throw new IllegalStateException("Writing snapshot", e);
+            }
+        }
+    }
+
+}
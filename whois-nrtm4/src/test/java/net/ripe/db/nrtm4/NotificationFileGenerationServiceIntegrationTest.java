@@ -1,18 +1,27 @@
 package net.ripe.db.nrtm4;
 
 import net.ripe.db.nrtm4.persist.NrtmSourceHolder;
+import net.ripe.db.nrtm4.persist.NrtmVersionInfo;
+import net.ripe.db.nrtm4.persist.NrtmVersionInfoRepository;
+import net.ripe.db.nrtm4.persist.SnapshotFileModelRepository;
 import net.ripe.db.nrtm4.publish.PublishableSnapshotFile;
 import net.ripe.db.whois.common.dao.jdbc.AbstractDatabaseHelperIntegrationTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.io.File;
+import java.io.IOException;
+
 import static net.ripe.db.nrtm4.persist.NrtmDocumentType.SNAPSHOT;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.truncateTables;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
 @Tag("IntegrationTest")
@@ -25,6 +34,18 @@ public class NotificationFileGenerationServiceIntegrationTest extends AbstractDa
     @Autowired
     private NrtmSourceHolder nrtmSourceHolder;
 
+    @Autowired
+    private NrtmVersionInfoRepository nrtmVersionInfoRepository;
+
+    @Autowired
+    private SnapshotFileModelRepository snapshotFileModelRepository;
+
+    @Autowired
+    private SnapshotFileGenerator snapshotFileGenerator;
+
+    @TempDir
+    public File tempDir;
+
     @BeforeEach
     public void setUp() {
         truncateTables(databaseHelper.getNrtmTemplate());
@@ -52,4 +73,28 @@ public class NotificationFileGenerationServiceIntegrationTest extends AbstractDa
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void snapshot_file_is_written_again_after_failure() throws IOException {
+        final File notADirectory = new File(tempDir, "file");
+        assertThat(notADirectory.createNewFile(), is(true));
+        final File snapshotDir = new File(tempDir, "snapshots");
+        assertThat(snapshotDir.mkdir(), is(true));
+
+        assertThrows(IllegalStateException.class, () -> createService(notADirectory).generateSnapshot(nrtmSourceHolder.getSource()));
+
+        final NrtmVersionInfo version = nrtmVersionInfoRepository.findLastVersion(nrtmSourceHolder.getSource()).orElseThrow();
+        assertThat(snapshotFileModelRepository.findByVersionId(version.getId()).isPresent(), is(false));
+
+        final PublishableSnapshotFile publishableSnapshotFile = createService(snapshotDir).generateSnapshot(nrtmSourceHolder.getSource());
+
+        assertThat(publishableSnapshotFile.getVersion(), is(1L));
+        assertThat(publishableSnapshotFile.getSessionID(), is(version.getSessionID()));
+        assertThat(snapshotFileModelRepository.findByVersionId(version.getId()).isPresent(), is(true));
+        assertThat(snapshotDir.list(), arrayWithSize(1));
+    }
+
+    private NotificationFileGenerationService createService(final File snapshotDir) {
+        return new NotificationFileGenerationService(nrtmVersionInfoRepository, snapshotFileModelRepository, snapshotFileGenerator, snapshotDir.getAbsolutePath());
+    }
+
+}
@@ -0,0 +1,177 @@
+package net.ripe.db.nrtm4;
+
+import com.google.common.hash.Hashing;
+import net.ripe.db.nrtm4.persist.NrtmSourceHolder;
+import net.ripe.db.nrtm4.persist.NrtmVersionInfo;
+import net.ripe.db.nrtm4.persist.NrtmVersionInfoRepository;
+import net.ripe.db.whois.common.dao.jdbc.AbstractDatabaseHelperIntegrationTest;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.truncateTables;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+@Tag("IntegrationTest")
+@ContextConfiguration(locations = {"classpath:applicationContext-nrtm4-test.xml"})
+public class SnapshotFileGeneratorIntegrationTest extends AbstractDatabaseHelperIntegrationTest {
+
+    @Autowired
+    private SnapshotFileGenerator snapshotFileGenerator;
+
+    @Autowired
+    private NrtmVersionInfoRepository nrtmVersionInfoRepository;
+
+    @TempDir
+    public File tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        truncateTables(databaseHelper.getNrtmTemplate());
+        truncateTables(databaseHelper.getWhoisTemplate());
+    }
+
+    @Test
+    public void snapshot_file_is_written() throws IOException {
+        databaseHelper.addObject("" +
+            "inetnum:        193.0.0.0 - 193.255.255.255\n" +
+            "source:         TEST");
+        databaseHelper.addObject("" +
+            "mntner:         OWNER-MNT\n" +
+            "auth:           MD5-PW $1$d9fKeTr2$Si7YudNf4rUGmR71n/cqk/\n" +
+            "source:         TEST");
+        databaseHelper.addObject("" +
+            "person:         Test Person\n" +
+            "nic-hdl:        TP1-TEST\n" +
+            "source:         TEST");
+
+        final NrtmVersionInfo version = nrtmVersionInfoRepository.createInitialSnapshot(NrtmSourceHolder.valueOf("TEST"), getLastSerialId());
+        final File file = new File(tempDir, "nrtm-snapshot.1.json.gz");
+
+        final String hash = snapshotFileGenerator.writeSnapshotFile(version, file);
+
+        assertThat(hash, is(Hashing.sha256().hashBytes(Files.readAllBytes(file.toPath())).toString()));
+        assertThat(tempDir.list(), arrayContaining("nrtm-snapshot.1.json.gz"));
+
+        final String json = readSnapshotFile(file);
+        assertThat(json, startsWith("{\"nrtm_version\":4,\"type\":\"snapshot\",\"source\":\"TEST\",\"session_id\":\"" + version.getSessionID() + "\",\"version\":1,\"objects\":["));
+        assertThat(json, containsString("\"inetnum:        193.0.0.0 - 193.255.255.255\\nsource:         TEST\\n"));
+        assertThat(json, containsString("mntner:         OWNER-MNT"));
+        assertThat(json, not(containsString("$1$d9fKeTr2$Si7YudNf4rUGmR71n/cqk/")));
+        assertThat(json, not(containsString("TP1-TEST")));
+    }
+
+    @Test
+    public void snapshot_file_contains_only_objects_of_source() throws IOException {
+        databaseHelper.addObject("" +
+            "aut-num:        AS3333\n" +
+            "source:         TEST");
+        databaseHelper.addObject("" +
+            "aut-num:        AS3334\n" +
+            "source:         TEST-NONAUTH");
+
+        final NrtmVersionInfo version = nrtmVersionInfoRepository.createInitialSnapshot(NrtmSourceHolder.valueOf("TEST"), getLastSerialId());
+        final File file = new File(tempDir, "nrtm-snapshot.1.json.gz");
+
+        snapshotFileGenerator.writeSnapshotFile(version, file);
+
+        final String json = readSnapshotFile(file);
+        assertThat(json, containsString("AS3333"));
+        assertThat(json, not(containsString("AS3334")));
+    }
+
+    @Test
+    public void snapshot_file_contains_objects_as_of_last_serial() throws IOException {
+        databaseHelper.addObject("" +
+            "aut-num:        AS3333\n" +
+            "remarks:        before\n" +
+            "source:         TEST");
+        final RpslObject deleted = databaseHelper.addObject("" +
+            "aut-num:        AS3334\n" +
+            "source:         TEST");
+
+        final NrtmVersionInfo version = nrtmVersionInfoRepository.createInitialSnapshot(NrtmSourceHolder.valueOf("TEST"), getLastSerialId());
+
+        databaseHelper.updateObject("" +
+            "aut-num:        AS3333\n" +
+            "remarks:        after\n" +
+            "source:         TEST");
+        databaseHelper.deleteObject(deleted);
+        databaseHelper.addObject("" +
+            "aut-num:        AS3335\n" +
+            "source:         TEST");
+
+        final File file = new File(tempDir, "nrtm-snapshot.1.json.gz");
+        snapshotFileGenerator.writeSnapshotFile(version, file);
+
+        final String json = readSnapshotFile(file);
+        assertThat(json, containsString("before"));
+        assertThat(json, not(containsString("after")));
+        assertThat(json, containsString("AS3334"));
+        assertThat(json, not(containsString("AS3335")));
+    }
+
+    @Test
+    public void version_is_created_from_last_serial_of_snapshot() throws IOException {
+        databaseHelper.addObject("" +
+            "aut-num:        AS3333\n" +
+            "source:         TEST");
+        final File file = new File(tempDir, "nrtm-snapshot.1.json.gz");
+
+        final NrtmVersionInfo version = snapshotFileGenerator.withLastSerial(lastSerialId -> {
+            final NrtmVersionInfo initialVersion = nrtmVersionInfoRepository.createInitialSnapshot(NrtmSourceHolder.valueOf("TEST"), lastSerialId);
+            try {
+                snapshotFileGenerator.writeSnapshotFile(initialVersion, file);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return initialVersion;
+        });
+
+        assertThat(version.getLastSerialId(), is(getLastSerialId()));
+        assertThat(readSnapshotFile(file), containsString("AS3333"));
+    }
+
+    @Test
+    public void snapshot_file_is_not_written_before_last_serial_of_version() {
+        databaseHelper.addObject("" +
+            "aut-num:        AS3333\n" +
+            "source:         TEST");
+
+        final NrtmVersionInfo version = nrtmVersionInfoRepository.createInitialSnapshot(NrtmSourceHolder.valueOf("TEST"), getLastSerialId() + 1);
+        final File file = new File(tempDir, "nrtm-snapshot.1.json.gz");
+
+        assertThrows(IllegalStateException.class, () -> snapshotFileGenerator.writeSnapshotFile(version, file));
+        assertThat(tempDir.list(), arrayWithSize(0));
+    }
+
+    private int getLastSerialId() {
+        return databaseHelper.getWhoisTemplate().queryForObject("SELECT MAX(serial_id) FROM serials", Integer.class);
+    }
+
+    private static String readSnapshotFile(final File file) throws IOException {
+        return FileCopyUtils.copyToString(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8));
+    }
+
+}
@@ -5,6 +5,7 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import net.ripe.db.whois.common.ApplicationService;
@@ -28,6 +29,8 @@ public final class QueryServer implements ApplicationService {
 
     @Value("${port.query:0}") private int queryPort;
     @Value("${loadbalancer.query.timeout:5000}") private int markNodeFailedTimeout;
+    @Value("${whois.query.write.buffer.low.watermark:32768}") private int writeBufferLowWatermark;
+    @Value("${whois.query.write.buffer.high.watermark:65536}") private int writeBufferHighWatermark;
 
     private Channel serverChannel;
 
@@ -56,7 +59,8 @@ public final class QueryServer implements ApplicationService {
             .childHandler(whoisServerChannelInitializer)
             .option(ChannelOption.SO_BACKLOG, 200)
             .childOption(ChannelOption.TCP_NODELAY, true)
-            .childOption(ChannelOption.SO_KEEPALIVE, true);
+            .childOption(ChannelOption.SO_KEEPALIVE, true)
+            .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(writeBufferLowWatermark, writeBufferHighWatermark));
 
         try {
             ChannelFuture channelFuture = bootstrap.bind(new InetSocketAddress(queryPort)).sync();
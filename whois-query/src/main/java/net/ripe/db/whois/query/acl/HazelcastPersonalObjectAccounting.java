@@ -1,91 +1,182 @@
 package net.ripe.db.whois.query.acl;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.OperationTimeoutException;
+import com.hazelcast.cp.IAtomicLong;
+import com.hazelcast.map.EntryProcessor;
 import com.hazelcast.map.IMap;
 import net.ripe.db.whois.common.profiles.DeployedProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Personal objects are counted locally, and the counts are periodically added to the cluster-wide counters, instead
+ * of locking the cluster-wide counter for every query.
+ * <p/>
+ * The balance of an address is the cluster-wide counter, read through the near cache, plus the count not yet added
+ * to it. Counts of other cluster members become visible after they are flushed and the near cache is invalidated.
+ * <p/>
+ * The cluster-wide counters are keyed on the accounting period, which is increased on every reset. Members pick up
+ * a new period on their next flush, and drop their local counts of the previous period. A flush of the previous
+ * period that completes after the reset only updates counters of that period, which are no longer read.
+ */
 @DeployedProfile
 @Primary
 @Component
 public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounting {
     private static final Logger LOGGER = LoggerFactory.getLogger(HazelcastPersonalObjectAccounting.class);
 
-    private final IMap<InetAddress, Integer> counterMap;
+    public static final String MAP_NAME = "queriedPersonal";
+    public static final String PERIOD_NAME = "queriedPersonalPeriod";
+
+    private static final int FLUSH_TIMEOUT_SECONDS = 3;
+
+    private final IMap<String, Integer> counterMap;
+    private final IAtomicLong periodCounter;
     private final HazelcastInstance hazelcastInstance;
 
+    private final AtomicReference<Period> currentPeriod;
+
     @Autowired
     public HazelcastPersonalObjectAccounting(final HazelcastInstance hazelcastInstance) {
         this.hazelcastInstance = hazelcastInstance;
-        this.counterMap =  hazelcastInstance.getMap("queriedPersonal");
+        this.counterMap =  hazelcastInstance.getMap(MAP_NAME);
+        this.periodCounter = hazelcastInstance.getCPSubsystem().getAtomicLong(PERIOD_NAME);
+        this.currentPeriod = new AtomicReference<>(new Period(periodCounter.get()));
 
         LOGGER.info("hazelcast instances {} members: {} " , this.hazelcastInstance.getName() , this.hazelcastInstance.getCluster().getMembers());
     }
 
     @Override
     public int getQueriedPersonalObjects(final InetAddress remoteAddress) {
+        return getQueriedPersonalObjects(currentPeriod.get(), remoteAddress);
+    }
+
+    private int getQueriedPersonalObjects(final Period period, final InetAddress remoteAddress) {
         Integer count = null;
         try {
-            count = counterMap.get(remoteAddress);
+            count = counterMap.get(getKey(period.id, remoteAddress));
         } catch (OperationTimeoutException | IllegalStateException e) {
             // no answer from hazelcast, expected, don't rethrow
             LOGGER.debug("{}: {}", e.getClass().getName(), e.getMessage());
         }
 
-        if (count == null) {
-            return 0;
-        }
-
-        return count;
+        final long total = (count == null ? 0 : count) + period.getLocalCount(remoteAddress);
+        return (int) Math.min(total, Integer.MAX_VALUE);
     }
 
     @Override
     public int accountPersonalObject(final InetAddress remoteAddress, final int amount) {
-        boolean isLocked = false;
-
-        try {
-            if (isLocked = counterMap.tryLock(remoteAddress,3, TimeUnit.SECONDS)) {
-                Integer count = counterMap.get(remoteAddress);
-                count = (count == null) ? amount : (count + amount);
-                counterMap.put(remoteAddress, count);
+        final Period period = currentPeriod.get();
+        period.localCounters.computeIfAbsent(remoteAddress, address -> new LongAdder()).add(amount);
+        return getQueriedPersonalObjects(period, remoteAddress);
+    }
 
-                return count;
+    /**
+     * Adds the local counts to the cluster-wide counters.
+     * A local count is only subtracted once it was added, so a count that could not be added is retried on the next
+     * flush, and a count is never missing from the balance while it is being added.
+     */
+    @Scheduled(fixedDelayString = "${personal.accounting.flush.interval.msecs:1000}")
+    public void flush() {
+        final Period period = updatePeriod();
+
+        final List<CompletableFuture<?>> futures = Lists.newArrayList();
+        for (final Map.Entry<InetAddress, LongAdder> entry : period.localCounters.entrySet()) {
+            final LongAdder localCounter = entry.getValue();
+            final int amount = (int) Math.min(localCounter.sum(), Integer.MAX_VALUE);
+            if (amount <= 0) {
+                continue;
             }
 
-            //if cannot get a lock in specified time, return the current state not zero
-            return counterMap.get(remoteAddress);
+            futures.add(counterMap.submitToKey(getKey(period.id, entry.getKey()), new IncrementEntryProcessor(amount))
+                    .toCompletableFuture()
+                    .thenRun(() -> localCounter.add(-amount)));
+        }
+
+        if (futures.isEmpty()) {
+            return;
+        }
 
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (Exception e) {
-            LOGGER.info("Unable to account personal object, allowed by default. Threw {}: {}", e.getClass().getName(), e.getMessage());
-        } finally {
-            //unlock only if it is locked by this instance
-            if(isLocked) {
-                unlockKey(remoteAddress);
-            }
+            LOGGER.info("Unable to flush personal object counts, retrying on next flush. Threw {}: {}", e.getClass().getName(), e.getMessage());
         }
-        return 0;
     }
 
-    private void unlockKey(InetAddress remoteAddress) {
+    // switch to the period of the last reset, which may have been done by another member
+    private Period updatePeriod() {
+        final long id;
         try {
-            counterMap.unlock(remoteAddress);
-        } catch(Exception e) {
-            LOGGER.info("Unable to unlock object key {}. Threw {}: {}", remoteAddress, e.getClass().getName(), e.getMessage());
+            id = periodCounter.get();
+        } catch (OperationTimeoutException | IllegalStateException e) {
+            LOGGER.debug("{}: {}", e.getClass().getName(), e.getMessage());
+            return currentPeriod.get();
         }
 
+        return switchToPeriod(id);
+    }
+
+    private Period switchToPeriod(final long id) {
+        return currentPeriod.updateAndGet(period -> period.id >= id ? period : new Period(id));
     }
 
     @Override
     public void resetAccounting() {
         LOGGER.debug("Reset person object counters ({} entries)", counterMap.size());
+        switchToPeriod(periodCounter.incrementAndGet());
         counterMap.clear();
     }
+
+    static String getKey(final long period, final InetAddress remoteAddress) {
+        return period + "/" + remoteAddress.getHostAddress();
+    }
+
+    private static final class Period {
+        private final long id;
+
+        // counts not yet added to the cluster-wide counters
+        private final ConcurrentMap<InetAddress, LongAdder> localCounters = Maps.newConcurrentMap();
+
+        Period(final long id) {
+            this.id = id;
+        }
+
+        long getLocalCount(final InetAddress remoteAddress) {
+            final LongAdder localCounter = localCounters.get(remoteAddress);
+            return localCounter == null ? 0 : localCounter.sum();
+        }
+    }
+
+    static final class IncrementEntryProcessor implements EntryProcessor<String, Integer, Integer> {
+        private final int amount;
+
+        IncrementEntryProcessor(final int amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public Integer process(final Map.Entry<String, Integer> entry) {
+            final Integer count = entry.getValue();
+            final int result = (count == null) ? amount : (count + amount);
+            entry.setValue(result);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package net.ripe.db.whois.query.acl;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The access control settings of an address, as configured for the most specific range of each setting.
+ */
+@Immutable
+public final class IpAccess {
+    private static final int DENIED = 1;
+    private static final int PROXY = 1 << 1;
+    private static final int UNLIMITED_CONNECTIONS = 1 << 2;
+
+    private final int flags;
+    private final int limit;
+
+    public IpAccess(final boolean denied, final boolean proxy, final boolean unlimitedConnections, final int limit) {
+        this.flags = (denied ? DENIED : 0) | (proxy ? PROXY : 0) | (unlimitedConnections ? UNLIMITED_CONNECTIONS : 0);
+        this.limit = limit;
+    }
+
+    public boolean isDenied() {
+        return (flags & DENIED) != 0;
+    }
+
+    public boolean isProxy() {
+        return (flags & PROXY) != 0;
+    }
+
+    public boolean isUnlimitedConnections() {
+        return (flags & UNLIMITED_CONNECTIONS) != 0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final IpAccess that = (IpAccess) o;
+        return flags == that.flags && limit == that.limit;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * flags + limit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IpAccess{denied=%s, proxy=%s, unlimitedConnections=%s, limit=%d}", isDenied(), isProxy(), isUnlimitedConnections(), limit);
+    }
+}
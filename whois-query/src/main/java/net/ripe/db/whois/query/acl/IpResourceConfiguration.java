@@ -1,5 +1,7 @@
 package net.ripe.db.whois.query.acl;
 
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.IpRangeIndex;
 import net.ripe.db.whois.common.domain.IpResourceEntry;
 import net.ripe.db.whois.common.domain.IpResourceTree;
 import net.ripe.db.whois.common.ip.IpInterval;
@@ -22,79 +24,80 @@ public class IpResourceConfiguration {
 
     private static final int DEFAULT_LIMIT = 5000;
 
+    private static final IpAccess DEFAULT_ACCESS = new IpAccess(false, false, false, DEFAULT_LIMIT);
+
     private final Loader loader;
 
-    private IpResourceTree<Boolean> denied;
-    private IpResourceTree<Boolean> proxy;
-    private IpResourceTree<Integer> limit;
-    private IpResourceTree<Boolean> unlimitedConnections;
+    // all settings in one index, replaced as a whole on reload
+    private volatile IpRangeIndex<IpAccess> index;
 
     @Autowired
     public IpResourceConfiguration(final Loader loader) {
         this.loader = loader;
     }
 
-    public boolean isDenied(final InetAddress address) {
-        final Boolean result = denied.getValue(IpInterval.asIpInterval(address));
-        return result != null && result;
+    /**
+     * @return the access control settings of the address, looked up once for all settings
+     */
+    public IpAccess getIpAccess(final InetAddress address) {
+        final IpAccess result = index.getValue(address);
+        return result == null ? DEFAULT_ACCESS : result;
     }
 
-    public boolean isDenied(final IpInterval address) {
-        final Boolean result = denied.getValue(address);
-        return result != null && result;
+    public boolean isDenied(final InetAddress address) {
+        return getIpAccess(address).isDenied();
     }
 
     public boolean isProxy(final InetAddress address) {
-        final Boolean result = proxy.getValue(IpInterval.asIpInterval(address));
-        return result != null && result;
-    }
-
-    public boolean isProxy(final IpInterval address) {
-        final Boolean result = proxy.getValue(address);
-        return result != null && result;
+        return getIpAccess(address).isProxy();
     }
 
     public int getLimit(final InetAddress address) {
-        final Integer result = limit.getValue(IpInterval.asIpInterval(address));
-        return result == null ? DEFAULT_LIMIT : result;
-    }
-
-    public int getLimit(final IpInterval address) {
-        final Integer result = limit.getValue(address);
-        return result == null ? DEFAULT_LIMIT : result;
+        return getIpAccess(address).getLimit();
     }
 
     public boolean isUnlimitedConnections(final InetAddress address) {
-        final Boolean result = unlimitedConnections.getValue(IpInterval.asIpInterval(address));
-        return result != null && result;
-    }
-
-    public boolean isUnlimitedConnections(final IpInterval address) {
-        final Boolean result = unlimitedConnections.getValue(address);
-        return result != null && result;
+        return getIpAccess(address).isUnlimitedConnections();
     }
 
     @PostConstruct
     @Scheduled(fixedDelay = TREE_UPDATE_IN_SECONDS * 1000)
     public synchronized void reload() {
         try {
-            denied = refreshEntries(loader.loadIpDenied());
-            proxy = refreshEntries(loader.loadIpProxy());
-            limit = refreshEntries(loader.loadIpLimit());
-            unlimitedConnections = refreshEntries(loader.loadUnlimitedConnections());
+            final List<IpResourceEntry<Boolean>> deniedEntries = loader.loadIpDenied();
+            final List<IpResourceEntry<Boolean>> proxyEntries = loader.loadIpProxy();
+            final List<IpResourceEntry<Integer>> limitEntries = loader.loadIpLimit();
+            final List<IpResourceEntry<Boolean>> unlimitedConnectionsEntries = loader.loadUnlimitedConnections();
+
+            final IpResourceTree<Boolean> denied = IpResourceTree.of(deniedEntries);
+            final IpResourceTree<Boolean> proxy = IpResourceTree.of(proxyEntries);
+            final IpResourceTree<Integer> limit = IpResourceTree.of(limitEntries);
+            final IpResourceTree<Boolean> unlimitedConnections = IpResourceTree.of(unlimitedConnectionsEntries);
+
+            final List<IpInterval<?>> intervals = Lists.newArrayList();
+            addIntervals(intervals, deniedEntries);
+            addIntervals(intervals, proxyEntries);
+            addIntervals(intervals, limitEntries);
+            addIntervals(intervals, unlimitedConnectionsEntries);
+
+            index = IpRangeIndex.of(intervals, range -> {
+                final Integer rangeLimit = limit.getValue(range);
+                final IpAccess ipAccess = new IpAccess(
+                        Boolean.TRUE.equals(denied.getValue(range)),
+                        Boolean.TRUE.equals(proxy.getValue(range)),
+                        Boolean.TRUE.equals(unlimitedConnections.getValue(range)),
+                        rangeLimit == null ? DEFAULT_LIMIT : rangeLimit);
+                return ipAccess.equals(DEFAULT_ACCESS) ? null : ipAccess;
+            });
         } catch (RuntimeException e) {
             LOGGER.warn("Refresh failed due to {}: {}", e.getClass().getName(), e.getMessage());
         }
     }
 
-    private <V> IpResourceTree<V> refreshEntries(final List<IpResourceEntry<V>> entries) {
-        final IpResourceTree<V> temp = new IpResourceTree<>();
-
+    private static <V> void addIntervals(final List<IpInterval<?>> intervals, final List<IpResourceEntry<V>> entries) {
         for (final IpResourceEntry<V> entry : entries) {
-            temp.add(entry.getIpInterval(), entry.getValue());
+            intervals.add(entry.getIpInterval());
         }
-
-        return temp;
     }
 
     /**
@@ -1,11 +1,14 @@
 package net.ripe.db.whois.query.hazelcast;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.config.cp.CPSubsystemConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import net.ripe.db.whois.common.profiles.DeployedProfile;
 import net.ripe.db.whois.common.profiles.WhoisProfile;
+import net.ripe.db.whois.query.acl.HazelcastPersonalObjectAccounting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -64,7 +67,15 @@ public class HazelcastInstanceManager {
                 .setProperty("hazelcast.redo.giveup.threshold","10")
                 .setProperty("hazelcast.logging.type","slf4j")
                 .setProperty("hazelcast.shutdownhook.enabled","false")
-                .setProperty("hazelcast.graceful.shutdown.max.wait","60");
+                .setProperty("hazelcast.graceful.shutdown.max.wait","60")
+                .setProperty("hazelcast.map.invalidation.batch.frequency.seconds","1");
+
+        // personal object limits are checked for every query, read the counters locally
+        config.getMapConfig(HazelcastPersonalObjectAccounting.MAP_NAME).setNearCacheConfig(
+                new NearCacheConfig(HazelcastPersonalObjectAccounting.MAP_NAME)
+                        .setInMemoryFormat(InMemoryFormat.OBJECT)
+                        .setInvalidateOnChange(true)
+                        .setCacheLocalEntries(true));
 
         config.getCPSubsystemConfig().setPersistenceEnabled(false);
 
@@ -9,6 +9,7 @@ import net.ripe.db.whois.common.ApplicationVersion;
 import net.ripe.db.whois.common.pipeline.ChannelUtil;
 import net.ripe.db.whois.common.pipeline.ConnectionCounter;
 import net.ripe.db.whois.query.QueryMessages;
+import net.ripe.db.whois.query.acl.IpAccess;
 import net.ripe.db.whois.query.acl.IpResourceConfiguration;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.handler.WhoisLog;
@@ -73,12 +74,13 @@ public class ConnectionPerIpLimitHandler extends ChannelInboundHandlerAdapter {
     }
 
     private boolean limitConnections(final InetAddress remoteAddress) {
-        if (ipResourceConfiguration.isUnlimitedConnections(remoteAddress)) {
+        final IpAccess ipAccess = ipResourceConfiguration.getIpAccess(remoteAddress);
+        if (ipAccess.isUnlimitedConnections()) {
             LOGGER.debug("Unlimited connections allowed for {}", remoteAddress);
             return false;
         }
 
-        if (ipResourceConfiguration.isProxy(remoteAddress)) {
+        if (ipAccess.isProxy()) {
             LOGGER.debug("Unlimited connections allowed for client with proxy {}", remoteAddress);
             return false;
         }
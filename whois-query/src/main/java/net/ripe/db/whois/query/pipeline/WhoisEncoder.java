@@ -9,6 +9,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -24,7 +25,10 @@ public class WhoisEncoder extends MessageToMessageEncoder<Object> {
 
     @Override
     protected void encode(final ChannelHandlerContext ctx, final Object msg, final List<Object> out) throws IOException {
-        if (msg instanceof ResponseObject) {
+        if (msg instanceof RpslObject) {
+            // the encoded object is kept by the object, wrap it instead of copying
+            out.add(Unpooled.wrappedBuffer(((RpslObject) msg).toByteArray(), OBJECT_TERMINATOR));
+        } else if (msg instanceof ResponseObject) {
             final ByteBuf result = ctx.alloc().buffer(DEFAULT_BUFFER_SIZE);
             final ByteBufOutputStream outputStream = new ByteBufOutputStream(result);
 
@@ -7,6 +7,7 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutorGroup;
@@ -48,6 +49,7 @@ public class WhoisServerChannelInitializer extends ChannelInitializer<Channel> {
     private final QueryDecoder queryDecoder;
     private final QueryHandler queryHandler;
     private final ApplicationVersion applicationVersion;
+    private final WriteBufferStatistics writeBufferStatistics;
     private final boolean proxyProtocolEnabled;
 
     @Autowired
@@ -59,6 +61,7 @@ public class WhoisServerChannelInitializer extends ChannelInitializer<Channel> {
                                          final ConnectionPerIpLimitHandler connectionPerIpLimitHandler,
                                          final QueryHandler queryHandler,
                                          final ApplicationVersion applicationVersion,
+                                         final WriteBufferStatistics writeBufferStatistics,
                                          final @Value("${proxy.protocol.enabled:false}") boolean proxyProtocolEnabled) {
         this.maintenanceHandler = maintenanceHandler;
         this.queryChannelsRegistry = queryChannelsRegistry;
@@ -68,6 +71,7 @@ public class WhoisServerChannelInitializer extends ChannelInitializer<Channel> {
         this.connectionPerIpLimitHandler = connectionPerIpLimitHandler;
         this.queryHandler = queryHandler;
         this.applicationVersion = applicationVersion;
+        this.writeBufferStatistics = writeBufferStatistics;
         this.proxyProtocolEnabled = proxyProtocolEnabled;
 
         if (proxyProtocolEnabled) {
@@ -86,6 +90,12 @@ public class WhoisServerChannelInitializer extends ChannelInitializer<Channel> {
         pipeline.addLast("read-timeout", new KeepChannelOpenOnReadTimeoutHandler(TIMEOUT_SECONDS, TimeUnit.SECONDS));
         pipeline.addLast("write-timeout", new WriteTimeoutHandler(TIMEOUT_SECONDS, TimeUnit.SECONDS));
 
+        final WriteBufferMonitor writeBufferMonitor = new WriteBufferMonitor(writeBufferStatistics);
+        pipeline.addLast("write-buffer", writeBufferMonitor);
+
+        // every response is flushed, so combine flushes of objects written before the IO thread gets to them
+        pipeline.addLast("flush-consolidation", new FlushConsolidationHandler(FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+
         pipeline.addLast("terms-conditions", termsAndConditionsHandler);
 
         if (proxyProtocolEnabled) {
@@ -101,7 +111,7 @@ public class WhoisServerChannelInitializer extends ChannelInitializer<Channel> {
         pipeline.addLast(executorGroup, "connection-state", new ConnectionStateHandler());
 
         pipeline.addLast(executorGroup, "served-by", new ServedByHandler(applicationVersion.getVersion()));
-        pipeline.addLast(executorGroup, "whois", new WhoisServerHandler(queryHandler));
+        pipeline.addLast(executorGroup, "whois", new WhoisServerHandler(queryHandler, writeBufferMonitor));
         pipeline.addLast("exception", new ExceptionHandler());
     }
 
@@ -13,14 +13,16 @@ import net.ripe.db.whois.query.query.Query;
 
 /**
  * The worker threads are asynchronously pushing data down the Netty pipeline.
- * Make sure IO threads can handle the flow.
+ * Make sure IO threads can handle the flow: result iteration is paused while the channel is not writable.
  */
 public class WhoisServerHandler extends ChannelInboundHandlerAdapter {
     private final QueryHandler queryHandler;
+    private final WriteBufferMonitor writeBufferMonitor;
     private boolean closed;
 
-    public WhoisServerHandler(final QueryHandler queryHandler) {
+    public WhoisServerHandler(final QueryHandler queryHandler, final WriteBufferMonitor writeBufferMonitor) {
         this.queryHandler = queryHandler;
+        this.writeBufferMonitor = writeBufferMonitor;
     }
 
     @Override
@@ -39,6 +41,10 @@ public class WhoisServerHandler extends ChannelInboundHandlerAdapter {
                     throw new QueryException(QueryCompletionInfo.DISCONNECTED);
                 }
 
+                if (!writeBufferMonitor.awaitWritable(channel)) {
+                    throw new QueryException(QueryCompletionInfo.DISCONNECTED);
+                }
+
                 channel.write(responseObject);
             }
         });
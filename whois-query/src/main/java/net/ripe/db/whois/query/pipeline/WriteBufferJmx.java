@@ -0,0 +1,43 @@
+package net.ripe.db.whois.query.pipeline;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "WriteBuffer", description = "Query channels waiting for slow clients")
+public class WriteBufferJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBufferJmx.class);
+
+    private final WriteBufferStatistics writeBufferStatistics;
+
+    @Autowired
+    public WriteBufferJmx(final WriteBufferStatistics writeBufferStatistics) {
+        super(LOGGER);
+        this.writeBufferStatistics = writeBufferStatistics;
+    }
+
+    @ManagedAttribute(description = "Number of closed channels that waited for the client")
+    public long getPausedChannels() {
+        return writeBufferStatistics.getPausedChannels();
+    }
+
+    @ManagedAttribute(description = "Number of times a query waited for the client")
+    public long getPauseCount() {
+        return writeBufferStatistics.getPauseCount();
+    }
+
+    @ManagedAttribute(description = "Total time queries waited for the client, in milliseconds")
+    public long getPausedMillis() {
+        return writeBufferStatistics.getPausedMillis();
+    }
+
+    @ManagedAttribute(description = "Maximum number of bytes queued for a single channel")
+    public long getMaxQueuedBytes() {
+        return writeBufferStatistics.getMaxQueuedBytes();
+    }
+}
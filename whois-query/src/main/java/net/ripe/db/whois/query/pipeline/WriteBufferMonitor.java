@@ -0,0 +1,129 @@
+package net.ripe.db.whois.query.pipeline;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets the worker thread streaming query results wait until the channel is writable again, instead of queueing
+ * results faster than a slow client reads them.
+ * <p/>
+ * Must be added to the pipeline without an executor group, as writability events would otherwise be queued behind
+ * the blocked worker thread. When the channel is closed, its statistics are added to the {@link WriteBufferStatistics}.
+ */
+public class WriteBufferMonitor extends ChannelInboundHandlerAdapter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBufferMonitor.class);
+
+    // re-check the channel state periodically, in case the channel was closed before we started waiting
+    private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final WriteBufferStatistics writeBufferStatistics;
+    private final Lock lock = new ReentrantLock();
+    private final Condition writabilityChanged = lock.newCondition();
+
+    // updated by the worker thread only
+    private volatile long maxQueuedBytes;
+    private volatile long pauseCount;
+    private volatile long pausedNanos;
+
+    public WriteBufferMonitor(final WriteBufferStatistics writeBufferStatistics) {
+        this.writeBufferStatistics = writeBufferStatistics;
+    }
+
+    /**
+     * @return false if the channel was closed while waiting
+     */
+    public boolean awaitWritable(final Channel channel) {
+        updateQueuedBytes(channel);
+
+        if (channel.isWritable()) {
+            return true;
+        }
+
+        pauseCount++;
+        final long start = System.nanoTime();
+
+        lock.lock();
+        try {
+            while (!channel.isWritable()) {
+                if (!channel.isActive()) {
+                    return false;
+                }
+
+                writabilityChanged.awaitNanos(MAX_WAIT_NANOS);
+            }
+
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+            pausedNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(final ChannelHandlerContext ctx) {
+        signal();
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) {
+        signal();
+
+        writeBufferStatistics.add(pauseCount, pausedNanos, maxQueuedBytes);
+        if (pauseCount > 0) {
+            LOGGER.debug("Channel {} paused {} times for {} ms, max {} bytes queued",
+                    ctx.channel().id(), pauseCount, TimeUnit.NANOSECONDS.toMillis(pausedNanos), maxQueuedBytes);
+        }
+
+        ctx.fireChannelInactive();
+    }
+
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    public long getPauseCount() {
+        return pauseCount;
+    }
+
+    public long getPausedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pausedNanos);
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            writabilityChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateQueuedBytes(final Channel channel) {
+        final long queuedBytes = getQueuedBytes(channel);
+        if (queuedBytes > maxQueuedBytes) {
+            maxQueuedBytes = queuedBytes;
+        }
+    }
+
+    // derived from the water marks, as the outbound buffer itself may only be used on the event loop
+    private static long getQueuedBytes(final Channel channel) {
+        final WriteBufferWaterMark waterMark = channel.config().getWriteBufferWaterMark();
+        if (channel.isWritable()) {
+            return Math.max(0, waterMark.high() + 1 - channel.bytesBeforeUnwritable());
+        }
+        return waterMark.low() - 1 + channel.bytesBeforeWritable();
+    }
+}
@@ -0,0 +1,44 @@
+package net.ripe.db.whois.query.pipeline;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals of the {@link WriteBufferMonitor}s of all closed channels.
+ */
+@Component
+public class WriteBufferStatistics {
+    private final LongAdder pausedChannels = new LongAdder();
+    private final LongAdder pauseCount = new LongAdder();
+    private final LongAdder pausedNanos = new LongAdder();
+    private final LongAccumulator maxQueuedBytes = new LongAccumulator(Math::max, 0);
+
+    void add(final long channelPauseCount, final long channelPausedNanos, final long channelMaxQueuedBytes) {
+        if (channelPauseCount > 0) {
+            pausedChannels.increment();
+            pauseCount.add(channelPauseCount);
+            pausedNanos.add(channelPausedNanos);
+        }
+
+        maxQueuedBytes.accumulate(channelMaxQueuedBytes);
+    }
+
+    public long getPausedChannels() {
+        return pausedChannels.sum();
+    }
+
+    public long getPauseCount() {
+        return pauseCount.sum();
+    }
+
+    public long getPausedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pausedNanos.sum());
+    }
+
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes.get();
+    }
+}
@@ -15,6 +15,7 @@ import java.net.InetAddress;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 @ExtendWith(MockitoExtension.class)
 public class HazelcastPersonalObjectAccountingTest {
@@ -79,4 +80,51 @@ public class HazelcastPersonalObjectAccountingTest {
 
         assertThat(subject.getQueriedPersonalObjects(ipv4Address), is(0));
     }
+
+    @Test
+    public void test_flush_personal_object_counts() {
+        subject.accountPersonalObject(ipv4Address, 3);
+        assertThat(getClusterCount(), is(nullValue()));
+
+        subject.flush();
+
+        assertThat(getClusterCount(), is(3));
+        assertThat(subject.getQueriedPersonalObjects(ipv4Address), is(3));
+        assertThat(subject.accountPersonalObject(ipv4Address, 2), is(5));
+
+        subject.flush();
+
+        assertThat(getClusterCount(), is(5));
+        assertThat(subject.getQueriedPersonalObjects(ipv4Address), is(5));
+    }
+
+    @Test
+    public void test_reset_flushed_personal_object_counts() {
+        subject.accountPersonalObject(ipv4Address, 1);
+        subject.flush();
+        subject.accountPersonalObject(ipv4Address, 1);
+
+        subject.resetAccounting();
+        subject.flush();
+
+        assertThat(subject.getQueriedPersonalObjects(ipv4Address), is(0));
+    }
+
+    @Test
+    public void test_reset_by_other_member_drops_unflushed_counts() {
+        final HazelcastPersonalObjectAccounting otherMember = new HazelcastPersonalObjectAccounting(instance);
+        subject.accountPersonalObject(ipv4Address, 1);
+
+        otherMember.resetAccounting();
+        subject.flush();
+
+        assertThat(subject.getQueriedPersonalObjects(ipv4Address), is(0));
+        assertThat(otherMember.getQueriedPersonalObjects(ipv4Address), is(0));
+        assertThat(getClusterCount(), is(nullValue()));
+    }
+
+    private Object getClusterCount() {
+        final long period = instance.getCPSubsystem().getAtomicLong(HazelcastPersonalObjectAccounting.PERIOD_NAME).get();
+        return instance.getMap(HazelcastPersonalObjectAccounting.MAP_NAME).get(HazelcastPersonalObjectAccounting.getKey(period, ipv4Address));
+    }
 }
@@ -103,4 +103,41 @@ public class IpResourceConfigurationTest {
 
         assertThat(subject.isUnlimitedConnections(inetAddress), is(true));
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_most_specific_entry_per_setting() throws Exception {
+        when(loader.loadIpDenied()).thenReturn(Arrays.asList(new IpResourceEntry<>(IpInterval.parse("128.0.0.0/8"), true)));
+        when(loader.loadIpLimit()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("128.0.0.0/16"), 1000),
+                new IpResourceEntry<>(IpInterval.parse("128.0.0.1/32"), -1)));
+        when(loader.loadUnlimitedConnections()).thenReturn(Arrays.asList(new IpResourceEntry<>(IpInterval.parse("128.0.0.0/24"), true)));
+
+        subject.reload();
+
+        final IpAccess ipAccess = subject.getIpAccess(inetAddress);
+        assertThat(ipAccess.isDenied(), is(true));
+        assertThat(ipAccess.isProxy(), is(false));
+        assertThat(ipAccess.isUnlimitedConnections(), is(true));
+        assertThat(ipAccess.getLimit(), is(-1));
+
+        final IpAccess other = subject.getIpAccess(InetAddress.getByName("128.0.1.1"));
+        assertThat(other.isDenied(), is(true));
+        assertThat(other.isUnlimitedConnections(), is(false));
+        assertThat(other.getLimit(), is(1000));
+
+        assertThat(subject.getIpAccess(InetAddress.getByName("129.0.0.1")).getLimit(), is(5000));
+    }
+
+    @Test
+    public void test_reload_failure_keeps_previous_configuration() throws Exception {
+        final IpResourceEntry<Boolean> entry = new IpResourceEntry<>(IpInterval.asIpInterval(inetAddress), true);
+        when(loader.loadIpDenied()).thenReturn(Arrays.asList(entry));
+        subject.reload();
+
+        when(loader.loadIpProxy()).thenThrow(new IllegalStateException("database unavailable"));
+        subject.reload();
+
+        assertThat(subject.isDenied(inetAddress), is(true));
+    }
 }
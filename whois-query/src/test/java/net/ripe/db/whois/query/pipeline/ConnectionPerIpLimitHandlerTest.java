@@ -7,6 +7,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelId;
 import net.ripe.db.whois.common.ApplicationVersion;
 import net.ripe.db.whois.query.QueryMessages;
+import net.ripe.db.whois.query.acl.IpAccess;
 import net.ripe.db.whois.query.acl.IpResourceConfiguration;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.handler.WhoisLog;
@@ -53,8 +54,7 @@ public class ConnectionPerIpLimitHandlerTest {
 
         when(ctx.channel()).thenReturn(channel);
 
-        lenient().when(ipResourceConfiguration.isUnlimitedConnections(any(InetAddress.class))).thenReturn(false);
-        lenient().when(ipResourceConfiguration.isProxy(any(InetAddress.class))).thenReturn(false);
+        lenient().when(ipResourceConfiguration.getIpAccess(any(InetAddress.class))).thenReturn(new IpAccess(false, false, false, 5000));
         when(channel.write(any())).thenReturn(channelFuture);
     }
 
@@ -124,7 +124,7 @@ public class ConnectionPerIpLimitHandlerTest {
     public void multiple_connected_unlimited_allowed() {
         final InetSocketAddress remoteAddress = new InetSocketAddress("10.0.0.0", 43);
 
-        when(ipResourceConfiguration.isUnlimitedConnections(any(InetAddress.class))).thenReturn(true);
+        when(ipResourceConfiguration.getIpAccess(any(InetAddress.class))).thenReturn(new IpAccess(false, false, true, 5000));
         when(channel.remoteAddress()).thenReturn(remoteAddress);
 
         subject.channelActive(ctx);
@@ -141,7 +141,7 @@ public class ConnectionPerIpLimitHandlerTest {
     public void multiple_connected_proxy_allowed() {
         final InetSocketAddress remoteAddress = new InetSocketAddress("10.0.0.0", 43);
 
-        when(ipResourceConfiguration.isProxy(any(InetAddress.class))).thenReturn(true);
+        when(ipResourceConfiguration.getIpAccess(any(InetAddress.class))).thenReturn(new IpAccess(false, true, false, 5000));
         when(channel.remoteAddress()).thenReturn(remoteAddress);
 
         subject.channelActive(ctx);
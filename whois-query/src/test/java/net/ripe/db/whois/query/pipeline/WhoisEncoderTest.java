@@ -5,6 +5,7 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.QueryMessages;
 import org.junit.jupiter.api.Test;
 
@@ -73,4 +74,14 @@ public class WhoisEncoderTest {
 
         assertThat(toString(result), is("\n"));
     }
+
+    @Test
+    public void encode_RpslObject() throws IOException {
+        final RpslObject rpslObject = RpslObject.parse("mntner: DEV-MNT\nsource: TEST");
+
+        ByteBuf result = encode(rpslObject);
+
+        assertThat(toString(result), is("mntner:         DEV-MNT\nsource:         TEST\n\n"));
+        assertThat(toString(encode(rpslObject)), is(toString(result)));
+    }
 }
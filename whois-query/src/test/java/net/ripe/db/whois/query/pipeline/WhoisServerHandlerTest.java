@@ -31,6 +31,7 @@ import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,6 +46,7 @@ public class WhoisServerHandlerTest {
     @Mock
     ChannelId channelId;
     @Mock QueryHandler queryHandler;
+    @Mock WriteBufferMonitor writeBufferMonitor;
     @InjectMocks WhoisServerHandler subject;
 
 
@@ -57,6 +59,7 @@ public class WhoisServerHandlerTest {
         lenient().when(ctx.pipeline()).thenReturn(pipeline);
         when(channel.remoteAddress()).thenReturn(new InetSocketAddress(inetAddress, 80));
         when(channel.id()).thenReturn(channelId);
+        lenient().when(writeBufferMonitor.awaitWritable(channel)).thenReturn(true);
 
         lenient().doNothing().when(queryHandler).streamResults(
             any(Query.class),
@@ -81,6 +84,21 @@ public class WhoisServerHandlerTest {
         assertNull(channelEventCapture.getValue().getCompletionInfo());
     }
 
+    @Test
+    public void messageReceived_closed_while_waiting_for_writable() throws Exception {
+        Query msg = Query.parse("10.0.0.0");
+        when(writeBufferMonitor.awaitWritable(channel)).thenReturn(false);
+
+        try {
+            subject.channelRead(ctx, msg);
+            fail("Expected query exception");
+        } catch (QueryException e) {
+            assertThat(e.getCompletionInfo(), is(QueryCompletionInfo.DISCONNECTED));
+        }
+
+        verify(channel, never()).write(responseObject);
+    }
+
     @Test
     public void messageReceived_closed() throws Exception {
         Query msg = Query.parse("-V test,10.0.0.0 10.0.0.0");
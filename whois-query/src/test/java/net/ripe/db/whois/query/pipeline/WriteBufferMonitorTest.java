@@ -0,0 +1,81 @@
+package net.ripe.db.whois.query.pipeline;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public class WriteBufferMonitorTest {
+    private WriteBufferStatistics writeBufferStatistics;
+    private WriteBufferMonitor subject;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    public void setup() {
+        writeBufferStatistics = new WriteBufferStatistics();
+        subject = new WriteBufferMonitor(writeBufferStatistics);
+        channel = new EmbeddedChannel(subject);
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(512, 1024));
+    }
+
+    @Test
+    public void writable() {
+        channel.write(Unpooled.wrappedBuffer(new byte[10]));
+
+        assertThat(subject.awaitWritable(channel), is(true));
+        assertThat(subject.getPauseCount(), is(0L));
+        assertThat(subject.getMaxQueuedBytes(), greaterThanOrEqualTo(10L));
+    }
+
+    @Test
+    public void resumes_when_writable() throws Exception {
+        channel.write(Unpooled.wrappedBuffer(new byte[2048]));
+        assertThat(channel.isWritable(), is(false));
+
+        final CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> subject.awaitWritable(channel));
+        Thread.sleep(50);
+        assertThat(result.isDone(), is(false));
+
+        channel.flush();
+
+        assertThat(result.get(5, TimeUnit.SECONDS), is(true));
+        assertThat(subject.getPauseCount(), is(1L));
+        assertThat(subject.getMaxQueuedBytes(), greaterThanOrEqualTo(2048L));
+    }
+
+    @Test
+    public void statistics_are_added_when_closed() throws Exception {
+        channel.write(Unpooled.wrappedBuffer(new byte[2048]));
+
+        final CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> subject.awaitWritable(channel));
+        Thread.sleep(50);
+        channel.flush();
+        assertThat(result.get(5, TimeUnit.SECONDS), is(true));
+
+        channel.close();
+
+        assertThat(writeBufferStatistics.getPausedChannels(), is(1L));
+        assertThat(writeBufferStatistics.getPauseCount(), is(1L));
+        assertThat(writeBufferStatistics.getMaxQueuedBytes(), greaterThanOrEqualTo(2048L));
+    }
+
+    @Test
+    public void stops_waiting_when_closed() throws Exception {
+        channel.write(Unpooled.wrappedBuffer(new byte[2048]));
+
+        final CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> subject.awaitWritable(channel));
+        Thread.sleep(50);
+
+        channel.close();
+
+        assertThat(result.get(5, TimeUnit.SECONDS), is(false));
+    }
+}
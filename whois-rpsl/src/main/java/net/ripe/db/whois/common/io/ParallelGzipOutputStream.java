@@ -0,0 +1,175 @@
+package net.ripe.db.whois.common.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compresses blocks of the written data in parallel, and writes them in order as concatenated gzip members, like
+ * pigz. Decompressing the output gives back the data exactly as written.
+ * <p/>
+ * Each flush ends the current block, so flush only when needed. Not thread safe.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int DEFAULT_MAX_PENDING_BLOCKS = 8;
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+
+    // blocks being compressed, in the order they were written
+    private final Deque<Future<ByteArrayOutput>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+    private int count;
+    private boolean memberWritten;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(final OutputStream out, final Executor executor) {
+        this(out, executor, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_PENDING_BLOCKS);
+    }
+
+    public ParallelGzipOutputStream(final OutputStream out, final Executor executor, final int blockSize, final int maxPendingBlocks) {
+        if (blockSize <= 0 || maxPendingBlocks <= 0) {
+            throw new IllegalArgumentException("Block size and maximum pending blocks must be positive");
+        }
+
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = maxPendingBlocks;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+
+        if (block == null) {
+            block = new byte[blockSize];
+        }
+
+        block[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if ((off < 0) || (len < 0) || (off + len > b.length) || (off + len < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        ensureOpen();
+
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (block == null) {
+                block = new byte[blockSize];
+            }
+
+            final int length = Math.min(remaining, blockSize - count);
+            System.arraycopy(b, offset, block, count, length);
+            count += length;
+            offset += length;
+            remaining -= length;
+
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses the current block and writes all blocks to the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+
+        submitBlock();
+        writeCompletedBlocks(0);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            submitBlock();
+            writeCompletedBlocks(0);
+
+            if (!memberWritten) {
+                // an empty stream is not valid gzip
+                out.write(compress(new byte[0], 0).toByteArray());
+            }
+
+            out.flush();
+        } finally {
+            closed = true;
+            block = null;
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        final byte[] data = block;
+        final int length = count;
+        final FutureTask<ByteArrayOutput> task = new FutureTask<>(() -> compress(data, length));
+        executor.execute(task);
+        pending.addLast(task);
+
+        block = null;
+        count = 0;
+
+        writeCompletedBlocks(maxPendingBlocks);
+    }
+
+    // write blocks in order, waiting until no more than maxPending blocks are left
+    private void writeCompletedBlocks(final int maxPending) throws IOException {
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peekFirst().isDone())) {
+            final ByteArrayOutput member;
+            try {
+                member = pending.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compressing", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Compressing", e.getCause());
+            }
+
+            out.write(member.toByteArray());
+            memberWritten = true;
+        }
+    }
+
+    private static ByteArrayOutput compress(final byte[] data, final int length) throws IOException {
+        final ByteArrayOutput output = new ByteArrayOutput(length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output, 8192)) {
+            gzipOutputStream.write(data, 0, length);
+        }
+        return output;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -28,8 +28,10 @@ public final class RpslAttribute {
     private final String value;     // non-clean, contains EOL comments too
     private String cleanComment;
 
+    // computed lazily, objects are shared between threads (e.g. by RpslObjectCache)
     private int hash;
-    private Set<CIString> cleanValues;
+    // written after cleanComment, so reading it first also publishes cleanComment
+    private volatile Set<CIString> cleanValues;
 
     public RpslAttribute(final AttributeType attributeType, final CIString value) {
         this(attributeType, value.toString());
@@ -294,10 +296,12 @@ public final class RpslAttribute {
 
     @Override
     public int hashCode() {
-        if (hash == 0) {
-            hash = 31 * key.hashCode() + getCleanValues().hashCode();
+        int result = hash;
+        if (result == 0) {
+            result = 31 * key.hashCode() + getCleanValues().hashCode();
+            hash = result;
         }
-        return hash;
+        return result;
     }
 
     @CheckForNull
@@ -35,8 +35,10 @@ public class RpslObject implements Identifiable, ResponseObject {
     private Integer objectId;
 
     private List<RpslAttribute> attributes;
-    private Map<AttributeType, List<RpslAttribute>> typeCache;
+    // computed lazily, objects are shared between threads (e.g. by RpslObjectCache)
+    private volatile Map<AttributeType, List<RpslAttribute>> typeCache;
     private int hash;
+    private volatile byte[] bytes;
 
     public RpslObject(final RpslObject oldObject, final List<RpslAttribute> attributes) {
         this(oldObject.objectId, attributes);
@@ -55,6 +57,7 @@ public class RpslObject implements Identifiable, ResponseObject {
         this.key = rpslObject.key;
         this.typeCache = rpslObject.typeCache;
         this.hash = rpslObject.hash;
+        this.bytes = rpslObject.bytes;
     }
 
     public RpslObject(final List<RpslAttribute> attributes) {
@@ -142,15 +145,16 @@ public class RpslObject implements Identifiable, ResponseObject {
 
     @Override
     public int hashCode() {
-        if (hash == 0) {
-            int result = getAttributes().hashCode();
+        int result = hash;
+        if (result == 0) {
+            result = getAttributes().hashCode();
             if (result == 0) {
                 result--;
             }
             hash = result;
         }
 
-        return hash;
+        return result;
     }
 
     public RpslAttribute getTypeAttribute() {
@@ -158,7 +162,8 @@ public class RpslObject implements Identifiable, ResponseObject {
     }
 
     Map<AttributeType, List<RpslAttribute>> getOrCreateCache() {
-        if (typeCache == null) {
+        Map<AttributeType, List<RpslAttribute>> result = typeCache;
+        if (result == null) {
             final EnumMap<AttributeType, List<RpslAttribute>> map = Maps.newEnumMap(AttributeType.class);
 
             for (final RpslAttribute attribute : getAttributes()) {
@@ -176,10 +181,11 @@ public class RpslObject implements Identifiable, ResponseObject {
                 list.add(attribute);
             }
 
-            typeCache = map;
+            result = map;
+            typeCache = result;
         }
 
-        return typeCache;
+        return result;
     }
 
     public RpslAttribute findAttribute(final AttributeType attributeType) {
@@ -235,7 +241,7 @@ public class RpslObject implements Identifiable, ResponseObject {
 
     @Override
     public void writeTo(final OutputStream out) throws IOException {
-        writeTo(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1));
+        out.write(toByteArray());
     }
 
     public void writeTo(final Writer writer) throws IOException {
@@ -246,15 +252,24 @@ public class RpslObject implements Identifiable, ResponseObject {
         writer.flush();
     }
 
+    /**
+     * The encoded object is computed once and shared between callers, so the returned array must not be modified.
+     */
     @Override
     public byte[] toByteArray() {
-        try {
-            final ByteArrayOutput baos = new ByteArrayOutput();
-            writeTo(baos);
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new IllegalStateException("Should never occur", e);
+        byte[] result = bytes;
+        if (result == null) {
+            try {
+                final ByteArrayOutput baos = new ByteArrayOutput();
+                writeTo(new OutputStreamWriter(baos, StandardCharsets.ISO_8859_1));
+                result = baos.toByteArray();
+                bytes = result;
+            } catch (IOException e) {
+                throw new IllegalStateException("Should never occur", e);
+            }
         }
+
+        return result;
     }
 
     @Override
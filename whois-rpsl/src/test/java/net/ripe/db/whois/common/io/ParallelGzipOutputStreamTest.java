@@ -0,0 +1,108 @@
+package net.ripe.db.whois.common.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ParallelGzipOutputStreamTest {
+    private ExecutorService executorService;
+    private ByteArrayOutputStream out;
+
+    @BeforeEach
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        out = new ByteArrayOutputStream();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void write_blocks_in_order() throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        try (ParallelGzipOutputStream subject = new ParallelGzipOutputStream(out, executorService, 100, 2)) {
+            for (int i = 0; i < 1000; i++) {
+                final String line = "line " + i + "\n";
+                subject.write(line.getBytes(StandardCharsets.ISO_8859_1));
+                expected.append(line);
+            }
+        }
+
+        assertThat(decompress(out.toByteArray()), is(expected.toString()));
+    }
+
+    @Test
+    public void write_single_bytes() throws IOException {
+        try (ParallelGzipOutputStream subject = new ParallelGzipOutputStream(out, executorService, 3, 1)) {
+            for (final byte b : "single bytes".getBytes(StandardCharsets.ISO_8859_1)) {
+                subject.write(b);
+            }
+        }
+
+        assertThat(decompress(out.toByteArray()), is("single bytes"));
+    }
+
+    @Test
+    public void write_larger_than_block() throws IOException {
+        final byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+
+        try (ParallelGzipOutputStream subject = new ParallelGzipOutputStream(out, executorService, 64, 4)) {
+            subject.write(data, 10, 9_000);
+        }
+
+        assertThat(decompress(out.toByteArray()), is(new String(data, 10, 9_000, StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void flush_writes_pending_blocks() throws IOException {
+        final ParallelGzipOutputStream subject = new ParallelGzipOutputStream(out, executorService);
+        subject.write("flushed".getBytes(StandardCharsets.ISO_8859_1));
+        subject.flush();
+
+        assertThat(decompress(out.toByteArray()), is("flushed"));
+
+        subject.write(" and closed".getBytes(StandardCharsets.ISO_8859_1));
+        subject.close();
+
+        assertThat(decompress(out.toByteArray()), is("flushed and closed"));
+    }
+
+    @Test
+    public void empty_stream() throws IOException {
+        new ParallelGzipOutputStream(out, executorService).close();
+
+        assertThat(decompress(out.toByteArray()), is(""));
+    }
+
+    @Test
+    public void write_after_close() throws IOException {
+        final ParallelGzipOutputStream subject = new ParallelGzipOutputStream(out, executorService);
+        subject.close();
+
+        Assertions.assertThrows(IOException.class, () -> subject.write(1));
+    }
+
+    private static String decompress(final byte[] bytes) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.apache.commons.lang.StringUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -16,6 +17,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -240,6 +242,22 @@ public class RpslObjectTest {
         assertThat(subject.findAttributes(AttributeType.MNTNER, AttributeType.ADMIN_C, AttributeType.TECH_C), hasSize(3));
     }
 
+    @Test
+    public void toByteArray() throws Exception {
+        parseAndAssign("person:  New Test Person\n" +
+                "address: Flughafenstraße 120\n" +
+                "nic-hdl: ABC-RIPE\n");
+
+        final byte[] bytes = subject.toByteArray();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        subject.writeTo(out);
+
+        assertThat(new String(bytes, StandardCharsets.ISO_8859_1), is(subject.toString()));
+        assertThat(out.toByteArray(), is(bytes));
+        assertThat(subject.toByteArray(), sameInstance(bytes));
+        assertThat(new RpslObject(1, subject).toByteArray(), sameInstance(bytes));
+    }
+
     @Test
     public void testEquality() {
         parseAndAssign("mntner:DEV-TST-MNT\nsource:RIPE");
@@ -0,0 +1,27 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import net.ripe.db.whois.common.scheduler.DailyScheduledTask;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DatabaseDeltaExport implements DailyScheduledTask {
+    private final DeltaExporter deltaExporter;
+
+    @Autowired
+    public DatabaseDeltaExport(final DeltaExporter deltaExporter) {
+        this.deltaExporter = deltaExporter;
+    }
+
+    /**
+     * Runs after midnight Amsterdam time by default, so a delta covers the day since the previous one.
+     */
+    @Override
+    @Scheduled(cron = "${rpsl.export.delta.cron:0 30 0 * * *}", zone = EUROPE_AMSTERDAM)
+    @SchedulerLock(name = "DatabaseDeltaExport")
+    public void run() {
+        deltaExporter.export();
+    }
+}
@@ -19,9 +19,11 @@ public class DatabaseTextExport implements DailyScheduledTask {
      * The time zone for this job is set to EUROPE_AMSTERDAM.
      * This ensures the files it generates on the FTP server remains
      * being generated at midnight, Amsterdam time regardless of switch to UTC
+     * <p/>
+     * With delta exports enabled, the full export can run less often (e.g. weekly) by overriding the schedule.
      */
     @Override
-    @Scheduled(cron = "0 0 0 * * *", zone = EUROPE_AMSTERDAM)
+    @Scheduled(cron = "${rpsl.export.cron:0 0 0 * * *}", zone = EUROPE_AMSTERDAM)
     @SchedulerLock(name = "DatabaseTextExport")
     public void run() {
         rpslObjectsExporter.export();
@@ -0,0 +1,248 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.DummifierCurrent;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportChangeCallbackHandler;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportDao;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static net.ripe.db.whois.common.rpsl.ObjectType.AUT_NUM;
+import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE;
+import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE6;
+
+/**
+ * Exports the changes since the previous export (or since the last full export) as delta files, and lists them in
+ * a manifest.
+ * <p/>
+ * Each manifest line holds the serial the delta starts after, the last serial it contains, and the file relative to
+ * the delta dir. Consumers apply the deltas in manifest order, starting with the first delta whose last serial is
+ * greater than the serial of their copy. That delta may start before the serial of the copy; applying the changes
+ * the copy already contains again is harmless, as the deltas are applied in order.
+ */
+@Component
+class DeltaExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeltaExporter.class);
+
+    static final String MANIFEST_FILENAME = "DELTA.MANIFEST";
+    private static final String MANIFEST_HEADER = "" +
+            "# apply in order, starting with the first delta whose last-serial is greater than the serial of your copy\n" +
+            "# after-serial\tlast-serial\tfile\n";
+    private static final Splitter MANIFEST_SPLITTER = Splitter.on('\t');
+
+    private final ExportDao exportDao;
+    private final DummifierCurrent dummifierCurrent;
+    private final File exportDir;
+    private final File deltaDir;
+    private final String externalExportDir;
+    private final String internalExportDir;
+    private final String source;
+    private final String nonAuthSource;
+    private final boolean enabled;
+
+    private final AtomicBoolean exporting = new AtomicBoolean();
+
+    @Autowired
+    public DeltaExporter(final ExportDao exportDao,
+                         final DummifierCurrent dummifierCurrent,
+                         @Value("${dir.rpsl.export}") final String exportDirName,
+                         @Value("${dir.rpsl.export.delta:}") final String deltaDirName,
+                         @Value("${dir.rpsl.export.external}") final String externalExportDir,
+                         @Value("${dir.rpsl.export.internal}") final String internalExportDir,
+                         @Value("${whois.source}") final String source,
+                         @Value("${whois.nonauth.source}") final String nonAuthSource,
+                         @Value("${rpsl.export.delta.enabled:false}") final boolean enabled) {
+        this.exportDao = exportDao;
+        this.dummifierCurrent = dummifierCurrent;
+        this.exportDir = new File(exportDirName);
+        this.deltaDir = new File(deltaDirName);
+        this.externalExportDir = externalExportDir;
+        this.internalExportDir = internalExportDir;
+        this.source = source;
+        this.nonAuthSource = nonAuthSource;
+        this.enabled = enabled && StringUtils.isNotBlank(deltaDirName);
+    }
+
+    public void export() {
+        if (!enabled) {
+            return;
+        }
+        if (exporting.getAndSet(true)) {
+            throw new IllegalStateException("Delta export already in progress");
+        }
+
+        try {
+            final File manifest = new File(deltaDir, MANIFEST_FILENAME);
+            final List<String> manifestLines = readManifest(manifest);
+
+            final Integer fromSerial = getFromSerial(manifestLines);
+            if (fromSerial == null) {
+                LOGGER.info("No previous export found, skipping delta export");
+                return;
+            }
+
+            final int toSerial = exportDao.getMaxSerial();
+            if (toSerial <= fromSerial) {
+                LOGGER.debug("No changes after serial {}", fromSerial);
+                return;
+            }
+
+            LOGGER.info("Delta export started after serial {} up to {}", fromSerial, toSerial);
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+
+            final List<String> files = exportDeltas(fromSerial, toSerial);
+            for (final String file : files) {
+                manifestLines.add(fromSerial + "\t" + toSerial + "\t" + file);
+            }
+            writeManifest(manifest, manifestLines);
+
+            LOGGER.info("Delta export complete after {} in {}", stopwatch.stop().toString(), deltaDir);
+        } finally {
+            exporting.set(false);
+        }
+    }
+
+    private List<String> exportDeltas(final int fromSerial, final int toSerial) {
+        final String suffix = "." + fromSerial + "-" + toSerial + ".gz";
+
+        final ExportFilter sourceFilter = new ExportFilter.SourceExportFilter(source, ImmutableSet.copyOf(ObjectType.values()));
+        final ExportFilter nonAuthSourceFilter = new ExportFilter.SourceExportFilter(nonAuthSource, Sets.immutableEnumSet(AUT_NUM, ROUTE, ROUTE6), false);
+
+        final List<String> files = Lists.newArrayList(
+                externalExportDir + "/ripe.db" + suffix,
+                externalExportDir + "/ripe-nonauth.db" + suffix,
+                internalExportDir + "/ripe.db" + suffix,
+                internalExportDir + "/ripe-nonauth.db" + suffix);
+
+        initDirs(new File(deltaDir, externalExportDir), new File(deltaDir, internalExportDir));
+
+        final List<DeltaFileWriter> deltaFileWriters = Lists.newArrayListWithCapacity(files.size());
+        try {
+            deltaFileWriters.add(new DeltaFileWriter(new File(deltaDir, files.get(0)), new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter));
+            deltaFileWriters.add(new DeltaFileWriter(new File(deltaDir, files.get(1)), new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter));
+            deltaFileWriters.add(new DeltaFileWriter(new File(deltaDir, files.get(2)), new DecorationStrategy.None(), sourceFilter));
+            deltaFileWriters.add(new DeltaFileWriter(new File(deltaDir, files.get(3)), new DecorationStrategy.None(), nonAuthSourceFilter));
+
+            exportDao.exportChanges(fromSerial, toSerial, new DeltaFileExporter(deltaFileWriters));
+
+            for (final DeltaFileWriter deltaFileWriter : deltaFileWriters) {
+                deltaFileWriter.commit();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Exporting deltas to " + deltaDir, e);
+        } finally {
+            for (final DeltaFileWriter deltaFileWriter : deltaFileWriters) {
+                try {
+                    deltaFileWriter.close();
+                } catch (IOException e) {
+                    LOGGER.error("Closing {}", deltaFileWriter, e);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    @CheckForNull
+    private Integer getFromSerial(final List<String> manifestLines) {
+        for (int i = manifestLines.size() - 1; i >= 0; i--) {
+            final String line = manifestLines.get(i);
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                final List<String> columns = MANIFEST_SPLITTER.splitToList(line);
+                Validate.isTrue(columns.size() == 3, "Invalid manifest line: ", line);
+                return Integer.parseInt(columns.get(1));
+            }
+        }
+
+        final File currentSerial = new File(exportDir, externalExportDir + File.separator + ExportFileWriterFactory.CURRENTSERIAL_FILENAME);
+        if (!currentSerial.exists()) {
+            return null;
+        }
+
+        try {
+            return Integer.parseInt(new String(Files.readAllBytes(currentSerial.toPath()), StandardCharsets.ISO_8859_1).trim());
+        } catch (IOException e) {
+            throw new RuntimeException("Reading " + currentSerial, e);
+        }
+    }
+
+    private static List<String> readManifest(final File manifest) {
+        if (!manifest.exists()) {
+            return Lists.newArrayList();
+        }
+
+        try {
+            return Lists.newArrayList(Files.readAllLines(manifest.toPath(), StandardCharsets.ISO_8859_1));
+        } catch (IOException e) {
+            throw new RuntimeException("Reading " + manifest, e);
+        }
+    }
+
+    // replace the manifest in one go, so consumers never see a partial one
+    private static void writeManifest(final File manifest, final List<String> manifestLines) {
+        final File tmpManifest = new File(manifest.getParentFile(), manifest.getName() + ".tmp");
+
+        final StringBuilder contents = new StringBuilder(MANIFEST_HEADER);
+        for (final String line : manifestLines) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                contents.append(line).append('\n');
+            }
+        }
+
+        try {
+            Files.write(tmpManifest.toPath(), contents.toString().getBytes(StandardCharsets.ISO_8859_1));
+            Files.move(tmpManifest.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Writing " + manifest, e);
+        }
+    }
+
+    private static void initDirs(final File... dirs) {
+        for (final File dir : dirs) {
+            if (!dir.exists()) {
+                Validate.isTrue(dir.mkdirs(), "Unable to create delta dir: ", dir);
+            }
+        }
+    }
+
+    private static final class DeltaFileExporter implements ExportChangeCallbackHandler {
+        private final List<DeltaFileWriter> deltaFileWriters;
+
+        private DeltaFileExporter(final List<DeltaFileWriter> deltaFileWriters) {
+            this.deltaFileWriters = deltaFileWriters;
+        }
+
+        @Override
+        public void exportChange(final int serialId, final Operation operation, final RpslObject object, @Nullable final RpslObject previousObject) {
+            for (final DeltaFileWriter deltaFileWriter : deltaFileWriters) {
+                try {
+                    deltaFileWriter.write(serialId, operation, object, previousObject);
+                } catch (IOException e) {
+                    throw new RuntimeException("Exporting to " + deltaFileWriter, e);
+                }
+            }
+        }
+    }
+}
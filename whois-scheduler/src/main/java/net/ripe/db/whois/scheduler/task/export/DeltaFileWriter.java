@@ -0,0 +1,99 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.query.QueryMessages;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the changes between two serials to a single gzipped file, in the same ADD/DEL format as NRTM.
+ * <p/>
+ * The changes are written to a temporary file, which only replaces the file on {@link #commit()}.
+ */
+public class DeltaFileWriter {
+    private final File file;
+    private final File tmpFile;
+    private final DecorationStrategy decorationStrategy;
+    private final ExportFilter exportFilter;
+    private final Writer writer;
+    private boolean committed;
+
+    public DeltaFileWriter(final File file,
+                           final DecorationStrategy decorationStrategy,
+                           final ExportFilter exportFilter) throws IOException {
+        this.file = file;
+        this.tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        this.decorationStrategy = decorationStrategy;
+        this.exportFilter = exportFilter;
+
+        final FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(fileOutputStream), StandardCharsets.ISO_8859_1));
+            writer.write(QueryMessages.termsAndConditionsDump().toString());
+        } catch (IOException e) {
+            fileOutputStream.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * An update that takes the object out of the exported objects, for example by changing its source, is written
+     * as a deletion of the previous version.
+     */
+    public void write(final int serialId, final Operation operation, final RpslObject object, @Nullable final RpslObject previousObject) throws IOException {
+        if (exportFilter.shouldExport(object)) {
+            write(serialId, operation, object);
+        } else if (operation == Operation.UPDATE && previousObject != null && exportFilter.shouldExport(previousObject)) {
+            write(serialId, Operation.DELETE, previousObject);
+        }
+    }
+
+    private void write(final int serialId, final Operation operation, final RpslObject object) throws IOException {
+        final RpslObject decoratedObject = decorationStrategy.decorate(object);
+        if (decoratedObject != null) {
+            writer.write('\n');
+            writer.write(operation.toString());
+            writer.write(' ');
+            writer.write(String.valueOf(serialId));
+            writer.write("\n\n");
+            decoratedObject.writeTo(writer);
+        }
+    }
+
+    public void commit() throws IOException {
+        writer.close();
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    // discards the changes if they were not committed
+    public void close() throws IOException {
+        if (!committed) {
+            try {
+                writer.close();
+            } finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
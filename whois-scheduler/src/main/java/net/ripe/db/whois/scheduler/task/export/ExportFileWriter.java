@@ -1,20 +1,24 @@
 package net.ripe.db.whois.scheduler.task.export;
 
 import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.io.ParallelGzipOutputStream;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.QueryMessages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPOutputStream;
 
 public class ExportFileWriter {
@@ -24,16 +28,29 @@ public class ExportFileWriter {
     private final FilenameStrategy filenameStrategy;
     private final DecorationStrategy decorationStrategy;
     private final ExportFilter exportFilter;
+    @Nullable private final Executor compressionExecutor;
     private final Map<String, Writer> writerMap = Maps.newHashMap();
 
     public ExportFileWriter(final File baseDir,
                             final FilenameStrategy filenameStrategy,
                             final DecorationStrategy decorationStrategy,
                             final ExportFilter exportFilter) {
+        this(baseDir, filenameStrategy, decorationStrategy, exportFilter, null);
+    }
+
+    /**
+     * @param compressionExecutor compresses blocks of the files in parallel, or null to compress on the writing thread
+     */
+    public ExportFileWriter(final File baseDir,
+                            final FilenameStrategy filenameStrategy,
+                            final DecorationStrategy decorationStrategy,
+                            final ExportFilter exportFilter,
+                            @Nullable final Executor compressionExecutor) {
         this.baseDir = baseDir;
         this.filenameStrategy = filenameStrategy;
         this.decorationStrategy = decorationStrategy;
         this.exportFilter = exportFilter;
+        this.compressionExecutor = compressionExecutor;
 
         for (final ObjectType objectType : ObjectType.values()) {
             final String filename = filenameStrategy.getFilename(objectType);
@@ -80,7 +97,10 @@ public class ExportFileWriter {
             final File file = new File(baseDir, filename + ".gz");
             final FileOutputStream fileOutputStream = new FileOutputStream(file);
             try {
-                writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(fileOutputStream), StandardCharsets.ISO_8859_1));
+                final OutputStream gzipOutputStream = compressionExecutor == null ?
+                        new GZIPOutputStream(fileOutputStream) :
+                        new ParallelGzipOutputStream(fileOutputStream, compressionExecutor);
+                writer = new BufferedWriter(new OutputStreamWriter(gzipOutputStream, StandardCharsets.ISO_8859_1));
                 writer.write(QueryMessages.termsAndConditionsDump().toString());
                 writerMap.put(filename, writer);
             } catch (IOException e) {
@@ -11,10 +11,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.FileCopyUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static net.ripe.db.whois.common.rpsl.ObjectType.AUT_NUM;
 import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE;
@@ -23,7 +25,7 @@ import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE6;
 @Component
 class ExportFileWriterFactory {
     private static final String SPLITFILE_FOLDERNAME = "split";
-    private static final String CURRENTSERIAL_FILENAME = "RIPE.CURRENTSERIAL";
+    static final String CURRENTSERIAL_FILENAME = "RIPE.CURRENTSERIAL";
     private static final String CURRENTSERIAL_NONAUTH_FILENAME = "RIPE-NONAUTH.CURRENTSERIAL";
 
     private final DummifierNrtm dummifierNrtm;
@@ -52,6 +54,13 @@ class ExportFileWriterFactory {
     }
 
     public List<ExportFileWriter> createExportFileWriters(final File baseDir, final int lastSerial) {
+        return createExportFileWriters(baseDir, lastSerial, null);
+    }
+
+    /**
+     * @param compressionExecutor compresses blocks of the files in parallel, or null to compress on the writing thread
+     */
+    public List<ExportFileWriter> createExportFileWriters(final File baseDir, final int lastSerial, @Nullable final Executor compressionExecutor) {
         final File fullDir = new File(baseDir, legacyExternalExportDir);
         final File fullDirNew = new File(baseDir, externalExportDir);
         final File splitDir = new File(baseDir, legacyExternalExportDir + File.separator + SPLITFILE_FOLDERNAME);
@@ -79,17 +88,17 @@ class ExportFileWriterFactory {
         final ExportFilter nonAuthSourceFilter = new ExportFilter.SourceExportFilter(nonAuthSource, Sets.immutableEnumSet(AUT_NUM, ROUTE, ROUTE6), false);
 
         return Lists.newArrayList(
-                new ExportFileWriter(fullDir, singleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter),
-                new ExportFileWriter(splitDir, splitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter),
-                new ExportFileWriter(fullDirNew, singleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter),
-                new ExportFileWriter(splitDirNew, splitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter),
-                new ExportFileWriter(internalDir, splitFile, new DecorationStrategy.None(), sourceFilter),
-
-                new ExportFileWriter(fullDir, nonAuthSingleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter),
-                new ExportFileWriter(splitDir, nonAuthSplitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter),
-                new ExportFileWriter(fullDirNew, nonAuthSingleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter),
-                new ExportFileWriter(splitDirNew, nonAuthSplitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter),
-                new ExportFileWriter(internalDir, nonAuthSplitFile, new DecorationStrategy.None(), nonAuthSourceFilter)
+                new ExportFileWriter(fullDir, singleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDir, splitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter, compressionExecutor),
+                new ExportFileWriter(fullDirNew, singleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDirNew, splitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter, compressionExecutor),
+                new ExportFileWriter(internalDir, splitFile, new DecorationStrategy.None(), sourceFilter, compressionExecutor),
+
+                new ExportFileWriter(fullDir, nonAuthSingleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDir, nonAuthSplitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(fullDirNew, nonAuthSingleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDirNew, nonAuthSplitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(internalDir, nonAuthSplitFile, new DecorationStrategy.None(), nonAuthSourceFilter, compressionExecutor)
         );
     }
 
@@ -0,0 +1,146 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the exported objects to one thread per export file writer, so the writers decorate and write the objects in
+ * parallel. Each writer still gets the objects in the order they were exported, so the files do not change.
+ * <p/>
+ * Objects are handed over in chunks, and the number of chunks waiting for a writer is bounded, so reading waits for
+ * the slowest writer.
+ */
+class ExportPipeline {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_QUEUED_CHUNKS = 16;
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    // marks the end of the export, compared by identity
+    private static final List<RpslObject> END = Lists.newArrayList();
+
+    private final List<WriterThread> writerThreads;
+    private List<RpslObject> chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+
+    ExportPipeline(final List<ExportFileWriter> exportFileWriters) {
+        writerThreads = Lists.newArrayListWithCapacity(exportFileWriters.size());
+        for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+            final WriterThread writerThread = new WriterThread(exportFileWriter, writerThreads.size());
+            writerThreads.add(writerThread);
+            writerThread.start();
+        }
+    }
+
+    public void write(final RpslObject object) {
+        chunk.add(object);
+        if (chunk.size() == CHUNK_SIZE) {
+            submit(chunk);
+            chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Waits until all objects are written.
+     *
+     * @throws RuntimeException if writing failed
+     */
+    public void finish() {
+        if (!chunk.isEmpty()) {
+            submit(chunk);
+            chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+        }
+
+        submit(END);
+
+        for (final WriterThread writerThread : writerThreads) {
+            join(writerThread);
+        }
+
+        checkFailures();
+    }
+
+    /**
+     * Stops writing, without waiting for queued objects to be written.
+     */
+    public void stop() {
+        for (final WriterThread writerThread : writerThreads) {
+            writerThread.interrupt();
+        }
+
+        for (final WriterThread writerThread : writerThreads) {
+            join(writerThread);
+        }
+    }
+
+    private void submit(final List<RpslObject> objects) {
+        for (final WriterThread writerThread : writerThreads) {
+            try {
+                while (!writerThread.queue.offer(objects, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    // a failed writer no longer takes objects
+                    checkFailures();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while exporting", e);
+            }
+        }
+
+        checkFailures();
+    }
+
+    private void checkFailures() {
+        for (final WriterThread writerThread : writerThreads) {
+            final Exception failure = writerThread.failure;
+            if (failure != null) {
+                throw new RuntimeException("Exporting to " + writerThread.exportFileWriter, failure);
+            }
+        }
+    }
+
+    private static void join(final Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting", e);
+        }
+    }
+
+    private static final class WriterThread extends Thread {
+        private final ExportFileWriter exportFileWriter;
+        private final BlockingQueue<List<RpslObject>> queue = new ArrayBlockingQueue<>(MAX_QUEUED_CHUNKS);
+
+        private volatile Exception failure;
+
+        private WriterThread(final ExportFileWriter exportFileWriter, final int index) {
+            super(String.format("RpslObjectsExporter-%d", index));
+            this.exportFileWriter = exportFileWriter;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final List<RpslObject> objects = queue.take();
+                    if (objects == END) {
+                        return;
+                    }
+
+                    for (final RpslObject object : objects) {
+                        exportFileWriter.write(object);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -16,9 +16,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.FileSystemUtils;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 class RpslObjectsExporter {
@@ -97,41 +100,53 @@ class RpslObjectsExporter {
         final int maxSerial = exportDao.getMaxSerial();
         LOGGER.info("Max serial: {}", maxSerial);
 
-        final List<ExportFileWriter> exportFileWriters = exportFileWriterFactory.createExportFileWriters(tmpDir, maxSerial);
+        final ExecutorService compressionExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, String.format("RpslObjectsExporterGzip-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
         try {
-            final TextFileExporter textFileExporter = new TextFileExporter(exportFileWriters);
+            final List<ExportFileWriter> exportFileWriters = exportFileWriterFactory.createExportFileWriters(tmpDir, maxSerial, compressionExecutor);
             try {
-                exportDao.exportObjects(textFileExporter);
+                final ExportPipeline exportPipeline = new ExportPipeline(exportFileWriters);
+                final TextFileExporter textFileExporter = new TextFileExporter(exportPipeline);
+                try {
+                    exportDao.exportObjects(textFileExporter);
+                    exportPipeline.finish();
+                } finally {
+                    exportPipeline.stop();
+                    textFileExporter.logNrExported();
+                }
             } finally {
-                textFileExporter.logNrExported();
+                for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                    exportFileWriter.close();
+                }
             }
         } finally {
-            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
-                exportFileWriter.close();
-            }
+            compressionExecutor.shutdownNow();
         }
     }
 
     private final class TextFileExporter implements ExportCallbackHandler {
         private static final int LOG_EVERY = 500000;
-        private final Iterable<ExportFileWriter> exportFileWriters;
+        private final ExportPipeline exportPipeline;
 
         private int lastLogged = -1;
         private int nrExported = 0;
 
-        private TextFileExporter(final Iterable<ExportFileWriter> exportFileWriters) {
-            this.exportFileWriters = exportFileWriters;
+        private TextFileExporter(final ExportPipeline exportPipeline) {
+            this.exportPipeline = exportPipeline;
         }
 
         @Override
         public void exportObject(final RpslObject object) {
-            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
-                try {
-                    exportFileWriter.write(object);
-                } catch (IOException e) {
-                    throw new RuntimeException("Exporting to " + exportFileWriter, e);
-                }
-            }
+            exportPipeline.write(object);
 
             if (++nrExported % LOG_EVERY == 0) {
                 logNrExported();
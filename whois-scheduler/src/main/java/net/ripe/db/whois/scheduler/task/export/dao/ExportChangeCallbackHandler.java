@@ -0,0 +1,13 @@
+package net.ripe.db.whois.scheduler.task.export.dao;
+
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import javax.annotation.Nullable;
+
+public interface ExportChangeCallbackHandler {
+    /**
+     * @param previousObject for an update, the version before it, or null for a create
+     */
+    void exportChange(int serialId, Operation operation, RpslObject object, @Nullable RpslObject previousObject);
+}
@@ -4,4 +4,10 @@ public interface ExportDao {
     int getMaxSerial();
 
     void exportObjects(ExportCallbackHandler exportCallbackHandler);
+
+    /**
+     * Streams the changes after fromSerial up to and including toSerial, in serial order. Deletions come with the
+     * version of the object that was deleted.
+     */
+    void exportChanges(int fromSerial, int toSerial, ExportChangeCallbackHandler exportChangeCallbackHandler);
 }
@@ -1,6 +1,7 @@
 package net.ripe.db.whois.scheduler.task.export.dao;
 
 import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
+import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +11,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -39,6 +41,85 @@ class JdbcExportDao implements ExportDao {
                 new ExportRowCallbackHandler(exportCallbackHandler));
     }
 
+    // same object versions as NRTM: a deletion gives the deleted version, otherwise the version at the serial.
+    // An update also gives the version before it, which is the version a deletion gives.
+    @Override
+    public void exportChanges(final int fromSerial, final int toSerial, final ExportChangeCallbackHandler exportChangeCallbackHandler) {
+        JdbcStreamingHelper.executeStreaming(jdbcTemplate,
+                "SELECT serials.serial_id, " +
+                        "       serials.operation, " +
+                        "       serials.object_id, " +
+                        "       IF(serials.operation = 2, " +
+                        "                rdp_history.object, " +
+                        "                COALESCE(legacy_history.object, last.object)), " +
+                        "       IF(serials.operation = 2, " +
+                        "                NULL, " +
+                        "                rdp_history.object) " +
+                        "FROM   serials " +
+                        "       LEFT JOIN last " +
+                        "              ON last.object_id = serials.object_id " +
+                        "                 AND last.sequence_id = serials.sequence_id " +
+                        "       LEFT JOIN history legacy_history " +
+                        "              ON legacy_history.object_id = serials.object_id " +
+                        "                 AND legacy_history.sequence_id = serials.sequence_id " +
+                        "       LEFT JOIN history rdp_history " +
+                        "              ON rdp_history.object_id = serials.object_id " +
+                        "                 AND rdp_history.sequence_id = serials.sequence_id - 1 " +
+                        "WHERE  serials.serial_id > ? " +
+                        "AND    serials.serial_id <= ? " +
+                        "ORDER BY serials.serial_id",
+                ps -> {
+                    ps.setInt(1, fromSerial);
+                    ps.setInt(2, toSerial);
+                },
+                new ExportChangeRowCallbackHandler(exportChangeCallbackHandler));
+    }
+
+    private static final class ExportChangeRowCallbackHandler implements RowCallbackHandler {
+        private final ExportChangeCallbackHandler exportChangeCallbackHandler;
+
+        private ExportChangeRowCallbackHandler(final ExportChangeCallbackHandler exportChangeCallbackHandler) {
+            this.exportChangeCallbackHandler = exportChangeCallbackHandler;
+        }
+
+        @Override
+        public void processRow(final ResultSet rs) throws SQLException {
+            final int serialId = rs.getInt(1);
+            final Operation operation = Operation.getByCode(rs.getInt(2));
+            final int objectId = rs.getInt(3);
+            final byte[] blob = rs.getBytes(4);
+            if (blob == null) {
+                LOGGER.warn("No object version found for serial_id: {}", serialId);
+                return;
+            }
+
+            RpslObject object = null;
+            try {
+                object = RpslObject.parse(objectId, blob);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to parse RPSL object with object_id: {} at serial_id: {}, {}", objectId, serialId, e.toString());
+            }
+
+            if (object != null) {
+                exportChangeCallbackHandler.exportChange(serialId, operation, object, parsePreviousObject(serialId, objectId, rs.getBytes(5)));
+            }
+        }
+
+        @Nullable
+        private static RpslObject parsePreviousObject(final int serialId, final int objectId, @Nullable final byte[] blob) {
+            if (blob == null) {
+                return null;
+            }
+
+            try {
+                return RpslObject.parse(objectId, blob);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to parse previous version of RPSL object with object_id: {} at serial_id: {}, {}", objectId, serialId, e.toString());
+                return null;
+            }
+        }
+    }
+
     private static final class ExportRowCallbackHandler implements RowCallbackHandler {
         private final ExportCallbackHandler exportCallbackHandler;
 
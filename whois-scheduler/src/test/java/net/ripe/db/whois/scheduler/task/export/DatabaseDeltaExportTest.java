@@ -0,0 +1,23 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import org.junit.jupiter.api.Test;
+
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class DatabaseDeltaExportTest {
+    @Mock DeltaExporter deltaExporter;
+    @InjectMocks DatabaseDeltaExport subject;
+
+    @Test
+    public void run() {
+        subject.run();
+
+        verify(deltaExporter).export();
+    }
+}
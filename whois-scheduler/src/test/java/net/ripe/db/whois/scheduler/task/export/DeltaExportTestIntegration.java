@@ -0,0 +1,169 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.scheduler.AbstractSchedulerIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@Tag("IntegrationTest")
+public class DeltaExportTestIntegration extends AbstractSchedulerIntegrationTest {
+
+    @Autowired RpslObjectsExporter rpslObjectsExporter;
+    @Autowired DeltaExporter deltaExporter;
+    @Autowired SourceContext sourceContext;
+
+    File deltaDir;
+
+    @Value("${dir.rpsl.export.delta}")
+    public void setDeltaDir(final String deltaDirName) {
+        this.deltaDir = new File(deltaDirName);
+    }
+
+    @BeforeEach
+    public void setup() {
+        FileSystemUtils.deleteRecursively(deltaDir);
+
+        databaseHelper.addObject("" +
+                "mntner:         DEV-MNT1\n" +
+                "source:         TEST");
+        databaseHelper.addObject("" +
+                "person:         Test person\n" +
+                "nic-hdl:        PN1-RIPE\n" +
+                "source:         TEST");
+    }
+
+    @Test
+    public void export_changes_since_full_export() throws IOException {
+        sourceContext.removeCurrentSource();
+        rpslObjectsExporter.export();
+
+        databaseHelper.addObject("" +
+                "mntner:         DEV-MNT2\n" +
+                "source:         TEST");
+        databaseHelper.updateObject("" +
+                "mntner:         DEV-MNT1\n" +
+                "descr:          updated\n" +
+                "source:         TEST");
+        databaseHelper.deleteObject(RpslObject.parse("" +
+                "person:         Test person\n" +
+                "nic-hdl:        PN1-RIPE\n" +
+                "source:         TEST"));
+
+        deltaExporter.export();
+
+        assertThat(read("DELTA.MANIFEST"), is("" +
+                "# apply in order, starting with the first delta whose last-serial is greater than the serial of your copy\n" +
+                "# after-serial\tlast-serial\tfile\n" +
+                "2\t5\tdbase_new/ripe.db.2-5.gz\n" +
+                "2\t5\tdbase_new/ripe-nonauth.db.2-5.gz\n" +
+                "2\t5\tinternal/ripe.db.2-5.gz\n" +
+                "2\t5\tinternal/ripe-nonauth.db.2-5.gz\n"));
+
+        final String internal = read("internal/ripe.db.2-5.gz");
+        assertThat(internal, containsString("" +
+                "ADD 3\n" +
+                "\n" +
+                "mntner:         DEV-MNT2\n"));
+        assertThat(internal, containsString("" +
+                "ADD 4\n" +
+                "\n" +
+                "mntner:         DEV-MNT1\n" +
+                "descr:          updated\n"));
+        assertThat(internal, containsString("" +
+                "DEL 5\n" +
+                "\n" +
+                "person:         Test person\n"));
+
+        final String external = read("dbase_new/ripe.db.2-5.gz");
+        assertThat(external, containsString("ADD 3\n"));
+        assertThat(external, not(containsString("person:")));
+    }
+
+    @Test
+    public void export_continues_from_manifest() throws IOException {
+        sourceContext.removeCurrentSource();
+        rpslObjectsExporter.export();
+
+        databaseHelper.addObject("" +
+                "mntner:         DEV-MNT2\n" +
+                "source:         TEST");
+        deltaExporter.export();
+
+        databaseHelper.addObject("" +
+                "mntner:         DEV-MNT3\n" +
+                "source:         TEST");
+        deltaExporter.export();
+        deltaExporter.export();
+
+        assertThat(read("DELTA.MANIFEST"), is("" +
+                "# apply in order, starting with the first delta whose last-serial is greater than the serial of your copy\n" +
+                "# after-serial\tlast-serial\tfile\n" +
+                "2\t3\tdbase_new/ripe.db.2-3.gz\n" +
+                "2\t3\tdbase_new/ripe-nonauth.db.2-3.gz\n" +
+                "2\t3\tinternal/ripe.db.2-3.gz\n" +
+                "2\t3\tinternal/ripe-nonauth.db.2-3.gz\n" +
+                "3\t4\tdbase_new/ripe.db.3-4.gz\n" +
+                "3\t4\tdbase_new/ripe-nonauth.db.3-4.gz\n" +
+                "3\t4\tinternal/ripe.db.3-4.gz\n" +
+                "3\t4\tinternal/ripe-nonauth.db.3-4.gz\n"));
+
+        assertThat(read("internal/ripe.db.3-4.gz"), containsString("ADD 4\n\nmntner:         DEV-MNT3\n"));
+        assertThat(read("internal/ripe.db.3-4.gz"), not(containsString("DEV-MNT2")));
+    }
+
+    @Test
+    public void object_moved_to_other_source_is_deleted() throws IOException {
+        databaseHelper.addObject("" +
+                "aut-num:        AS3333\n" +
+                "source:         TEST");
+
+        sourceContext.removeCurrentSource();
+        rpslObjectsExporter.export();
+
+        databaseHelper.updateObject("" +
+                "aut-num:        AS3333\n" +
+                "source:         TEST-NONAUTH");
+
+        deltaExporter.export();
+
+        assertThat(read("internal/ripe.db.3-4.gz"), containsString("" +
+                "DEL 4\n" +
+                "\n" +
+                "aut-num:        AS3333\n" +
+                "source:         TEST\n"));
+        assertThat(read("internal/ripe-nonauth.db.3-4.gz"), containsString("" +
+                "ADD 4\n" +
+                "\n" +
+                "aut-num:        AS3333\n" +
+                "source:         TEST-NONAUTH\n"));
+        assertThat(new File(deltaDir, "internal/ripe.db.3-4.gz.tmp").exists(), is(false));
+    }
+
+    private String read(final String name) throws IOException {
+        final File file = new File(deltaDir, name);
+        assertThat(file.exists(), is(true));
+
+        final BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        return FileCopyUtils.copyToString(new InputStreamReader(
+                name.endsWith(".gz") ? new GZIPInputStream(inputStream) : inputStream, StandardCharsets.ISO_8859_1));
+    }
+}
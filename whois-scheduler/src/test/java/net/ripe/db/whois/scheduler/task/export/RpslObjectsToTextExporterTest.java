@@ -24,10 +24,12 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 
@@ -75,7 +77,7 @@ public class RpslObjectsToTextExporterTest {
 
         subject.export();
 
-        Mockito.verify(exportFileWriterFactory).createExportFileWriters(tmpDir, maxSerial);
+        Mockito.verify(exportFileWriterFactory).createExportFileWriters(eq(tmpDir), eq(maxSerial), any(Executor.class));
     }
 
     @Test
@@ -89,7 +91,7 @@ public class RpslObjectsToTextExporterTest {
         final ExportFileWriter exportFileWriter1 = Mockito.mock(ExportFileWriter.class);
         final ExportFileWriter exportFileWriter2 = Mockito.mock(ExportFileWriter.class);
 
-        when(exportFileWriterFactory.createExportFileWriters(tmpDir, 0)).thenReturn(Lists.newArrayList(exportFileWriter1, exportFileWriter2));
+        when(exportFileWriterFactory.createExportFileWriters(eq(tmpDir), eq(0), any(Executor.class))).thenReturn(Lists.newArrayList(exportFileWriter1, exportFileWriter2));
 
         final RpslObject rpslObject1 = RpslObject.parse(2, "mntner: DEV-MNT1");
         final RpslObject rpslObject2 = RpslObject.parse(3, "mntner: DEV-MNT2");
@@ -121,7 +123,7 @@ public class RpslObjectsToTextExporterTest {
     @Test
     public void export_objects_exception() throws IOException {
         final ExportFileWriter exportFileWriter = Mockito.mock(ExportFileWriter.class);
-        when(exportFileWriterFactory.createExportFileWriters(tmpDir, 0)).thenReturn(Lists.newArrayList(exportFileWriter));
+        when(exportFileWriterFactory.createExportFileWriters(eq(tmpDir), eq(0), any(Executor.class))).thenReturn(Lists.newArrayList(exportFileWriter));
 
         final RpslObject rpslObject1 = RpslObject.parse(2, "mntner: DEV-MNT1");
         final RpslObject rpslObject2 = RpslObject.parse(3, "mntner: DEV-MNT2");
@@ -9,6 +9,7 @@ import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
 import net.ripe.db.whois.update.domain.X509Credential;
+import net.ripe.db.whois.update.keycert.KeyWrapperCache;
 import net.ripe.db.whois.update.keycert.X509CertificateWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.slf4j.Logger;
@@ -29,6 +30,7 @@ public class ClientCertificateCredentialValidator implements CredentialValidator
     private final RpslObjectDao rpslObjectDao;
     private final DateTimeProvider dateTimeProvider;
     private final LoggerContext loggerContext;
+    private final KeyWrapperCache keyWrapperCache;
 
     private final boolean enabled;
 
@@ -36,10 +38,12 @@ public class ClientCertificateCredentialValidator implements CredentialValidator
     public ClientCertificateCredentialValidator(final RpslObjectDao rpslObjectDao,
                                                 final DateTimeProvider dateTimeProvider,
                                                 final LoggerContext loggerContext,
+                                                final KeyWrapperCache keyWrapperCache,
                                                 final @Value("${client.cert.auth.enabled:false}") boolean enabled) {
         this.rpslObjectDao = rpslObjectDao;
         this.dateTimeProvider = dateTimeProvider;
         this.loggerContext = loggerContext;
+        this.keyWrapperCache = keyWrapperCache;
         this.enabled = enabled;
 
         LOGGER.info("Client certificate authentication is {}abled", enabled? "en" : "dis");
@@ -97,7 +101,7 @@ public class ClientCertificateCredentialValidator implements CredentialValidator
     protected X509CertificateWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
         try {
             final RpslObject object = rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
-            return X509CertificateWrapper.parse(object);
+            return keyWrapperCache.getX509CertificateWrapper(object);
         } catch (EmptyResultDataAccessException e) {
             updateContext.addMessage(update, UpdateMessages.keyNotFound(keyId));
             log(update, String.format("Unable to find %s: %s", keyId, e.getMessage()));
@@ -11,6 +11,7 @@ import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
+import net.ripe.db.whois.update.keycert.KeyWrapperCache;
 import net.ripe.db.whois.update.keycert.PgpPublicKeyWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.bouncycastle.openpgp.PGPPublicKey;
@@ -28,12 +29,14 @@ class PgpCredentialValidator implements CredentialValidator<PgpCredential, PgpCr
     private final RpslObjectDao rpslObjectDao;
     private final DateTimeProvider dateTimeProvider;
     private final LoggerContext loggerContext;
+    private final KeyWrapperCache keyWrapperCache;
 
     @Autowired
-    public PgpCredentialValidator(final RpslObjectDao rpslObjectDao, final DateTimeProvider dateTimeProvider, LoggerContext loggerContext) {
+    public PgpCredentialValidator(final RpslObjectDao rpslObjectDao, final DateTimeProvider dateTimeProvider, LoggerContext loggerContext, final KeyWrapperCache keyWrapperCache) {
         this.rpslObjectDao = rpslObjectDao;
         this.dateTimeProvider = dateTimeProvider;
         this.loggerContext = loggerContext;
+        this.keyWrapperCache = keyWrapperCache;
     }
 
     @Override
@@ -60,12 +63,24 @@ class PgpCredentialValidator implements CredentialValidator<PgpCredential, PgpCr
 
     private boolean verifySignedMessage(final PreparedUpdate update, final UpdateContext updateContext, final PgpCredential offeredCredential, final PgpCredential knownCredential) {
         final String keyId = knownCredential.getKeyId();
-        final PgpPublicKeyWrapper pgpPublicKeyWrapper = getKeyWrapper(update, updateContext, keyId);
+        final RpslObject keyCert = getKeyCert(update, updateContext, keyId);
+        if (keyCert == null) {
+            return false;
+        }
+
+        final PgpPublicKeyWrapper pgpPublicKeyWrapper = getKeyWrapper(update, updateContext, keyCert);
         if (pgpPublicKeyWrapper == null) {
             return false;
         }
 
-        if (verify(update, offeredCredential, pgpPublicKeyWrapper.getPublicKey()) || verify(update, offeredCredential, pgpPublicKeyWrapper.getSubKeys())) {
+        // the same signature is verified against the same key-cert for every object in the signed message
+        final boolean verified = updateContext.getSignatureVerification(offeredCredential, keyCert).orElseGet(() -> {
+            final boolean result = verify(update, offeredCredential, pgpPublicKeyWrapper.getPublicKey()) || verify(update, offeredCredential, pgpPublicKeyWrapper.getSubKeys());
+            updateContext.addSignatureVerification(offeredCredential, keyCert, result);
+            return result;
+        });
+
+        if (verified) {
             log(update, String.format("Validated %s with keyId %s", update.getFormattedKey(), keyId));
 
             if (pgpPublicKeyWrapper.isExpired(dateTimeProvider)) {
@@ -112,14 +127,27 @@ class PgpCredentialValidator implements CredentialValidator<PgpCredential, PgpCr
     }
 
     @CheckForNull
-    protected PgpPublicKeyWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
+    protected RpslObject getKeyCert(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
         try {
-            final RpslObject object = rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
-            return PgpPublicKeyWrapper.parse(object);
+            return rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
         } catch (EmptyResultDataAccessException e) {
             updateContext.addMessage(update, UpdateMessages.keyNotFound(keyId));
             log(update, String.format("Unable to find %s: %s", keyId, e.getMessage()));
         } catch (RuntimeException e) {
+            updateContext.addMessage(update, UpdateMessages.keyInvalid(keyId));
+            log(update, String.format("Unable to load %s for PGP signature: %s", keyId, e.getMessage()));
+            logException(update, e);
+        }
+
+        return null;
+    }
+
+    @CheckForNull
+    protected PgpPublicKeyWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final RpslObject keyCert) {
+        try {
+            return keyWrapperCache.getPgpPublicKeyWrapper(keyCert);
+        } catch (RuntimeException e) {
+            final String keyId = keyCert.getKey().toString();
             updateContext.addMessage(update, UpdateMessages.keyInvalid(keyId));
             log(update, String.format("Unable to parse %s for PGP signature: %s", keyId, e.getMessage()));
             logException(update, e);
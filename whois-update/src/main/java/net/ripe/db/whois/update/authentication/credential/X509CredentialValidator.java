@@ -8,6 +8,7 @@ import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
 import net.ripe.db.whois.update.domain.X509Credential;
+import net.ripe.db.whois.update.keycert.KeyWrapperCache;
 import net.ripe.db.whois.update.keycert.X509CertificateWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,12 +24,14 @@ public class X509CredentialValidator implements CredentialValidator<X509Credenti
     private final RpslObjectDao rpslObjectDao;
     private final DateTimeProvider dateTimeProvider;
     private final LoggerContext loggerContext;
+    private final KeyWrapperCache keyWrapperCache;
 
     @Autowired
-    public X509CredentialValidator(final RpslObjectDao rpslObjectDao, final DateTimeProvider dateTimeProvider, final LoggerContext loggerContext) {
+    public X509CredentialValidator(final RpslObjectDao rpslObjectDao, final DateTimeProvider dateTimeProvider, final LoggerContext loggerContext, final KeyWrapperCache keyWrapperCache) {
         this.rpslObjectDao = rpslObjectDao;
         this.dateTimeProvider = dateTimeProvider;
         this.loggerContext = loggerContext;
+        this.keyWrapperCache = keyWrapperCache;
     }
 
     @Override
@@ -55,12 +58,24 @@ public class X509CredentialValidator implements CredentialValidator<X509Credenti
 
     private boolean verifySignedMessage(final PreparedUpdate update, final UpdateContext updateContext, final X509Credential offeredCredential, final X509Credential knownCredential) {
         final String keyId = knownCredential.getKeyId();
-        final X509CertificateWrapper x509CertificateWrapper = getKeyWrapper(update, updateContext, keyId);
+        final RpslObject keyCert = getKeyCert(update, updateContext, keyId);
+        if (keyCert == null) {
+            return false;
+        }
+
+        final X509CertificateWrapper x509CertificateWrapper = getKeyWrapper(update, updateContext, keyCert);
         if (x509CertificateWrapper == null) {
             return false;
         }
 
-        if (verify(update, offeredCredential, x509CertificateWrapper)) {
+        // the same signature is verified against the same key-cert for every object in the signed message
+        final boolean verified = updateContext.getSignatureVerification(offeredCredential, keyCert).orElseGet(() -> {
+            final boolean result = verify(update, offeredCredential, x509CertificateWrapper);
+            updateContext.addSignatureVerification(offeredCredential, keyCert, result);
+            return result;
+        });
+
+        if (verified) {
             log(update, String.format("Successfully validated with keycert: {}", keyId));
 
             if (x509CertificateWrapper.isExpired(dateTimeProvider)) {
@@ -91,14 +106,27 @@ public class X509CredentialValidator implements CredentialValidator<X509Credenti
     }
 
     @CheckForNull
-    protected X509CertificateWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
+    protected RpslObject getKeyCert(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
         try {
-            final RpslObject object = rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
-            return X509CertificateWrapper.parse(object);
+            return rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
         } catch (EmptyResultDataAccessException e) {
             updateContext.addMessage(update, UpdateMessages.keyNotFound(keyId));
             log(update, String.format("Unable to find %s: %s", keyId, e.getMessage()));
         } catch (RuntimeException e) {
+            updateContext.addMessage(update, UpdateMessages.keyInvalid(keyId));
+            log(update, String.format("Unable to load %s for X509 signature: %s", keyId, e.getMessage()));
+            logException(update, e);
+        }
+
+        return null;
+    }
+
+    @CheckForNull
+    protected X509CertificateWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final RpslObject keyCert) {
+        try {
+            return keyWrapperCache.getX509CertificateWrapper(keyCert);
+        } catch (RuntimeException e) {
+            final String keyId = keyCert.getKey().toString();
             updateContext.addMessage(update, UpdateMessages.keyInvalid(keyId));
             log(update, String.format("Unable to parse %s for X509 signature: %s", keyId, e.getMessage()));
             logException(update, e);
@@ -0,0 +1,25 @@
+package net.ripe.db.whois.update.domain;
+
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+/**
+ * The sanitized submitted object, and the messages from sanitizing and validating it.
+ */
+public class SyntaxCheckResult {
+    private final RpslObject sanitizedObject;
+    private final ObjectMessages messages;
+
+    public SyntaxCheckResult(final RpslObject sanitizedObject, final ObjectMessages messages) {
+        this.sanitizedObject = sanitizedObject;
+        this.messages = messages;
+    }
+
+    public RpslObject getSanitizedObject() {
+        return sanitizedObject;
+    }
+
+    public ObjectMessages getMessages() {
+        return messages;
+    }
+}
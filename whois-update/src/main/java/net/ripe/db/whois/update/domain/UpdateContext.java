@@ -20,6 +20,7 @@ import net.ripe.db.whois.update.log.LoggerContext;
 import javax.annotation.CheckForNull;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -34,6 +35,8 @@ public class UpdateContext {
     private final Map<CIString, GeneratedKey> generatedKeys = Maps.newHashMap();
     private final Map<Update, Context> contexts = Maps.newLinkedHashMap();
     private final Map<DnsCheckRequest, DnsCheckResponse> dnsCheckResponses = Maps.newHashMap();
+    private final Map<Update, SyntaxCheckResult> syntaxCheckResults = Maps.newHashMap();
+    private final Map<SignatureVerification, Boolean> signatureVerifications = Maps.newHashMap();
     private final Map<String, String> ssoTranslation = Maps.newHashMap();
     private final LoggerContext loggerContext;
 
@@ -103,6 +106,23 @@ public class UpdateContext {
         return dnsCheckResponses.get(dnsCheckRequest);
     }
 
+    public void addSyntaxCheckResult(final Update update, final SyntaxCheckResult syntaxCheckResult) {
+        syntaxCheckResults.put(update, syntaxCheckResult);
+    }
+
+    @CheckForNull
+    public SyntaxCheckResult getSyntaxCheckResult(final Update update) {
+        return syntaxCheckResults.get(update);
+    }
+
+    public void addSignatureVerification(final Credential offeredCredential, final RpslObject keyCert, final boolean verified) {
+        signatureVerifications.put(new SignatureVerification(offeredCredential, keyCert), verified);
+    }
+
+    public Optional<Boolean> getSignatureVerification(final Credential offeredCredential, final RpslObject keyCert) {
+        return Optional.ofNullable(signatureVerifications.get(new SignatureVerification(offeredCredential, keyCert)));
+    }
+
     public void addMessage(final UpdateContainer updateContainer, final Message message) {
         getOrCreateContext(updateContainer).objectMessages.addMessage(message);
         loggerContext.logMessage(updateContainer, message);
@@ -346,4 +366,40 @@ public class UpdateContext {
         private int versionId = -1;
         private Origin origin;
     }
+
+    /**
+     * The signature and signed content of an offered credential, verified against a version of a key-cert.
+     */
+    private static class SignatureVerification {
+        private final Credential offeredCredential;
+        private final int keyCertObjectId;
+        private final RpslObject keyCert;
+
+        private SignatureVerification(final Credential offeredCredential, final RpslObject keyCert) {
+            this.offeredCredential = offeredCredential;
+            this.keyCertObjectId = keyCert.getObjectId();
+            this.keyCert = keyCert;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final SignatureVerification that = (SignatureVerification) o;
+            return keyCertObjectId == that.keyCertObjectId &&
+                    Objects.equals(offeredCredential, that.offeredCredential) &&
+                    Objects.equals(keyCert, that.keyCert);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(offeredCredential, keyCertObjectId, keyCert);
+        }
+    }
 }
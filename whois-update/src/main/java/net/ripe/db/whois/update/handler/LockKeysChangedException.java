@@ -0,0 +1,21 @@
+package net.ripe.db.whois.update.handler;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Set;
+
+/**
+ * The resources an update depends on changed while waiting for their locks. The transaction must be rolled back, as
+ * locks cannot be released, and retried with the given lock keys.
+ */
+@Immutable
+class LockKeysChangedException extends RuntimeException {
+    private final Set<String> lockKeys;
+
+    LockKeysChangedException(final Set<String> lockKeys) {
+        this.lockKeys = lockKeys;
+    }
+
+    Set<String> getLockKeys() {
+        return lockKeys;
+    }
+}
@@ -1,7 +1,10 @@
 package net.ripe.db.whois.update.handler;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.UpdateLockDao;
 import net.ripe.db.whois.common.iptree.IpTreeUpdater;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
@@ -16,6 +19,10 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Make multiple updates, in a single transaction.
  *
@@ -28,23 +35,52 @@ public class MultipleUpdateHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipleUpdateHandler.class);
 
     private final SingleUpdateHandler singleUpdateHandler;
+    private final UpdateLockDao updateLockDao;
+    private final UpdateLocker updateLocker;
     private final IpTreeUpdater ipTreeUpdater;
     private final LoggerContext loggerContext;
     private final UpdateLog updateLog;
 
     @Autowired
     public MultipleUpdateHandler(final SingleUpdateHandler singleUpdateHandler,
+                                 final UpdateLockDao updateLockDao,
+                                 final UpdateLocker updateLocker,
                                  final IpTreeUpdater ipTreeUpdater,
                                  final LoggerContext loggerContext,
                                  final UpdateLog updateLog) {
         this.singleUpdateHandler = singleUpdateHandler;
+        this.updateLockDao = updateLockDao;
+        this.updateLocker = updateLocker;
         this.ipTreeUpdater = ipTreeUpdater;
         this.loggerContext = loggerContext;
         this.updateLog = updateLog;
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
     public void handle(final UpdateRequest updateRequest, final UpdateContext updateContext) {
+        Set<String> lockKeys = Collections.emptySet();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handle(updateRequest, updateContext, lockKeys);
+                return;
+            } catch (LockKeysChangedException e) {
+                if (attempt == UpdateLocker.MAX_ATTEMPTS) {
+                    throw new IllegalStateException("Unable to lock resources of batch update", e);
+                }
+                lockKeys = e.getLockKeys();
+            }
+        }
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+    private void handle(final UpdateRequest updateRequest, final UpdateContext updateContext, final Set<String> previousLockKeys) {
+        // lock everything up front: once the global lock is held, no more resource locks can be set
+        final List<RpslObject> submittedObjects = Lists.newArrayList();
+        for (final Update update : updateRequest.getUpdates()) {
+            submittedObjects.add(update.getSubmittedObject());
+        }
+        updateLocker.setResourceLocks(submittedObjects, previousLockKeys);
+        updateLockDao.setUpdateLock();
+
         for (final Update update : updateRequest.getUpdates()) {
             final Stopwatch stopwatch = Stopwatch.createStarted();
             try {
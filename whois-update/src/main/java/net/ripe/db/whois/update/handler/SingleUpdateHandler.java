@@ -3,10 +3,8 @@ package net.ripe.db.whois.update.handler;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
 import net.ripe.db.whois.common.domain.CIString;
-import net.ripe.db.whois.common.iptree.IpTreeUpdater;
 import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
 import net.ripe.db.whois.common.rpsl.ObjectMessages;
-import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.rpsl.RpslObjectFilter;
@@ -17,6 +15,7 @@ import net.ripe.db.whois.update.domain.Operation;
 import net.ripe.db.whois.update.domain.Origin;
 import net.ripe.db.whois.update.domain.OverrideOptions;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
+import net.ripe.db.whois.update.domain.SyntaxCheckResult;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
@@ -35,7 +34,9 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 
 @Component
@@ -45,10 +46,11 @@ public class SingleUpdateHandler {
     private final Transformer[] transformers;
     private final RpslObjectDao rpslObjectDao;
     private final UpdateLockDao updateLockDao;
+    private final UpdateLocker updateLocker;
     private final Authenticator authenticator;
     private final UpdateObjectHandler updateObjectHandler;
-    private final IpTreeUpdater ipTreeUpdater;
     private final SsoTranslator ssoTranslator;
+    private final SyntaxChecker syntaxChecker;
 
     @Value("#{T(net.ripe.db.whois.common.domain.CIString).ciString('${whois.source}')}")
     private CIString source;
@@ -61,11 +63,12 @@ public class SingleUpdateHandler {
                                final Transformer[] transformers,
                                final AttributeSanitizer attributeSanitizer,
                                final UpdateLockDao updateLockDao,
+                               final UpdateLocker updateLocker,
                                final Authenticator authenticator,
                                final UpdateObjectHandler updateObjectHandler,
                                final RpslObjectDao rpslObjectDao,
-                               final IpTreeUpdater ipTreeUpdater,
-                               final SsoTranslator ssoTranslator) {
+                               final SsoTranslator ssoTranslator,
+                               final SyntaxChecker syntaxChecker) {
         this.attributeGenerators = attributeGenerators;
         // sort AttributeGenerators so they are executed in a predictable order
         this.attributeGenerators.sort((lhs, rhs) -> lhs.getClass().getName().compareToIgnoreCase(rhs.getClass().getName()));
@@ -73,16 +76,32 @@ public class SingleUpdateHandler {
         this.attributeSanitizer = attributeSanitizer;
         this.rpslObjectDao = rpslObjectDao;
         this.updateLockDao = updateLockDao;
+        this.updateLocker = updateLocker;
         this.authenticator = authenticator;
         this.updateObjectHandler = updateObjectHandler;
-        this.ipTreeUpdater = ipTreeUpdater;
         this.ssoTranslator = ssoTranslator;
+        this.syntaxChecker = syntaxChecker;
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
     public void handle(final Origin origin, final Keyword keyword, final Update update, final UpdateContext updateContext) {
-        updateLockDao.setUpdateLock();
-        ipTreeUpdater.updateTransactional();
+        Set<String> lockKeys = Collections.emptySet();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handle(origin, keyword, update, updateContext, lockKeys);
+                return;
+            } catch (LockKeysChangedException e) {
+                if (attempt == UpdateLocker.MAX_ATTEMPTS) {
+                    throw new IllegalStateException("Unable to lock resources of " + update.getSubmittedObject().getFormattedKey(), e);
+                }
+                lockKeys = e.getLockKeys();
+            }
+        }
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+    private void handle(final Origin origin, final Keyword keyword, final Update update, final UpdateContext updateContext, final Set<String> previousLockKeys) {
+        // only lock what this update depends on while validating, the global lock is set when writing
+        updateLocker.setResourceLocks(Collections.singleton(update.getSubmittedObject()), previousLockKeys);
 
         if (updateContext.isDryRun()) {
             updateContext.addMessage(update, UpdateMessages.dryRunNotice());
@@ -152,6 +171,8 @@ public class SingleUpdateHandler {
         if (updateContext.isDryRun() && !updateContext.isBatchUpdate()) {
             throw new UpdateAbortedException();
         } else {
+            // serials must be committed in order, so writes are still serialised
+            updateLockDao.setUpdateLock();
             updateObjectHandler.execute(preparedUpdate, updateContext);
         }
     }
@@ -191,9 +212,7 @@ public class SingleUpdateHandler {
 
     @Nonnull
     private RpslObject getUpdatedObject(final Update update, final UpdateContext updateContext, final Keyword keyword) {
-        RpslObject updatedObject = update.getSubmittedObject();
-
-        if (RpslObjectFilter.isFiltered(updatedObject)) {
+        if (RpslObjectFilter.isFiltered(update.getSubmittedObject())) {
             updateContext.addMessage(update, UpdateMessages.filteredNotAllowed());
         }
 
@@ -205,17 +224,13 @@ public class SingleUpdateHandler {
             if (update.getDeleteReasons().size() > 1) {
                 updateContext.addMessage(update, UpdateMessages.multipleReasonsSpecified(update.getOperation()));
             }
-
-            updatedObject = attributeSanitizer.sanitize(updatedObject, updateContext.getMessages(update));
-        } else {
-            final ObjectMessages messages = updateContext.getMessages(update);
-            updatedObject = attributeSanitizer.sanitize(updatedObject, messages);
-
-            ObjectTemplate.getTemplate(updatedObject.getType()).validateStructure(updatedObject, messages);
-            ObjectTemplate.getTemplate(updatedObject.getType()).validateSyntax(updatedObject, messages, true);
         }
 
-        return updatedObject;
+        // sanitized and validated once, also when the update is reattempted
+        final SyntaxCheckResult syntaxCheckResult = syntaxChecker.check(update, updateContext);
+        updateContext.getMessages(update).addAll(syntaxCheckResult.getMessages());
+
+        return syntaxCheckResult.getSanitizedObject();
     }
 
     private Action getAction(@Nullable final RpslObject originalObject,
@@ -0,0 +1,114 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.Message;
+import net.ripe.db.whois.common.Messages;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.SyntaxCheckResult;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.log.LoggerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sanitizes submitted objects and validates their structure and syntax.
+ * <p/>
+ * This does not depend on the database, so for requests with multiple updates it is done for all updates in parallel
+ * before the updates are handled, and the result is reused when a failed update is reattempted.
+ */
+@Component
+public class SyntaxChecker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntaxChecker.class);
+
+    private final AttributeSanitizer attributeSanitizer;
+    private final LoggerContext loggerContext;
+    private final ExecutorService executorService;
+
+    @Autowired
+    public SyntaxChecker(final AttributeSanitizer attributeSanitizer, final LoggerContext loggerContext) {
+        this.attributeSanitizer = attributeSanitizer;
+        this.loggerContext = loggerContext;
+        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, String.format("SyntaxChecker-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executorService.shutdownNow();
+    }
+
+    public void checkAll(final UpdateRequest updateRequest, final UpdateContext updateContext) {
+        if (updateRequest.getUpdates().size() < 2) {
+            return;
+        }
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final Map<Update, Future<SyntaxCheckResult>> futures = Maps.newLinkedHashMap();
+        for (final Update update : updateRequest.getUpdates()) {
+            futures.put(update, executorService.submit(() -> check(update)));
+        }
+
+        for (final Map.Entry<Update, Future<SyntaxCheckResult>> entry : futures.entrySet()) {
+            try {
+                updateContext.addSyntaxCheckResult(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while checking syntax", e);
+            } catch (ExecutionException e) {
+                // not cached, the update fails when it is handled
+                LOGGER.debug("Checking syntax of {}", entry.getKey().getSubmittedObject().getFormattedKey(), e.getCause());
+            }
+        }
+
+        loggerContext.log(new Message(Messages.Type.INFO, "Checked syntax of %d updates in %s", futures.size(), stopwatch.stop().toString()));
+    }
+
+    public SyntaxCheckResult check(final Update update, final UpdateContext updateContext) {
+        SyntaxCheckResult syntaxCheckResult = updateContext.getSyntaxCheckResult(update);
+        if (syntaxCheckResult == null) {
+            syntaxCheckResult = check(update);
+            updateContext.addSyntaxCheckResult(update, syntaxCheckResult);
+        }
+
+        return syntaxCheckResult;
+    }
+
+    private SyntaxCheckResult check(final Update update) {
+        final ObjectMessages messages = new ObjectMessages();
+        final RpslObject sanitizedObject = attributeSanitizer.sanitize(update.getSubmittedObject(), messages);
+
+        if (!Operation.DELETE.equals(update.getOperation())) {
+            ObjectTemplate.getTemplate(sanitizedObject.getType()).validateStructure(sanitizedObject, messages);
+            ObjectTemplate.getTemplate(sanitizedObject.getType()).validateSyntax(sanitizedObject, messages, true);
+        }
+
+        return new SyntaxCheckResult(sanitizedObject, messages);
+    }
+}
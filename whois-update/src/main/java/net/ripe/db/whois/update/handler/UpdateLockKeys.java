@@ -0,0 +1,146 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.etree.NestedIntervalMap;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import net.ripe.db.whois.common.iptree.IpTree;
+import net.ripe.db.whois.common.iptree.Ipv4RouteTree;
+import net.ripe.db.whois.common.iptree.Ipv4Tree;
+import net.ripe.db.whois.common.iptree.Ipv6RouteTree;
+import net.ripe.db.whois.common.iptree.Ipv6Tree;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the resources an update depends on, so that only updates sharing a resource are serialised:
+ * <ul>
+ * <li>the primary key of the object itself,</li>
+ * <li>the primary keys it references (e.g. maintainers, contacts, organisation),</li>
+ * <li>for address space, the closest less specific object in the same tree, which is what the hierarchy validators
+ * check against; creating or deleting a more specific of the object locks the same parent,</li>
+ * <li>for routes, also the address space covering the route, which route authorisation checks against,</li>
+ * <li>the namespace of the primary key if it can be generated from an AUTO- placeholder, for explicit and generated
+ * keys alike, so that a generated key cannot collide with one created concurrently.</li>
+ * </ul>
+ * The closest less specific depends on the trees, which can change before the locks are taken, so callers must
+ * derive the keys again once they hold the locks.
+ */
+@Component
+public class UpdateLockKeys {
+    private static final Pattern AUTO_KEY_PATTERN = Pattern.compile("(?i)^AUTO-\\d+.*$");
+
+    // attributes with an AutoKeyFactory, e.g. persons and roles share the nic-hdl namespace
+    private static final Set<AttributeType> AUTO_KEY_ATTRIBUTES = Sets.immutableEnumSet(AttributeType.NIC_HDL, AttributeType.ORGANISATION, AttributeType.KEY_CERT);
+
+    private final Ipv4Tree ipv4Tree;
+    private final Ipv6Tree ipv6Tree;
+    private final Ipv4RouteTree ipv4RouteTree;
+    private final Ipv6RouteTree ipv6RouteTree;
+
+    @Autowired
+    public UpdateLockKeys(final Ipv4Tree ipv4Tree,
+                          final Ipv6Tree ipv6Tree,
+                          final Ipv4RouteTree ipv4RouteTree,
+                          final Ipv6RouteTree ipv6RouteTree) {
+        this.ipv4Tree = ipv4Tree;
+        this.ipv6Tree = ipv6Tree;
+        this.ipv4RouteTree = ipv4RouteTree;
+        this.ipv6RouteTree = ipv6RouteTree;
+    }
+
+    public Set<String> getLockKeys(final RpslObject object) {
+        final Set<String> lockKeys = Sets.newHashSet();
+        final ObjectType objectType = object.getType();
+
+        try {
+            switch (objectType) {
+                case INETNUM:
+                    addAddressSpace(lockKeys, objectType, Ipv4Resource.parse(object.getKey()), ipv4Tree);
+                    break;
+                case INET6NUM:
+                    addAddressSpace(lockKeys, objectType, Ipv6Resource.parse(object.getKey()), ipv6Tree);
+                    break;
+                case ROUTE: {
+                    final Ipv4Resource prefix = Ipv4Resource.parse(object.getValueForAttribute(AttributeType.ROUTE));
+                    addAddressSpace(lockKeys, objectType, prefix, ipv4RouteTree);
+                    addAddressSpace(lockKeys, ObjectType.INETNUM, prefix, ipv4Tree);
+                    break;
+                }
+                case ROUTE6: {
+                    final Ipv6Resource prefix = Ipv6Resource.parse(object.getValueForAttribute(AttributeType.ROUTE6));
+                    addAddressSpace(lockKeys, objectType, prefix, ipv6RouteTree);
+                    addAddressSpace(lockKeys, ObjectType.INET6NUM, prefix, ipv6Tree);
+                    break;
+                }
+                default:
+                    addPrimaryKey(lockKeys, object);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            // invalid address space, the update will fail on syntax
+            addPrimaryKey(lockKeys, object);
+        }
+
+        for (final RpslAttribute attribute : object.getAttributes()) {
+            final AttributeType attributeType = attribute.getType();
+            if (attributeType == null || attributeType.getReferences().isEmpty()) {
+                continue;
+            }
+
+            for (final CIString value : attribute.getReferenceValues()) {
+                if (!AUTO_KEY_PATTERN.matcher(value).matches()) {
+                    lockKeys.add(value.toString());
+                }
+            }
+        }
+
+        return lockKeys;
+    }
+
+    public Set<String> getLockKeys(final Iterable<RpslObject> objects) {
+        final Set<String> lockKeys = Sets.newHashSet();
+        for (final RpslObject object : objects) {
+            lockKeys.addAll(getLockKeys(object));
+        }
+        return lockKeys;
+    }
+
+    private static void addPrimaryKey(final Set<String> lockKeys, final RpslObject object) {
+        for (final AttributeType keyAttribute : ObjectTemplate.getTemplate(object.getType()).getKeyAttributes()) {
+            if (AUTO_KEY_ATTRIBUTES.contains(keyAttribute)) {
+                lockKeys.add(keyAttribute.getName() + ":");
+            }
+        }
+
+        final CIString key = object.getKey();
+        if (!AUTO_KEY_PATTERN.matcher(key).matches()) {
+            lockKeys.add(key.toString());
+        }
+    }
+
+    private static <K extends IpInterval<K>, V extends NestedIntervalMap.Key<K>> void addAddressSpace(final Set<String> lockKeys, final ObjectType objectType, final K resource, final IpTree<K, V> ipTree) {
+        final String prefix = objectType.getName() + ":";
+        lockKeys.add(prefix + resource);
+
+        final List<V> parents = ipTree.findFirstLessSpecific(resource);
+        if (parents.isEmpty()) {
+            lockKeys.add(prefix);
+        } else {
+            for (final V parent : parents) {
+                lockKeys.add(prefix + parent.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.iptree.IpTreeUpdater;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Locks the resources updates depend on, as derived by {@link UpdateLockKeys}.
+ */
+@Component
+public class UpdateLocker {
+    static final int MAX_ATTEMPTS = 10;
+
+    private final UpdateLockDao updateLockDao;
+    private final UpdateLockKeys updateLockKeys;
+    private final IpTreeUpdater ipTreeUpdater;
+
+    @Autowired
+    public UpdateLocker(final UpdateLockDao updateLockDao, final UpdateLockKeys updateLockKeys, final IpTreeUpdater ipTreeUpdater) {
+        this.updateLockDao = updateLockDao;
+        this.updateLockKeys = updateLockKeys;
+        this.ipTreeUpdater = ipTreeUpdater;
+    }
+
+    /**
+     * Locks the resources the objects depend on, together with the keys locked by a previous attempt.
+     *
+     * @throws LockKeysChangedException if the resources changed while waiting for the locks
+     */
+    public void setResourceLocks(final Iterable<RpslObject> objects, final Set<String> previousLockKeys) {
+        ipTreeUpdater.updateTransactional();
+        final Set<String> lockKeys = ImmutableSet.copyOf(Sets.union(previousLockKeys, updateLockKeys.getLockKeys(objects)));
+        updateLockDao.setResourceLocks(lockKeys);
+
+        // e.g. a less specific committed while waiting, which the objects now depend on instead
+        // the trees must include every commit before the locks, so wait for a concurrent tree update instead of skipping
+        ipTreeUpdater.updateTransactionalAndWait();
+        final Set<String> currentLockKeys = updateLockKeys.getLockKeys(objects);
+        if (!lockKeys.containsAll(currentLockKeys)) {
+            throw new LockKeysChangedException(ImmutableSet.copyOf(Sets.union(lockKeys, currentLockKeys)));
+        }
+    }
+}
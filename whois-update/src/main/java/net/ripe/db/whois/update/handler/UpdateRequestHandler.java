@@ -39,6 +39,7 @@ public class UpdateRequestHandler {
     private final SsoTranslator ssoTranslator;
     private final UpdateNotifier updateNotifier;
     private final UpdateLog updateLog;
+    private final SyntaxChecker syntaxChecker;
 
     @Autowired
     public UpdateRequestHandler(final SourceContext sourceContext,
@@ -49,7 +50,8 @@ public class UpdateRequestHandler {
                                 final DnsChecker dnsChecker,
                                 final SsoTranslator ssoTranslator,
                                 final UpdateNotifier updateNotifier,
-                                final UpdateLog updateLog) {
+                                final UpdateLog updateLog,
+                                final SyntaxChecker syntaxChecker) {
         this.sourceContext = sourceContext;
         this.responseFactory = responseFactory;
         this.singleUpdateHandler = singleUpdateHandler;
@@ -59,6 +61,7 @@ public class UpdateRequestHandler {
         this.ssoTranslator = ssoTranslator;
         this.updateNotifier = updateNotifier;
         this.updateLog = updateLog;
+        this.syntaxChecker = syntaxChecker;
     }
 
     public UpdateResponse handle(final UpdateRequest updateRequest, final UpdateContext updateContext) {
@@ -83,6 +86,7 @@ public class UpdateRequestHandler {
             sourceContext.setCurrentSourceToWhoisMaster();
 
             dnsChecker.checkAll(updateRequest, updateContext);
+            syntaxChecker.checkAll(updateRequest, updateContext);
 
             for (final Update update : updateRequest.getUpdates()) {
                 ssoTranslator.populateCacheAuthToUuid(updateContext, update);
@@ -126,6 +130,14 @@ public class UpdateRequestHandler {
             }
         });
 
+        // the request is logged before the ack is returned or mailed, but the updates are committed by now,
+        // so failing to write the logs must not change the response or suppress the notifications
+        try {
+            loggerContext.flush();
+        } catch (IllegalStateException e) {
+            LOGGER.error("Writing update logs", e);
+        }
+
         return new UpdateResponse(ack.getUpdateStatus(), ackResponse);
     }
 
@@ -0,0 +1,63 @@
+package net.ripe.db.whois.update.keycert;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Caches the keys parsed from key-cert objects, by object id.
+ * <p/>
+ * A cached key is only used if the key-cert is unchanged, otherwise the key-cert is parsed again and replaces the
+ * cached key of the previous version.
+ */
+@Component
+public class KeyWrapperCache {
+    private final Cache<Integer, CachedKeyWrapper> cache;
+
+    @Autowired
+    public KeyWrapperCache(@Value("${keycert.cache.size:1000}") final int maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key-cert does not contain a valid PGP key
+     */
+    public PgpPublicKeyWrapper getPgpPublicKeyWrapper(final RpslObject keyCert) {
+        return get(keyCert, PgpPublicKeyWrapper.class, PgpPublicKeyWrapper::parse);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key-cert does not contain a valid X.509 certificate
+     */
+    public X509CertificateWrapper getX509CertificateWrapper(final RpslObject keyCert) {
+        return get(keyCert, X509CertificateWrapper.class, X509CertificateWrapper::parse);
+    }
+
+    private <T extends KeyWrapper> T get(final RpslObject keyCert, final Class<T> type, final Function<RpslObject, T> parser) {
+        final CachedKeyWrapper cached = cache.getIfPresent(keyCert.getObjectId());
+        if (cached != null && type.isInstance(cached.keyWrapper) && cached.keyCert.equals(keyCert)) {
+            return type.cast(cached.keyWrapper);
+        }
+
+        final T keyWrapper = parser.apply(keyCert);
+        cache.put(keyCert.getObjectId(), new CachedKeyWrapper(keyCert, keyWrapper));
+        return keyWrapper;
+    }
+
+    private static final class CachedKeyWrapper {
+        private final RpslObject keyCert;
+        private final KeyWrapper keyWrapper;
+
+        private CachedKeyWrapper(final RpslObject keyCert, final KeyWrapper keyWrapper) {
+            this.keyCert = keyCert;
+            this.keyWrapper = keyWrapper;
+        }
+    }
+}
@@ -230,6 +230,6 @@ public final class PgpSignedMessage {
 
     @Override
     public int hashCode() {
-        return Objects.hash(content, signature, clearText);
+        return Objects.hash(Arrays.hashCode(content), Arrays.hashCode(signature), clearText);
     }
 }
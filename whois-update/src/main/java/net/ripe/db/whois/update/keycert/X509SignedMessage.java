@@ -155,11 +155,11 @@ public class X509SignedMessage {
 
         final X509SignedMessage that = (X509SignedMessage) o;
 
-        return Objects.equals(signature, that.signature);
+        return Objects.equals(signedData, that.signedData) && Objects.equals(signature, that.signature);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(signature);
+        return Objects.hash(signedData, signature);
     }
 }
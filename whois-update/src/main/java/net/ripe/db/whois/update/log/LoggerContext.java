@@ -1,6 +1,7 @@
 package net.ripe.db.whois.update.log;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
@@ -22,7 +23,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -30,10 +33,26 @@ import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * Logs an update request to a directory of compressed files.
+ * <p/>
+ * Logs are rendered in memory on the calling thread, but compressed and written to disk by a dedicated writer thread.
+ * The audit log is streamed to its file by the writer thread when the context is removed.
+ * If the writer falls more than {@link #WRITE_QUEUE_SIZE} files behind, or has been stopped, the calling thread writes
+ * the file itself. All files of a request are on disk when {@link #flush()} or {@link #remove()} returns.
+ */
 @Component
 public class LoggerContext {
     private static final Logger LOGGER = LoggerFactory.getLogger(LoggerContext.class);
@@ -42,11 +61,15 @@ public class LoggerContext {
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HHmmss");
     private static final String FILE_SEPARATOR = System.getProperty("file.separator");
     private static final int MAXIMUM_FILENAME_LENGTH = 255;
+    private static final int WRITE_QUEUE_SIZE = 1000;
+    private static final int WRITER_KEEP_ALIVE_SECONDS = 10;
+    private static final int WRITER_TERMINATION_SECONDS = 60;
 
     // static, to avoid overlapping applicationContexts masking Contexts
     private static final ThreadLocal<Context> context = new ThreadLocal<>();
 
     private final DateTimeProvider dateTimeProvider;
+    private final ThreadPoolExecutor writer;
 
     @Value("${dir.update.audit.log}") private String baseDir;
 
@@ -57,6 +80,20 @@ public class LoggerContext {
     @Autowired
     public LoggerContext(final DateTimeProvider dateTimeProvider) {
         this.dateTimeProvider = dateTimeProvider;
+        // not a daemon, so queued logs are written before the JVM exits, but idle, it does not keep the JVM alive
+        this.writer = new ThreadPoolExecutor(1, 1, WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(WRITE_QUEUE_SIZE), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(r, "LoggerContext-writer");
+            }
+        }, new RejectedExecutionHandler() {
+            // unlike CallerRunsPolicy, also after shutdown, so no log is lost and no flush waits forever
+            @Override
+            public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor) {
+                r.run();
+            }
+        });
+        this.writer.allowCoreThreadTimeOut(true);
     }
 
     @PostConstruct
@@ -64,6 +101,19 @@ public class LoggerContext {
         checkDirs();
     }
 
+    @PreDestroy
+    public void stop() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(WRITER_TERMINATION_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.error("Update logs not written within {} seconds", WRITER_TERMINATION_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while writing update logs", e);
+        }
+    }
+
     public void checkDirs() {
         getCreatedDir(baseDir);
     }
@@ -95,13 +145,46 @@ public class LoggerContext {
     }
 
     public void remove() {
+        final Context ctx = getContext();
         try {
-            getContext().auditLogger.close();
+            ctx.pendingWrites.add(writer.submit(ctx.auditLogger::close));
+            flush();
+        } catch (IllegalStateException e) {
+            LOGGER.error("Writing update logs", e);
         } finally {
             context.remove();
         }
     }
 
+    /**
+     * Waits until all files logged in the current context are written.
+     *
+     * @throws IllegalStateException if a file could not be written
+     */
+    public void flush() {
+        final Context ctx = getContext();
+
+        IllegalStateException failure = null;
+        for (final Future<?> pendingWrite : ctx.pendingWrites) {
+            try {
+                pendingWrite.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing logs", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new IllegalStateException(e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+
+        ctx.pendingWrites.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     public File getFile(final String filename) {
         final Context tempContext = getContext();
         return getFile(tempContext.baseDir, tempContext.nextFileNumber(), filename);
@@ -113,21 +196,34 @@ public class LoggerContext {
     }
 
     public File log(final String name, final LogCallback callback) {
-        final File file = getFile(name);
+        final Context ctx = getContext();
+        final File file = getFile(ctx.baseDir, ctx.nextFileNumber(), name);
 
-        OutputStream os = null;
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         try {
-            os = getOutputstream(file);
-            callback.log(os);
+            callback.log(buffer);
         } catch (IOException e) {
             throw new IllegalStateException("Unable to write to " + file.getAbsolutePath(), e);
-        } finally {
-            closeOutputStream(os);
         }
 
+        write(ctx, file, buffer::writeTo);
         return file;
     }
 
+    private void write(final Context ctx, final File file, final LogCallback callback) {
+        ctx.pendingWrites.add(writer.submit(() -> {
+            OutputStream os = null;
+            try {
+                os = getOutputstream(file);
+                callback.log(os);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to write to " + file.getAbsolutePath(), e);
+            } finally {
+                closeOutputStream(os);
+            }
+        }));
+    }
+
     private OutputStream getOutputstream(final File file) {
         FileOutputStream os = null;
         try {
@@ -280,6 +376,7 @@ public class LoggerContext {
         private final File baseDir;
         private final AtomicInteger fileNumber;
         private final AuditLogger auditLogger;
+        private final List<Future<?>> pendingWrites = Lists.newArrayList();
         private Stopwatch stopwatch;
         private Update currentUpdate;
 
@@ -0,0 +1,93 @@
+package net.ripe.db.whois.update.database;
+
+import com.google.common.base.Stopwatch;
+import net.ripe.db.whois.update.dao.AbstractUpdateDaoIntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares concurrent updates serialised on the resources they depend on against the global update lock, for updates
+ * of unrelated objects and of a few shared objects. Every update validates for a while before it writes.
+ */
+@Tag("ManualTest")
+public class UpdateLockBenchmark extends AbstractUpdateDaoIntegrationTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdateLockBenchmark.class);
+
+    private static final int[] THREADS = {1, 4, 16};
+    private static final int UPDATES_PER_THREAD = 25;
+    private static final int SHARED_OBJECTS = 2;
+    private static final long VALIDATION_MILLIS = 10;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private UpdateLockHelper updateLockHelper;
+
+    @Test
+    public void concurrent_updates() throws Exception {
+        final int maxThreads = THREADS[THREADS.length - 1];
+        for (int objectId = 1; objectId <= maxThreads; objectId++) {
+            whoisTemplate.update("INSERT INTO mntner (object_id, mntner) VALUES (?, '')", objectId);
+        }
+
+        for (final int threads : THREADS) {
+            for (int round = 0; round < ROUNDS; round++) {
+                final long unrelatedGlobal = run(threads, false, thread -> thread + 1);
+                final long unrelatedResource = run(threads, true, thread -> thread + 1);
+                final long overlappingGlobal = run(threads, false, thread -> thread % SHARED_OBJECTS + 1);
+                final long overlappingResource = run(threads, true, thread -> thread % SHARED_OBJECTS + 1);
+
+                LOGGER.info("Threads {} round {}: unrelated global lock {} ms, resource locks {} ms; overlapping global lock {} ms, resource locks {} ms",
+                        threads, round, unrelatedGlobal, unrelatedResource, overlappingGlobal, overlappingResource);
+            }
+        }
+    }
+
+    private long run(final int threads, final boolean resourceLocks, final IntUnaryOperator objectIdForThread) throws Exception {
+        whoisTemplate.update("UPDATE mntner SET mntner = ''");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Callable<Void>> workers = IntStream.range(0, threads)
+                    .mapToObj(thread -> (Callable<Void>) () -> {
+                        final int objectId = objectIdForThread.applyAsInt(thread);
+                        for (int update = 0; update < UPDATES_PER_THREAD; update++) {
+                            if (resourceLocks) {
+                                updateLockHelper.testResourceLock(objectId, VALIDATION_MILLIS);
+                            } else {
+                                updateLockHelper.testGlobalLock(objectId, VALIDATION_MILLIS);
+                            }
+                        }
+                        return null;
+                    })
+                    .collect(Collectors.toList());
+
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            for (final Future<Void> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+            final long millis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+            // no update was lost
+            final Integer written = whoisTemplate.queryForObject("SELECT SUM(LENGTH(mntner)) FROM mntner", Integer.class);
+            assertEquals(threads * UPDATES_PER_THREAD, written.intValue());
+            return millis;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
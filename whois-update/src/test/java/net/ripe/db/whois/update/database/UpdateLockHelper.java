@@ -10,6 +10,9 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 
 @Component
 public class UpdateLockHelper {
@@ -42,4 +45,48 @@ public class UpdateLockHelper {
 
         setMntnerValue(getMntnerValue() + ".");
     }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void holdResourceLocks(final Collection<String> lockKeys, final CountDownLatch locked, final CountDownLatch release) throws InterruptedException {
+        updateLockDao.setResourceLocks(lockKeys);
+        locked.countDown();
+        release.await();
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void testResourceLock(final int objectId, final long validationMillis) {
+        updateLockDao.setResourceLocks(Collections.singleton("MNTNER-" + objectId));
+
+        final String value = getMntnerValue(objectId);
+        sleep(validationMillis);
+
+        updateLockDao.setUpdateLock();
+        setMntnerValue(objectId, value + ".");
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void testGlobalLock(final int objectId, final long validationMillis) {
+        updateLockDao.setUpdateLock();
+
+        final String value = getMntnerValue(objectId);
+        sleep(validationMillis);
+
+        setMntnerValue(objectId, value + ".");
+    }
+
+    private void setMntnerValue(final int objectId, final String value) {
+        jdbcTemplate.update("UPDATE mntner SET mntner = ? WHERE object_id = ?", value.getBytes(), objectId);
+    }
+
+    private String getMntnerValue(final int objectId) {
+        return jdbcTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = ?", String.class, objectId);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -8,6 +8,8 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +56,68 @@ public class UpdateLockTestIntegration extends AbstractUpdateDaoIntegrationTest
         assertThat(getMntnerValue(), is("Dot: " + StringUtils.repeat(".", threads)));
     }
 
+    @Test
+    public void resource_lock_serialises_updates_of_same_resource() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int cnt = 0; cnt < threads; ++cnt) {
+            executor.execute(() -> updateLockHelper.testResourceLock(1, 10));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        assertThat(getMntnerValue(), is("Dot: " + StringUtils.repeat(".", threads)));
+    }
+
+    @Test
+    public void resource_lock_does_not_block_unrelated_update() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final CountDownLatch locked = holdResourceLocks(executor, "MNTNER-1", release);
+            assertThat(locked.await(10, TimeUnit.SECONDS), is(true));
+
+            final CountDownLatch unrelatedLocked = holdResourceLocks(executor, "MNTNER-2", release);
+            assertThat(unrelatedLocked.await(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void resource_lock_blocks_related_update() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch relatedRelease = new CountDownLatch(1);
+        try {
+            final CountDownLatch locked = holdResourceLocks(executor, "MNTNER-1", release);
+            assertThat(locked.await(10, TimeUnit.SECONDS), is(true));
+
+            final CountDownLatch relatedLocked = holdResourceLocks(executor, "mntner-1", relatedRelease);
+            assertThat(relatedLocked.await(1, TimeUnit.SECONDS), is(false));
+
+            release.countDown();
+            assertThat(relatedLocked.await(10, TimeUnit.SECONDS), is(true));
+        } finally {
+            release.countDown();
+            relatedRelease.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+
+    private CountDownLatch holdResourceLocks(final ExecutorService executor, final String lockKey, final CountDownLatch release) {
+        final CountDownLatch locked = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                updateLockHelper.holdResourceLocks(Collections.singleton(lockKey), locked, release);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return locked;
+    }
+
     private String getMntnerValue() {
         return whoisTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = 1", String.class);
     }
@@ -14,6 +14,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -137,4 +138,17 @@ public class UpdateContextTest {
         assertThat(subject.getGeneratedKey(ciString("auto-1")).getAutoKey(), is(nicHandle));
         assertNull(subject.getGeneratedKey(ciString("AUTO-2")));
     }
+
+    @Test
+    public void signature_verification() {
+        final RpslObject keyCert = new RpslObject(1, RpslObject.parse("key-cert: X509-1\nsource: TEST"));
+        final X509Credential offeredCredential = X509Credential.createOfferedCredential("signed content", "signature");
+
+        subject.addSignatureVerification(offeredCredential, keyCert, true);
+
+        assertThat(subject.getSignatureVerification(X509Credential.createOfferedCredential("signed content", "signature"), keyCert), is(Optional.of(true)));
+        assertThat(subject.getSignatureVerification(X509Credential.createOfferedCredential("other content", "signature"), keyCert), is(Optional.empty()));
+        assertThat(subject.getSignatureVerification(offeredCredential, new RpslObject(2, keyCert)), is(Optional.empty()));
+        assertThat(subject.getSignatureVerification(offeredCredential, new RpslObject(1, RpslObject.parse("key-cert: X509-1\nremarks: updated\nsource: TEST"))), is(Optional.empty()));
+    }
 }
@@ -0,0 +1,88 @@
+package net.ripe.db.whois.update.handler;
+
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Keyword;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Origin;
+import net.ripe.db.whois.update.domain.Paragraph;
+import net.ripe.db.whois.update.domain.SyntaxCheckResult;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.log.LoggerContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+@ExtendWith(MockitoExtension.class)
+public class SyntaxCheckerTest {
+    @Mock DateTimeProvider dateTimeProvider;
+    @Mock LoggerContext loggerContext;
+    @Mock Origin origin;
+
+    private UpdateContext updateContext;
+    private SyntaxChecker subject;
+
+    @BeforeEach
+    public void setUp() {
+        updateContext = new UpdateContext(loggerContext);
+        subject = new SyntaxChecker(new AttributeSanitizer(dateTimeProvider), loggerContext);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        subject.stop();
+    }
+
+    @Test
+    public void check_all_updates_in_request() {
+        final Update valid = update("" +
+                "mntner:  DEV-MNT\n" +
+                "descr:   description\n" +
+                "admin-c: TEST-RIPE\n" +
+                "upd-to:  dev@ripe.net\n" +
+                "auth:    MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7.\n" +
+                "mnt-by:  DEV-MNT\n" +
+                "source:  TEST");
+        final Update invalid = update("" +
+                "mntner:  DEV-MNT\n" +
+                "source:  TEST");
+
+        subject.checkAll(new UpdateRequest(origin, Keyword.NONE, Arrays.asList(valid, invalid)), updateContext);
+
+        assertThat(updateContext.getSyntaxCheckResult(valid).getMessages().hasErrors(), is(false));
+        assertThat(updateContext.getSyntaxCheckResult(invalid).getMessages().hasErrors(), is(true));
+    }
+
+    @Test
+    public void single_update_checked_when_handled() {
+        final Update update = update("" +
+                "inetnum: 10.0.0.0 -   10.0.0.255\n" +
+                "source:  TEST");
+
+        subject.checkAll(new UpdateRequest(origin, Keyword.NONE, Collections.singletonList(update)), updateContext);
+        assertThat(updateContext.getSyntaxCheckResult(update), is(nullValue()));
+
+        final SyntaxCheckResult syntaxCheckResult = subject.check(update, updateContext);
+
+        assertThat(syntaxCheckResult.getSanitizedObject().getKey().toString(), is("10.0.0.0 - 10.0.0.255"));
+        assertThat(subject.check(update, updateContext), is(sameInstance(syntaxCheckResult)));
+    }
+
+    private static Update update(final String object) {
+        return new Update(new Paragraph(object), Operation.UNSPECIFIED, Collections.emptyList(), RpslObject.parse(object));
+    }
+}
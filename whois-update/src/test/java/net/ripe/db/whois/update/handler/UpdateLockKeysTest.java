@@ -0,0 +1,140 @@
+package net.ripe.db.whois.update.handler;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import net.ripe.db.whois.common.iptree.Ipv4Entry;
+import net.ripe.db.whois.common.iptree.Ipv4RouteEntry;
+import net.ripe.db.whois.common.iptree.Ipv4RouteTree;
+import net.ripe.db.whois.common.iptree.Ipv4Tree;
+import net.ripe.db.whois.common.iptree.Ipv6Entry;
+import net.ripe.db.whois.common.iptree.Ipv6RouteTree;
+import net.ripe.db.whois.common.iptree.Ipv6Tree;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UpdateLockKeysTest {
+    @Mock Ipv4Tree ipv4Tree;
+    @Mock Ipv6Tree ipv6Tree;
+    @Mock Ipv4RouteTree ipv4RouteTree;
+    @Mock Ipv6RouteTree ipv6RouteTree;
+    @InjectMocks UpdateLockKeys subject;
+
+    @Test
+    public void inetnum_locks_itself_and_parent() {
+        when(ipv4Tree.findFirstLessSpecific(Ipv4Resource.parse("10.0.0.0/24"))).thenReturn(Collections.singletonList(new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 1)));
+
+        final RpslObject inetnum = RpslObject.parse("" +
+                "inetnum: 10.0.0.0 - 10.0.0.255\n" +
+                "mnt-by:  TEST-MNT\n" +
+                "source:  TEST");
+
+        assertThat(subject.getLockKeys(inetnum), containsInAnyOrder("inetnum:10.0.0.0/24", "inetnum:10.0.0.0/8", "TEST-MNT"));
+    }
+
+    @Test
+    public void inetnum_without_parent_locks_tree() {
+        final RpslObject inetnum = RpslObject.parse("" +
+                "inetnum: 10.0.0.0 - 10.0.0.255\n" +
+                "source:  TEST");
+
+        assertThat(subject.getLockKeys(inetnum), containsInAnyOrder("inetnum:10.0.0.0/24", "inetnum:"));
+    }
+
+    @Test
+    public void inet6num_locks_itself_and_parent() {
+        when(ipv6Tree.findFirstLessSpecific(Ipv6Resource.parse("2001:db8::/48"))).thenReturn(Collections.singletonList(new Ipv6Entry(Ipv6Resource.parse("2001:db8::/32"), 1)));
+
+        final RpslObject inet6num = RpslObject.parse("" +
+                "inet6num: 2001:db8::/48\n" +
+                "source:   TEST");
+
+        assertThat(subject.getLockKeys(inet6num), containsInAnyOrder("inet6num:2001:db8::/48", "inet6num:2001:db8::/32"));
+    }
+
+    @Test
+    public void delete_of_more_specific_locks_same_parent_as_create() {
+        when(ipv4Tree.findFirstLessSpecific(Ipv4Resource.parse("10.0.0.0/24"))).thenReturn(Collections.singletonList(new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 1)));
+        when(ipv4Tree.findFirstLessSpecific(Ipv4Resource.parse("10.0.1.0/24"))).thenReturn(Collections.singletonList(new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 1)));
+
+        final RpslObject created = RpslObject.parse("inetnum: 10.0.0.0 - 10.0.0.255\nsource: TEST");
+        final RpslObject deleted = RpslObject.parse("inetnum: 10.0.1.0 - 10.0.1.255\nsource: TEST");
+
+        assertThat(subject.getLockKeys(created), hasItem("inetnum:10.0.0.0/8"));
+        assertThat(subject.getLockKeys(deleted), hasItem("inetnum:10.0.0.0/8"));
+    }
+
+    @Test
+    public void route_locks_route_and_covering_address_space() {
+        when(ipv4RouteTree.findFirstLessSpecific(Ipv4Resource.parse("10.0.0.0/16"))).thenReturn(Collections.singletonList(new Ipv4RouteEntry(Ipv4Resource.parse("10.0.0.0/8"), 1, "AS3333")));
+        when(ipv4Tree.findFirstLessSpecific(Ipv4Resource.parse("10.0.0.0/16"))).thenReturn(Collections.singletonList(new Ipv4Entry(Ipv4Resource.parse("10.0.0.0/8"), 2)));
+
+        final RpslObject route = RpslObject.parse("" +
+                "route:  10.0.0.0/16\n" +
+                "origin: AS3333\n" +
+                "source: TEST");
+
+        assertThat(subject.getLockKeys(route), containsInAnyOrder("route:10.0.0.0/16", "route:10.0.0.0/8", "inetnum:10.0.0.0/16", "inetnum:10.0.0.0/8"));
+    }
+
+    @Test
+    public void route6_locks_route_and_covering_address_space() {
+        final RpslObject route6 = RpslObject.parse("" +
+                "route6: 2001:db8::/32\n" +
+                "origin: AS3333\n" +
+                "source: TEST");
+
+        assertThat(subject.getLockKeys(route6), containsInAnyOrder("route6:2001:db8::/32", "route6:", "inet6num:2001:db8::/32", "inet6num:"));
+    }
+
+    @Test
+    public void auto_key_and_explicit_key_share_namespace() {
+        final RpslObject autoKey = RpslObject.parse("person: Test Person\nnic-hdl: AUTO-1\nsource: TEST");
+        final RpslObject explicitKey = RpslObject.parse("role: Test Role\nnic-hdl: TR1-TEST\nsource: TEST");
+
+        assertThat(subject.getLockKeys(autoKey), containsInAnyOrder("nic-hdl:"));
+        assertThat(subject.getLockKeys(explicitKey), containsInAnyOrder("nic-hdl:", "TR1-TEST"));
+    }
+
+    @Test
+    public void organisation_shares_namespace() {
+        final RpslObject autoKey = RpslObject.parse("organisation: AUTO-1\nsource: TEST");
+        final RpslObject explicitKey = RpslObject.parse("organisation: ORG-TO1-TEST\nsource: TEST");
+
+        assertThat(subject.getLockKeys(autoKey), containsInAnyOrder("organisation:"));
+        assertThat(subject.getLockKeys(explicitKey), containsInAnyOrder("organisation:", "ORG-TO1-TEST"));
+    }
+
+    @Test
+    public void references_are_locked_except_auto_keys() {
+        final RpslObject mntner = RpslObject.parse("" +
+                "mntner:  TEST-MNT\n" +
+                "admin-c: TP1-TEST\n" +
+                "tech-c:  AUTO-1\n" +
+                "mnt-by:  TEST-MNT\n" +
+                "source:  TEST");
+
+        assertThat(subject.getLockKeys(mntner), containsInAnyOrder("TEST-MNT", "TP1-TEST"));
+        assertThat(subject.getLockKeys(mntner), not(hasItem("AUTO-1")));
+    }
+
+    @Test
+    public void invalid_address_space_locks_primary_key() {
+        final RpslObject inetnum = RpslObject.parse("inetnum: invalid\nsource: TEST");
+
+        assertThat(subject.getLockKeys(inetnum), is(Collections.singleton("invalid")));
+    }
+}
@@ -0,0 +1,106 @@
+package net.ripe.db.whois.update.handler;
+
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.dao.AbstractUpdateDaoIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("IntegrationTest")
+public class UpdateLockerTestIntegration extends AbstractUpdateDaoIntegrationTest {
+    private static final RpslObject ASSIGNMENT = RpslObject.parse("inetnum: 10.0.0.0 - 10.0.0.255\nsource: TEST");
+
+    @Autowired
+    private UpdateLocker subject;
+
+    @Autowired
+    private UpdateLockKeys updateLockKeys;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setup() {
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(sourceAwareDataSource));
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        databaseHelper.addObject("inetnum: 0.0.0.0 - 255.255.255.255\nsource: TEST");
+        ipTreeUpdater.rebuild();
+    }
+
+    @Test
+    public void lock_keys_are_derived_from_current_tree() {
+        final Set<String> lockKeys = setResourceLocks();
+
+        assertThat(lockKeys, hasItem("inetnum:" + Ipv4Resource.parse("0.0.0.0 - 255.255.255.255")));
+    }
+
+    @Test
+    public void less_specific_committed_during_concurrent_tree_update_changes_lock_keys() throws Exception {
+        databaseHelper.addObject("inetnum: 10.0.0.0 - 10.255.255.255\nsource: TEST");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final SingleConnectionDataSource lockDataSource = new SingleConnectionDataSource(databaseHelper.getWhoisTemplate().getDataSource().getConnection(), true);
+        final JdbcTemplate lockTemplate = new JdbcTemplate(lockDataSource);
+        try {
+            // the scheduled tree update waits for the serials table while holding the tree update lock
+            lockTemplate.execute("LOCK TABLES serials WRITE");
+            final Future<?> treeUpdate = executor.submit(() -> ipTreeUpdater.update());
+            awaitTableLock();
+
+            // the lock keys are derived before the locks without the new less specific, the tree update is in progress
+            final Future<Set<String>> lockKeys = executor.submit(this::setResourceLocks);
+            assertThrows(TimeoutException.class, () -> lockKeys.get(1, TimeUnit.SECONDS));
+
+            lockTemplate.execute("UNLOCK TABLES");
+            treeUpdate.get(10, TimeUnit.SECONDS);
+
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> lockKeys.get(10, TimeUnit.SECONDS));
+            assertThat(e.getCause(), instanceOf(LockKeysChangedException.class));
+            assertThat(((LockKeysChangedException) e.getCause()).getLockKeys(), hasItem("inetnum:" + Ipv4Resource.parse("10.0.0.0 - 10.255.255.255")));
+        } finally {
+            lockTemplate.execute("UNLOCK TABLES");
+            lockDataSource.destroy();
+            executor.shutdownNow();
+        }
+    }
+
+    private Set<String> setResourceLocks() {
+        return transactionTemplate.execute(status -> {
+            subject.setResourceLocks(Collections.singleton(ASSIGNMENT), Collections.emptySet());
+            return updateLockKeys.getLockKeys(ASSIGNMENT);
+        });
+    }
+
+    private void awaitTableLock() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            final int waiting = databaseHelper.getWhoisTemplate().queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.processlist WHERE state LIKE 'Waiting for table%'", Integer.class);
+            if (waiting > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Tree update is not waiting for the serials table");
+    }
+}
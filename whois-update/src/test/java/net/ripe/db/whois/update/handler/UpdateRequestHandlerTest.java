@@ -52,6 +52,7 @@ public class UpdateRequestHandlerTest {
     @Mock UpdateNotifier updateNotifier;
     @Mock UpdateLog updateLog;
     @Mock SsoTranslator ssoTranslator;
+    @Mock SyntaxChecker syntaxChecker;
 
     @InjectMocks UpdateRequestHandler subject;
 
@@ -81,6 +82,7 @@ public class UpdateRequestHandlerTest {
         verify(sourceContext).setCurrentSourceToWhoisMaster();
         verify(sourceContext).removeCurrentSource();
         verify(dnsChecker).checkAll(updateRequest, updateContext);
+        verify(syntaxChecker).checkAll(updateRequest, updateContext);
         verify(singleUpdateHandler).handle(origin, Keyword.NONE, update, updateContext);
         verify(updateNotifier).sendNotifications(updateRequest, updateContext);
     }
@@ -0,0 +1,72 @@
+package net.ripe.db.whois.update.keycert;
+
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.rpsl.RpslObjectBuilder;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KeyWrapperCacheTest {
+
+    private KeyWrapperCache subject;
+
+    private RpslObject pgpKeycert;
+    private RpslObject x509Keycert;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        subject = new KeyWrapperCache(10);
+
+        pgpKeycert = new RpslObject(1, RpslObject.parse(getResource("keycerts/PGPKEY-A8D16B70.TXT")));
+        x509Keycert = new RpslObject(2, RpslObject.parse(getResource("keycerts/X509-1.TXT")));
+    }
+
+    @Test
+    public void pgp_key_is_parsed_once() {
+        final PgpPublicKeyWrapper keyWrapper = subject.getPgpPublicKeyWrapper(pgpKeycert);
+
+        assertThat(subject.getPgpPublicKeyWrapper(new RpslObject(1, pgpKeycert)), is(sameInstance(keyWrapper)));
+        assertThat(keyWrapper.getFingerprint(), is("D079 99F1 92D5 41B6 E7BC  6578 9175 DB8D A8D1 6B70"));
+    }
+
+    @Test
+    public void x509_certificate_is_parsed_once() {
+        final X509CertificateWrapper keyWrapper = subject.getX509CertificateWrapper(x509Keycert);
+
+        assertThat(subject.getX509CertificateWrapper(new RpslObject(2, x509Keycert)), is(sameInstance(keyWrapper)));
+    }
+
+    @Test
+    public void changed_keycert_is_parsed_again() {
+        final PgpPublicKeyWrapper keyWrapper = subject.getPgpPublicKeyWrapper(pgpKeycert);
+
+        final RpslObject updatedKeycert = new RpslObjectBuilder(pgpKeycert).addAttributeSorted(new RpslAttribute(AttributeType.REMARKS, "updated")).get();
+
+        assertThat(subject.getPgpPublicKeyWrapper(updatedKeycert), is(not(sameInstance(keyWrapper))));
+    }
+
+    @Test
+    public void invalid_keycert_is_not_cached() {
+        final RpslObject invalidKeycert = new RpslObject(1, x509Keycert);
+
+        assertThrows(IllegalArgumentException.class, () -> subject.getPgpPublicKeyWrapper(invalidKeycert));
+        assertThat(subject.getX509CertificateWrapper(invalidKeycert), is(not(nullValue())));
+    }
+
+    private String getResource(final String resourceName) throws IOException {
+        return IOUtils.toString(new ClassPathResource(resourceName).getInputStream(), Charset.defaultCharset());
+    }
+}
@@ -84,6 +84,7 @@ public class LoggerContextTest {
                 outputStream.write("test".getBytes());
             }
         });
+        subject.flush();
 
         final InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(new File(folder.getAbsolutePath(), "001.test.txt.gz"))));
         final String contents = new String(FileCopyUtils.copyToByteArray(is), StandardCharsets.UTF_8);
@@ -92,6 +93,56 @@ public class LoggerContextTest {
         assertThat(contents, is("test"));
     }
 
+    @Test
+    public void remove_writes_all_files() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            final String content = "test" + i;
+            subject.log("test.txt", new LogCallback() {
+                @Override
+                public void log(final OutputStream outputStream) throws IOException {
+                    outputStream.write(content.getBytes());
+                }
+            });
+        }
+
+        subject.remove();
+
+        for (int i = 0; i < 10; i++) {
+            final InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(new File(folder.getAbsolutePath(), String.format("%03d.test.txt.gz", i + 1)))));
+            assertThat(new String(FileCopyUtils.copyToByteArray(is), StandardCharsets.UTF_8), is("test" + i));
+        }
+        assertThat(new File(folder.getAbsolutePath(), "000.audit.xml.gz").exists(), is(true));
+    }
+
+    @Test
+    public void flush_throws_exception_if_file_cannot_be_written() {
+        subject.log("missing/test.txt", new LogCallback() {
+            @Override
+            public void log(final OutputStream outputStream) throws IOException {
+                outputStream.write("test".getBytes());
+            }
+        });
+
+        Assertions.assertThrows(IllegalStateException.class, () -> subject.flush());
+    }
+
+    @Test
+    public void files_are_written_after_stop() throws Exception {
+        subject.stop();
+
+        subject.log("test.txt", new LogCallback() {
+            @Override
+            public void log(final OutputStream outputStream) throws IOException {
+                outputStream.write("test".getBytes());
+            }
+        });
+        subject.remove();
+
+        final InputStream is = new GZIPInputStream(new BufferedInputStream(new FileInputStream(new File(folder.getAbsolutePath(), "001.test.txt.gz"))));
+        assertThat(new String(FileCopyUtils.copyToByteArray(is), StandardCharsets.UTF_8), is("test"));
+        assertThat(new File(folder.getAbsolutePath(), "000.audit.xml.gz").length() > 0, is(true));
+    }
+
     @Test
     public void log_throws_exception() {
         Assertions.assertThrows(IllegalStateException.class, () -> {